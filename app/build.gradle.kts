@@ -15,6 +15,10 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Looks up typed emails on the sign-up form; leave off while the Firebase project has
+        // email enumeration protection on, since every lookup then says the email is free
+        buildConfigField("boolean", "EMAIL_LOOKUP_ENABLED", "false")
     }
 
     buildTypes {
@@ -26,10 +30,26 @@ android {
             )
         }
     }
+    buildFeatures {
+        // BuildConfig.DEBUG turns on the startup I/O guard, EMAIL_LOOKUP_ENABLED the sign-up lookup
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Lets JVM tests run code that logs through android.util.Log
+        unitTests.isReturnDefaultValues = true
+        // Robolectric tests inflate the app's real layouts
+        unitTests.isIncludeAndroidResources = true
+        // Benchmarks take a while and only print numbers; run them with -Pbenchmarks
+        unitTests.all {
+            if (!project.hasProperty("benchmarks")) {
+                it.exclude("**/*Benchmark*")
+            }
+        }
+    }
 }
 
 dependencies {
@@ -39,6 +59,9 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     implementation(libs.viewpager2)
+    implementation(libs.lifecycle.runtime)
+    implementation(libs.asynclayoutinflater)
+    implementation(libs.zxing.core)
     
     // Firebase BoM
     implementation(platform(libs.firebase.bom))
@@ -51,6 +74,10 @@ dependencies {
     implementation(libs.play.services.auth)
     
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
+    // Android's own org.json is only stubbed out in JVM tests
+    testImplementation(libs.json)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.pointbrew_app;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Points instrumented tests at a local Firestore emulator ({@code firebase emulators:start --only firestore}).
+ */
+final class FirestoreEmulator {
+
+    // 10.0.2.2 is the host machine as seen from the Android emulator
+    private static final String HOST = "10.0.2.2";
+    private static final int PORT = 8080;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static FirebaseFirestore sFirestore;
+
+    private FirestoreEmulator() {
+    }
+
+    static synchronized FirebaseFirestore firestore() {
+        if (sFirestore == null) {
+            FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+            firestore.useEmulator(HOST, PORT);
+            sFirestore = firestore;
+        }
+        return sFirestore;
+    }
+
+    static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    static String uniqueUid() {
+        return "test-" + UUID.randomUUID();
+    }
+}
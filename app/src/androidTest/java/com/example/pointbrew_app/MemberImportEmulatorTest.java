@@ -0,0 +1,100 @@
+package com.example.pointbrew_app;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Import throughput for {@link MemberImporter} against the Firestore emulator, with one batch
+ * at a time and with the default number in flight.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MemberImportEmulatorTest {
+
+    private static final int MEMBERS = Integer.getInteger("import.benchmark.members", 5_000);
+
+    private FirebaseFirestore firestore;
+    private FirebaseAuthBackend backend;
+    private File checkpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        firestore = FirestoreEmulator.firestore();
+        backend = new FirebaseAuthBackend(() -> null, () -> firestore);
+        checkpoint = File.createTempFile("import", ".checkpoint");
+        assertTrue(checkpoint.delete());
+    }
+
+    @After
+    public void tearDown() {
+        checkpoint.delete();
+    }
+
+    @Test
+    public void throughput() throws Exception {
+        double sequential = importMembers(1);
+        double concurrent = importMembers(MemberImporter.DEFAULT_MAX_IN_FLIGHT_BATCHES);
+
+        System.out.printf("member import, %d docs: 1 batch in flight %.0f docs/s, %d in flight %.0f docs/s%n",
+                MEMBERS, sequential, MemberImporter.DEFAULT_MAX_IN_FLIGHT_BATCHES, concurrent);
+    }
+
+    @Test
+    public void importOverExistingProfile_keepsWhatTheRowLeavesOut() throws Exception {
+        String uid = FirestoreEmulator.uniqueUid();
+        FirestoreEmulator.await(backend.writeProfile(
+                ProfileUpsert.forNewUser(uid, "ann@example.com", "Ann", null, new Date(0), false)));
+        DocumentSnapshot signedUp = FirestoreEmulator.await(
+                firestore.collection("users").document(uid).get(Source.SERVER));
+        String csv = "uid,email,displayName,birthDate,createdAt,isGoogleSignIn\n"
+                + uid + ",ann@example.com,,,,\n";
+
+        MemberImporter importer = new MemberImporter(backend, checkpoint, ProfileWriteJournal.MAX_BATCH_SIZE,
+                1, Clock.SYSTEM);
+        assertEquals(1, importer.run(new CsvMemberReader(new StringReader(csv))).getImported());
+
+        DocumentSnapshot imported = FirestoreEmulator.await(
+                firestore.collection("users").document(uid).get(Source.SERVER));
+        assertEquals("Ann", imported.getString(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertEquals(new Date(0), imported.getDate(ProfileUpsert.FIELD_BIRTH_DATE));
+        assertEquals(signedUp.getDate(ProfileUpsert.FIELD_CREATED_AT),
+                imported.getDate(ProfileUpsert.FIELD_CREATED_AT));
+        assertEquals(signedUp.getDate(ProfileUpsert.FIELD_LAST_LOGIN_AT),
+                imported.getDate(ProfileUpsert.FIELD_LAST_LOGIN_AT));
+    }
+
+    private double importMembers(int maxInFlight) throws Exception {
+        String prefix = FirestoreEmulator.uniqueUid() + "-";
+        StringBuilder csv = new StringBuilder("uid,email,displayName,birthDate,createdAt,isGoogleSignIn\n");
+        for (int i = 0; i < MEMBERS; i++) {
+            csv.append(prefix).append(i).append(",member").append(i).append("@example.com,Member ").append(i)
+                    .append(",1990-01-01,2018-06-30,false\n");
+        }
+        assertTrue(!checkpoint.exists() || checkpoint.delete());
+
+        MemberImporter importer = new MemberImporter(backend, checkpoint, ProfileWriteJournal.MAX_BATCH_SIZE,
+                maxInFlight, Clock.SYSTEM);
+        MemberImporter.Report report = importer.run(new CsvMemberReader(new StringReader(csv.toString())));
+
+        assertEquals(MEMBERS, report.getImported());
+        assertEquals(MEMBERS, importer.readCheckpoint());
+        DocumentSnapshot last = FirestoreEmulator.await(
+                firestore.collection("users").document(prefix + (MEMBERS - 1)).get(Source.SERVER));
+        assertEquals("member" + (MEMBERS - 1) + "@example.com", last.getString(ProfileUpsert.FIELD_EMAIL));
+        assertNotNull(last.getDate(ProfileUpsert.FIELD_CREATED_AT));
+        return report.getDocsPerSecond();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.pointbrew_app;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test for {@link FirestorePointsLedger} against the Firestore emulator: concurrent earns
+ * and redeems for one user, each retried until it gets an answer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PointsLedgerEmulatorTest {
+
+    private static final int CLIENTS = 8;
+    private static final int OPS_PER_CLIENT = 20;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private FirebaseFirestore firestore;
+    private FirestorePointsLedger ledger;
+    private String uid;
+
+    @Before
+    public void setUp() {
+        firestore = FirestoreEmulator.firestore();
+        ledger = new FirestorePointsLedger(() -> firestore);
+        uid = FirestoreEmulator.uniqueUid();
+    }
+
+    @Test
+    public void concurrentEarnsAndRedeems_balanceMatchesLedger() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> running = new ArrayList<>();
+        List<Long> seen = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                running.add(clients.submit(() -> {
+                    for (int i = 0; i < OPS_PER_CLIENT; i++) {
+                        String key = client + "-" + i;
+                        PointsTransaction transaction = i % 3 == 2
+                                ? PointsTransaction.redeem("redeem-" + key, 7, "stress")
+                                : PointsTransaction.earn("earn-" + key, 5, "stress");
+                        Long balance = applyWithRetries(transaction);
+                        // Send every earn twice, as a client would after a lost response
+                        if (transaction.getDelta() > 0) {
+                            assertEquals(balance, applyWithRetries(transaction));
+                        }
+                        if (balance != null) {
+                            synchronized (seen) {
+                                seen.add(balance);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : running) {
+                client.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        long sum = 0;
+        int entries = 0;
+        for (DocumentSnapshot entry : FirestoreEmulator.await(firestore.collection("users").document(uid)
+                .collection(FirestorePointsLedger.TRANSACTIONS_COLLECTION).get()).getDocuments()) {
+            sum += entry.getLong(FirestorePointsLedger.FIELD_DELTA);
+            entries++;
+        }
+        int earns = CLIENTS * (OPS_PER_CLIENT - OPS_PER_CLIENT / 3);
+        assertTrue("duplicate or missing earns: " + entries, entries >= earns && entries <= CLIENTS * OPS_PER_CLIENT);
+        assertEquals(Long.valueOf(sum), balance());
+        for (long balance : seen) {
+            assertTrue("negative balance " + balance, balance >= 0);
+        }
+    }
+
+    /**
+     * The balance after {@code transaction}, or null if it was rejected for lack of points.
+     */
+    private Long applyWithRetries(PointsTransaction transaction) throws Exception {
+        Exception last = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            CompletableFuture<Long> result = new CompletableFuture<>();
+            ledger.apply(uid, transaction, new AuthBackend.Callback<Long>() {
+                @Override
+                public void onSuccess(Long balance) {
+                    result.complete(balance);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            try {
+                return result.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof InsufficientPointsException) {
+                    return null;
+                }
+                last = (Exception) e.getCause();
+            }
+        }
+        throw last;
+    }
+
+    private Long balance() throws Exception {
+        CompletableFuture<Long> balance = new CompletableFuture<>();
+        ledger.getBalance(uid, new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long result) {
+                balance.complete(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                balance.completeExceptionally(e);
+            }
+        });
+        return balance.get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.pointbrew_app;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link FirebaseAuthBackend#writeProfile} against the Firestore emulator.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProfileUpsertEmulatorTest {
+
+    private FirebaseFirestore firestore;
+    private FirebaseAuthBackend backend;
+
+    @Before
+    public void setUp() {
+        firestore = FirestoreEmulator.firestore();
+        backend = new FirebaseAuthBackend(() -> null, () -> firestore);
+    }
+
+    @Test
+    public void returningUser_keepsProfileAndBumpsLastLogin() throws Exception {
+        String uid = FirestoreEmulator.uniqueUid();
+        DocumentReference userRef = firestore.collection("users").document(uid);
+        Date birthDate = new Date(0);
+        FirestoreEmulator.await(backend.writeProfile(
+                ProfileUpsert.forNewUser(uid, "old@example.com", "Barista Bob", null, birthDate, false)));
+        DocumentSnapshot created = FirestoreEmulator.await(userRef.get(Source.SERVER));
+
+        FirestoreEmulator.await(backend.writeProfile(
+                ProfileUpsert.forReturningUser(uid, "new@example.com")));
+
+        DocumentSnapshot updated = FirestoreEmulator.await(userRef.get(Source.SERVER));
+        assertEquals("Barista Bob", updated.getString("displayName"));
+        assertEquals(birthDate, updated.getDate("birthDate"));
+        assertEquals(created.getDate("createdAt"), updated.getDate("createdAt"));
+        assertEquals(Boolean.FALSE, updated.getBoolean("isGoogleSignIn"));
+        assertEquals("new@example.com", updated.getString("email"));
+        assertNotNull(updated.getDate("lastLoginAt"));
+        assertFalse(updated.getDate("lastLoginAt").before(created.getDate("lastLoginAt")));
+    }
+
+    @Test
+    public void googleSignInAfterEmailRegistration_keepsChosenProfile() throws Exception {
+        String uid = FirestoreEmulator.uniqueUid();
+        DocumentReference userRef = firestore.collection("users").document(uid);
+        FirestoreEmulator.await(backend.writeProfile(
+                ProfileUpsert.forNewUser(uid, "bob@example.com", "Barista Bob", null, new Date(0), false)));
+
+        // What AuthManager writes when the same account later signs in with Google
+        FirestoreEmulator.await(backend.writeProfile(
+                ProfileUpsert.forReturningUser(uid, "bob@example.com")));
+
+        DocumentSnapshot stored = FirestoreEmulator.await(userRef.get(Source.SERVER));
+        assertEquals("Barista Bob", stored.getString("displayName"));
+        assertEquals(Boolean.FALSE, stored.getBoolean("isGoogleSignIn"));
+        assertFalse(stored.contains("photoUrl"));
+    }
+
+    @Test
+    public void upsert_needsNoServerRead() throws Exception {
+        String uid = FirestoreEmulator.uniqueUid();
+        DocumentReference userRef = firestore.collection("users").document(uid);
+        Map<String, Object> existing = new HashMap<>();
+        existing.put("displayName", "Latte Lisa");
+        FirestoreEmulator.await(userRef.set(existing));
+
+        // Offline, a read-then-write upsert could not make progress; a blind write lands in the
+        // local cache right away and is committed as a single write once the network returns
+        FirestoreEmulator.await(firestore.disableNetwork());
+        Task<Void> write;
+        try {
+            write = backend.writeProfile(ProfileUpsert.forReturningUser(uid, "lisa@example.com"));
+            DocumentSnapshot pending = FirestoreEmulator.await(userRef.get(Source.CACHE));
+            assertTrue(pending.getMetadata().hasPendingWrites());
+            assertEquals("lisa@example.com", pending.getString("email"));
+            assertFalse(write.isComplete());
+        } finally {
+            FirestoreEmulator.await(firestore.enableNetwork());
+        }
+        FirestoreEmulator.await(write);
+
+        DocumentSnapshot stored = FirestoreEmulator.await(userRef.get(Source.SERVER));
+        assertEquals("Latte Lisa", stored.getString("displayName"));
+        assertEquals("lisa@example.com", stored.getString("email"));
+        assertNotNull(stored.getDate("lastLoginAt"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.pointbrew_app;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test for {@link ShardedCounter} on {@link FirestoreCounterStore} against the Firestore emulator.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShardedCounterEmulatorTest {
+
+    private static final int WRITERS = 16;
+    private static final int INCREMENTS_PER_WRITER = 50;
+    private static final int SHARDS = LoginStats.DAILY_SHARDS;
+
+    private FirestoreCounterStore store;
+
+    @Before
+    public void setUp() {
+        FirebaseFirestore firestore = FirestoreEmulator.firestore();
+        store = new FirestoreCounterStore(() -> firestore);
+    }
+
+    @Test
+    public void concurrentIncrements_allLandWithoutErrors() throws Exception {
+        String path = "stats/" + FirestoreEmulator.uniqueUid();
+        ShardedCounter counter = new ShardedCounter(store, path, SHARDS, new Random(), Clock.SYSTEM, 0);
+        int total = WRITERS * INCREMENTS_PER_WRITER;
+        CountDownLatch done = new CountDownLatch(total);
+        List<Exception> errors = new ArrayList<>();
+        AtomicLong slowestNanos = new AtomicLong();
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+
+        long start = System.nanoTime();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                writers.execute(() -> {
+                    for (int i = 0; i < INCREMENTS_PER_WRITER; i++) {
+                        long sent = System.nanoTime();
+                        counter.increment(1, new AuthBackend.Callback<Void>() {
+                            @Override
+                            public void onSuccess(Void result) {
+                                slowestNanos.accumulateAndGet(System.nanoTime() - sent, Math::max);
+                                done.countDown();
+                            }
+
+                            @Override
+                            public void onError(Exception e) {
+                                synchronized (errors) {
+                                    errors.add(e);
+                                }
+                                done.countDown();
+                            }
+                        });
+                    }
+                });
+            }
+            assertTrue("increments timed out", done.await(120, TimeUnit.SECONDS));
+        } finally {
+            writers.shutdownNow();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.printf("%d increments over %d shards from %d writers: %d ms (%.0f/s), slowest ack %d ms%n",
+                total, SHARDS, WRITERS, elapsedMillis, total * 1000.0 / Math.max(1, elapsedMillis),
+                TimeUnit.NANOSECONDS.toMillis(slowestNanos.get()));
+        assertTrue("errors: " + errors, errors.isEmpty());
+        assertEquals(Long.valueOf(total), readTotal(counter));
+    }
+
+    @Test
+    public void loginStats_countsAgainstEmulator() throws Exception {
+        LoginStats stats = new LoginStats(store, Clock.SYSTEM, new Random());
+        String uid = FirestoreEmulator.uniqueUid();
+        stats.recordLogin(uid);
+        stats.recordLogin(uid);
+
+        // recordLogin doesn't report back; poll until both writes are visible
+        long deadline = System.currentTimeMillis() + 30_000;
+        Long count = 0L;
+        while (count < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            count = readTotal(new ShardedCounter(store, LoginStats.userLoginsPath(uid), LoginStats.USER_SHARDS,
+                    new Random(), Clock.SYSTEM, 0));
+        }
+        assertEquals(Long.valueOf(2), count);
+    }
+
+    private static Long readTotal(ShardedCounter counter) throws Exception {
+        CompletableFuture<Long> total = new CompletableFuture<>();
+        counter.read(new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long result) {
+                total.complete(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                total.completeExceptionally(e);
+            }
+        });
+        return total.get(30, TimeUnit.SECONDS);
+    }
+}
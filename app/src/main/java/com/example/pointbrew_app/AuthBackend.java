@@ -0,0 +1,103 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * The network-facing operations {@link AuthManager} depends on.
+ *
+ * Callbacks may be delivered on any thread; implementations must call exactly one of
+ * {@link Callback#onSuccess} or {@link Callback#onError} per request.
+ */
+public interface AuthBackend {
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onError(Exception e);
+    }
+
+    interface AuthStateListener {
+        void onAuthStateChanged(@Nullable AuthUser user);
+    }
+
+    /**
+     * Outcome of a sign-in or sign-up call.
+     */
+    final class SignInResult {
+        private final AuthUser mUser;
+        private final boolean mNewUser;
+
+        public SignInResult(@NonNull AuthUser user, boolean newUser) {
+            mUser = user;
+            mNewUser = newUser;
+        }
+
+        @NonNull
+        public AuthUser getUser() {
+            return mUser;
+        }
+
+        /**
+         * True when this call created the account.
+         */
+        public boolean isNewUser() {
+            return mNewUser;
+        }
+    }
+
+    @Nullable
+    AuthUser getCurrentUser();
+
+    void signInWithEmail(String email, String password, Callback<SignInResult> callback);
+
+    void createUserWithEmail(String email, String password, Callback<SignInResult> callback);
+
+    void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback);
+
+    void sendPasswordResetEmail(String email, Callback<Void> callback);
+
+    /**
+     * True if an account already uses the email, or null if the backend won't say. False
+     * doesn't guarantee that sign-up will succeed.
+     */
+    void isEmailRegistered(String email, Callback<Boolean> callback);
+
+    void signOut();
+
+    /**
+     * Calls the listener with the signed-in user, or null, once the persisted session has been
+     * restored, and again on every sign-in and sign-out.
+     */
+    Subscription addAuthStateListener(AuthStateListener listener);
+
+    /**
+     * Calls {@code onSuccess} with {@code users/{uid}}, or null if it doesn't exist, starting with
+     * the locally cached copy when there is one and again on every change. A failed listener
+     * calls {@code onError} once and is not called again. Each call opens its own listener.
+     */
+    Subscription addProfileListener(String uid, Callback<UserProfile> listener);
+
+    /**
+     * The signed-in user's ID token, for calls to our own backend. Fails if nobody is signed in.
+     */
+    void getIdToken(boolean forceRefresh, Callback<IdToken> callback);
+
+    void upsertProfile(ProfileUpsert upsert, Callback<Void> callback);
+
+    /**
+     * Applies several profile writes atomically, as one request.
+     */
+    void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback);
+
+    /**
+     * Reads {@code users/{uid}}; the result is null if the document doesn't exist.
+     */
+    void fetchProfile(String uid, Callback<UserProfile> callback);
+
+    /**
+     * True if the error is likely to go away on retry, such as a dropped connection or throttling.
+     */
+    boolean isTransientError(Exception e);
+}
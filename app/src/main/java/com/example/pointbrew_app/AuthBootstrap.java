@@ -0,0 +1,92 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Everything that has to happen between "signed in" and "ready to show the app".
+ *
+ * Once sign-in completes every step is started at the same time, so getting ready takes as
+ * long as the slowest step rather than all of them added up. The returned future is the single
+ * completion point: it completes with the user once every step has, or fails with the first
+ * step that fails. Cancelling it cancels whatever is still running.
+ */
+public class AuthBootstrap {
+
+    /**
+     * One piece of post-login work, e.g. waiting for the profile write or loading the profile.
+     */
+    public interface Step {
+        @NonNull
+        CompletableFuture<?> start(@NonNull AuthUser user);
+    }
+
+    private final List<Step> mSteps;
+
+    public AuthBootstrap(@NonNull List<Step> steps) {
+        mSteps = Collections.unmodifiableList(new ArrayList<>(steps));
+    }
+
+    public AuthBootstrap(@NonNull Step... steps) {
+        this(Arrays.asList(steps));
+    }
+
+    /**
+     * Runs the steps for the user {@code signIn} produces.
+     */
+    public CompletableFuture<AuthUser> start(@NonNull CompletableFuture<AuthUser> signIn) {
+        CompletableFuture<AuthUser> ready = new CompletableFuture<>();
+        List<CompletableFuture<?>> running = new ArrayList<>();
+
+        signIn.whenComplete((user, error) -> {
+            if (error != null) {
+                ready.completeExceptionally(error);
+                return;
+            }
+            CompletableFuture<?>[] steps = new CompletableFuture<?>[mSteps.size()];
+            synchronized (running) {
+                if (ready.isDone()) return;
+                for (int i = 0; i < steps.length; i++) {
+                    steps[i] = startStep(mSteps.get(i), user);
+                    running.add(steps[i]);
+                }
+            }
+            for (CompletableFuture<?> step : steps) {
+                // Fail as soon as any step does instead of waiting for the others
+                step.whenComplete((ignored, stepError) -> {
+                    if (stepError != null) {
+                        ready.completeExceptionally(stepError);
+                    }
+                });
+            }
+            CompletableFuture.allOf(steps).thenRun(() -> ready.complete(user));
+        });
+
+        ready.whenComplete((user, error) -> {
+            if (!ready.isCancelled() && error == null) return;
+            // Cancelled, or a step failed: nothing else is worth finishing
+            signIn.cancel(false);
+            synchronized (running) {
+                for (CompletableFuture<?> step : running) {
+                    step.cancel(false);
+                }
+            }
+        });
+        return ready;
+    }
+
+    private static CompletableFuture<?> startStep(Step step, AuthUser user) {
+        try {
+            return step.start(user);
+        } catch (RuntimeException e) {
+            CompletableFuture<?> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the login and sign-up forms while they are being typed in.
+ *
+ * Each change to a field restarts its debounce; once the field has been left alone for a moment
+ * its trimmed text is checked and the result handed to the {@link Listener}. Text that was
+ * already checked isn't checked again. On the sign-up form a well-formed email is then looked up
+ * through {@link EmailRegistrationCache}, and typing again cancels the lookup so a late answer
+ * for an old address never lands on a newer one.
+ *
+ * {@link #validateAll} checks every field at once for the submit button. Call everything from
+ * the main thread; the scheduler and callback executor have to run tasks there too.
+ */
+public class AuthFormValidator {
+    private static final String TAG = "AuthFormValidator";
+
+    public enum Field {
+        DISPLAY_NAME,
+        BIRTH_DATE,
+        EMAIL,
+        PASSWORD
+    }
+
+    public interface Listener {
+        /**
+         * @param error what is wrong with the field, or null if it is fine
+         */
+        void onFieldValidated(@NonNull Field field, @Nullable String error);
+    }
+
+    // Long enough to skip the keystrokes of a word, short enough to feel live
+    static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+    public static final int MIN_PASSWORD_LENGTH = 6;
+
+    static final String EMAIL_TAKEN = "An account already exists for this email";
+
+    // Compiled once rather than on every check
+    private static final Pattern EMAIL = Pattern.compile("[^\\s@]+@[^\\s@]+\\.[^\\s@]+");
+    private static final Pattern BIRTH_DATE = Pattern.compile("(\\d{2})/(\\d{2})/(\\d{4})");
+    private static final int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private static final class FieldState {
+        String text = "";
+        // The text the current error belongs to; null until the field is first checked
+        String checkedText;
+        String error;
+        // False while an email lookup for checkedText is outstanding or failed
+        boolean settled;
+        Scheduler.Cancellable debounce;
+        Scheduler.Cancellable lookup;
+        // Bumped whenever a lookup is superseded, so one already posted back is ignored
+        int lookupGeneration;
+    }
+
+    private final Map<Field, FieldState> mFields = new EnumMap<>(Field.class);
+    private final int mMinPasswordLength;
+    @Nullable
+    private final EmailRegistrationCache mEmailRegistrations;
+    private final Clock mClock;
+    private final Scheduler mScheduler;
+    private final Executor mCallbackExecutor;
+    private final long mDebounceMillis;
+    private final Listener mListener;
+
+    private Date mBirthDate;
+
+    /**
+     * @param emailRegistrations where to look up typed emails; null to only check their format
+     * @param callbackExecutor where lookup results are handled, the main thread in the app
+     */
+    AuthFormValidator(@NonNull Set<Field> fields, int minPasswordLength,
+                      @Nullable EmailRegistrationCache emailRegistrations, @NonNull Clock clock,
+                      @NonNull Scheduler scheduler, @NonNull Executor callbackExecutor, long debounceMillis,
+                      @NonNull Listener listener) {
+        for (Field field : fields) {
+            mFields.put(field, new FieldState());
+        }
+        mMinPasswordLength = minPasswordLength;
+        mEmailRegistrations = emailRegistrations;
+        mClock = clock;
+        mScheduler = scheduler;
+        mCallbackExecutor = callbackExecutor;
+        mDebounceMillis = debounceMillis;
+        mListener = listener;
+    }
+
+    /**
+     * Email and password; any password that isn't blank, since older accounts may have short ones.
+     */
+    public static AuthFormValidator forLogin(@NonNull Listener listener) {
+        return new AuthFormValidator(EnumSet.of(Field.EMAIL, Field.PASSWORD), 1, null, Clock.SYSTEM,
+                new MainThreadScheduler(), Runnable::run, DEFAULT_DEBOUNCE_MILLIS, listener);
+    }
+
+    /**
+     * Every field, warning about emails that already have an account.
+     */
+    public static AuthFormValidator forRegistration(@NonNull EmailRegistrationCache emailRegistrations,
+                                                    @NonNull Executor callbackExecutor,
+                                                    @NonNull Listener listener) {
+        return new AuthFormValidator(EnumSet.allOf(Field.class), MIN_PASSWORD_LENGTH, emailRegistrations,
+                Clock.SYSTEM, new MainThreadScheduler(), callbackExecutor, DEFAULT_DEBOUNCE_MILLIS, listener);
+    }
+
+    /**
+     * Called from the field's text watcher; the check runs once the field has been still for
+     * the debounce delay.
+     */
+    public void onTextChanged(@NonNull Field field, @NonNull CharSequence text) {
+        FieldState state = state(field);
+        state.text = text.toString().trim();
+        if (state.debounce != null) {
+            state.debounce.cancel();
+        }
+        // Whatever is being looked up is no longer what the field says
+        if (!state.text.equals(state.checkedText)) {
+            cancelLookup(state);
+        }
+        state.debounce = mScheduler.schedule(() -> {
+            state.debounce = null;
+            check(field, state);
+        }, mDebounceMillis);
+    }
+
+    /**
+     * Checks every field now, for the submit button. Pending debounces run straight away; an email
+     * lookup still in flight doesn't hold the form up, since sign-up reports a taken email anyway.
+     *
+     * @return the first field with an error, in form order, or null if the form can be sent
+     */
+    @Nullable
+    public Field validateAll() {
+        Field invalid = null;
+        for (Map.Entry<Field, FieldState> entry : mFields.entrySet()) {
+            FieldState state = entry.getValue();
+            if (state.debounce != null) {
+                state.debounce.cancel();
+                state.debounce = null;
+            }
+            check(entry.getKey(), state);
+            if (invalid == null && state.error != null) {
+                invalid = entry.getKey();
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * The field's text, trimmed, as last typed.
+     */
+    @NonNull
+    public String getText(@NonNull Field field) {
+        return state(field).text;
+    }
+
+    /**
+     * The birth date as last checked, or null if it wasn't valid.
+     */
+    @Nullable
+    public Date getBirthDate() {
+        return mBirthDate;
+    }
+
+    /**
+     * Drops pending checks and lookups; call when the form's views go away.
+     */
+    public void cancel() {
+        for (FieldState state : mFields.values()) {
+            if (state.debounce != null) {
+                state.debounce.cancel();
+                state.debounce = null;
+            }
+            cancelLookup(state);
+        }
+    }
+
+    private FieldState state(Field field) {
+        FieldState state = mFields.get(field);
+        if (state == null) {
+            throw new IllegalArgumentException(field + " is not on this form");
+        }
+        return state;
+    }
+
+    private void check(Field field, FieldState state) {
+        String text = state.text;
+        if (state.settled && text.equals(state.checkedText)) return;
+        cancelLookup(state);
+        state.checkedText = text;
+        state.settled = true;
+        String error = rule(field, text);
+        if (error == null && field == Field.EMAIL && mEmailRegistrations != null) {
+            Boolean registered = mEmailRegistrations.peek(text);
+            if (registered == null) {
+                state.settled = false;
+                report(field, state, null);
+                lookUp(state, text);
+                return;
+            }
+            error = registered ? EMAIL_TAKEN : null;
+        }
+        report(field, state, error);
+    }
+
+    private void lookUp(FieldState state, String email) {
+        int generation = state.lookupGeneration;
+        state.lookup = mEmailRegistrations.check(email, new AuthBackend.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean registered) {
+                mCallbackExecutor.execute(() -> {
+                    if (state.lookupGeneration != generation) return;
+                    state.lookup = null;
+                    state.settled = true;
+                    // Null when the backend won't say; sign-up reports a taken email anyway
+                    if (Boolean.TRUE.equals(registered)) {
+                        report(Field.EMAIL, state, EMAIL_TAKEN);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // The format is fine; the next check asks again
+                Log.w(TAG, "Could not look up " + email, e);
+                mCallbackExecutor.execute(() -> {
+                    if (state.lookupGeneration == generation) {
+                        state.lookup = null;
+                    }
+                });
+            }
+        });
+    }
+
+    private void cancelLookup(FieldState state) {
+        state.lookupGeneration++;
+        state.settled = false;
+        if (state.lookup != null) {
+            state.lookup.cancel();
+            state.lookup = null;
+        }
+    }
+
+    private void report(Field field, FieldState state, @Nullable String error) {
+        state.error = error;
+        mListener.onFieldValidated(field, error);
+    }
+
+    @Nullable
+    private String rule(Field field, String text) {
+        switch (field) {
+            case DISPLAY_NAME:
+                return text.isEmpty() ? "Name is required" : null;
+            case BIRTH_DATE:
+                mBirthDate = null;
+                if (text.isEmpty()) return "Birth date is required";
+                Date birthDate = parseBirthDate(text);
+                if (birthDate == null) return "Enter the date as MM/DD/YYYY";
+                if (birthDate.getTime() > mClock.nowMillis()) return "Birth date can't be in the future";
+                mBirthDate = birthDate;
+                return null;
+            case EMAIL:
+                if (text.isEmpty()) return "Email is required";
+                return EMAIL.matcher(text).matches() ? null : "Enter a valid email address";
+            case PASSWORD:
+                if (text.isEmpty()) return "Password is required";
+                return text.length() < mMinPasswordLength
+                        ? "Password must be at least " + mMinPasswordLength + " characters" : null;
+            default:
+                throw new AssertionError(field);
+        }
+    }
+
+    /**
+     * Parses MM/dd/yyyy at local midnight, or returns null if it isn't a real date.
+     */
+    @Nullable
+    static Date parseBirthDate(String text) {
+        Matcher matcher = BIRTH_DATE.matcher(text);
+        if (!matcher.matches()) return null;
+        int month = Integer.parseInt(matcher.group(1));
+        int day = Integer.parseInt(matcher.group(2));
+        int year = Integer.parseInt(matcher.group(3));
+        if (month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1]) return null;
+        GregorianCalendar calendar = new GregorianCalendar(year, month - 1, day);
+        if (month == 2 && day == 29 && !calendar.isLeapYear(year)) return null;
+        return calendar.getTime();
+    }
+
+    /**
+     * The date picker's choice in the format {@link #parseBirthDate} reads.
+     */
+    static String formatBirthDate(Calendar calendar) {
+        return String.format(Locale.US, "%02d/%02d/%04d", calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.YEAR));
+    }
+}
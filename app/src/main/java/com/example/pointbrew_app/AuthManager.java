@@ -1,65 +1,447 @@
 package com.example.pointbrew_app;
 
-import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
 
+import com.example.pointbrew_app.AuthMetrics.Operation;
+import com.example.pointbrew_app.AuthMetrics.Phase;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
-import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
-import com.google.android.gms.common.api.ApiException;
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
-import com.google.firebase.auth.AuthCredential;
-import com.google.firebase.auth.AuthResult;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.auth.GoogleAuthProvider;
-import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.FirebaseFirestore;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class AuthManager {
     private static final String TAG = "AuthManager";
     public static final int RC_SIGN_IN = 9001;
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 30_000;
+    private static final String METRICS_FILE_NAME = "auth_metrics.txt";
+    private static final String STALLS_FILE_NAME = "main_thread_stalls.txt";
+    private static final long METRICS_REPORT_PERIOD_MILLIS = 5 * 60_000;
+    private static final String PROFILE_JOURNAL_FILE_NAME = "profile_journal.bin";
+    private static final String PROFILE_CACHE_DIR_NAME = "profiles";
+    private static final String SILENT_SIGN_IN_KEY = "silentGoogleSignIn";
+    // Google ID tokens are valid for an hour; leave headroom for the Firebase exchange
+    private static final long PREWARMED_ID_TOKEN_MAX_AGE_MILLIS = 50 * 60_000;
+    // Long enough to ride out a rotation or a hop between screens watching the same profile
+    private static final long PROFILE_LISTENER_GRACE_MILLIS = 10_000;
 
-    private final FirebaseAuth mAuth;
-    private final FirebaseFirestore mFirestore;
-    private final GoogleSignInClient mGoogleSignInClient;
-    private final Context mContext;
+    private static volatile AuthManager sInstance;
+
+    private final AuthBackend mBackend;
+    // Created on first use so cold start only pays for what the current screen needs
+    private final Lazy<GoogleSignInGateway> mGoogleSignIn;
+    // Repeated taps or a rotation mid-request join the request already in flight
+    private final SingleFlight<AuthBackend.SignInResult> mSignInFlights = new SingleFlight<>();
+    private final SingleFlight<String> mSilentSignInFlights = new SingleFlight<>();
+    // An ID token fetched ahead of the tap by prewarmGoogleSignIn
+    private volatile PrewarmedIdToken mPrewarmedIdToken;
+    // Whether an account signed in with Google before, answered without building the client
+    private final BooleanSupplier mHasPreviousGoogleSignIn;
+    // Where prewarmGoogleSignIn reads that answer from disk
+    private final Executor mBackgroundExecutor;
+    private final SingleFlight<Void> mPasswordResetFlights = new SingleFlight<>();
+    private final AuthMetrics mMetrics;
+    // Profile writes go through an on-disk queue so they survive being offline or a crash
+    private final Lazy<ProfileWriteJournal> mProfileJournal;
+    // Last known users/{uid} documents so screens don't wait on Firestore to show a profile
+    private final Lazy<ProfileCache> mProfileCache;
+    // Profile writes still on their way to Firestore, by uid, so post-login work can wait on them
+    private final Map<String, CompletableFuture<Void>> mProfileWrites = new ConcurrentHashMap<>();
+    // Kept fresh in the background so calls to our own backend don't wait on a token refresh
+    private final Lazy<IdTokenManager> mIdTokens;
+    // Sign-in counts, sharded so the app-wide daily count isn't one hot document
+    private final Lazy<LoginStats> mLoginStats;
+    // Where callbacks bound to a LifecycleOwner run; the main thread in the app
+    private final Executor mCallbackExecutor;
+    // One auth state listener shared by every screen that watches sign-in and sign-out
+    private final AuthStateStream mAuthState;
+    // One snapshot listener per users/{uid}, however many screens are watching it
+    private final Lazy<DocumentListenerMultiplexer<UserProfile>> mProfileListeners;
+    // Blames main-thread stalls on the sign-ins in flight
+    private final Lazy<MainThreadWatchdog> mWatchdog;
+    // What create() leaves for after launch; guarded by this, null once run
+    private Consumer<AuthManager> mBackgroundWork;
+    // Shared by the sign-up form's as-you-type checks across page swaps
+    private final EmailRegistrationCache mEmailRegistrations;
+    // The Google sign-in a page started, kept here so it outlives the page's Activity
+    private final GoogleSignInCoordinator.SharedState mGoogleSignInState = new GoogleSignInCoordinator.SharedState();
 
     public interface AuthCallback {
-        void onSuccess(FirebaseUser user);
+        void onSuccess(AuthUser user);
         void onError(Exception e);
     }
 
-    public AuthManager(Context context) {
-        mContext = context;
-        mAuth = FirebaseAuth.getInstance();
-        mFirestore = FirebaseFirestore.getInstance();
+    private static final class PrewarmedIdToken {
+        final String idToken;
+        final long obtainedAtMillis;
+
+        PrewarmedIdToken(String idToken, long obtainedAtMillis) {
+            this.idToken = idToken;
+            this.obtainedAtMillis = obtainedAtMillis;
+        }
+    }
+
+    /**
+     * Returns the process-wide AuthManager, bound to the application context.
+     */
+    public static AuthManager getInstance(Context context) {
+        AuthManager instance = sInstance;
+        if (instance == null) {
+            synchronized (AuthManager.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = create(context.getApplicationContext(),
+                            new RetryingAuthBackend(new FirebaseAuthBackend(), RetryPolicy.DEFAULT,
+                                    new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS, Clock.SYSTEM),
+                                    new MainThreadScheduler(), new Random()));
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Makes the process-wide AuthManager use {@code backend}, for tests that launch the app's
+     * activities. Does nothing if it was already created.
+     */
+    static AuthManager getInstance(Context context, AuthBackend backend) {
+        synchronized (AuthManager.class) {
+            if (sInstance == null) {
+                sInstance = create(context.getApplicationContext(), backend);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Forgets the process-wide AuthManager, for tests.
+     */
+    static void clearInstance() {
+        synchronized (AuthManager.class) {
+            sInstance = null;
+        }
+    }
+
+    static AuthManager create(Context appContext, AuthBackend backend) {
+        StartupTracer tracer = StartupTracer.get();
+        tracer.beginSection("AuthManager.create");
+        // Everything here is built on first use or by startBackgroundWork, never during launch
+        Lazy<Scheduler> reportScheduler = new Lazy<>(() -> ExecutorScheduler.newBackgroundScheduler("auth-metrics"));
+        Lazy<Executor> backgroundExecutor = new Lazy<>(() ->
+                Executors.newSingleThreadExecutor(ExecutorScheduler.backgroundThreadFactory("auth-background")));
+        Executor mainExecutor = ContextCompat.getMainExecutor(appContext);
+        AuthManager authManager = new Builder(backend,
+                () -> new PlayServicesGoogleSignInGateway(appContext,
+                        GoogleSignIn.getClient(appContext, buildGoogleSignInOptions(appContext))))
+                .setProfileJournal(() -> {
+                    ScheduledExecutorService journalExecutor = Executors.newSingleThreadScheduledExecutor(
+                            ExecutorScheduler.backgroundThreadFactory("profile-journal"));
+                    return new ProfileWriteJournal(backend,
+                            () -> new File(appContext.getFilesDir(), PROFILE_JOURNAL_FILE_NAME),
+                            journalExecutor, new ExecutorScheduler(journalExecutor));
+                })
+                .setProfileCache(() -> new ProfileCache(backend,
+                        () -> new File(appContext.getFilesDir(), PROFILE_CACHE_DIR_NAME),
+                        Executors.newSingleThreadExecutor(ExecutorScheduler.backgroundThreadFactory("profile-cache")),
+                        mainExecutor))
+                .setCallbackExecutor(mainExecutor)
+                .setPreviousGoogleSignIn(() -> GoogleSignIn.getLastSignedInAccount(appContext) != null)
+                .setBackgroundExecutor(command -> backgroundExecutor.get().execute(command))
+                .setLoginStats(() -> new LoginStats(new FirestoreCounterStore(), Clock.SYSTEM, new Random()))
+                // Watching the looper costs every message two strings, so release builds only track spans
+                .setWatchdog(() -> BuildConfig.DEBUG
+                        ? MainThreadWatchdog.create(() -> new File(appContext.getFilesDir(), STALLS_FILE_NAME),
+                                reportScheduler.get())
+                        : new MainThreadWatchdog())
+                .setBackgroundWork(manager -> {
+                    if (manager.isUserLoggedIn()) {
+                        manager.mIdTokens.get().prefetch();
+                    }
+                    // Installs it on the main looper in debug builds
+                    manager.mWatchdog.get();
+                    // Writes left over from an earlier run go out now, later ones whenever the network comes back
+                    ProfileWriteJournal journal = manager.mProfileJournal.get();
+                    journal.flush();
+                    new ConnectivityMonitor(appContext, journal::flush).start();
+                    new MetricsReporter(manager.mMetrics, () -> new File(appContext.getFilesDir(), METRICS_FILE_NAME),
+                            reportScheduler.get(), METRICS_REPORT_PERIOD_MILLIS).start();
+                })
+                .build();
+        tracer.endSection();
+        return authManager;
+    }
+
+    private AuthManager(Builder builder) {
+        AuthBackend backend = builder.mBackend;
+        mBackend = backend;
+        mGoogleSignIn = new Lazy<>(builder.mGoogleSignIn);
+        mHasPreviousGoogleSignIn = builder.mHasPreviousGoogleSignIn != null
+                ? builder.mHasPreviousGoogleSignIn : () -> mGoogleSignIn.get().hasPreviousSignIn();
+        mBackgroundExecutor = builder.mBackgroundExecutor;
+        mMetrics = builder.mMetrics;
+        mProfileJournal = new Lazy<>(builder.mProfileJournal);
+        mProfileCache = new Lazy<>(builder.mProfileCache);
+        mCallbackExecutor = builder.mCallbackExecutor;
+        mIdTokens = new Lazy<>(builder.mIdTokens);
+        mLoginStats = new Lazy<>(builder.mLoginStats);
+        mWatchdog = new Lazy<>(builder.mWatchdog);
+        mBackgroundWork = builder.mBackgroundWork;
+        mAuthState = new AuthStateStream(backend);
+        mEmailRegistrations = new EmailRegistrationCache(backend::isEmailRegistered, Clock.SYSTEM,
+                EmailRegistrationCache.DEFAULT_TTL_MILLIS, EmailRegistrationCache.DEFAULT_CAPACITY);
+        mProfileListeners = new Lazy<>(() -> new DocumentListenerMultiplexer<>(this::listenToProfile,
+                uid -> mProfileCache.get().peek(uid), new MainThreadScheduler(), PROFILE_LISTENER_GRACE_MILLIS));
+    }
+
+    /**
+     * What an AuthManager is made of. Anything not set gets an in-memory or main-thread default,
+     * which is what tests want; {@link #create} sets the real ones. Nothing given as a supplier
+     * is built until the AuthManager first needs it.
+     */
+    static final class Builder {
+        private final AuthBackend mBackend;
+        private final Supplier<GoogleSignInGateway> mGoogleSignIn;
+        private AuthMetrics mMetrics = new AuthMetrics();
+        private Supplier<ProfileWriteJournal> mProfileJournal;
+        private Supplier<ProfileCache> mProfileCache;
+        private Executor mCallbackExecutor = Runnable::run;
+        private BooleanSupplier mHasPreviousGoogleSignIn;
+        private Executor mBackgroundExecutor = Runnable::run;
+        private Supplier<IdTokenManager> mIdTokens;
+        private Supplier<LoginStats> mLoginStats = LoginStats::disabled;
+        private Supplier<MainThreadWatchdog> mWatchdog = MainThreadWatchdog::new;
+        private Consumer<AuthManager> mBackgroundWork;
+
+        /**
+         * @param googleSignIn builds the Google Sign-In client the first time it is needed
+         */
+        Builder(AuthBackend backend, Supplier<GoogleSignInGateway> googleSignIn) {
+            mBackend = backend;
+            mGoogleSignIn = googleSignIn;
+            mProfileJournal = () -> ProfileWriteJournal.inMemory(backend);
+            mProfileCache = () -> ProfileCache.inMemory(backend);
+            mIdTokens = () -> new IdTokenManager(backend::getIdToken, Clock.SYSTEM, new MainThreadScheduler());
+        }
 
+        Builder setMetrics(AuthMetrics metrics) {
+            mMetrics = metrics;
+            return this;
+        }
+
+        Builder setProfileJournal(Supplier<ProfileWriteJournal> profileJournal) {
+            mProfileJournal = profileJournal;
+            return this;
+        }
+
+        Builder setProfileCache(Supplier<ProfileCache> profileCache) {
+            mProfileCache = profileCache;
+            return this;
+        }
+
+        /**
+         * Where callbacks bound to a LifecycleOwner run; the main thread in the app.
+         */
+        Builder setCallbackExecutor(Executor callbackExecutor) {
+            mCallbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        /**
+         * Answers {@link GoogleSignInGateway#hasPreviousSignIn} without building the client;
+         * by default the gateway is asked.
+         */
+        Builder setPreviousGoogleSignIn(BooleanSupplier hasPreviousGoogleSignIn) {
+            mHasPreviousGoogleSignIn = hasPreviousGoogleSignIn;
+            return this;
+        }
+
+        /**
+         * Where work that may touch the disk runs, away from the main thread.
+         */
+        Builder setBackgroundExecutor(Executor backgroundExecutor) {
+            mBackgroundExecutor = backgroundExecutor;
+            return this;
+        }
+
+        Builder setIdTokens(Supplier<IdTokenManager> idTokens) {
+            mIdTokens = idTokens;
+            return this;
+        }
+
+        Builder setLoginStats(Supplier<LoginStats> loginStats) {
+            mLoginStats = loginStats;
+            return this;
+        }
+
+        Builder setWatchdog(Supplier<MainThreadWatchdog> watchdog) {
+            mWatchdog = watchdog;
+            return this;
+        }
+
+        /**
+         * Run by {@link #startBackgroundWork}, once launch is over.
+         */
+        Builder setBackgroundWork(Consumer<AuthManager> backgroundWork) {
+            mBackgroundWork = backgroundWork;
+            return this;
+        }
+
+        AuthManager build() {
+            return new AuthManager(this);
+        }
+    }
+
+    private static GoogleSignInOptions buildGoogleSignInOptions(Context context) {
         // Configure Google Sign-In
-        GoogleSignInOptions gso = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
+        return new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
                 .requestIdToken(context.getString(R.string.default_web_client_id))
                 .requestEmail()
                 .build();
+    }
 
-        mGoogleSignInClient = GoogleSignIn.getClient(context, gso);
+    /**
+     * Starts what {@link #create} leaves until the first screen is up: the token prefetch, the
+     * stall watchdog, the profile write retries and the metrics reports. Later calls do nothing.
+     */
+    public void startBackgroundWork() {
+        Consumer<AuthManager> work;
+        synchronized (this) {
+            work = mBackgroundWork;
+            mBackgroundWork = null;
+        }
+        if (work != null) {
+            work.accept(this);
+        }
+    }
+
+    GoogleSignInCoordinator.SharedState getGoogleSignInState() {
+        return mGoogleSignInState;
     }
 
-    public FirebaseAuth getAuth() {
-        return mAuth;
+    boolean isGoogleSignInClientInitialized() {
+        return mGoogleSignIn.isInitialized();
     }
 
-    public FirebaseUser getCurrentUser() {
-        return mAuth.getCurrentUser();
+    /**
+     * Main-thread stalls, with the auth operations they happened during.
+     */
+    public MainThreadWatchdog getWatchdog() {
+        return mWatchdog.get();
+    }
+
+    public AuthMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Wraps a callback so it runs on the callback executor, and only while the owner is started.
+     * Once the owner is destroyed the callback is let go and its result dropped, so a request
+     * outliving a rotation doesn't keep the old Activity alive or touch its dead views.
+     */
+    public AuthCallback bind(LifecycleOwner owner, AuthCallback callback) {
+        AuthBackend.Callback<AuthUser> bound = bind(owner, new AuthBackend.Callback<AuthUser>() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                callback.onSuccess(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+        return new AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                bound.onSuccess(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                bound.onError(e);
+            }
+        };
+    }
+
+    public <T> AuthBackend.Callback<T> bind(LifecycleOwner owner, AuthBackend.Callback<T> callback) {
+        return LifecycleBoundCallback.bind(owner, mCallbackExecutor, callback);
+    }
+
+    /**
+     * Calls {@code onSuccess} with the {@code users/{uid}} document, cached copy first, and
+     * again whenever it changes, until unsubscribed. Screens share one snapshot listener.
+     */
+    public Subscription observeProfile(String uid, AuthBackend.Callback<UserProfile> callback) {
+        return mProfileListeners.get().subscribe(uid, callback);
+    }
+
+    private Subscription listenToProfile(String uid, AuthBackend.Callback<UserProfile> listener) {
+        return mBackend.addProfileListener(uid, new AuthBackend.Callback<UserProfile>() {
+            @Override
+            public void onSuccess(UserProfile profile) {
+                // Keeps peek() and the next cold start as fresh as the listener
+                if (profile != null) {
+                    mProfileCache.get().put(profile);
+                }
+                listener.onSuccess(profile);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Profile listener for " + uid + " failed", e);
+                listener.onError(e);
+            }
+        });
+    }
+
+    public AuthStateStream getAuthState() {
+        return mAuthState;
+    }
+
+    public LoginStats getLoginStats() {
+        return mLoginStats.get();
+    }
+
+    public IdTokenManager getIdTokenManager() {
+        return mIdTokens.get();
+    }
+
+    public ProfileCache getProfileCache() {
+        return mProfileCache.get();
+    }
+
+    /**
+     * Whether emails are already taken, as the sign-up form last found out.
+     */
+    public EmailRegistrationCache getEmailRegistrations() {
+        return mEmailRegistrations;
+    }
+
+    public AuthUser getCurrentUser() {
+        return mBackend.getCurrentUser();
     }
 
     public boolean isUserLoggedIn() {
@@ -67,120 +449,456 @@ public class AuthManager {
     }
 
     public Intent getGoogleSignInIntent() {
-        return mGoogleSignInClient.getSignInIntent();
+        return mGoogleSignIn.get().getSignInIntent();
+    }
+
+    /**
+     * Fetches a Google ID token in the background for a returning Google user, so their next
+     * tap can skip the account chooser. The check for one runs on the background executor and
+     * doesn't build the Google Sign-In client, so for anyone else this costs a disk read off the
+     * main thread.
+     */
+    public void prewarmGoogleSignIn() {
+        if (mPrewarmedIdToken != null) return;
+        mBackgroundExecutor.execute(() -> {
+            if (mHasPreviousGoogleSignIn.getAsBoolean()) {
+                prewarmSilentSignIn();
+            }
+        });
+    }
+
+    private void prewarmSilentSignIn() {
+        silentGoogleSignIn(new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String idToken) {
+                Log.d(TAG, "Google sign-in prewarmed");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.d(TAG, "Silent Google sign-in unavailable", e);
+            }
+        });
+    }
+
+    /**
+     * Signs in with Google, silently when the account has authorized the app before. Only when
+     * that isn't possible is {@code launchChooser} handed the account chooser intent, whose
+     * result then goes to {@link #handleGoogleSignInResult}.
+     */
+    public void signInWithGoogle(AuthCallback callback, Consumer<Intent> launchChooser) {
+        long start = AuthMetrics.startTimer();
+        GoogleSignInGateway gateway = mGoogleSignIn.get();
+        PrewarmedIdToken prewarmed = takePrewarmedIdToken();
+        if (prewarmed != null) {
+            mMetrics.recordPhase(Operation.GOOGLE_SILENT_SIGN_IN, Phase.GOOGLE_ACCOUNT, start);
+            firebaseAuthWithSilentToken(prewarmed.idToken, start, callback, launchChooser);
+            return;
+        }
+        if (!gateway.hasPreviousSignIn()) {
+            launchChooser.accept(gateway.getSignInIntent());
+            return;
+        }
+        // Joins a prewarm that is still running rather than starting a second one
+        silentGoogleSignIn(new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String idToken) {
+                // Used here, so the next tap must not reuse it
+                takePrewarmedIdToken();
+                mMetrics.recordPhase(Operation.GOOGLE_SILENT_SIGN_IN, Phase.GOOGLE_ACCOUNT, start);
+                firebaseAuthWithSilentToken(idToken, start, callback, launchChooser);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                launchChooser.accept(gateway.getSignInIntent());
+            }
+        });
+    }
+
+    private void silentGoogleSignIn(AuthBackend.Callback<String> callback) {
+        mSilentSignInFlights.execute(SILENT_SIGN_IN_KEY, callback, shared ->
+                mGoogleSignIn.get().silentSignIn(new AuthBackend.Callback<String>() {
+                    @Override
+                    public void onSuccess(String idToken) {
+                        mPrewarmedIdToken = new PrewarmedIdToken(idToken, Clock.SYSTEM.nowMillis());
+                        shared.onSuccess(idToken);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        shared.onError(e);
+                    }
+                }));
+    }
+
+    /**
+     * The prewarmed ID token if it is still fresh. Each token is handed out once.
+     */
+    private synchronized PrewarmedIdToken takePrewarmedIdToken() {
+        PrewarmedIdToken prewarmed = mPrewarmedIdToken;
+        mPrewarmedIdToken = null;
+        if (prewarmed == null
+                || Clock.SYSTEM.nowMillis() - prewarmed.obtainedAtMillis > PREWARMED_ID_TOKEN_MAX_AGE_MILLIS) {
+            return null;
+        }
+        return prewarmed;
+    }
+
+    private void firebaseAuthWithSilentToken(String idToken, long start, AuthCallback callback,
+                                             Consumer<Intent> launchChooser) {
+        firebaseAuthWithGoogle(Operation.GOOGLE_SILENT_SIGN_IN, idToken, start, new AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                callback.onSuccess(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (mBackend.isTransientError(e)) {
+                    callback.onError(e);
+                } else {
+                    // Firebase turned the token down; the chooser gets a new one
+                    launchChooser.accept(mGoogleSignIn.get().getSignInIntent());
+                }
+            }
+        });
     }
 
     public void signOut(AuthCallback callback) {
         // Sign out from Firebase
-        mAuth.signOut();
+        mBackend.signOut();
+        // The next user on this device must not see the previous one's profile
+        mProfileCache.get().invalidate();
+        mIdTokens.get().clear();
+        mPrewarmedIdToken = null;
         
         // Sign out from Google
-        mGoogleSignInClient.signOut().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
+        mGoogleSignIn.get().signOut(new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
                 callback.onSuccess(null);
-            } else {
-                callback.onError(task.getException());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
             }
         });
     }
 
     public void handleGoogleSignInResult(Intent data, AuthCallback callback) {
-        Task<GoogleSignInAccount> task = GoogleSignIn.getSignedInAccountFromIntent(data);
+        long start = AuthMetrics.startTimer();
+        String idToken;
         try {
-            GoogleSignInAccount account = task.getResult(ApiException.class);
-            firebaseAuthWithGoogle(account.getIdToken(), callback);
-        } catch (ApiException e) {
+            idToken = mGoogleSignIn.get().getIdToken(data);
+        } catch (Exception e) {
             Log.w(TAG, "Google sign in failed", e);
+            mMetrics.recordOutcome(Operation.GOOGLE_SIGN_IN, start, false);
             callback.onError(e);
+            return;
         }
+        mMetrics.recordPhase(Operation.GOOGLE_SIGN_IN, Phase.GOOGLE_ACCOUNT, start);
+        firebaseAuthWithGoogle(Operation.GOOGLE_SIGN_IN, idToken, start, callback);
     }
 
-    private void firebaseAuthWithGoogle(String idToken, AuthCallback callback) {
-        AuthCredential credential = GoogleAuthProvider.getCredential(idToken, null);
-        mAuth.signInWithCredential(credential)
-                .addOnCompleteListener((Activity) mContext, task -> {
-                    if (task.isSuccessful()) {
-                        FirebaseUser user = mAuth.getCurrentUser();
-                        saveUserToFirestore(user, null, null, true);
-                        callback.onSuccess(user);
-                    } else {
-                        Log.w(TAG, "signInWithCredential:failure", task.getException());
-                        callback.onError(task.getException());
-                    }
-                });
+    void firebaseAuthWithGoogle(String idToken, AuthCallback callback) {
+        firebaseAuthWithGoogle(Operation.GOOGLE_SIGN_IN, idToken, AuthMetrics.startTimer(), callback);
+    }
+
+    private void firebaseAuthWithGoogle(Operation operation, String idToken, long start, AuthCallback callback) {
+        mSignInFlights.execute(flightKey("google", "", idToken), toSignInCallback(watch(operation, callback)), shared -> {
+            long requestStart = AuthMetrics.startTimer();
+            mBackend.signInWithGoogleIdToken(idToken, new AuthBackend.Callback<AuthBackend.SignInResult>() {
+                @Override
+                public void onSuccess(AuthBackend.SignInResult result) {
+                    mMetrics.recordPhase(operation, Phase.AUTH_REQUEST, requestStart);
+                    saveUserProfile(operation, result.getUser(), null, null, true, result.isNewUser());
+                    mMetrics.recordOutcome(operation, start, true);
+                    mIdTokens.get().prefetch();
+                    shared.onSuccess(result);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.w(TAG, "signInWithCredential:failure", e);
+                    mMetrics.recordOutcome(operation, start, false);
+                    shared.onError(e);
+                }
+            });
+        });
     }
 
     public void registerWithEmail(String displayName, String email, String password, Date birthDate, AuthCallback callback) {
-        mAuth.createUserWithEmailAndPassword(email, password)
-                .addOnCompleteListener((Activity) mContext, task -> {
-                    if (task.isSuccessful()) {
-                        FirebaseUser user = mAuth.getCurrentUser();
-                        saveUserToFirestore(user, displayName, birthDate, false);
-                        callback.onSuccess(user);
-                    } else {
-                        Log.w(TAG, "createUserWithEmail:failure", task.getException());
-                        callback.onError(task.getException());
-                    }
-                });
+        mSignInFlights.execute(flightKey("register", email, password),
+                toSignInCallback(watch(Operation.REGISTER, callback)), shared -> {
+            long start = AuthMetrics.startTimer();
+            mBackend.createUserWithEmail(email, password, new AuthBackend.Callback<AuthBackend.SignInResult>() {
+                @Override
+                public void onSuccess(AuthBackend.SignInResult result) {
+                    mMetrics.recordPhase(Operation.REGISTER, Phase.AUTH_REQUEST, start);
+                    mEmailRegistrations.remember(email, true);
+                    saveUserProfile(Operation.REGISTER, result.getUser(), displayName, birthDate, false, true);
+                    mMetrics.recordOutcome(Operation.REGISTER, start, true);
+                    mIdTokens.get().prefetch();
+                    shared.onSuccess(result);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.w(TAG, "createUserWithEmail:failure", e);
+                    mMetrics.recordOutcome(Operation.REGISTER, start, false);
+                    shared.onError(e);
+                }
+            });
+        });
     }
 
     public void loginWithEmail(String email, String password, AuthCallback callback) {
-        mAuth.signInWithEmailAndPassword(email, password)
-                .addOnCompleteListener((Activity) mContext, task -> {
-                    if (task.isSuccessful()) {
-                        FirebaseUser user = mAuth.getCurrentUser();
-                        callback.onSuccess(user);
-                    } else {
-                        Log.w(TAG, "signInWithEmail:failure", task.getException());
-                        callback.onError(task.getException());
+        mSignInFlights.execute(flightKey("login", email, password),
+                toSignInCallback(watch(Operation.LOGIN, callback)), shared -> {
+            long start = AuthMetrics.startTimer();
+            mBackend.signInWithEmail(email, password, new AuthBackend.Callback<AuthBackend.SignInResult>() {
+                @Override
+                public void onSuccess(AuthBackend.SignInResult result) {
+                    mMetrics.recordPhase(Operation.LOGIN, Phase.AUTH_REQUEST, start);
+                    mMetrics.recordOutcome(Operation.LOGIN, start, true);
+                    mIdTokens.get().prefetch();
+                    // Email sign-ins leave the profile alone; the other flows count in saveUserProfile
+                    if (result.getUser() != null) {
+                        mLoginStats.get().recordLogin(result.getUser().getUid());
+                    }
+                    shared.onSuccess(result);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.w(TAG, "signInWithEmail:failure", e);
+                    mMetrics.recordOutcome(Operation.LOGIN, start, false);
+                    shared.onError(e);
+                }
+            });
+        });
+    }
+
+    public CompletableFuture<AuthUser> loginWithEmailAsync(String email, String password) {
+        CompletableFuture<AuthUser> future = new CompletableFuture<>();
+        loginWithEmail(email, password, toAuthCallback(future));
+        return future;
+    }
+
+    public CompletableFuture<AuthUser> registerWithEmailAsync(String displayName, String email, String password,
+                                                              Date birthDate) {
+        CompletableFuture<AuthUser> future = new CompletableFuture<>();
+        registerWithEmail(displayName, email, password, birthDate, toAuthCallback(future));
+        return future;
+    }
+
+    /**
+     * Reads the user's profile from Firestore and updates the profile cache with it.
+     */
+    public CompletableFuture<UserProfile> fetchProfileAsync(String uid) {
+        return Futures.<UserProfile>fromCallback(callback -> mBackend.fetchProfile(uid, callback))
+                .thenApply(profile -> {
+                    if (profile != null) {
+                        mProfileCache.get().put(profile);
                     }
+                    return profile;
                 });
     }
 
-    private void saveUserToFirestore(FirebaseUser user, String displayName, Date birthDate, boolean isGoogleSignIn) {
+    /**
+     * Completes once the profile write queued by the user's latest sign-in has been applied,
+     * or right away if none is pending. Each caller gets its own future, so cancelling it, as a
+     * cancelled bootstrap does, doesn't cancel the write for everyone else waiting on it.
+     */
+    public CompletableFuture<Void> awaitProfileWrite(String uid) {
+        CompletableFuture<Void> write = mProfileWrites.get(uid);
+        return write != null ? write.thenApply(v -> v) : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * The standard post-login work, waiting for the profile write and refreshing the profile,
+     * plus any {@code extraSteps}, all run concurrently.
+     */
+    public AuthBootstrap newBootstrap(AuthBootstrap.Step... extraSteps) {
+        List<AuthBootstrap.Step> steps = new ArrayList<>();
+        steps.add(user -> awaitProfileWrite(user.getUid()));
+        steps.add(user -> fetchProfileAsync(user.getUid()));
+        Collections.addAll(steps, extraSteps);
+        return new AuthBootstrap(steps);
+    }
+
+    private static AuthCallback toAuthCallback(CompletableFuture<AuthUser> future) {
+        return new AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                future.complete(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    /**
+     * Key for coalescing identical requests.
+     */
+    private static String flightKey(String operation, String id) {
+        return operation + '\u0000' + id;
+    }
+
+    /**
+     * Key for coalescing identical sign-ins. The secret is part of the key so that a second
+     * attempt with different credentials is never answered with the first one's result, but
+     * only as a digest, since the key outlives the request in the flight map.
+     */
+    private static String flightKey(String operation, String id, String secret) {
+        return flightKey(operation, id) + '\u0000' + sha256(secret);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Keeps {@code operation} in flight for the watchdog until its result has been handed over,
+     * including whatever the callback posts to the callback executor to deliver it.
+     */
+    private AuthCallback watch(Operation operation, AuthCallback callback) {
+        MainThreadWatchdog.Span span = mWatchdog.get().begin(operation);
+        return new AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                try {
+                    callback.onSuccess(user);
+                } finally {
+                    mCallbackExecutor.execute(span::end);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                try {
+                    callback.onError(e);
+                } finally {
+                    mCallbackExecutor.execute(span::end);
+                }
+            }
+        };
+    }
+
+    private <T> AuthBackend.Callback<T> watch(Operation operation, AuthBackend.Callback<T> callback) {
+        MainThreadWatchdog.Span span = mWatchdog.get().begin(operation);
+        return new AuthBackend.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                try {
+                    callback.onSuccess(result);
+                } finally {
+                    mCallbackExecutor.execute(span::end);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                try {
+                    callback.onError(e);
+                } finally {
+                    mCallbackExecutor.execute(span::end);
+                }
+            }
+        };
+    }
+
+    private static AuthBackend.Callback<AuthBackend.SignInResult> toSignInCallback(AuthCallback callback) {
+        return new AuthBackend.Callback<AuthBackend.SignInResult>() {
+            @Override
+            public void onSuccess(AuthBackend.SignInResult result) {
+                callback.onSuccess(result.getUser());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        };
+    }
+
+    private void saveUserProfile(Operation operation, AuthUser user, String displayName, Date birthDate,
+                                 boolean isGoogleSignIn, boolean isNewUser) {
         if (user == null) return;
+        mLoginStats.get().recordLogin(user.getUid());
 
-        // Create user data map
-        Map<String, Object> userData = new HashMap<>();
-        userData.put("email", user.getEmail());
-        userData.put("uid", user.getUid());
-        userData.put("createdAt", new Date());
-        
-        if (isGoogleSignIn) {
-            // For Google Sign-In, use the display name from Google account
-            userData.put("displayName", user.getDisplayName());
-            userData.put("photoUrl", user.getPhotoUrl() != null ? user.getPhotoUrl().toString() : null);
-            userData.put("isGoogleSignIn", true);
+        ProfileUpsert upsert;
+        if (isNewUser) {
+            // For Google Sign-In the display name comes from the Google account,
+            // for Email/Password registration we use the provided one
+            String profileName = isGoogleSignIn ? user.getDisplayName() : displayName;
+            upsert = ProfileUpsert.forNewUser(user.getUid(), user.getEmail(), profileName,
+                    user.getPhotoUrl(), birthDate, isGoogleSignIn);
+            // We know exactly what the document will hold, so there is nothing to fetch
+            mProfileCache.get().put(new UserProfile(user.getUid(), user.getEmail(), profileName, birthDate,
+                    user.getPhotoUrl(), isGoogleSignIn));
         } else {
-            // For Email/Password registration, use the provided display name
-            userData.put("displayName", displayName);
-            userData.put("birthDate", birthDate);
-            userData.put("isGoogleSignIn", false);
-        }
-
-        // First check if user document already exists to avoid overwriting existing data
-        DocumentReference userRef = mFirestore.collection("users").document(user.getUid());
-        userRef.get().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (!task.getResult().exists()) {
-                    // Document doesn't exist, create it
-                    userRef.set(userData)
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "User data saved to Firestore"))
-                            .addOnFailureListener(e -> Log.w(TAG, "Error saving user data", e));
-                } else {
-                    // Document exists, update login timestamp
-                    userRef.update("lastLoginAt", new Date())
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "User last login updated"))
-                            .addOnFailureListener(e -> Log.w(TAG, "Error updating last login", e));
-                }
-            } else {
-                Log.w(TAG, "Error checking if user exists", task.getException());
+            // Whichever way they signed in, what they chose at sign-up stays
+            upsert = ProfileUpsert.forReturningUser(user.getUid(), user.getEmail());
+            mProfileCache.get().refresh(user.getUid());
+        }
+
+        long start = AuthMetrics.startTimer();
+        String uid = user.getUid();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        mProfileWrites.put(uid, written);
+        mProfileJournal.get().enqueue(upsert, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                Log.d(TAG, "User data saved to Firestore");
+                mMetrics.recordPhase(operation, Phase.PROFILE_UPSERT, start);
+                mMetrics.recordOutcome(Operation.PROFILE_UPSERT, start, true);
+                mProfileWrites.remove(uid, written);
+                written.complete(null);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Error saving user data", e);
+                mMetrics.recordPhase(operation, Phase.PROFILE_UPSERT, start);
+                mMetrics.recordOutcome(Operation.PROFILE_UPSERT, start, false);
+                mProfileWrites.remove(uid, written);
+                written.completeExceptionally(e);
             }
         });
     }
 
-    public void sendPasswordResetEmail(String email, OnCompleteListener<Void> listener) {
-        mAuth.sendPasswordResetEmail(email)
-                .addOnCompleteListener(listener);
+    public void sendPasswordResetEmail(String email, AuthBackend.Callback<Void> callback) {
+        mPasswordResetFlights.execute(flightKey("passwordReset", email),
+                watch(Operation.PASSWORD_RESET, callback), shared -> {
+            long start = AuthMetrics.startTimer();
+            mBackend.sendPasswordResetEmail(email, new AuthBackend.Callback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    mMetrics.recordOutcome(Operation.PASSWORD_RESET, start, true);
+                    shared.onSuccess(result);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    mMetrics.recordOutcome(Operation.PASSWORD_RESET, start, false);
+                    shared.onError(e);
+                }
+            });
+        });
     }
-} 
\ No newline at end of file
+}
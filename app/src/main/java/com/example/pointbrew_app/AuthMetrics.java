@@ -0,0 +1,104 @@
+package com.example.pointbrew_app;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timing and outcome counters for the auth flows.
+ *
+ * Every operation has a histogram for its end-to-end time plus one per phase, all allocated up
+ * front, so recording on the hot path is a few atomic increments.
+ */
+public class AuthMetrics {
+
+    public enum Operation {
+        LOGIN,
+        REGISTER,
+        /** Google sign-in through the account chooser, timed from the chooser's result */
+        GOOGLE_SIGN_IN,
+        /** Google sign-in from a tap that needed no account chooser, timed from the tap */
+        GOOGLE_SILENT_SIGN_IN,
+        PASSWORD_RESET,
+        PROFILE_UPSERT
+    }
+
+    public enum Phase {
+        /** Getting a Google ID token, from the account chooser's result or a silent sign-in */
+        GOOGLE_ACCOUNT,
+        /** The Firebase Auth request: email sign-in/sign-up or {@code signInWithCredential} */
+        AUTH_REQUEST,
+        /** The {@code users/{uid}} write that follows a sign-in */
+        PROFILE_UPSERT
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] mTotals = new LatencyHistogram[OPERATIONS.length];
+    private final LatencyHistogram[][] mPhases = new LatencyHistogram[OPERATIONS.length][PHASES.length];
+    private final AtomicLongArray mSuccesses = new AtomicLongArray(OPERATIONS.length);
+    private final AtomicLongArray mFailures = new AtomicLongArray(OPERATIONS.length);
+
+    public AuthMetrics() {
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            mTotals[op] = new LatencyHistogram();
+            for (int phase = 0; phase < PHASES.length; phase++) {
+                mPhases[op][phase] = new LatencyHistogram();
+            }
+        }
+    }
+
+    public static long startTimer() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records how long a phase of {@code operation} took since {@code startNanos}.
+     */
+    public void recordPhase(Operation operation, Phase phase, long startNanos) {
+        mPhases[operation.ordinal()][phase.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the end-to-end time and outcome of {@code operation} started at {@code startNanos}.
+     */
+    public void recordOutcome(Operation operation, long startNanos, boolean success) {
+        mTotals[operation.ordinal()].record(System.nanoTime() - startNanos);
+        (success ? mSuccesses : mFailures).incrementAndGet(operation.ordinal());
+    }
+
+    public LatencyHistogram getTotal(Operation operation) {
+        return mTotals[operation.ordinal()];
+    }
+
+    public LatencyHistogram getPhase(Operation operation, Phase phase) {
+        return mPhases[operation.ordinal()][phase.ordinal()];
+    }
+
+    public long getSuccessCount(Operation operation) {
+        return mSuccesses.get(operation.ordinal());
+    }
+
+    public long getFailureCount(Operation operation) {
+        return mFailures.get(operation.ordinal());
+    }
+
+    /**
+     * Multi-line summary of every operation that has been recorded at least once.
+     */
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        for (Operation operation : OPERATIONS) {
+            LatencyHistogram total = getTotal(operation);
+            if (total.getCount() == 0) continue;
+            out.append(operation).append(" ok=").append(getSuccessCount(operation))
+                    .append(" failed=").append(getFailureCount(operation))
+                    .append(" total ").append(total.summary()).append('\n');
+            for (Phase phase : PHASES) {
+                LatencyHistogram histogram = getPhase(operation, phase);
+                if (histogram.getCount() == 0) continue;
+                out.append("  ").append(phase).append(' ').append(histogram.summary()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+}
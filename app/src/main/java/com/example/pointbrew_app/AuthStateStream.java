@@ -0,0 +1,179 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * The signed-in user as a stream, so screens react to sign-in and sign-out instead of polling
+ * {@link AuthManager#isUserLoggedIn()}.
+ *
+ * One backend listener, registered on the first {@link #observe} and kept for the life of the
+ * process, feeds every observer. A new observer is told the latest state straight away. Nothing
+ * is emitted until the backend has reported once, so a persisted session that is still being
+ * restored never shows up as signed out. Repeats of the same user are dropped, and an observer
+ * whose executor falls behind only gets the newest state, not every step in between.
+ */
+public class AuthStateStream {
+
+    public interface Observer {
+        /**
+         * @param user the signed-in user, or null when signed out
+         */
+        void onAuthStateChanged(@Nullable AuthUser user);
+    }
+
+    private final AuthBackend mBackend;
+    private final List<Subscriber> mSubscribers = new CopyOnWriteArrayList<>();
+    // Guarded by this
+    private boolean mListening;
+    private boolean mHasValue;
+    private AuthUser mLatest;
+    // Bumped with every change, so an offer that lost a race to a newer one is dropped
+    private long mVersion;
+
+    public AuthStateStream(AuthBackend backend) {
+        mBackend = backend;
+    }
+
+    /**
+     * Calls the observer on the executor with the current state, once known, and every change
+     * after it until the subscription is cancelled.
+     */
+    public Subscription observe(Executor executor, Observer observer) {
+        Subscriber subscriber = new Subscriber(executor, observer);
+        boolean startListening;
+        boolean hasValue;
+        AuthUser latest;
+        long version;
+        synchronized (this) {
+            mSubscribers.add(subscriber);
+            startListening = !mListening;
+            mListening = true;
+            hasValue = mHasValue;
+            latest = mLatest;
+            version = mVersion;
+        }
+        if (hasValue) {
+            subscriber.offer(latest, version);
+        }
+        if (startListening) {
+            mBackend.addAuthStateListener(this::onBackendChanged);
+        }
+        return subscriber;
+    }
+
+    /**
+     * Whether the backend has reported a state yet; before that {@link #getLatest()} means nothing.
+     */
+    public synchronized boolean hasValue() {
+        return mHasValue;
+    }
+
+    @Nullable
+    public synchronized AuthUser getLatest() {
+        return mLatest;
+    }
+
+    int getObserverCount() {
+        return mSubscribers.size();
+    }
+
+    private void onBackendChanged(@Nullable AuthUser user) {
+        long version;
+        synchronized (this) {
+            if (mHasValue && sameUser(mLatest, user)) {
+                return;
+            }
+            mHasValue = true;
+            mLatest = user;
+            version = ++mVersion;
+        }
+        // Offered outside the lock, since an executor may run the observer inline
+        for (Subscriber subscriber : mSubscribers) {
+            subscriber.offer(user, version);
+        }
+    }
+
+    private static boolean sameUser(@Nullable AuthUser a, @Nullable AuthUser b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getUid(), b.getUid());
+    }
+
+    /**
+     * Holds at most one undelivered state; a newer one replaces it instead of queueing behind it.
+     */
+    private final class Subscriber implements Subscription, Runnable {
+        private final Executor mExecutor;
+        // Guarded by this
+        private Observer mObserver;
+        private AuthUser mPending;
+        private boolean mHasPending;
+        private long mOfferedVersion = -1;
+        private boolean mScheduled;
+        private boolean mDelivered;
+        private AuthUser mLastDelivered;
+
+        Subscriber(Executor executor, Observer observer) {
+            mExecutor = executor;
+            mObserver = observer;
+        }
+
+        void offer(@Nullable AuthUser user, long version) {
+            boolean schedule;
+            synchronized (this) {
+                if (mObserver == null || version <= mOfferedVersion) {
+                    return;
+                }
+                mOfferedVersion = version;
+                mPending = user;
+                mHasPending = true;
+                schedule = !mScheduled;
+                mScheduled = true;
+            }
+            if (schedule) {
+                mExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Observer observer;
+                AuthUser user;
+                synchronized (this) {
+                    if (!mHasPending || mObserver == null) {
+                        mScheduled = false;
+                        return;
+                    }
+                    user = mPending;
+                    mPending = null;
+                    mHasPending = false;
+                    // Signed out and back in as the same user before this ran
+                    if (mDelivered && sameUser(mLastDelivered, user)) {
+                        continue;
+                    }
+                    mDelivered = true;
+                    mLastDelivered = user;
+                    observer = mObserver;
+                }
+                observer.onAuthStateChanged(user);
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            synchronized (this) {
+                mObserver = null;
+                mPending = null;
+                mHasPending = false;
+            }
+            mSubscribers.remove(this);
+        }
+    }
+}
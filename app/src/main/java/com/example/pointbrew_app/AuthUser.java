@@ -0,0 +1,43 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The signed-in account, independent of which {@link AuthBackend} produced it.
+ */
+public final class AuthUser {
+
+    private final String mUid;
+    private final String mEmail;
+    private final String mDisplayName;
+    private final String mPhotoUrl;
+
+    public AuthUser(@NonNull String uid, @Nullable String email, @Nullable String displayName,
+                    @Nullable String photoUrl) {
+        mUid = uid;
+        mEmail = email;
+        mDisplayName = displayName;
+        mPhotoUrl = photoUrl;
+    }
+
+    @NonNull
+    public String getUid() {
+        return mUid;
+    }
+
+    @Nullable
+    public String getEmail() {
+        return mEmail;
+    }
+
+    @Nullable
+    public String getDisplayName() {
+        return mDisplayName;
+    }
+
+    @Nullable
+    public String getPhotoUrl() {
+        return mPhotoUrl;
+    }
+}
@@ -8,8 +8,8 @@ import androidx.viewpager2.adapter.FragmentStateAdapter;
 public class AuthViewPagerAdapter extends FragmentStateAdapter {
 
     private static final int NUM_PAGES = 2;
-    private static final int LOGIN_PAGE = 0;
-    private static final int REGISTER_PAGE = 1;
+    static final int LOGIN_PAGE = 0;
+    static final int REGISTER_PAGE = 1;
 
     public AuthViewPagerAdapter(@NonNull FragmentActivity fragmentActivity) {
         super(fragmentActivity);
@@ -0,0 +1,149 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache bounded by the total size of its values rather than their count,
+ * in whatever unit the {@link Sizer} reports (bytes, for bitmaps).
+ *
+ * Plain Java, unlike {@code android.util.LruCache}, so it runs in JVM tests and benchmarks.
+ * Evicted entries are handed to the {@link EvictionListener} after the lock is released.
+ */
+public class BoundedLruCache<K, V> {
+
+    public interface Sizer<V> {
+        long sizeOf(@NonNull V value);
+    }
+
+    public interface EvictionListener<K, V> {
+        /**
+         * Called for entries pushed out to make room, not for ones replaced or removed by the caller.
+         */
+        void onEvicted(@NonNull K key, @NonNull V value);
+    }
+
+    private final long mMaxSize;
+    private final Sizer<V> mSizer;
+    @Nullable
+    private final EvictionListener<K, V> mEvictionListener;
+
+    // Guarded by this
+    private final LinkedHashMap<K, V> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSize;
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    public BoundedLruCache(long maxSize, @NonNull Sizer<V> sizer, @Nullable EvictionListener<K, V> evictionListener) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        mMaxSize = maxSize;
+        mSizer = sizer;
+        mEvictionListener = evictionListener;
+    }
+
+    @Nullable
+    public synchronized V get(@NonNull K key) {
+        V value = mEntries.get(key);
+        if (value != null) {
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return value;
+    }
+
+    /**
+     * Adds the value, evicting the least recently used entries until everything fits. A value
+     * larger than the whole cache is not kept.
+     *
+     * @return the value previously stored under the key, or null
+     */
+    @Nullable
+    public V put(@NonNull K key, @NonNull V value) {
+        V previous;
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (this) {
+            previous = mEntries.remove(key);
+            if (previous != null) {
+                mSize -= mSizer.sizeOf(previous);
+            }
+            long size = mSizer.sizeOf(value);
+            if (size <= mMaxSize) {
+                mEntries.put(key, value);
+                mSize += size;
+            }
+            Iterator<Map.Entry<K, V>> eldest = mEntries.entrySet().iterator();
+            while (mSize > mMaxSize && eldest.hasNext()) {
+                Map.Entry<K, V> entry = eldest.next();
+                eldest.remove();
+                mSize -= mSizer.sizeOf(entry.getValue());
+                mEvictions++;
+                evicted.add(entry);
+            }
+        }
+        if (mEvictionListener != null) {
+            for (Map.Entry<K, V> entry : evicted) {
+                mEvictionListener.onEvicted(entry.getKey(), entry.getValue());
+            }
+        }
+        return previous;
+    }
+
+    @Nullable
+    public synchronized V remove(@NonNull K key) {
+        V value = mEntries.remove(key);
+        if (value != null) {
+            mSize -= mSizer.sizeOf(value);
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Total size of the values held, in the {@link Sizer}'s units.
+     */
+    public synchronized long size() {
+        return mSize;
+    }
+
+    public long maxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int count() {
+        return mEntries.size();
+    }
+
+    public synchronized long hitCount() {
+        return mHits;
+    }
+
+    public synchronized long missCount() {
+        return mMisses;
+    }
+
+    public synchronized long evictionCount() {
+        return mEvictions;
+    }
+
+    /**
+     * Hits as a share of all lookups, or 0 before the first one.
+     */
+    public synchronized double hitRate() {
+        long lookups = mHits + mMisses;
+        return lookups == 0 ? 0 : (double) mHits / lookups;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.pointbrew_app;
+
+/**
+ * Stops sending requests to a backend that keeps failing.
+ *
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects requests
+ * for {@code openMillis}. It then lets a single trial request through; success closes it again,
+ * failure re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+    private final Clock mClock;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenedAtMillis;
+    private boolean mTrialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis, Clock clock) {
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mClock = clock;
+    }
+
+    /**
+     * Returns true if a request may be sent now.
+     */
+    public synchronized boolean allowRequest() {
+        if (mState == State.OPEN && mClock.nowMillis() - mOpenedAtMillis >= mOpenMillis) {
+            mState = State.HALF_OPEN;
+            mTrialInFlight = false;
+        }
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (mTrialInFlight) return false;
+                mTrialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        mState = State.CLOSED;
+        mConsecutiveFailures = 0;
+        mTrialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mOpenedAtMillis = mClock.nowMillis();
+            mTrialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return mState;
+    }
+}
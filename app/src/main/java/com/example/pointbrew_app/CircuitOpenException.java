@@ -0,0 +1,11 @@
+package com.example.pointbrew_app;
+
+/**
+ * Thrown to callers when a request is rejected because the backend is considered down.
+ */
+public class CircuitOpenException extends Exception {
+
+    public CircuitOpenException() {
+        super("The service is unavailable, please try again shortly");
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.pointbrew_app;
+
+/**
+ * Source of the current time, replaceable in tests.
+ */
+public interface Clock {
+
+    Clock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Milliseconds since the epoch.
+     */
+    long nowMillis();
+}
@@ -0,0 +1,39 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs a task every time the device gets a usable network connection.
+ */
+public class ConnectivityMonitor {
+
+    private final ConnectivityManager mConnectivityManager;
+    private final Runnable mOnAvailable;
+    private ConnectivityManager.NetworkCallback mCallback;
+
+    public ConnectivityMonitor(Context context, Runnable onAvailable) {
+        mConnectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        mOnAvailable = onAvailable;
+    }
+
+    public synchronized void start() {
+        if (mCallback != null || mConnectivityManager == null) return;
+        mCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                mOnAvailable.run();
+            }
+        };
+        mConnectivityManager.registerDefaultNetworkCallback(mCallback);
+    }
+
+    public synchronized void stop() {
+        if (mCallback == null) return;
+        mConnectivityManager.unregisterNetworkCallback(mCallback);
+        mCallback = null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Where {@link ShardedCounter} keeps its shards. A counter is a document path; its shards are
+ * numbered documents under it, each holding part of the total.
+ */
+public interface CounterStore {
+
+    /**
+     * Keeps nothing, so every counter reads 0; for where no Firestore is wired in.
+     */
+    CounterStore NONE = new CounterStore() {
+        @Override
+        public void incrementShard(@NonNull String counterPath, int shard, long delta,
+                                   @NonNull AuthBackend.Callback<Void> callback) {
+            callback.onSuccess(null);
+        }
+
+        @Override
+        public void readTotal(@NonNull String counterPath, @NonNull AuthBackend.Callback<Long> callback) {
+            callback.onSuccess(0L);
+        }
+    };
+
+    /**
+     * Adds {@code delta} to one shard of the counter, creating the shard if it doesn't exist.
+     */
+    void incrementShard(@NonNull String counterPath, int shard, long delta,
+                        @NonNull AuthBackend.Callback<Void> callback);
+
+    /**
+     * The sum of every shard of the counter; 0 if it was never incremented.
+     */
+    void readTotal(@NonNull String counterPath, @NonNull AuthBackend.Callback<Long> callback);
+}
@@ -0,0 +1,107 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads members from CSV with a header row naming the columns. Fields may be quoted, with
+ * {@code ""} for a quote inside one and line breaks allowed inside quotes.
+ */
+public class CsvMemberReader implements MemberRecordReader {
+
+    private final BufferedReader mReader;
+    private List<String> mHeader;
+
+    public CsvMemberReader(@NonNull Reader reader) {
+        mReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> readRow() throws IOException {
+        if (mHeader == null) {
+            mHeader = readRecord();
+            if (mHeader == null) {
+                return null;
+            }
+        }
+        List<String> values;
+        do {
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+            // Skip blank lines
+        } while (values.size() == 1 && values.get(0).isEmpty());
+
+        if (values.size() != mHeader.size()) {
+            throw new IllegalArgumentException("expected " + mHeader.size() + " fields, found " + values.size());
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            row.put(mHeader.get(i).trim(), values.get(i));
+        }
+        return row;
+    }
+
+    @Nullable
+    private List<String> readRecord() throws IOException {
+        int c = mReader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("File ends inside a quoted field");
+                }
+                if (c == '"') {
+                    mReader.mark(1);
+                    int next = mReader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        mReader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r') {
+                mReader.mark(1);
+                if (mReader.read() != '\n') {
+                    mReader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = mReader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+}
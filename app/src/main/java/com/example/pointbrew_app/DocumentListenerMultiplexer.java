@@ -0,0 +1,219 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Shares one snapshot listener per document among everyone watching it.
+ *
+ * Snapshot listeners are billed per document read and each keeps its own copy of the document
+ * in sync, so screens watching the same {@code users/{uid}} go through here instead of
+ * attaching their own. The first subscriber attaches the listener, later ones join it and are
+ * handed the latest snapshot straight away. When the last one leaves, the listener stays
+ * attached for a grace period so a rotation or a screen change doesn't detach and re-read.
+ *
+ * A new subscriber with nothing delivered yet gets the locally cached value first, if any.
+ * Subscribers are called on whatever thread the source calls back on, the main thread for
+ * Firestore, or inline from {@link #subscribe} for the initial value.
+ */
+public class DocumentListenerMultiplexer<T> {
+
+    public interface Source<T> {
+        Subscription listen(@NonNull String path, @NonNull AuthBackend.Callback<T> listener);
+    }
+
+    private final class Entry {
+        final String path;
+        final List<AuthBackend.Callback<T>> subscribers = new ArrayList<>();
+        Subscription upstream;
+        Scheduler.Cancellable detach;
+        boolean hasValue;
+        T value;
+
+        Entry(String path) {
+            this.path = path;
+        }
+    }
+
+    private final Source<T> mSource;
+    private final Function<String, T> mCache;
+    private final Scheduler mScheduler;
+    private final long mGraceMillis;
+
+    // Guarded by this
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    private int mAttachCount;
+
+    /**
+     * @param cache the locally cached value for a path, or null; never goes to the network
+     */
+    public DocumentListenerMultiplexer(Source<T> source, Function<String, T> cache, Scheduler scheduler,
+                                       long graceMillis) {
+        mSource = source;
+        mCache = cache;
+        mScheduler = scheduler;
+        mGraceMillis = graceMillis;
+    }
+
+    /**
+     * Calls {@code onSuccess} with the document at {@code path} now if a value is known, then on
+     * every change. If the shared listener fails, every subscriber gets {@code onError} and is
+     * dropped; subscribing again attaches a new listener.
+     */
+    public Subscription subscribe(@NonNull String path, @NonNull AuthBackend.Callback<T> subscriber) {
+        Entry entry;
+        boolean attach;
+        boolean hasInitial;
+        T initial;
+        synchronized (this) {
+            entry = mEntries.get(path);
+            if (entry == null) {
+                entry = new Entry(path);
+                mEntries.put(path, entry);
+            }
+            if (entry.detach != null) {
+                entry.detach.cancel();
+                entry.detach = null;
+            }
+            entry.subscribers.add(subscriber);
+            attach = entry.upstream == null;
+            hasInitial = entry.hasValue;
+            initial = entry.value;
+        }
+
+        if (!hasInitial) {
+            initial = mCache.apply(path);
+            hasInitial = initial != null;
+            if (hasInitial) {
+                synchronized (this) {
+                    // So the listener's first snapshot isn't passed on again if it matches
+                    if (!entry.hasValue) {
+                        entry.hasValue = true;
+                        entry.value = initial;
+                    }
+                }
+            }
+        }
+        if (hasInitial) {
+            subscriber.onSuccess(initial);
+        }
+        if (attach) {
+            attach(entry);
+        }
+
+        Entry subscribed = entry;
+        return () -> unsubscribe(subscribed, subscriber);
+    }
+
+    /**
+     * Snapshot listeners attached so far, counting re-attaches after a detach or failure.
+     */
+    public synchronized int getAttachCount() {
+        return mAttachCount;
+    }
+
+    public synchronized boolean isAttached(@NonNull String path) {
+        Entry entry = mEntries.get(path);
+        return entry != null && entry.upstream != null;
+    }
+
+    private void attach(Entry entry) {
+        synchronized (this) {
+            mAttachCount++;
+            // Placeholder so concurrent subscribers don't attach a second listener
+            entry.upstream = () -> { };
+        }
+        Subscription upstream = mSource.listen(entry.path, new AuthBackend.Callback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                onSnapshot(entry, value);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onFailure(entry, e);
+            }
+        });
+        boolean stale;
+        synchronized (this) {
+            // Detached or failed while the listener was being attached
+            stale = mEntries.get(entry.path) != entry || entry.upstream == null;
+            if (!stale) {
+                entry.upstream = upstream;
+            }
+        }
+        if (stale) {
+            upstream.unsubscribe();
+        }
+    }
+
+    private void onSnapshot(Entry entry, T value) {
+        List<AuthBackend.Callback<T>> subscribers;
+        synchronized (this) {
+            if (mEntries.get(entry.path) != entry) {
+                return;
+            }
+            // Cached-then-server snapshots of an unchanged document aren't worth a redraw
+            if (entry.hasValue && Objects.equals(entry.value, value)) {
+                return;
+            }
+            entry.hasValue = true;
+            entry.value = value;
+            subscribers = new ArrayList<>(entry.subscribers);
+        }
+        for (AuthBackend.Callback<T> subscriber : subscribers) {
+            subscriber.onSuccess(value);
+        }
+    }
+
+    private void onFailure(Entry entry, Exception e) {
+        List<AuthBackend.Callback<T>> subscribers;
+        synchronized (this) {
+            if (mEntries.get(entry.path) != entry) {
+                return;
+            }
+            mEntries.remove(entry.path);
+            entry.upstream = null;
+            if (entry.detach != null) {
+                entry.detach.cancel();
+                entry.detach = null;
+            }
+            subscribers = new ArrayList<>(entry.subscribers);
+            entry.subscribers.clear();
+        }
+        for (AuthBackend.Callback<T> subscriber : subscribers) {
+            subscriber.onError(e);
+        }
+    }
+
+    private synchronized void unsubscribe(Entry entry, AuthBackend.Callback<T> subscriber) {
+        if (!entry.subscribers.remove(subscriber) || !entry.subscribers.isEmpty()) {
+            return;
+        }
+        if (mEntries.get(entry.path) == entry && entry.detach == null) {
+            entry.detach = mScheduler.schedule(() -> detachIfUnused(entry), mGraceMillis);
+        }
+    }
+
+    private void detachIfUnused(Entry entry) {
+        Subscription upstream;
+        synchronized (this) {
+            entry.detach = null;
+            if (!entry.subscribers.isEmpty() || mEntries.get(entry.path) != entry) {
+                return;
+            }
+            mEntries.remove(entry.path);
+            upstream = entry.upstream;
+            entry.upstream = null;
+        }
+        if (upstream != null) {
+            upstream.unsubscribe();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Remembers whether emails are already registered, so the sign-up form can warn about a taken
+ * address while it is being typed without asking the backend on every keystroke.
+ *
+ * Answers are kept for a while and then asked again, since accounts can be created or deleted
+ * elsewhere. Lookups for the same email share one request. A caller that no longer needs an
+ * answer cancels its lookup: the request still completes and is remembered, but the caller's
+ * callback is not run. A backend that won't say, such as Firebase with the lookup turned off,
+ * answers null; that is passed on but not remembered, so it never stands in for "not registered".
+ */
+public class EmailRegistrationCache {
+
+    static final long DEFAULT_TTL_MILLIS = 5 * 60_000;
+    static final int DEFAULT_CAPACITY = 64;
+
+    private static final class Entry {
+        final boolean registered;
+        final long expiresAtMillis;
+
+        Entry(boolean registered, long expiresAtMillis) {
+            this.registered = registered;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final BiConsumer<String, AuthBackend.Callback<Boolean>> mLookup;
+    private final Clock mClock;
+    private final long mTtlMillis;
+    private final int mCapacity;
+    private final SingleFlight<Boolean> mLookups = new SingleFlight<>();
+
+    // Guarded by this; least recently used first
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mRequests = new AtomicLong();
+
+    /**
+     * @param lookup asks the backend, {@link AuthBackend#isEmailRegistered} in the app
+     */
+    public EmailRegistrationCache(@NonNull BiConsumer<String, AuthBackend.Callback<Boolean>> lookup,
+                                  @NonNull Clock clock, long ttlMillis, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        mLookup = lookup;
+        mClock = clock;
+        mTtlMillis = ttlMillis;
+        mCapacity = capacity;
+    }
+
+    /**
+     * Emails differ only in case as far as the backend is concerned.
+     */
+    static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The remembered answer for {@code email}, or null if there is none or it has expired.
+     */
+    @Nullable
+    public synchronized Boolean peek(@NonNull String email) {
+        String key = key(email);
+        Entry entry = mEntries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAtMillis <= mClock.nowMillis()) {
+            mEntries.remove(key);
+            return null;
+        }
+        return entry.registered;
+    }
+
+    /**
+     * Records an answer learned some other way, such as an account just created with the email.
+     */
+    public void remember(@NonNull String email, boolean registered) {
+        store(key(email), registered);
+    }
+
+    /**
+     * Answers from memory when it can, otherwise asks the backend. The answer is null if the
+     * backend won't say.
+     *
+     * @return cancels delivery to {@code callback}; the answer is still remembered
+     */
+    @NonNull
+    public Scheduler.Cancellable check(@NonNull String email, @NonNull AuthBackend.Callback<Boolean> callback) {
+        Boolean known = peek(email);
+        if (known != null) {
+            mHits.incrementAndGet();
+            callback.onSuccess(known);
+            return () -> { };
+        }
+        String key = key(email);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        mLookups.execute(key, new AuthBackend.Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean registered) {
+                if (!cancelled.get()) {
+                    callback.onSuccess(registered);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!cancelled.get()) {
+                    callback.onError(e);
+                }
+            }
+        }, shared -> {
+            mRequests.incrementAndGet();
+            mLookup.accept(key, new AuthBackend.Callback<Boolean>() {
+                @Override
+                public void onSuccess(Boolean registered) {
+                    if (registered != null) {
+                        store(key, registered);
+                    }
+                    shared.onSuccess(registered);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    // Not remembered; the next keystroke asks again
+                    shared.onError(e);
+                }
+            });
+        });
+        return () -> cancelled.set(true);
+    }
+
+    private synchronized void store(String key, boolean registered) {
+        mEntries.put(key, new Entry(registered, mClock.nowMillis() + mTtlMillis));
+        Iterator<Entry> eldest = mEntries.values().iterator();
+        while (mEntries.size() > mCapacity) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Checks answered from memory.
+     */
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    /**
+     * Requests sent to the backend.
+     */
+    public long getRequestCount() {
+        return mRequests.get();
+    }
+}
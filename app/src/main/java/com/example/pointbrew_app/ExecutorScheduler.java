@@ -0,0 +1,47 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Scheduler} that runs tasks on a background executor.
+ */
+public class ExecutorScheduler implements Scheduler {
+
+    private final ScheduledExecutorService mExecutor;
+
+    public ExecutorScheduler(ScheduledExecutorService executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * A scheduler with a single daemon thread, for low-priority background work.
+     */
+    public static ExecutorScheduler newBackgroundScheduler(String threadName) {
+        return new ExecutorScheduler(Executors.newSingleThreadScheduledExecutor(backgroundThreadFactory(threadName)));
+    }
+
+    /**
+     * Creates low-priority daemon threads with the given name.
+     */
+    public static ThreadFactory backgroundThreadFactory(String threadName) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+    }
+
+    @NonNull
+    @Override
+    public Cancellable schedule(@NonNull Runnable task, long delayMillis) {
+        ScheduledFuture<?> future = mExecutor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+}
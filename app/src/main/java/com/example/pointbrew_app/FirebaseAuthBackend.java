@@ -0,0 +1,263 @@
+package com.example.pointbrew_app;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.FirebaseTooManyRequestsException;
+import com.google.firebase.auth.AdditionalUserInfo;
+import com.google.firebase.auth.AuthCredential;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.GetTokenResult;
+import com.google.firebase.auth.GoogleAuthProvider;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@link AuthBackend} backed by Firebase Auth and the Firestore {@code users} collection.
+ */
+public class FirebaseAuthBackend implements AuthBackend {
+
+    // Created on first use so cold start only pays for what the current screen needs
+    private final Lazy<FirebaseAuth> mAuth;
+    private final Lazy<FirebaseFirestore> mFirestore;
+    private final boolean mEmailLookupEnabled;
+
+    public FirebaseAuthBackend() {
+        this(FirebaseAuth::getInstance, FirebaseFirestore::getInstance, BuildConfig.EMAIL_LOOKUP_ENABLED);
+    }
+
+    FirebaseAuthBackend(Supplier<FirebaseAuth> auth, Supplier<FirebaseFirestore> firestore) {
+        this(auth, firestore, false);
+    }
+
+    /**
+     * @param emailLookupEnabled whether {@link #isEmailRegistered} asks Firebase; only worth it
+     *     for a project with email enumeration protection turned off
+     */
+    FirebaseAuthBackend(Supplier<FirebaseAuth> auth, Supplier<FirebaseFirestore> firestore,
+                        boolean emailLookupEnabled) {
+        mAuth = new Lazy<>(auth);
+        mFirestore = new Lazy<>(firestore);
+        mEmailLookupEnabled = emailLookupEnabled;
+    }
+
+    FirebaseAuth getAuth() {
+        return mAuth.get();
+    }
+
+    boolean isFirestoreInitialized() {
+        return mFirestore.isInitialized();
+    }
+
+    static AuthUser toAuthUser(FirebaseUser user) {
+        if (user == null) return null;
+        return new AuthUser(user.getUid(), user.getEmail(), user.getDisplayName(),
+                user.getPhotoUrl() != null ? user.getPhotoUrl().toString() : null);
+    }
+
+    @Override
+    public AuthUser getCurrentUser() {
+        return toAuthUser(mAuth.get().getCurrentUser());
+    }
+
+    @Override
+    public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+        deliverSignIn(mAuth.get().signInWithEmailAndPassword(email, password), callback);
+    }
+
+    @Override
+    public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+        deliverSignIn(mAuth.get().createUserWithEmailAndPassword(email, password), callback);
+    }
+
+    @Override
+    public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+        AuthCredential credential = GoogleAuthProvider.getCredential(idToken, null);
+        deliverSignIn(mAuth.get().signInWithCredential(credential), callback);
+    }
+
+    @Override
+    public void sendPasswordResetEmail(String email, Callback<Void> callback) {
+        deliver(mAuth.get().sendPasswordResetEmail(email), callback);
+    }
+
+    // fetchSignInMethodsForEmail has no replacement; it is only called where protection is off
+    @SuppressWarnings("deprecation")
+    @Override
+    public void isEmailRegistered(String email, Callback<Boolean> callback) {
+        if (!mEmailLookupEnabled) {
+            // Enumeration protection answers no sign-in methods for every email; sign-up reports a taken one
+            callback.onSuccess(null);
+            return;
+        }
+        mAuth.get().fetchSignInMethodsForEmail(email).addOnCompleteListener(t -> {
+            if (t.isSuccessful()) {
+                List<String> methods = t.getResult().getSignInMethods();
+                callback.onSuccess(methods != null && !methods.isEmpty());
+            } else {
+                callback.onError(t.getException());
+            }
+        });
+    }
+
+    @Override
+    public void signOut() {
+        mAuth.get().signOut();
+    }
+
+    @Override
+    public Subscription addAuthStateListener(AuthStateListener listener) {
+        FirebaseAuth auth = mAuth.get();
+        // Firebase calls this on the main thread, first once the persisted user is restored
+        FirebaseAuth.AuthStateListener firebaseListener =
+                firebaseAuth -> listener.onAuthStateChanged(toAuthUser(firebaseAuth.getCurrentUser()));
+        auth.addAuthStateListener(firebaseListener);
+        return () -> auth.removeAuthStateListener(firebaseListener);
+    }
+
+    @Override
+    public void getIdToken(boolean forceRefresh, Callback<IdToken> callback) {
+        FirebaseUser user = mAuth.get().getCurrentUser();
+        if (user == null) {
+            callback.onError(new IllegalStateException("No signed-in user"));
+            return;
+        }
+        user.getIdToken(forceRefresh).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                callback.onError(task.getException());
+                return;
+            }
+            GetTokenResult result = task.getResult();
+            if (result.getToken() == null) {
+                callback.onError(new IllegalStateException("Firebase returned no ID token"));
+                return;
+            }
+            // Firebase reports the expiry in seconds
+            callback.onSuccess(new IdToken(result.getToken(), result.getExpirationTimestamp() * 1000));
+        });
+    }
+
+    @Override
+    public void upsertProfile(ProfileUpsert upsert, Callback<Void> callback) {
+        deliver(writeProfile(upsert), callback);
+    }
+
+    @Override
+    public boolean isTransientError(Exception e) {
+        if (e instanceof FirebaseNetworkException || e instanceof FirebaseTooManyRequestsException) {
+            return true;
+        }
+        if (e instanceof FirebaseFirestoreException) {
+            switch (((FirebaseFirestoreException) e).getCode()) {
+                case UNAVAILABLE:
+                case DEADLINE_EXCEEDED:
+                case ABORTED:
+                case RESOURCE_EXHAUSTED:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+        WriteBatch batch = mFirestore.get().batch();
+        for (ProfileUpsert upsert : upserts) {
+            batch.set(userRef(upsert.getUid()), toDocumentData(upsert), SetOptions.mergeFields(upsert.getFieldMask()));
+        }
+        deliver(batch.commit(), callback);
+    }
+
+    @Override
+    public void fetchProfile(String uid, Callback<UserProfile> callback) {
+        userRef(uid).get().addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                callback.onSuccess(toUserProfile(task.getResult()));
+            } else {
+                callback.onError(task.getException());
+            }
+        });
+    }
+
+    @Override
+    public Subscription addProfileListener(String uid, Callback<UserProfile> listener) {
+        // Firestore delivers its cached snapshot first when it has one, then server updates
+        ListenerRegistration registration = userRef(uid).addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                listener.onError(e);
+            } else {
+                listener.onSuccess(toUserProfile(snapshot));
+            }
+        });
+        return registration::remove;
+    }
+
+    static UserProfile toUserProfile(DocumentSnapshot snapshot) {
+        if (snapshot == null || !snapshot.exists()) return null;
+        return new UserProfile(snapshot.getId(),
+                snapshot.getString(ProfileUpsert.FIELD_EMAIL),
+                snapshot.getString(ProfileUpsert.FIELD_DISPLAY_NAME),
+                snapshot.getDate(ProfileUpsert.FIELD_BIRTH_DATE),
+                snapshot.getString(ProfileUpsert.FIELD_PHOTO_URL),
+                Boolean.TRUE.equals(snapshot.getBoolean(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN)));
+    }
+
+    /**
+     * Writes the profile in one round trip: a merge limited to the upsert's field mask,
+     * so existing profile fields are never read first or overwritten.
+     */
+    Task<Void> writeProfile(ProfileUpsert upsert) {
+        return userRef(upsert.getUid()).set(toDocumentData(upsert), SetOptions.mergeFields(upsert.getFieldMask()));
+    }
+
+    private DocumentReference userRef(String uid) {
+        return mFirestore.get().collection("users").document(uid);
+    }
+
+    private static Map<String, Object> toDocumentData(ProfileUpsert upsert) {
+        Map<String, Object> data = new HashMap<>(upsert.getFields());
+        for (String field : upsert.getServerTimestampFields()) {
+            data.put(field, FieldValue.serverTimestamp());
+        }
+        return data;
+    }
+
+    private void deliverSignIn(Task<AuthResult> task, Callback<SignInResult> callback) {
+        task.addOnCompleteListener(t -> {
+            if (t.isSuccessful()) {
+                FirebaseUser user = t.getResult().getUser();
+                if (user == null) {
+                    user = mAuth.get().getCurrentUser();
+                }
+                AdditionalUserInfo info = t.getResult().getAdditionalUserInfo();
+                callback.onSuccess(new SignInResult(toAuthUser(user), info != null && info.isNewUser()));
+            } else {
+                callback.onError(t.getException());
+            }
+        });
+    }
+
+    private static <T> void deliver(Task<T> task, Callback<T> callback) {
+        task.addOnCompleteListener(t -> {
+            if (t.isSuccessful()) {
+                callback.onSuccess(t.getResult());
+            } else {
+                callback.onError(t.getException());
+            }
+        });
+    }
+}
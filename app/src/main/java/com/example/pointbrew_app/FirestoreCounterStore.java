@@ -0,0 +1,66 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * {@link CounterStore} that keeps shard {@code i} of a counter at {@code {counterPath}/shards/{i}}.
+ *
+ * Increments are blind server-side increments merged into the shard, so they need no read or
+ * transaction and never conflict with each other.
+ */
+public class FirestoreCounterStore implements CounterStore {
+
+    static final String SHARDS_COLLECTION = "shards";
+    static final String FIELD_COUNT = "count";
+
+    private final Lazy<FirebaseFirestore> mFirestore;
+
+    public FirestoreCounterStore() {
+        this(FirebaseFirestore::getInstance);
+    }
+
+    FirestoreCounterStore(Supplier<FirebaseFirestore> firestore) {
+        mFirestore = new Lazy<>(firestore);
+    }
+
+    @Override
+    public void incrementShard(@NonNull String counterPath, int shard, long delta,
+                               @NonNull AuthBackend.Callback<Void> callback) {
+        mFirestore.get().document(counterPath).collection(SHARDS_COLLECTION).document(String.valueOf(shard))
+                .set(Collections.singletonMap(FIELD_COUNT, FieldValue.increment(delta)), SetOptions.merge())
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        callback.onSuccess(null);
+                    } else {
+                        callback.onError(task.getException());
+                    }
+                });
+    }
+
+    @Override
+    public void readTotal(@NonNull String counterPath, @NonNull AuthBackend.Callback<Long> callback) {
+        mFirestore.get().document(counterPath).collection(SHARDS_COLLECTION).get()
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        callback.onError(task.getException());
+                        return;
+                    }
+                    long total = 0;
+                    for (DocumentSnapshot shard : task.getResult().getDocuments()) {
+                        Long count = shard.getLong(FIELD_COUNT);
+                        if (count != null) {
+                            total += count;
+                        }
+                    }
+                    callback.onSuccess(total);
+                });
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@link PointsLedger} on Firestore. Each transaction is a document in
+ * {@code users/{uid}/points_transactions}, named by its idempotency key, and the balance is the
+ * {@code pointsBalance} field of {@code users/{uid}}.
+ *
+ * Both are written in one Firestore transaction, which first checks for an entry with the same
+ * key, so a retried call finds the earlier entry and changes nothing. Concurrent appends for
+ * one user contend on the user document; Firestore retries the loser.
+ */
+public class FirestorePointsLedger implements PointsLedger {
+
+    static final String TRANSACTIONS_COLLECTION = "points_transactions";
+    static final String FIELD_BALANCE = "pointsBalance";
+    static final String FIELD_BALANCE_UPDATED_AT = "pointsUpdatedAt";
+    static final String FIELD_DELTA = "delta";
+    static final String FIELD_TYPE = "type";
+    static final String FIELD_REASON = "reason";
+    static final String FIELD_BALANCE_AFTER = "balanceAfter";
+    static final String FIELD_CREATED_AT = "createdAt";
+
+    private final Lazy<FirebaseFirestore> mFirestore;
+
+    public FirestorePointsLedger() {
+        this(FirebaseFirestore::getInstance);
+    }
+
+    FirestorePointsLedger(Supplier<FirebaseFirestore> firestore) {
+        mFirestore = new Lazy<>(firestore);
+    }
+
+    @Override
+    public void apply(@NonNull String uid, @NonNull PointsTransaction transaction,
+                      @NonNull AuthBackend.Callback<Long> callback) {
+        FirebaseFirestore firestore = mFirestore.get();
+        DocumentReference userRef = firestore.collection("users").document(uid);
+        DocumentReference entryRef = userRef.collection(TRANSACTIONS_COLLECTION)
+                .document(transaction.getIdempotencyKey());
+
+        firestore.<Long>runTransaction(t -> {
+            // Transactions must do all their reads before any write
+            DocumentSnapshot entry = t.get(entryRef);
+            DocumentSnapshot user = t.get(userRef);
+            if (entry.exists()) {
+                Long recorded = entry.getLong(FIELD_BALANCE_AFTER);
+                return recorded != null ? recorded : 0L;
+            }
+
+            long balance = balanceOf(user);
+            long after = balance + transaction.getDelta();
+            if (after < 0) {
+                throw new InsufficientPointsException(balance, transaction.getPoints());
+            }
+
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(FIELD_DELTA, transaction.getDelta());
+            fields.put(FIELD_TYPE, transaction.getType());
+            fields.put(FIELD_REASON, transaction.getReason());
+            fields.put(FIELD_BALANCE_AFTER, after);
+            fields.put(FIELD_CREATED_AT, FieldValue.serverTimestamp());
+            t.set(entryRef, fields);
+
+            Map<String, Object> balanceFields = new HashMap<>();
+            balanceFields.put(FIELD_BALANCE, after);
+            balanceFields.put(FIELD_BALANCE_UPDATED_AT, FieldValue.serverTimestamp());
+            t.set(userRef, balanceFields, SetOptions.merge());
+            return after;
+        }).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                callback.onSuccess(task.getResult());
+            } else {
+                callback.onError(unwrap(task.getException()));
+            }
+        });
+    }
+
+    @Override
+    public void getBalance(@NonNull String uid, @NonNull AuthBackend.Callback<Long> callback) {
+        mFirestore.get().collection("users").document(uid).get()
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        callback.onSuccess(balanceOf(task.getResult()));
+                    } else {
+                        callback.onError(task.getException());
+                    }
+                });
+    }
+
+    private static long balanceOf(DocumentSnapshot user) {
+        Long balance = user.exists() ? user.getLong(FIELD_BALANCE) : null;
+        return balance != null ? balance : 0;
+    }
+
+    // Some SDK versions wrap exceptions thrown from the transaction function
+    private static Exception unwrap(Exception e) {
+        if (e != null && e.getCause() instanceof InsufficientPointsException) {
+            return (InsufficientPointsException) e.getCause();
+        }
+        return e;
+    }
+}
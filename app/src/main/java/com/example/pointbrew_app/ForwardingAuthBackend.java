@@ -0,0 +1,89 @@
+package com.example.pointbrew_app;
+
+import java.util.List;
+
+/**
+ * Base class for {@link AuthBackend} decorators; forwards every call to a delegate.
+ */
+public abstract class ForwardingAuthBackend implements AuthBackend {
+
+    private final AuthBackend mDelegate;
+
+    protected ForwardingAuthBackend(AuthBackend delegate) {
+        mDelegate = delegate;
+    }
+
+    protected AuthBackend delegate() {
+        return mDelegate;
+    }
+
+    @Override
+    public AuthUser getCurrentUser() {
+        return mDelegate.getCurrentUser();
+    }
+
+    @Override
+    public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+        mDelegate.signInWithEmail(email, password, callback);
+    }
+
+    @Override
+    public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+        mDelegate.createUserWithEmail(email, password, callback);
+    }
+
+    @Override
+    public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+        mDelegate.signInWithGoogleIdToken(idToken, callback);
+    }
+
+    @Override
+    public void sendPasswordResetEmail(String email, Callback<Void> callback) {
+        mDelegate.sendPasswordResetEmail(email, callback);
+    }
+
+    @Override
+    public void isEmailRegistered(String email, Callback<Boolean> callback) {
+        mDelegate.isEmailRegistered(email, callback);
+    }
+
+    @Override
+    public void signOut() {
+        mDelegate.signOut();
+    }
+
+    @Override
+    public Subscription addAuthStateListener(AuthStateListener listener) {
+        return mDelegate.addAuthStateListener(listener);
+    }
+
+    @Override
+    public Subscription addProfileListener(String uid, Callback<UserProfile> listener) {
+        return mDelegate.addProfileListener(uid, listener);
+    }
+
+    @Override
+    public void getIdToken(boolean forceRefresh, Callback<IdToken> callback) {
+        mDelegate.getIdToken(forceRefresh, callback);
+    }
+
+    @Override
+    public void upsertProfile(ProfileUpsert upsert, Callback<Void> callback) {
+        mDelegate.upsertProfile(upsert, callback);
+    }
+
+    @Override
+    public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+        mDelegate.upsertProfiles(upserts, callback);
+    }
+
+    @Override
+    public void fetchProfile(String uid, Callback<UserProfile> callback) {
+        mDelegate.fetchProfile(uid, callback);
+    }
+
+    @Override
+    public boolean isTransientError(Exception e) {
+        return mDelegate.isTransientError(e);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Bridges the callback-style backend API to {@link CompletableFuture}.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Starts {@code call} and returns a future completed by the callback it is handed.
+     * Cancelling the future doesn't stop the call; its result is just ignored.
+     */
+    public static <T> CompletableFuture<T> fromCallback(@NonNull Consumer<AuthBackend.Callback<T>> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            call.accept(toCallback(future));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * A callback that completes {@code future}.
+     */
+    public static <T> AuthBackend.Callback<T> toCallback(@NonNull CompletableFuture<T> future) {
+        return new AuthBackend.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.pointbrew_app;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.activity.result.ActivityResult;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.ActivityResultRegistry;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.savedstate.SavedStateRegistry;
+import androidx.savedstate.SavedStateRegistryOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The one Google sign-in flow for an Activity's auth pages.
+ *
+ * Owns the only account chooser launcher, so pages don't each register their own, and allows
+ * a single sign-in at a time. The result goes back to the page that started it, by key. The
+ * sign-in in flight and its page live in {@link AuthManager}, so a sign-in that outlives its
+ * Activity reports to the recreated one. Only an open account chooser can outlive the process;
+ * while one is, its page is also kept in saved state so the result still finds it. A result
+ * that arrives while the page has no view waits until it registers again.
+ * Create it in the Activity's {@code onCreate}.
+ */
+public class GoogleSignInCoordinator {
+    private static final String TAG = "GoogleSignInCoordinator";
+
+    private static final String REGISTRY_KEY = "google_sign_in";
+    private static final String SAVED_STATE_KEY = "google_sign_in_coordinator";
+    private static final String STATE_CHOOSER_PAGE = "chooser_page";
+
+    /**
+     * Implemented by Activities whose fragments sign in with Google.
+     */
+    public interface Host {
+        GoogleSignInCoordinator getGoogleSignInCoordinator();
+    }
+
+    /**
+     * The sign-in in flight across every coordinator in the process; one per {@link AuthManager}.
+     */
+    static final class SharedState {
+        // All guarded by this
+        private GoogleSignInCoordinator mCurrent;
+        private String mPendingPage;
+        // Whether the pending sign-in is waiting on the account chooser's result
+        private boolean mChooserOpen;
+        private final Map<String, Outcome> mUndelivered = new HashMap<>();
+        // Set by the first coordinator; until then saved state may describe an earlier process
+        private boolean mAttached;
+    }
+
+    private static final class Outcome {
+        final AuthUser user;
+        final Exception error;
+
+        Outcome(AuthUser user, Exception error) {
+            this.user = user;
+            this.error = error;
+        }
+
+        void deliverTo(AuthManager.AuthCallback callback) {
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onSuccess(user);
+            }
+        }
+    }
+
+    private final AuthManager mAuthManager;
+    private final SharedState mState;
+    private final ActivityResultLauncher<Intent> mLauncher;
+    // Guarded by mState
+    private final Map<String, AuthManager.AuthCallback> mPages = new HashMap<>();
+    // The chooser page taken from saved state, until its result comes in or can no longer come
+    private String mRestoredChooserPage;
+
+    public GoogleSignInCoordinator(@NonNull AuthManager authManager, @NonNull ActivityResultRegistry registry,
+                                   @NonNull SavedStateRegistryOwner owner) {
+        mAuthManager = authManager;
+        mState = authManager.getGoogleSignInState();
+        SavedStateRegistry savedState = owner.getSavedStateRegistry();
+        Bundle restored = savedState.consumeRestoredStateForKey(SAVED_STATE_KEY);
+        synchronized (mState) {
+            // In a new process only a chooser that was open when it died can still answer
+            if (!mState.mAttached && restored != null && restored.getString(STATE_CHOOSER_PAGE) != null) {
+                mState.mPendingPage = restored.getString(STATE_CHOOSER_PAGE);
+                mState.mChooserOpen = true;
+                mRestoredChooserPage = mState.mPendingPage;
+            }
+            mState.mAttached = true;
+            mState.mCurrent = this;
+        }
+        savedState.registerSavedStateProvider(SAVED_STATE_KEY, () -> {
+            Bundle state = new Bundle();
+            synchronized (mState) {
+                state.putString(STATE_CHOOSER_PAGE, mState.mChooserOpen ? mState.mPendingPage : null);
+            }
+            return state;
+        });
+        mLauncher = registry.register(REGISTRY_KEY, owner, new ActivityResultContracts.StartActivityForResult(),
+                this::onActivityResult);
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_RESUME) {
+                // A chooser's result is dispatched before the Activity resumes, so none is coming
+                dropRestoredChooser();
+            } else if (event == Lifecycle.Event.ON_DESTROY) {
+                synchronized (mState) {
+                    if (mState.mCurrent == this) {
+                        mState.mCurrent = null;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends sign-ins started by {@code pageKey} to {@code callback}, on the main thread while
+     * {@code owner} is started, until it is destroyed. A result that came in while the page was
+     * gone is delivered now.
+     */
+    public void register(@NonNull String pageKey, @NonNull LifecycleOwner owner,
+                         @NonNull AuthManager.AuthCallback callback) {
+        AuthManager.AuthCallback bound = mAuthManager.bind(owner, callback);
+        Outcome undelivered;
+        synchronized (mState) {
+            mPages.put(pageKey, bound);
+            undelivered = mState.mUndelivered.remove(pageKey);
+        }
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                synchronized (mState) {
+                    mPages.remove(pageKey, bound);
+                }
+            }
+        });
+        if (undelivered != null) {
+            undelivered.deliverTo(bound);
+        }
+    }
+
+    /**
+     * Signs in with Google for {@code pageKey}, silently if possible and through the account
+     * chooser otherwise. Ignored while another sign-in is still in progress.
+     */
+    public void start(@NonNull String pageKey) {
+        synchronized (mState) {
+            if (mState.mPendingPage != null) {
+                Log.d(TAG, "Google sign-in already in progress for " + mState.mPendingPage);
+                return;
+            }
+            mState.mPendingPage = pageKey;
+            mState.mChooserOpen = false;
+        }
+        mAuthManager.signInWithGoogle(routeTo(mState, pageKey), intent -> launchChooser(mState, pageKey, intent));
+    }
+
+    public boolean isInProgress() {
+        return getPendingPage() != null;
+    }
+
+    String getPendingPage() {
+        synchronized (mState) {
+            return mState.mPendingPage;
+        }
+    }
+
+    /**
+     * Opens the chooser from whichever Activity is current, which may not be the one that
+     * started the sign-in.
+     */
+    private static void launchChooser(SharedState state, String pageKey, Intent intent) {
+        GoogleSignInCoordinator current;
+        synchronized (state) {
+            current = state.mCurrent;
+            if (current != null) {
+                state.mChooserOpen = true;
+            }
+        }
+        if (current != null) {
+            current.mLauncher.launch(intent);
+        } else {
+            finish(state, pageKey, new Outcome(null, new IllegalStateException("Sign-in cancelled")));
+        }
+    }
+
+    private void onActivityResult(ActivityResult result) {
+        String pageKey;
+        synchronized (mState) {
+            pageKey = mState.mChooserOpen ? mState.mPendingPage : null;
+            mState.mChooserOpen = false;
+            mRestoredChooserPage = null;
+        }
+        if (pageKey == null) {
+            Log.w(TAG, "Google sign-in result with no sign-in in progress");
+            return;
+        }
+        if (result.getResultCode() == Activity.RESULT_OK) {
+            mAuthManager.handleGoogleSignInResult(result.getData(), routeTo(mState, pageKey));
+        } else {
+            Log.e(TAG, "Google Sign In failed. Result code: " + result.getResultCode());
+            finish(mState, pageKey, new Outcome(null, new IllegalStateException("Sign-in cancelled")));
+        }
+    }
+
+    private void dropRestoredChooser() {
+        synchronized (mState) {
+            String pageKey = mRestoredChooserPage;
+            mRestoredChooserPage = null;
+            if (pageKey == null || !mState.mChooserOpen || !pageKey.equals(mState.mPendingPage)) return;
+            Log.w(TAG, "No account chooser result after restoring; dropping the sign-in for " + pageKey);
+            mState.mPendingPage = null;
+            mState.mChooserOpen = false;
+        }
+    }
+
+    /**
+     * Reports to the page through whichever coordinator is current when the result comes in,
+     * so it can't hold on to a destroyed Activity's coordinator.
+     */
+    private static AuthManager.AuthCallback routeTo(SharedState state, String pageKey) {
+        return new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                finish(state, pageKey, new Outcome(user, null));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finish(state, pageKey, new Outcome(null, e));
+            }
+        };
+    }
+
+    private static void finish(SharedState state, String pageKey, Outcome outcome) {
+        AuthManager.AuthCallback page;
+        synchronized (state) {
+            if (pageKey.equals(state.mPendingPage)) {
+                state.mPendingPage = null;
+                state.mChooserOpen = false;
+            }
+            page = state.mCurrent != null ? state.mCurrent.mPages.get(pageKey) : null;
+            if (page == null) {
+                state.mUndelivered.put(pageKey, outcome);
+                return;
+            }
+        }
+        outcome.deliverTo(page);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.pointbrew_app;
+
+import android.content.Intent;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The parts of Google Sign-In that AuthManager uses, so the flows can run against a fake.
+ */
+public interface GoogleSignInGateway {
+
+    /**
+     * Whether a Google account has signed in to this app on this device before, which is
+     * when a silent sign-in can succeed.
+     */
+    boolean hasPreviousSignIn();
+
+    /**
+     * Gets a fresh ID token for the previously signed-in account without showing any UI.
+     */
+    void silentSignIn(@NonNull AuthBackend.Callback<String> callback);
+
+    /**
+     * The account chooser, for when a silent sign-in isn't possible.
+     */
+    @NonNull
+    Intent getSignInIntent();
+
+    /**
+     * The ID token from the account chooser's result.
+     */
+    @NonNull
+    String getIdToken(Intent data) throws Exception;
+
+    void signOut(@NonNull AuthBackend.Callback<Void> callback);
+}
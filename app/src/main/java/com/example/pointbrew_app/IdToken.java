@@ -0,0 +1,26 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A Firebase ID token and when it stops being accepted.
+ */
+public final class IdToken {
+
+    private final String mToken;
+    private final long mExpiresAtMillis;
+
+    public IdToken(@NonNull String token, long expiresAtMillis) {
+        mToken = token;
+        mExpiresAtMillis = expiresAtMillis;
+    }
+
+    @NonNull
+    public String getToken() {
+        return mToken;
+    }
+
+    public long getExpiresAtMillis() {
+        return mExpiresAtMillis;
+    }
+}
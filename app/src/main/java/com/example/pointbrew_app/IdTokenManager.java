@@ -0,0 +1,194 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the signed-in user's ID token in memory and renews it in the background shortly
+ * before it expires, so requests to our own backend rarely wait on a token refresh.
+ *
+ * A request that finds no usable token waits for a refresh; concurrent requests share one.
+ */
+public class IdTokenManager {
+    private static final String TAG = "IdTokenManager";
+
+    private static final String REFRESH_KEY = "idToken";
+    // A token this close to expiry is not handed out; the request could outlive it
+    static final long MIN_REMAINING_MILLIS = 60_000;
+    // Background refreshes run this long before expiry
+    static final long REFRESH_AHEAD_MILLIS = 5 * 60_000;
+    static final long RETRY_DELAY_MILLIS = 30_000;
+
+    private final IdTokenSource mSource;
+    private final Clock mClock;
+    private final Scheduler mScheduler;
+    private final SingleFlight<IdToken> mRefreshes = new SingleFlight<>();
+
+    // Guarded by this
+    private IdToken mToken;
+    private Scheduler.Cancellable mScheduledRefresh;
+    // Bumped by clear() so refreshes started before it don't store their token
+    private int mGeneration;
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mRefreshFailures = new AtomicLong();
+    private final LatencyHistogram mRefreshLatency = new LatencyHistogram();
+
+    public IdTokenManager(IdTokenSource source, Clock clock, Scheduler scheduler) {
+        mSource = source;
+        mClock = clock;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Hands over a token that is valid for at least another minute, refreshing first if needed.
+     */
+    public void getToken(@NonNull AuthBackend.Callback<String> callback) {
+        IdToken token;
+        synchronized (this) {
+            token = usableToken();
+        }
+        if (token != null) {
+            mHits.incrementAndGet();
+            callback.onSuccess(token.getToken());
+            return;
+        }
+        mMisses.incrementAndGet();
+        refresh(false, new AuthBackend.Callback<IdToken>() {
+            @Override
+            public void onSuccess(IdToken result) {
+                callback.onSuccess(result.getToken());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Fetches a token now unless a usable one is held, e.g. right after sign-in.
+     */
+    public void prefetch() {
+        synchronized (this) {
+            if (usableToken() != null) return;
+        }
+        refresh(false, IGNORE);
+    }
+
+    /**
+     * Drops the token and stops refreshing; for sign-out.
+     */
+    public void clear() {
+        synchronized (this) {
+            mGeneration++;
+            mToken = null;
+            cancelScheduledRefresh();
+        }
+    }
+
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    public long getRefreshFailureCount() {
+        return mRefreshFailures.get();
+    }
+
+    public LatencyHistogram getRefreshLatency() {
+        return mRefreshLatency;
+    }
+
+    public String summary() {
+        return String.format(Locale.US, "ID_TOKEN hits=%d misses=%d refreshFailures=%d refresh %s",
+                mHits.get(), mMisses.get(), mRefreshFailures.get(), mRefreshLatency.summary());
+    }
+
+    private IdToken usableToken() {
+        if (mToken == null || mToken.getExpiresAtMillis() - mClock.nowMillis() < MIN_REMAINING_MILLIS) {
+            return null;
+        }
+        return mToken;
+    }
+
+    /**
+     * @param forceRefresh mint a new token rather than take the source's cached one, which
+     *                     may be the one about to expire
+     */
+    private void refresh(boolean forceRefresh, AuthBackend.Callback<IdToken> callback) {
+        int generation;
+        synchronized (this) {
+            generation = mGeneration;
+        }
+        mRefreshes.execute(REFRESH_KEY, callback, shared -> {
+            long start = AuthMetrics.startTimer();
+            mSource.getIdToken(forceRefresh, new AuthBackend.Callback<IdToken>() {
+                @Override
+                public void onSuccess(IdToken token) {
+                    mRefreshLatency.record(System.nanoTime() - start);
+                    synchronized (IdTokenManager.this) {
+                        if (generation == mGeneration) {
+                            mToken = token;
+                            scheduleRefresh(token.getExpiresAtMillis() - REFRESH_AHEAD_MILLIS - mClock.nowMillis());
+                        }
+                    }
+                    shared.onSuccess(token);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    mRefreshLatency.record(System.nanoTime() - start);
+                    mRefreshFailures.incrementAndGet();
+                    synchronized (IdTokenManager.this) {
+                        if (generation == mGeneration && mToken != null) {
+                            // Still holding a token, so keep trying while it lasts
+                            scheduleRefresh(RETRY_DELAY_MILLIS);
+                        }
+                    }
+                    shared.onError(e);
+                }
+            });
+        });
+    }
+
+    private void scheduleRefresh(long delayMillis) {
+        cancelScheduledRefresh();
+        mScheduledRefresh = mScheduler.schedule(this::backgroundRefresh, Math.max(0, delayMillis));
+    }
+
+    private void cancelScheduledRefresh() {
+        if (mScheduledRefresh != null) {
+            mScheduledRefresh.cancel();
+            mScheduledRefresh = null;
+        }
+    }
+
+    private void backgroundRefresh() {
+        synchronized (this) {
+            mScheduledRefresh = null;
+            if (mToken == null) return;
+        }
+        refresh(true, IGNORE);
+    }
+
+    private static final AuthBackend.Callback<IdToken> IGNORE = new AuthBackend.Callback<IdToken>() {
+        @Override
+        public void onSuccess(IdToken result) {
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.w(TAG, "ID token refresh failed", e);
+        }
+    };
+}
@@ -0,0 +1,12 @@
+package com.example.pointbrew_app;
+
+/**
+ * Where {@link IdTokenManager} gets tokens from; {@link AuthBackend#getIdToken} in the app.
+ */
+public interface IdTokenSource {
+
+    /**
+     * @param forceRefresh mint a new token even if the source still holds a valid one
+     */
+    void getIdToken(boolean forceRefresh, AuthBackend.Callback<IdToken> callback);
+}
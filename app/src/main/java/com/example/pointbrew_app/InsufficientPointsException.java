@@ -0,0 +1,25 @@
+package com.example.pointbrew_app;
+
+/**
+ * A redeem was rejected because it would take the balance below zero. Unchecked because it is
+ * thrown from inside a Firestore transaction function.
+ */
+public class InsufficientPointsException extends RuntimeException {
+
+    private final long mBalance;
+    private final long mRequested;
+
+    public InsufficientPointsException(long balance, long requested) {
+        super("Not enough points: balance " + balance + ", requested " + requested);
+        mBalance = balance;
+        mRequested = requested;
+    }
+
+    public long getBalance() {
+        return mBalance;
+    }
+
+    public long getRequested() {
+        return mRequested;
+    }
+}
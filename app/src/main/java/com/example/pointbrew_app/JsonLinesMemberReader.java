@@ -0,0 +1,60 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads members from JSON Lines: one JSON object per line, keyed by the same column names as
+ * the CSV format.
+ */
+public class JsonLinesMemberReader implements MemberRecordReader {
+
+    private final BufferedReader mReader;
+
+    public JsonLinesMemberReader(@NonNull Reader reader) {
+        mReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> readRow() throws IOException {
+        String line;
+        do {
+            line = mReader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        JSONObject json;
+        try {
+            json = new JSONObject(line);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("not a JSON object: " + e.getMessage());
+        }
+        Map<String, String> row = new HashMap<>();
+        for (Iterator<String> keys = json.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            Object value = json.opt(key);
+            if (value != null && value != JSONObject.NULL) {
+                row.put(key, String.valueOf(value));
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+}
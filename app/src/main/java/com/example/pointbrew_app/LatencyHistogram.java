@@ -0,0 +1,110 @@
+package com.example.pointbrew_app;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram that records without allocating.
+ *
+ * Bucket bounds are chosen for network calls on a phone: 1 ms up to 30 s, plus an overflow bucket.
+ * Percentiles are reported as the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 300, 500, 750, 1_000, 1_500, 2_000, 3_000, 5_000, 10_000, 30_000
+    };
+    private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            BUCKET_BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS_MILLIS[i]);
+        }
+    }
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_BOUNDS_NANOS.length + 1);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSumNanos = new AtomicLong();
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    public void record(long durationNanos) {
+        int bucket = bucketFor(durationNanos);
+        mCounts.incrementAndGet(bucket);
+        mCount.incrementAndGet();
+        mSumNanos.addAndGet(durationNanos);
+        long max = mMaxNanos.get();
+        while (durationNanos > max && !mMaxNanos.compareAndSet(max, durationNanos)) {
+            max = mMaxNanos.get();
+        }
+    }
+
+    private static int bucketFor(long durationNanos) {
+        int low = 0;
+        int high = BUCKET_BOUNDS_NANOS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (durationNanos <= BUCKET_BOUNDS_NANOS[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMaxNanos() {
+        return mMaxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mSumNanos.get() / count;
+    }
+
+    /**
+     * Upper bound in milliseconds of the bucket holding the given percentile (0-100), or -1 if
+     * it falls into the overflow bucket or nothing was recorded.
+     */
+    public long getPercentileMillis(double percentile) {
+        long count = mCount.get();
+        if (count == 0) return -1;
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        long seen = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            seen += mCounts.get(i);
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[i] : -1;
+            }
+        }
+        return -1;
+    }
+
+    public void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mSumNanos.set(0);
+        mMaxNanos.set(0);
+    }
+
+    /**
+     * One-line summary, for example {@code n=12 mean=84.1ms p50<=100ms p90<=200ms p99<=300ms max=251.0ms}.
+     */
+    public String summary() {
+        return String.format(Locale.US, "n=%d mean=%.1fms p50<=%s p90<=%s p99<=%s max=%.1fms",
+                getCount(), getMeanNanos() / 1e6,
+                bound(getPercentileMillis(50)), bound(getPercentileMillis(90)), bound(getPercentileMillis(99)),
+                getMaxNanos() / 1e6);
+    }
+
+    private static String bound(long millis) {
+        return millis < 0 ? "inf" : millis + "ms";
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Inflates layouts for pages that aren't on screen yet, so showing them later doesn't pay for
+ * inflation on the main thread mid-animation.
+ *
+ * Work starts once the main thread goes idle and inflates on a background thread where the
+ * views allow it. Each pre-inflated view is handed out once, through {@link #inflate}, which
+ * falls back to a normal inflate when nothing is ready. Views hold their Activity's context,
+ * so a preinflater belongs to one Activity and must be {@link #clear() cleared} when it goes.
+ * Main thread only.
+ */
+public class LayoutPreinflater {
+
+    /**
+     * Implemented by Activities whose fragments can use pre-inflated views.
+     */
+    public interface Host {
+        LayoutPreinflater getLayoutPreinflater();
+    }
+
+    interface Inflater {
+        void inflate(@LayoutRes int layoutId, @Nullable ViewGroup parent, @NonNull Consumer<View> callback);
+    }
+
+    interface IdleScheduler {
+        void runWhenIdle(@NonNull Runnable task);
+    }
+
+    private final Inflater mInflater;
+    private final IdleScheduler mIdleScheduler;
+    private final Map<Integer, View> mReady = new HashMap<>();
+    private final Set<Integer> mPending = new HashSet<>();
+    private int mHitCount;
+    private int mMissCount;
+
+    LayoutPreinflater(Inflater inflater, IdleScheduler idleScheduler) {
+        mInflater = inflater;
+        mIdleScheduler = idleScheduler;
+    }
+
+    /**
+     * A preinflater for the Activity {@code context}; call from its main thread.
+     */
+    public static LayoutPreinflater create(@NonNull Context context) {
+        AsyncLayoutInflater asyncInflater = new AsyncLayoutInflater(context);
+        return new LayoutPreinflater(
+                (layoutId, parent, callback) -> asyncInflater.inflate(layoutId, parent,
+                        (view, resid, p) -> callback.accept(view)),
+                task -> Looper.myQueue().addIdleHandler(() -> {
+                    task.run();
+                    return false;
+                }));
+    }
+
+    /**
+     * Inflates {@code layoutId} once the main thread is idle, unless a view for it is already
+     * ready or on its way.
+     *
+     * @param parent the view the layout will be added to, for its layout params; not attached
+     */
+    @MainThread
+    public void preinflate(@LayoutRes int layoutId, @Nullable ViewGroup parent) {
+        if (mReady.containsKey(layoutId) || !mPending.add(layoutId)) {
+            return;
+        }
+        mIdleScheduler.runWhenIdle(() -> {
+            if (!mPending.contains(layoutId)) {
+                return;
+            }
+            mInflater.inflate(layoutId, parent, view -> {
+                // Dropped if taken, inflated the slow way or cleared in the meantime
+                if (mPending.remove(layoutId)) {
+                    mReady.put(layoutId, view);
+                }
+            });
+        });
+    }
+
+    /**
+     * The pre-inflated view for {@code layoutId} if one is ready, otherwise a fresh inflate.
+     * Use from {@code onCreateView} in place of {@code inflater.inflate(layoutId, container, false)}.
+     */
+    @MainThread
+    @NonNull
+    public View inflate(@NonNull LayoutInflater inflater, @LayoutRes int layoutId, @Nullable ViewGroup container) {
+        View view = mReady.remove(layoutId);
+        if (view != null) {
+            mHitCount++;
+            return view;
+        }
+        mMissCount++;
+        mPending.remove(layoutId);
+        return inflater.inflate(layoutId, container, false);
+    }
+
+    /**
+     * Drops every pre-inflated view and any inflation still to come.
+     */
+    @MainThread
+    public void clear() {
+        mReady.clear();
+        mPending.clear();
+    }
+
+    boolean isReady(@LayoutRes int layoutId) {
+        return mReady.containsKey(layoutId);
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+}
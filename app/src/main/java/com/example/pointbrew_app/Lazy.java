@@ -0,0 +1,38 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe holder that creates its value on the first call to {@link #get()}.
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+    private Supplier<T> mFactory;
+    private volatile T mValue;
+    private volatile boolean mInitialized;
+
+    public Lazy(@NonNull Supplier<T> factory) {
+        mFactory = factory;
+    }
+
+    @Override
+    public T get() {
+        if (!mInitialized) {
+            synchronized (this) {
+                if (!mInitialized) {
+                    mValue = mFactory.get();
+                    mInitialized = true;
+                    // Drop the factory so it can't keep anything it captured alive
+                    mFactory = null;
+                }
+            }
+        }
+        return mValue;
+    }
+
+    public boolean isInitialized() {
+        return mInitialized;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Hands a result to a callback on an executor, but only while the callback's owner is alive.
+ *
+ * A result that arrives before the owner is started is held until it is. Once the owner is
+ * destroyed the callback is released, so a request still in flight doesn't keep a fragment or
+ * its Activity reachable, and its result is dropped.
+ *
+ * Must be created on the owner's lifecycle thread; results may come from any thread.
+ */
+public final class LifecycleBoundCallback<T> implements AuthBackend.Callback<T>, LifecycleEventObserver {
+
+    private final Executor mExecutor;
+    // All three are guarded by this and cleared once the owner is destroyed
+    private Lifecycle mLifecycle;
+    private AuthBackend.Callback<T> mTarget;
+    private Runnable mPending;
+
+    private LifecycleBoundCallback(Lifecycle lifecycle, Executor executor, AuthBackend.Callback<T> target) {
+        mLifecycle = lifecycle;
+        mExecutor = executor;
+        mTarget = target;
+    }
+
+    public static <T> LifecycleBoundCallback<T> bind(@NonNull LifecycleOwner owner, @NonNull Executor executor,
+                                                     @NonNull AuthBackend.Callback<T> callback) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        LifecycleBoundCallback<T> bound = new LifecycleBoundCallback<>(lifecycle, executor, callback);
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            bound.release();
+        } else {
+            lifecycle.addObserver(bound);
+        }
+        return bound;
+    }
+
+    @Override
+    public void onSuccess(T result) {
+        mExecutor.execute(() -> deliver(target -> target.onSuccess(result)));
+    }
+
+    @Override
+    public void onError(Exception e) {
+        mExecutor.execute(() -> deliver(target -> target.onError(e)));
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event == Lifecycle.Event.ON_DESTROY) {
+            source.getLifecycle().removeObserver(this);
+            release();
+        } else if (event == Lifecycle.Event.ON_START) {
+            Runnable pending;
+            synchronized (this) {
+                pending = mPending;
+                mPending = null;
+            }
+            if (pending != null) {
+                pending.run();
+            }
+        }
+    }
+
+    /**
+     * Whether the owner has been destroyed and the callback let go.
+     */
+    synchronized boolean isReleased() {
+        return mTarget == null;
+    }
+
+    private void deliver(Consumer<AuthBackend.Callback<T>> delivery) {
+        AuthBackend.Callback<T> target;
+        synchronized (this) {
+            if (mTarget == null) return;
+            if (!mLifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+                // Only the latest result matters; it goes out on the next ON_START
+                mPending = () -> deliver(delivery);
+                return;
+            }
+            target = mTarget;
+        }
+        delivery.accept(target);
+    }
+
+    private synchronized void release() {
+        mLifecycle = null;
+        mTarget = null;
+        mPending = null;
+    }
+}
@@ -1,8 +1,8 @@
 package com.example.pointbrew_app;
 
-import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,18 +11,17 @@ import android.widget.CheckBox;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.activity.result.ActivityResultLauncher;
-import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.google.android.material.textfield.TextInputEditText;
-import com.google.firebase.auth.FirebaseUser;
 
 public class LoginFragment extends Fragment {
 
     private static final String TAG = "LoginFragment";
+    // Google sign-in results for this page come back under this key
+    private static final String PAGE_KEY = "login";
 
     private TextInputEditText etEmail, etPassword;
     private CheckBox cbRememberMe;
@@ -30,7 +29,8 @@ public class LoginFragment extends Fragment {
     private TextView tvForgotPassword;
     
     private AuthManager authManager;
-    private ActivityResultLauncher<Intent> googleSignInLauncher;
+    private GoogleSignInCoordinator googleSignIn;
+    private AuthFormValidator validator;
 
     public LoginFragment() {
         // Required empty public constructor
@@ -44,22 +44,8 @@ public class LoginFragment extends Fragment {
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
-        // Initialize the AuthManager
-        authManager = new AuthManager(requireContext());
-        
-        // Register the ActivityResultLauncher for Google Sign-In
-        googleSignInLauncher = registerForActivityResult(
-                new ActivityResultContracts.StartActivityForResult(),
-                result -> {
-                    if (result.getResultCode() == requireActivity().RESULT_OK) {
-                        Intent data = result.getData();
-                        handleGoogleSignInResult(data);
-                    } else {
-                        // Google Sign In failed
-                        Log.e(TAG, "Google Sign In failed. Result code: " + result.getResultCode());
-                        Toast.makeText(getContext(), "Google Sign In failed", Toast.LENGTH_SHORT).show();
-                    }
-                });
+        // Get the shared AuthManager
+        authManager = AuthManager.getInstance(requireContext());
     }
 
     @Override
@@ -74,7 +60,18 @@ public class LoginFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         
         initViews(view);
+        validator = AuthFormValidator.forLogin(this::showFieldError);
         setupListeners();
+
+        // One launcher for the whole activity; results for this page come back while its view is up
+        googleSignIn = ((GoogleSignInCoordinator.Host) requireActivity()).getGoogleSignInCoordinator();
+        googleSignIn.register(PAGE_KEY, getViewLifecycleOwner(), googleSignInCallback());
+    }
+
+    @Override
+    public void onDestroyView() {
+        validator.cancel();
+        super.onDestroyView();
     }
 
     private void initViews(View view) {
@@ -87,18 +84,22 @@ public class LoginFragment extends Fragment {
     }
 
     private void setupListeners() {
+        // Fields are checked as they are typed in, once the typing pauses
+        watch(etEmail, AuthFormValidator.Field.EMAIL);
+        watch(etPassword, AuthFormValidator.Field.PASSWORD);
+
         btnLogin.setOnClickListener(v -> {
             String email = etEmail.getText().toString().trim();
             String password = etPassword.getText().toString().trim();
             
-            if (validateInput(email, password)) {
+            if (validateInput()) {
                 // Show loading
                 btnLogin.setEnabled(false);
                 
                 // Perform login with email and password
-                authManager.loginWithEmail(email, password, new AuthManager.AuthCallback() {
+                authManager.loginWithEmail(email, password, authManager.bind(getViewLifecycleOwner(), new AuthManager.AuthCallback() {
                     @Override
-                    public void onSuccess(FirebaseUser user) {
+                    public void onSuccess(AuthUser user) {
                         // Login successful
                         btnLogin.setEnabled(true);
                         Toast.makeText(getContext(), "Login successful!", Toast.LENGTH_SHORT).show();
@@ -111,13 +112,13 @@ public class LoginFragment extends Fragment {
                         btnLogin.setEnabled(true);
                         Toast.makeText(getContext(), "Login failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                     }
-                });
+                }));
             }
         });
 
         btnGoogle.setOnClickListener(v -> {
-            // Launch Google Sign-In flow
-            googleSignInLauncher.launch(authManager.getGoogleSignInIntent());
+            // Returning Google users are signed in silently; everyone else gets the account chooser
+            googleSignIn.start(PAGE_KEY);
         });
 
         tvForgotPassword.setOnClickListener(v -> {
@@ -129,21 +130,25 @@ public class LoginFragment extends Fragment {
             }
             
             // Send password reset email
-            authManager.sendPasswordResetEmail(email, task -> {
-                if (task.isSuccessful()) {
+            authManager.sendPasswordResetEmail(email, authManager.bind(getViewLifecycleOwner(), new AuthBackend.Callback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
                     Toast.makeText(getContext(), "Password reset email sent", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(getContext(), "Failed to send reset email: " + task.getException().getMessage(), 
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Toast.makeText(getContext(), "Failed to send reset email: " + e.getMessage(), 
                             Toast.LENGTH_SHORT).show();
                 }
-            });
+            }));
         });
     }
     
-    private void handleGoogleSignInResult(Intent data) {
-        authManager.handleGoogleSignInResult(data, new AuthManager.AuthCallback() {
+    private AuthManager.AuthCallback googleSignInCallback() {
+        return new AuthManager.AuthCallback() {
             @Override
-            public void onSuccess(FirebaseUser user) {
+            public void onSuccess(AuthUser user) {
                 Toast.makeText(getContext(), "Google Sign-In successful!", Toast.LENGTH_SHORT).show();
                 navigateToMainApp();
             }
@@ -152,19 +157,38 @@ public class LoginFragment extends Fragment {
             public void onError(Exception e) {
                 Toast.makeText(getContext(), "Google Sign-In failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             }
+        };
+    }
+
+    private void watch(TextInputEditText field, AuthFormValidator.Field rule) {
+        field.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                validator.onTextChanged(rule, s);
+            }
         });
     }
 
-    private boolean validateInput(String email, String password) {
-        if (email.isEmpty()) {
-            etEmail.setError("Email is required");
-            etEmail.requestFocus();
-            return false;
-        }
+    private TextInputEditText fieldView(AuthFormValidator.Field field) {
+        return field == AuthFormValidator.Field.EMAIL ? etEmail : etPassword;
+    }
+
+    private void showFieldError(AuthFormValidator.Field field, String error) {
+        fieldView(field).setError(error);
+    }
 
-        if (password.isEmpty()) {
-            etPassword.setError("Password is required");
-            etPassword.requestFocus();
+    private boolean validateInput() {
+        AuthFormValidator.Field invalid = validator.validateAll();
+        if (invalid != null) {
+            fieldView(invalid).requestFocus();
             return false;
         }
 
@@ -0,0 +1,90 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sign-in counts, kept in {@link ShardedCounter}s so busy counters don't all land on one
+ * document: each user's lifetime logins, and app-wide logins per UTC day, which every
+ * sign-in in the morning rush writes to.
+ */
+public class LoginStats {
+    private static final String TAG = "LoginStats";
+
+    // A user signs in a few times a day at most; no need to spread that out
+    static final int USER_SHARDS = 1;
+    // Roughly one sustained write per second per shard
+    static final int DAILY_SHARDS = 20;
+    static final long CACHE_TTL_MILLIS = 60_000;
+
+    private final CounterStore mStore;
+    private final Clock mClock;
+    private final Random mRandom;
+    private final Map<String, ShardedCounter> mCounters = new ConcurrentHashMap<>();
+
+    public LoginStats(@NonNull CounterStore store, @NonNull Clock clock, @NonNull Random random) {
+        mStore = store;
+        mClock = clock;
+        mRandom = random;
+    }
+
+    /**
+     * Counts nothing, for an AuthManager with no Firestore wired in.
+     */
+    public static LoginStats disabled() {
+        return new LoginStats(CounterStore.NONE, Clock.SYSTEM, new Random());
+    }
+
+    static String userLoginsPath(@NonNull String uid) {
+        return "users/" + uid + "/counters/logins";
+    }
+
+    static String dailyLoginsPath(long timeMillis) {
+        SimpleDateFormat day = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        day.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return "stats/logins-" + day.format(new Date(timeMillis));
+    }
+
+    /**
+     * Counts a sign-in by {@code uid}. Best effort: failures are logged, not retried.
+     */
+    public void recordLogin(@NonNull String uid) {
+        increment(counter(userLoginsPath(uid), USER_SHARDS));
+        increment(counter(dailyLoginsPath(mClock.nowMillis()), DAILY_SHARDS));
+    }
+
+    public void getLoginCount(@NonNull String uid, @NonNull AuthBackend.Callback<Long> callback) {
+        counter(userLoginsPath(uid), USER_SHARDS).read(callback);
+    }
+
+    public void getLoginsToday(@NonNull AuthBackend.Callback<Long> callback) {
+        counter(dailyLoginsPath(mClock.nowMillis()), DAILY_SHARDS).read(callback);
+    }
+
+    ShardedCounter counter(String path, int shards) {
+        return mCounters.computeIfAbsent(path,
+                p -> new ShardedCounter(mStore, p, shards, mRandom, mClock, CACHE_TTL_MILLIS));
+    }
+
+    private static void increment(ShardedCounter counter) {
+        counter.increment(1, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Couldn't count login at " + counter.getPath(), e);
+            }
+        });
+    }
+}
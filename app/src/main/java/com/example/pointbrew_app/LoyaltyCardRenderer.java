@@ -0,0 +1,289 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Renders the QR code on a member's loyalty card, the one the barista scans, off the main thread.
+ *
+ * Rendered bitmaps are kept in a memory cache bounded by bytes. Below that, the encoded code is
+ * kept on disk at one bit per module, so a cold start only has to scale it up rather than encode
+ * it again. When a card with a rotating nonce moves on to its next code, the bitmap it showed
+ * before is reused for a later render of the same size instead of allocating a new one.
+ */
+public class LoyaltyCardRenderer {
+    private static final String TAG = "LoyaltyCardRenderer";
+
+    static final String DIRECTORY = "loyalty_codes";
+    private static final String FILE_SUFFIX = ".qr";
+    static final int MAX_DISK_FILES = 32;
+    private static final int MAX_POOLED_PER_SIZE = 2;
+    // A share of the heap: a handful of full-width cards
+    private static final int MEMORY_CACHE_HEAP_FRACTION = 32;
+
+    private final Supplier<File> mDirectory;
+    private final Executor mWorker;
+    private final Executor mCallbackExecutor;
+    private final LoyaltyCodeEncoder mEncoder = new LoyaltyCodeEncoder();
+    private final BoundedLruCache<String, Bitmap> mMemory;
+    private final SingleFlight<Bitmap> mRenders = new SingleFlight<>();
+
+    // Guarded by itself
+    private final Map<Integer, ArrayDeque<Bitmap>> mPool = new HashMap<>();
+    // The key each uid and size last delivered, guarded by itself
+    private final Map<String, String> mShowing = new HashMap<>();
+    // Only touched on the worker
+    private int[] mPixels = new int[0];
+
+    private final AtomicInteger mEncodeCount = new AtomicInteger();
+    private final AtomicInteger mDiskHitCount = new AtomicInteger();
+    private final AtomicInteger mReuseCount = new AtomicInteger();
+
+    public static LoyaltyCardRenderer create(Context context) {
+        Context appContext = context.getApplicationContext();
+        return new LoyaltyCardRenderer(() -> new File(appContext.getCacheDir(), DIRECTORY),
+                Executors.newSingleThreadExecutor(ExecutorScheduler.backgroundThreadFactory("loyalty-card")),
+                ContextCompat.getMainExecutor(appContext),
+                Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_FRACTION);
+    }
+
+    /**
+     * @param directory where encoded codes live, resolved on the worker; null keeps nothing on disk
+     * @param worker must run tasks one at a time
+     */
+    LoyaltyCardRenderer(Supplier<File> directory, Executor worker, Executor callbackExecutor, long maxMemoryBytes) {
+        mDirectory = directory;
+        mWorker = worker;
+        mCallbackExecutor = callbackExecutor;
+        mMemory = new BoundedLruCache<>(maxMemoryBytes, Bitmap::getAllocationByteCount, null);
+    }
+
+    /**
+     * The card's bitmap if it is in memory, or null. Never touches the disk or encodes, so it is
+     * safe on the main thread for showing the card in the first frame.
+     */
+    @Nullable
+    public Bitmap peek(@NonNull String uid, @Nullable String nonce, int sizePx) {
+        return mMemory.get(key(LoyaltyCodeEncoder.payload(uid, nonce), sizePx));
+    }
+
+    /**
+     * Renders the card's code as a {@code sizePx} square and calls back on the callback executor.
+     *
+     * The bitmap belongs to the renderer. It stays valid until a bitmap for the same uid and
+     * size with a different nonce has been delivered, after which it may be drawn over; callers
+     * must have swapped it out by the time that callback returns.
+     */
+    public void render(@NonNull String uid, @Nullable String nonce, int sizePx,
+                       @NonNull AuthBackend.Callback<Bitmap> callback) {
+        String payload = LoyaltyCodeEncoder.payload(uid, nonce);
+        String key = key(payload, sizePx);
+        String card = uid + "@" + sizePx;
+        AuthBackend.Callback<Bitmap> delivery = new AuthBackend.Callback<Bitmap>() {
+            @Override
+            public void onSuccess(Bitmap bitmap) {
+                mCallbackExecutor.execute(() -> {
+                    callback.onSuccess(bitmap);
+                    showing(card, key);
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mCallbackExecutor.execute(() -> callback.onError(e));
+            }
+        };
+
+        Bitmap cached = mMemory.get(key);
+        if (cached != null) {
+            delivery.onSuccess(cached);
+            return;
+        }
+        mRenders.execute(key, delivery, shared -> mWorker.execute(() -> {
+            try {
+                shared.onSuccess(renderOnWorker(payload, key, sizePx));
+            } catch (WriterException | RuntimeException e) {
+                shared.onError(e);
+            }
+        }));
+    }
+
+    /**
+     * Drops every bitmap held in memory, e.g. when the system is short of it. The disk tier stays.
+     */
+    public void clearMemory() {
+        mMemory.clear();
+        synchronized (mPool) {
+            mPool.clear();
+        }
+    }
+
+    int getEncodeCount() {
+        return mEncodeCount.get();
+    }
+
+    int getDiskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    int getReuseCount() {
+        return mReuseCount.get();
+    }
+
+    BoundedLruCache<String, Bitmap> getMemoryCache() {
+        return mMemory;
+    }
+
+    private Bitmap renderOnWorker(String payload, String key, int sizePx) throws WriterException {
+        BitMatrix modules = readFromDisk(payload);
+        if (modules != null) {
+            mDiskHitCount.incrementAndGet();
+        } else {
+            modules = mEncoder.encode(payload);
+            mEncodeCount.incrementAndGet();
+            writeToDisk(payload, modules);
+        }
+
+        int pixelCount = sizePx * sizePx;
+        if (mPixels.length < pixelCount) {
+            mPixels = new int[pixelCount];
+        }
+        LoyaltyCodeEncoder.toPixels(modules, sizePx, mPixels);
+        Bitmap bitmap = takePooled(sizePx);
+        if (bitmap == null) {
+            // Black and white only, so 565 is enough at half the memory of ARGB_8888
+            bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.RGB_565);
+        }
+        bitmap.setPixels(mPixels, 0, sizePx, 0, 0, sizePx, sizePx);
+        mMemory.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Records that {@code card} now shows {@code key}. Whatever it showed before is no longer on
+     * screen, so its bitmap can be drawn over by the next render of that size.
+     */
+    private void showing(String card, String key) {
+        String previous;
+        synchronized (mShowing) {
+            previous = mShowing.put(card, key);
+        }
+        if (previous == null || previous.equals(key)) {
+            return;
+        }
+        Bitmap old = mMemory.remove(previous);
+        if (old == null || old.isRecycled() || !old.isMutable()) {
+            return;
+        }
+        synchronized (mPool) {
+            ArrayDeque<Bitmap> pooled = mPool.computeIfAbsent(old.getWidth(), k -> new ArrayDeque<>());
+            if (pooled.size() < MAX_POOLED_PER_SIZE) {
+                pooled.push(old);
+            }
+        }
+    }
+
+    @Nullable
+    private Bitmap takePooled(int sizePx) {
+        synchronized (mPool) {
+            ArrayDeque<Bitmap> pooled = mPool.get(sizePx);
+            Bitmap bitmap = pooled != null ? pooled.poll() : null;
+            if (bitmap != null) {
+                mReuseCount.incrementAndGet();
+            }
+            return bitmap;
+        }
+    }
+
+    @Nullable
+    private BitMatrix readFromDisk(String payload) {
+        File file = file(payload);
+        if (file == null) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            BitMatrix modules = LoyaltyCodeEncoder.read(payload, in);
+            if (modules != null) {
+                // Keeps recently shown codes out of the way of trimming
+                file.setLastModified(System.currentTimeMillis());
+            }
+            return modules;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable code " + file, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String payload, BitMatrix modules) {
+        File file = file(payload);
+        if (file == null) return;
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Couldn't create " + directory);
+            return;
+        }
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            LoyaltyCodeEncoder.write(payload, modules, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't write " + tmp, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        trimDisk(directory);
+    }
+
+    private static void trimDisk(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length <= MAX_DISK_FILES) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_DISK_FILES; i++) {
+            files[i].delete();
+        }
+    }
+
+    @Nullable
+    private File file(String payload) {
+        File directory = mDirectory.get();
+        if (directory == null) return null;
+        StartupIoGuard.onDiskIo("loyalty card disk cache");
+        // Hash collisions are caught by the payload stored in the file
+        return new File(directory, Integer.toHexString(payload.hashCode()) + FILE_SUFFIX);
+    }
+
+    private static String key(String payload, int sizePx) {
+        return payload + "@" + sizePx;
+    }
+}
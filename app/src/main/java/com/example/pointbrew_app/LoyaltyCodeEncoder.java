@@ -0,0 +1,142 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Encodes what the barista scans, a member's uid and optionally a rotating nonce, as a QR code,
+ * and turns the code into pixels. Plain Java, so it can be benchmarked on the JVM.
+ *
+ * Codes are kept as one bit per module, not per pixel: that is what goes on disk, and scaling
+ * it up to a bitmap is far cheaper than encoding again.
+ */
+final class LoyaltyCodeEncoder {
+
+    static final int BLACK = 0xFF000000;
+    static final int WHITE = 0xFFFFFFFF;
+
+    private static final int FORMAT_VERSION = 1;
+    // Scanners want a quiet zone around the code; the card itself adds some white too
+    private static final int QUIET_ZONE_MODULES = 2;
+
+    private final QRCodeWriter mWriter = new QRCodeWriter();
+    private final Map<EncodeHintType, Object> mHints = new EnumMap<>(EncodeHintType.class);
+
+    LoyaltyCodeEncoder() {
+        // Medium survives a scuffed or partly covered screen while keeping the code coarse
+        mHints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        mHints.put(EncodeHintType.MARGIN, QUIET_ZONE_MODULES);
+        mHints.put(EncodeHintType.CHARACTER_SET, "ISO-8859-1");
+    }
+
+    /**
+     * The text encoded for a member. Firebase uids never contain ':'.
+     */
+    static String payload(@NonNull String uid, @Nullable String nonce) {
+        return nonce == null ? uid : uid + ":" + nonce;
+    }
+
+    /**
+     * The code's modules, including the quiet zone, one bit each.
+     */
+    BitMatrix encode(@NonNull String payload) throws WriterException {
+        // A size of 0 asks for the smallest matrix, one bit per module
+        return mWriter.encode(payload, BarcodeFormat.QR_CODE, 0, 0, mHints);
+    }
+
+    /**
+     * Draws the modules into a {@code sizePx} square, each scaled by the same whole number of
+     * pixels so the edges stay sharp, centred on white.
+     *
+     * @param pixels at least {@code sizePx * sizePx} long; every one of them is written
+     */
+    static void toPixels(@NonNull BitMatrix modules, int sizePx, @NonNull int[] pixels) {
+        int count = modules.getWidth();
+        if (sizePx < count) {
+            throw new IllegalArgumentException(sizePx + "px is too small for " + count + " modules");
+        }
+        int scale = sizePx / count;
+        int drawn = count * scale;
+        int offset = (sizePx - drawn) / 2;
+
+        Arrays.fill(pixels, 0, sizePx * sizePx, WHITE);
+        for (int y = 0; y < count; y++) {
+            int rowStart = (offset + y * scale) * sizePx + offset;
+            for (int x = 0; x < count; x++) {
+                if (modules.get(x, y)) {
+                    Arrays.fill(pixels, rowStart + x * scale, rowStart + (x + 1) * scale, BLACK);
+                }
+            }
+            // The rest of the module row is the same pixel row again
+            for (int line = 1; line < scale; line++) {
+                System.arraycopy(pixels, rowStart, pixels, rowStart + line * sizePx, drawn);
+            }
+        }
+    }
+
+    static void write(@NonNull String payload, @NonNull BitMatrix modules, @NonNull DataOutputStream out)
+            throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(payload);
+        out.writeShort(modules.getWidth());
+        out.writeShort(modules.getHeight());
+        int bits = 0;
+        int pending = 0;
+        for (int y = 0; y < modules.getHeight(); y++) {
+            for (int x = 0; x < modules.getWidth(); x++) {
+                bits = (bits << 1) | (modules.get(x, y) ? 1 : 0);
+                if (++pending == 8) {
+                    out.writeByte(bits);
+                    bits = 0;
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            out.writeByte(bits << (8 - pending));
+        }
+    }
+
+    /**
+     * Reads what {@link #write} wrote, or returns null if it was written by another format
+     * version or for a different payload.
+     */
+    @Nullable
+    static BitMatrix read(@NonNull String payload, @NonNull DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION || !payload.equals(in.readUTF())) {
+            return null;
+        }
+        int width = in.readShort();
+        int height = in.readShort();
+        BitMatrix modules = new BitMatrix(width, height);
+        int bits = 0;
+        int remaining = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (remaining == 0) {
+                    bits = in.readUnsignedByte();
+                    remaining = 8;
+                }
+                remaining--;
+                if ((bits & (1 << remaining)) != 0) {
+                    modules.set(x, y);
+                }
+            }
+        }
+        return modules;
+    }
+}
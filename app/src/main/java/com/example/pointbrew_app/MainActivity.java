@@ -1,5 +1,6 @@
 package com.example.pointbrew_app;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.widget.TextView;
@@ -7,19 +8,28 @@ import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.viewpager2.widget.ViewPager2;
 
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
-import com.google.firebase.auth.FirebaseUser;
 
-public class MainActivity extends AppCompatActivity {
+import java.io.File;
+
+public class MainActivity extends AppCompatActivity implements LayoutPreinflater.Host, GoogleSignInCoordinator.Host {
+
+    private static final String STARTUP_TRACE_FILE_NAME = "startup_trace.json";
 
     private TabLayout tabLayout;
     private ViewPager2 viewPager;
     private TextView tvHeader, tvSubheader;
     private AuthViewPagerAdapter pagerAdapter;
     private AuthManager authManager;
+    private Subscription authStateSubscription;
+    private boolean authScreenShown;
+    private boolean navigatedToMainApp;
+    private LayoutPreinflater layoutPreinflater;
+    private GoogleSignInCoordinator googleSignInCoordinator;
     
     private final String[] tabTitles = new String[]{"Log In", "Sign Up"};
     private final String[] headerTitles = new String[]{"Login", "Register"};
@@ -30,25 +40,90 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTracer tracer = StartupTracer.get();
+        tracer.beginSection("MainActivity.onCreate");
         super.onCreate(savedInstanceState);
+        tracer.beginSection("EdgeToEdge.enable");
         EdgeToEdge.enable(this);
+        tracer.endSection();
+        tracer.beginSection("setContentView");
         setContentView(R.layout.activity_main);
+        tracer.endSection();
+        layoutPreinflater = LayoutPreinflater.create(this);
         
-        // Initialize AuthManager
-        authManager = new AuthManager(this);
+        // Get the shared AuthManager
+        tracer.beginSection("AuthManager.getInstance");
+        authManager = AuthManager.getInstance(this);
+        tracer.endSection();
+        // Registered now, before the activity starts, so a result after process death is delivered
+        googleSignInCoordinator = new GoogleSignInCoordinator(authManager, getActivityResultRegistry(), this);
         
-        // Check if user is already logged in
-        if (authManager.isUserLoggedIn()) {
-            // User is already logged in, navigate to main app screen
+        // Sign-in from any tab, or a restored session, arrives here
+        authStateSubscription = authManager.getAuthState().observe(
+                ContextCompat.getMainExecutor(this), this::onAuthStateChanged);
+        tracer.endSection();
+    }
+
+    @Override
+    protected void onDestroy() {
+        authStateSubscription.unsubscribe();
+        layoutPreinflater.clear();
+        super.onDestroy();
+    }
+
+    private void onAuthStateChanged(AuthUser user) {
+        if (user != null) {
             navigateToMainApp();
+        } else {
+            navigatedToMainApp = false;
+            showAuthScreen();
+        }
+        // The first screen is decided; launch is over once it has been laid out
+        getWindow().getDecorView().post(this::onLaunchFinished);
+    }
+
+    private void onLaunchFinished() {
+        authManager.startBackgroundWork();
+        StartupTracer tracer = StartupTracer.get();
+        if (!tracer.finish()) {
             return;
         }
-        
+        StartupIoGuard.get().endLaunch();
+        Context appContext = getApplicationContext();
+        tracer.writeInBackground(() -> new File(appContext.getFilesDir(), STARTUP_TRACE_FILE_NAME));
+    }
+
+    private void showAuthScreen() {
+        if (authScreenShown) {
+            return;
+        }
+        authScreenShown = true;
+        StartupTracer tracer = StartupTracer.get();
+        tracer.beginSection("MainActivity.showAuthScreen");
         initViews();
         setupViewPager();
         setupTabLayout();
+
+        // The register form is the heaviest layout; have it ready before the first swipe to it
+        if (viewPager.getCurrentItem() != AuthViewPagerAdapter.REGISTER_PAGE) {
+            layoutPreinflater.preinflate(R.layout.fragment_register, viewPager);
+        }
+
+        // A returning Google user's tap can then skip the account chooser
+        authManager.prewarmGoogleSignIn();
+        tracer.endSection();
     }
     
+    @Override
+    public LayoutPreinflater getLayoutPreinflater() {
+        return layoutPreinflater;
+    }
+
+    @Override
+    public GoogleSignInCoordinator getGoogleSignInCoordinator() {
+        return googleSignInCoordinator;
+    }
+
     private void initViews() {
         tabLayout = findViewById(R.id.tab_layout);
         viewPager = findViewById(R.id.view_pager);
@@ -84,12 +159,17 @@ public class MainActivity extends AppCompatActivity {
      * Called when login or registration is successful
      */
     public void onLoginSuccess() {
-        FirebaseUser user = authManager.getCurrentUser();
+        AuthUser user = authManager.getCurrentUser();
         if (user != null) {
             String displayName = user.getDisplayName();
+            if (displayName == null) {
+                // Email accounts keep their name in users/{uid}, not on the auth user
+                UserProfile profile = authManager.getProfileCache().peek(user.getUid());
+                displayName = profile != null ? profile.getDisplayName() : null;
+            }
             String welcomeMsg = "Welcome" + (displayName != null ? ", " + displayName : "!");
             Toast.makeText(this, welcomeMsg, Toast.LENGTH_SHORT).show();
-            navigateToMainApp();
+            // Navigation follows from the auth state stream
         }
     }
     
@@ -97,6 +177,10 @@ public class MainActivity extends AppCompatActivity {
      * Navigate to the main app screen after successful login/registration
      */
     private void navigateToMainApp() {
+        if (navigatedToMainApp) {
+            return;
+        }
+        navigatedToMainApp = true;
         // For demonstration purposes, we'll just show a toast
         // In a real app, you would navigate to your app's main activity
         Toast.makeText(this, "Successfully logged in!", Toast.LENGTH_SHORT).show();
@@ -0,0 +1,21 @@
+package com.example.pointbrew_app;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link Scheduler} that runs tasks on the main thread.
+ */
+public class MainThreadScheduler implements Scheduler {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    @NonNull
+    @Override
+    public Cancellable schedule(@NonNull Runnable task, long delayMillis) {
+        mHandler.postDelayed(task, delayMillis);
+        return () -> mHandler.removeCallbacks(task);
+    }
+}
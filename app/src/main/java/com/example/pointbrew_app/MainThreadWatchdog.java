@@ -0,0 +1,325 @@
+package com.example.pointbrew_app;
+
+import android.os.Looper;
+import android.util.Log;
+import android.util.Printer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.pointbrew_app.AuthMetrics.Operation;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Times every message the main looper dispatches and keeps the slow ones.
+ *
+ * It is installed as the looper's message logging {@link Printer}, which the looper calls with
+ * a "Dispatching" line before each message and a "Finished" line after it. A message that took
+ * longer than the threshold is a stall: it goes to a fixed-size ring buffer, tagged with the
+ * auth operations that were in flight while it ran, and is logged. When a dump file is given,
+ * the buffer is written to it a little after each burst of stalls, off the main thread.
+ *
+ * Auth operations count as in flight from {@link #begin} until the {@link Span} is ended,
+ * which {@link AuthManager} does once the result has been handed to the caller on the main
+ * thread, so a slow {@code onSuccess} in a fragment is blamed on its login. A span whose result
+ * never comes stops counting after {@link #MAX_SPAN_AGE_MILLIS}.
+ *
+ * While a printer is installed the looper formats two strings for every message it dispatches,
+ * so the app only installs the watchdog in debug builds.
+ */
+public class MainThreadWatchdog implements Printer {
+    private static final String TAG = "MainThreadWatchdog";
+
+    // Several dropped frames; anything shorter is jank for the profiler, not a freeze
+    public static final long DEFAULT_STALL_THRESHOLD_MILLIS = 100;
+    public static final int DEFAULT_CAPACITY = 32;
+    // A burst of stalls is written once
+    private static final long DUMP_DELAY_MILLIS = 5_000;
+    // Far longer than any auth request takes, so a span this old lost its callback
+    static final long MAX_SPAN_AGE_MILLIS = 60_000;
+
+    private static final String DISPATCH_PREFIX = ">>>>> Dispatching to ";
+    private static final String FINISH_PREFIX = "<<<<< Finished to ";
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    /**
+     * One message that ran for longer than the threshold.
+     */
+    public static final class Stall {
+        private final String mTarget;
+        private final long mStartedAtMillis;
+        private final long mDurationMillis;
+        private final Set<Operation> mOperations;
+
+        Stall(String target, long startedAtMillis, long durationMillis, Set<Operation> operations) {
+            mTarget = target;
+            mStartedAtMillis = startedAtMillis;
+            mDurationMillis = durationMillis;
+            mOperations = Collections.unmodifiableSet(operations);
+        }
+
+        /**
+         * The handler, callback and what of the message, as the looper describes them.
+         */
+        public String getTarget() {
+            return mTarget;
+        }
+
+        public long getStartedAtMillis() {
+            return mStartedAtMillis;
+        }
+
+        public long getDurationMillis() {
+            return mDurationMillis;
+        }
+
+        /**
+         * Auth operations in flight at some point while the message ran; empty if none were.
+         */
+        public Set<Operation> getOperations() {
+            return mOperations;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%tT.%<tL %d ms %s during %s", new Date(mStartedAtMillis),
+                    mDurationMillis, mOperations.isEmpty() ? "no auth operation" : mOperations, mTarget);
+        }
+    }
+
+    /**
+     * An auth operation counted as in flight until {@link #end()}.
+     */
+    public final class Span {
+        private final Operation mOperation;
+        private final long mBeganNanos;
+        // Guarded by the watchdog
+        private boolean mEnded;
+
+        Span(Operation operation, long beganNanos) {
+            mOperation = operation;
+            mBeganNanos = beganNanos;
+        }
+
+        public void end() {
+            synchronized (MainThreadWatchdog.this) {
+                if (mEnded) return;
+                mEnded = true;
+                mInFlight.remove(this);
+            }
+        }
+    }
+
+    private final LongSupplier mNanoTime;
+    private final Clock mClock;
+    private final long mThresholdNanos;
+    @Nullable
+    private final Supplier<File> mDumpFile;
+    @Nullable
+    private final Scheduler mDumpScheduler;
+
+    // Guarded by this
+    private final Stall[] mStalls;
+    private int mNextStall;
+    private long mStallCount;
+    private final List<Span> mInFlight = new ArrayList<>();
+    // Operations seen in flight during the message being dispatched, by ordinal
+    private int mSeenDuringMessage;
+    private boolean mDumpScheduled;
+
+    // Only touched on the looper's thread
+    private String mDispatchTarget;
+    private long mDispatchStartNanos;
+
+    /**
+     * Tracks operations but watches no looper until {@link #install} is called.
+     */
+    public MainThreadWatchdog() {
+        this(System::nanoTime, Clock.SYSTEM, DEFAULT_STALL_THRESHOLD_MILLIS, DEFAULT_CAPACITY, null, null);
+    }
+
+    /**
+     * @param dumpFile where to write the buffer after stalls, resolved on the scheduler's thread;
+     *     null to only log them
+     */
+    MainThreadWatchdog(LongSupplier nanoTime, Clock clock, long thresholdMillis, int capacity,
+                       @Nullable Supplier<File> dumpFile, @Nullable Scheduler dumpScheduler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        mNanoTime = nanoTime;
+        mClock = clock;
+        mThresholdNanos = thresholdMillis * 1_000_000;
+        mStalls = new Stall[capacity];
+        mDumpFile = dumpFile;
+        mDumpScheduler = dumpFile != null ? dumpScheduler : null;
+    }
+
+    /**
+     * A watchdog on the main looper.
+     *
+     * @param dumpFile where to write stalls, resolved on the scheduler's thread
+     */
+    public static MainThreadWatchdog create(@NonNull Supplier<File> dumpFile, @NonNull Scheduler dumpScheduler) {
+        MainThreadWatchdog watchdog = new MainThreadWatchdog(System::nanoTime, Clock.SYSTEM,
+                DEFAULT_STALL_THRESHOLD_MILLIS, DEFAULT_CAPACITY, dumpFile, dumpScheduler);
+        watchdog.install(Looper.getMainLooper());
+        return watchdog;
+    }
+
+    /**
+     * Starts timing {@code looper}'s messages, replacing any message logging it had. Meant for
+     * debug builds, where nothing else sets one.
+     */
+    public void install(@NonNull Looper looper) {
+        install(looper::setMessageLogging);
+    }
+
+    void install(Consumer<Printer> setMessageLogging) {
+        setMessageLogging.accept(this);
+    }
+
+    /**
+     * Marks {@code operation} as in flight until the returned span is ended.
+     */
+    public synchronized Span begin(@NonNull Operation operation) {
+        Span span = new Span(operation, mNanoTime.getAsLong());
+        mInFlight.add(span);
+        mSeenDuringMessage |= 1 << operation.ordinal();
+        return span;
+    }
+
+    /**
+     * Called by the looper around each message.
+     */
+    @Override
+    public void println(String line) {
+        if (line.startsWith(DISPATCH_PREFIX)) {
+            mDispatchTarget = line;
+            synchronized (this) {
+                mSeenDuringMessage = inFlightMask();
+            }
+            mDispatchStartNanos = mNanoTime.getAsLong();
+        } else if (line.startsWith(FINISH_PREFIX) && mDispatchTarget != null) {
+            long durationNanos = mNanoTime.getAsLong() - mDispatchStartNanos;
+            String target = mDispatchTarget;
+            mDispatchTarget = null;
+            if (durationNanos > mThresholdNanos) {
+                recordStall(target.substring(DISPATCH_PREFIX.length()), durationNanos);
+            }
+        }
+    }
+
+    private void recordStall(String target, long durationNanos) {
+        long durationMillis = durationNanos / 1_000_000;
+        Stall stall;
+        boolean scheduleDump = false;
+        synchronized (this) {
+            stall = new Stall(target, mClock.nowMillis() - durationMillis, durationMillis,
+                    operations(mSeenDuringMessage | inFlightMask()));
+            mStalls[mNextStall] = stall;
+            mNextStall = (mNextStall + 1) % mStalls.length;
+            mStallCount++;
+            if (mDumpScheduler != null && !mDumpScheduled) {
+                mDumpScheduled = true;
+                scheduleDump = true;
+            }
+        }
+        Log.w(TAG, "Main thread stalled: " + stall);
+        if (scheduleDump) {
+            mDumpScheduler.schedule(this::writeDump, DUMP_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * The stalls still in the buffer, oldest first.
+     */
+    public synchronized List<Stall> getStalls() {
+        List<Stall> stalls = new ArrayList<>(mStalls.length);
+        for (int i = 0; i < mStalls.length; i++) {
+            Stall stall = mStalls[(mNextStall + i) % mStalls.length];
+            if (stall != null) {
+                stalls.add(stall);
+            }
+        }
+        return stalls;
+    }
+
+    /**
+     * Every stall since the watchdog was created, including ones the buffer has dropped.
+     */
+    public synchronized long getStallCount() {
+        return mStallCount;
+    }
+
+    /**
+     * A readable report of the buffered stalls.
+     */
+    public String dump() {
+        List<Stall> stalls = getStalls();
+        StringBuilder dump = new StringBuilder();
+        dump.append(getStallCount()).append(" main thread stalls over ")
+                .append(mThresholdNanos / 1_000_000).append(" ms, last ").append(stalls.size()).append(":\n");
+        for (Stall stall : stalls) {
+            dump.append("  ").append(stall).append('\n');
+        }
+        return dump.toString();
+    }
+
+    private void writeDump() {
+        synchronized (this) {
+            mDumpScheduled = false;
+        }
+        File file = mDumpFile.get();
+        if (file == null) return;
+        try (Writer writer = new FileWriter(file, false)) {
+            writer.write("# " + new Date(mClock.nowMillis()) + "\n" + dump());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write stalls to " + file, e);
+        }
+    }
+
+    // Guarded by this
+    private int inFlightMask() {
+        long oldestNanos = mNanoTime.getAsLong() - MAX_SPAN_AGE_MILLIS * 1_000_000;
+        int mask = 0;
+        for (Iterator<Span> it = mInFlight.iterator(); it.hasNext(); ) {
+            Span span = it.next();
+            if (span.mBeganNanos < oldestNanos) {
+                // Otherwise every later stall would be blamed on it
+                Log.w(TAG, span.mOperation + " never ended, no longer counting it as in flight");
+                span.mEnded = true;
+                it.remove();
+            } else {
+                mask |= 1 << span.mOperation.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static Set<Operation> operations(int mask) {
+        Set<Operation> operations = EnumSet.noneOf(Operation.class);
+        for (Operation operation : OPERATIONS) {
+            if ((mask & 1 << operation.ordinal()) != 0) {
+                operations.add(operation);
+            }
+        }
+        return operations;
+    }
+}
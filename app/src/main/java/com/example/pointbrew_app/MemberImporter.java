@@ -0,0 +1,325 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bulk-loads existing members into {@code users/{uid}} with the same document shape sign-up
+ * writes, via {@link AuthBackend#upsertProfiles} batches and no reads.
+ *
+ * Rows are streamed from a {@link MemberRecordReader}, checked, and grouped into batches of up
+ * to {@link ProfileWriteJournal#MAX_BATCH_SIZE}, a few of which are in flight at once. Rows that
+ * fail validation are counted and skipped. After each batch lands, the number of leading rows
+ * that are all done goes to a checkpoint file, so an interrupted import started again on the
+ * same file picks up where it stopped. Writes are merges of only the columns a row fills in, with
+ * no server timestamps, so the few rows redone, or a member who already signed up in the app,
+ * keep their join date and anything else the file leaves empty.
+ *
+ * {@link #run} blocks; call it off the main thread.
+ */
+public class MemberImporter {
+    private static final String TAG = "MemberImporter";
+
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+    // Rows quoted in the report; the rest are only counted
+    private static final int MAX_REPORTED_PROBLEMS = 100;
+
+    public static final class Report {
+        private final long mRowsRead;
+        private final long mRowsSkipped;
+        private final long mImported;
+        private final long mInvalid;
+        private final int mBatches;
+        private final long mElapsedMillis;
+        private final List<String> mProblems;
+
+        Report(long rowsRead, long rowsSkipped, long imported, long invalid, int batches, long elapsedMillis,
+               List<String> problems) {
+            mRowsRead = rowsRead;
+            mRowsSkipped = rowsSkipped;
+            mImported = imported;
+            mInvalid = invalid;
+            mBatches = batches;
+            mElapsedMillis = elapsedMillis;
+            mProblems = Collections.unmodifiableList(new ArrayList<>(problems));
+        }
+
+        /**
+         * Every row in the file, including ones skipped because an earlier run imported them.
+         */
+        public long getRowsRead() {
+            return mRowsRead;
+        }
+
+        /**
+         * Rows an earlier, interrupted run had already imported.
+         */
+        public long getRowsSkipped() {
+            return mRowsSkipped;
+        }
+
+        public long getImported() {
+            return mImported;
+        }
+
+        public long getInvalid() {
+            return mInvalid;
+        }
+
+        public int getBatches() {
+            return mBatches;
+        }
+
+        public long getElapsedMillis() {
+            return mElapsedMillis;
+        }
+
+        /**
+         * The first invalid rows, as "row N: reason".
+         */
+        public List<String> getProblems() {
+            return mProblems;
+        }
+
+        public double getDocsPerSecond() {
+            return mElapsedMillis == 0 ? 0 : mImported * 1000.0 / mElapsedMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d imported, %d invalid, %d already done, %d batches in %d ms (%.0f docs/s)",
+                    mImported, mInvalid, mRowsSkipped, mBatches, mElapsedMillis, getDocsPerSecond());
+        }
+    }
+
+    private final AuthBackend mBackend;
+    private final File mCheckpoint;
+    private final int mBatchSize;
+    private final int mMaxInFlightBatches;
+    private final Clock mClock;
+
+    // Guarded by this
+    // Finished batches not yet joined to the done prefix, first row -> row after the last
+    private final TreeMap<Long, Long> mFinished = new TreeMap<>();
+    private long mDoneRows;
+    private Exception mFailure;
+
+    /**
+     * @param checkpoint where progress is kept; delete it to import the same file again from the start
+     */
+    public MemberImporter(@NonNull AuthBackend backend, @NonNull File checkpoint) {
+        this(backend, checkpoint, ProfileWriteJournal.MAX_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT_BATCHES, Clock.SYSTEM);
+    }
+
+    MemberImporter(AuthBackend backend, File checkpoint, int batchSize, int maxInFlightBatches, Clock clock) {
+        if (batchSize < 1 || batchSize > ProfileWriteJournal.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize must be between 1 and " + ProfileWriteJournal.MAX_BATCH_SIZE);
+        }
+        if (maxInFlightBatches < 1) {
+            throw new IllegalArgumentException("maxInFlightBatches must be at least 1");
+        }
+        mBackend = backend;
+        mCheckpoint = checkpoint;
+        mBatchSize = batchSize;
+        mMaxInFlightBatches = maxInFlightBatches;
+        mClock = clock;
+    }
+
+    /**
+     * Imports every row after the checkpoint and closes the reader.
+     *
+     * @throws IOException if the file can't be read, the checkpoint can't be written, or a batch
+     *     fails; rows up to the checkpoint are in, and running again carries on from there
+     */
+    public Report run(@NonNull MemberRecordReader reader) throws IOException, InterruptedException {
+        long start = mClock.nowMillis();
+        long resumeAfter = readCheckpoint();
+        synchronized (this) {
+            mFinished.clear();
+            mDoneRows = resumeAfter;
+            mFailure = null;
+        }
+
+        Semaphore inFlight = new Semaphore(mMaxInFlightBatches);
+        List<String> problems = new ArrayList<>();
+        List<ProfileUpsert> batch = new ArrayList<>(mBatchSize);
+        long row = 0;
+        long batchStart = resumeAfter;
+        long imported = 0;
+        long invalid = 0;
+        int batches = 0;
+        try {
+            while (failure() == null) {
+                Map<String, String> fields;
+                try {
+                    fields = reader.readRow();
+                } catch (IllegalArgumentException e) {
+                    row++;
+                    if (row > resumeAfter) {
+                        invalid++;
+                        problem(problems, row, e.getMessage());
+                    }
+                    continue;
+                }
+                if (fields == null) {
+                    break;
+                }
+                row++;
+                if (row <= resumeAfter) {
+                    continue;
+                }
+                try {
+                    batch.add(MemberRecord.parse(fields, mClock.nowMillis()).toUpsert());
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                    problem(problems, row, e.getMessage());
+                    continue;
+                }
+                if (batch.size() == mBatchSize) {
+                    inFlight.acquire();
+                    send(batch, batchStart, row, inFlight);
+                    imported += batch.size();
+                    batches++;
+                    batch = new ArrayList<>(mBatchSize);
+                    batchStart = row;
+                }
+            }
+            if (failure() == null && row > batchStart) {
+                // The last rows, or only invalid ones that still need to reach the checkpoint
+                inFlight.acquire();
+                if (batch.isEmpty()) {
+                    finished(batchStart, row);
+                    inFlight.release();
+                } else {
+                    send(batch, batchStart, row, inFlight);
+                    imported += batch.size();
+                    batches++;
+                }
+            }
+        } finally {
+            // Let whatever is in flight land so the checkpoint is as far along as it can be
+            inFlight.acquireUninterruptibly(mMaxInFlightBatches);
+            reader.close();
+        }
+
+        Exception failure = failure();
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw new IOException("Import stopped; " + doneRows() + " rows are in", failure);
+        }
+        Report report = new Report(row, Math.min(row, resumeAfter), imported, invalid, batches,
+                mClock.nowMillis() - start, problems);
+        Log.i(TAG, "Import finished: " + report);
+        return report;
+    }
+
+    /**
+     * Rows of the file known to be imported, from the checkpoint.
+     */
+    public long readCheckpoint() throws IOException {
+        try (BufferedReader in = new BufferedReader(new FileReader(mCheckpoint))) {
+            String line = in.readLine();
+            return line != null ? Long.parseLong(line.trim()) : 0;
+        } catch (FileNotFoundException e) {
+            return 0;
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint " + mCheckpoint, e);
+        }
+    }
+
+    private void send(List<ProfileUpsert> batch, long firstRow, long endRow, Semaphore inFlight) {
+        mBackend.upsertProfiles(batch, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                try {
+                    finished(firstRow, endRow);
+                } finally {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Batch for rows " + (firstRow + 1) + "-" + endRow + " failed", e);
+                synchronized (MemberImporter.this) {
+                    if (mFailure == null) {
+                        mFailure = e;
+                    }
+                }
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Marks rows {@code (firstRow, endRow]} done and moves the checkpoint past every row that
+     * now has nothing unfinished before it.
+     */
+    private void finished(long firstRow, long endRow) {
+        synchronized (this) {
+            mFinished.put(firstRow, endRow);
+            long done = mDoneRows;
+            Long next;
+            while ((next = mFinished.remove(done)) != null) {
+                done = next;
+            }
+            if (done == mDoneRows) {
+                return;
+            }
+            mDoneRows = done;
+            try {
+                writeCheckpoint(done);
+            } catch (IOException e) {
+                if (mFailure == null) {
+                    mFailure = e;
+                }
+            }
+        }
+    }
+
+    private void writeCheckpoint(long rows) throws IOException {
+        File tmp = new File(mCheckpoint.getPath() + ".tmp");
+        try (Writer out = new FileWriter(tmp)) {
+            out.write(Long.toString(rows));
+        }
+        if (!tmp.renameTo(mCheckpoint)) {
+            throw new IOException("Couldn't replace " + mCheckpoint);
+        }
+    }
+
+    private synchronized long doneRows() {
+        return mDoneRows;
+    }
+
+    @Nullable
+    private synchronized Exception failure() {
+        return mFailure;
+    }
+
+    private static void problem(List<String> problems, long row, String reason) {
+        if (problems.size() < MAX_REPORTED_PROBLEMS) {
+            problems.add("row " + row + ": " + reason);
+        }
+    }
+}
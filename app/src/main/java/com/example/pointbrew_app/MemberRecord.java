@@ -0,0 +1,148 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * One member from an import file, checked and ready to become a {@code users/{uid}} write.
+ *
+ * Columns: {@code uid} and {@code email} are required; {@code displayName}, {@code birthDate}
+ * and {@code createdAt} ({@code yyyy-MM-dd}, UTC) and {@code isGoogleSignIn} are optional.
+ */
+public final class MemberRecord {
+
+    public static final String COLUMN_UID = ProfileUpsert.FIELD_UID;
+    public static final String COLUMN_EMAIL = ProfileUpsert.FIELD_EMAIL;
+    public static final String COLUMN_DISPLAY_NAME = ProfileUpsert.FIELD_DISPLAY_NAME;
+    public static final String COLUMN_BIRTH_DATE = ProfileUpsert.FIELD_BIRTH_DATE;
+    public static final String COLUMN_CREATED_AT = ProfileUpsert.FIELD_CREATED_AT;
+    public static final String COLUMN_IS_GOOGLE_SIGN_IN = ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN;
+
+    // Deliberately loose: Firebase Auth has the final say when the member signs in
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    // Firestore document IDs can't contain '/' and shouldn't be huge
+    private static final int MAX_UID_LENGTH = 128;
+
+    private final String mUid;
+    private final String mEmail;
+    private final String mDisplayName;
+    private final Date mBirthDate;
+    private final Date mCreatedAt;
+    private final Boolean mIsGoogleSignIn;
+
+    private MemberRecord(String uid, String email, String displayName, Date birthDate, Date createdAt,
+                         Boolean isGoogleSignIn) {
+        mUid = uid;
+        mEmail = email;
+        mDisplayName = displayName;
+        mBirthDate = birthDate;
+        mCreatedAt = createdAt;
+        mIsGoogleSignIn = isGoogleSignIn;
+    }
+
+    /**
+     * Validates a row read from an import file.
+     *
+     * @param now the current time, so birth and join dates in the future can be rejected
+     * @throws IllegalArgumentException saying what is wrong with the row
+     */
+    public static MemberRecord parse(@NonNull Map<String, String> row, long now) {
+        String uid = trimmed(row.get(COLUMN_UID));
+        if (uid == null) {
+            throw new IllegalArgumentException("missing uid");
+        }
+        if (uid.contains("/") || uid.length() > MAX_UID_LENGTH || uid.equals(".") || uid.equals("..")) {
+            throw new IllegalArgumentException("invalid uid " + uid);
+        }
+        String email = trimmed(row.get(COLUMN_EMAIL));
+        if (email == null) {
+            throw new IllegalArgumentException("missing email");
+        }
+        if (!EMAIL.matcher(email).matches()) {
+            throw new IllegalArgumentException("invalid email " + email);
+        }
+        Date birthDate = date(row, COLUMN_BIRTH_DATE, now);
+        Date createdAt = date(row, COLUMN_CREATED_AT, now);
+
+        String google = trimmed(row.get(COLUMN_IS_GOOGLE_SIGN_IN));
+        Boolean isGoogleSignIn = null;
+        if (google != null) {
+            if (!google.equalsIgnoreCase("true") && !google.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("invalid " + COLUMN_IS_GOOGLE_SIGN_IN + " " + google);
+            }
+            isGoogleSignIn = Boolean.parseBoolean(google);
+        }
+        return new MemberRecord(uid, email, trimmed(row.get(COLUMN_DISPLAY_NAME)), birthDate, createdAt,
+                isGoogleSignIn);
+    }
+
+    @Nullable
+    private static Date date(Map<String, String> row, String column, long now) {
+        String value = trimmed(row.get(column));
+        if (value == null) {
+            return null;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        Date date;
+        try {
+            date = format.parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("invalid " + column + " " + value);
+        }
+        if (date.getTime() > now) {
+            throw new IllegalArgumentException(column + " in the future: " + value);
+        }
+        return date;
+    }
+
+    @Nullable
+    private static String trimmed(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    public ProfileUpsert toUpsert() {
+        return ProfileUpsert.forImportedMember(mUid, mEmail, mDisplayName, mBirthDate, mCreatedAt, mIsGoogleSignIn);
+    }
+
+    public String getUid() {
+        return mUid;
+    }
+
+    public String getEmail() {
+        return mEmail;
+    }
+
+    public String getDisplayName() {
+        return mDisplayName;
+    }
+
+    public Date getBirthDate() {
+        return mBirthDate;
+    }
+
+    public Date getCreatedAt() {
+        return mCreatedAt;
+    }
+
+    /**
+     * Null when the file doesn't say, like the other optional columns.
+     */
+    @Nullable
+    public Boolean isGoogleSignIn() {
+        return mIsGoogleSignIn;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streams rows out of an import file one at a time, so a file of any size is never held in
+ * memory at once.
+ */
+public interface MemberRecordReader extends Closeable {
+
+    /**
+     * The next row as column name to raw value, or null at the end of the file.
+     *
+     * @throws IllegalArgumentException if the row can't be parsed at all; the row has been
+     *     consumed and the next call moves on to the one after it
+     * @throws IOException if the file can't be read any further
+     */
+    @Nullable
+    Map<String, String> readRow() throws IOException;
+}
@@ -0,0 +1,74 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+import java.util.function.Supplier;
+
+/**
+ * Periodically writes the {@link AuthMetrics} summary to logcat and, optionally, to a file that
+ * always holds the latest summary.
+ */
+public class MetricsReporter {
+    private static final String TAG = "AuthMetrics";
+
+    private final AuthMetrics mMetrics;
+    private final Supplier<File> mFile;
+    private final Scheduler mScheduler;
+    private final long mPeriodMillis;
+    private Scheduler.Cancellable mPending;
+
+    /**
+     * @param file where to write summaries, resolved on the scheduler's thread; may return null
+     */
+    public MetricsReporter(AuthMetrics metrics, Supplier<File> file, Scheduler scheduler, long periodMillis) {
+        mMetrics = metrics;
+        mFile = file;
+        mScheduler = scheduler;
+        mPeriodMillis = periodMillis;
+    }
+
+    public synchronized void start() {
+        if (mPending == null) {
+            mPending = mScheduler.schedule(this::reportAndReschedule, mPeriodMillis);
+        }
+    }
+
+    public synchronized void stop() {
+        if (mPending != null) {
+            mPending.cancel();
+            mPending = null;
+        }
+    }
+
+    private void reportAndReschedule() {
+        report();
+        synchronized (this) {
+            if (mPending != null) {
+                mPending = mScheduler.schedule(this::reportAndReschedule, mPeriodMillis);
+            }
+        }
+    }
+
+    /**
+     * Dumps the current summary now. Does nothing if no operation has been recorded.
+     */
+    public void report() {
+        String summary = mMetrics.summary();
+        if (summary.isEmpty()) return;
+
+        Log.i(TAG, summary);
+        File file = mFile.get();
+        if (file == null) return;
+        StartupIoGuard.onDiskIo("metrics report");
+        try (Writer writer = new FileWriter(file, false)) {
+            writer.write("# " + new Date() + "\n" + summary);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write metrics to " + file, e);
+        }
+    }
+}
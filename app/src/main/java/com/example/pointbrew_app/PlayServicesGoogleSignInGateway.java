@@ -0,0 +1,77 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.auth.api.signin.GoogleSignInClient;
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.tasks.Task;
+
+/**
+ * {@link GoogleSignInGateway} backed by Play services' {@link GoogleSignInClient}.
+ */
+public class PlayServicesGoogleSignInGateway implements GoogleSignInGateway {
+
+    private final Context mContext;
+    private final GoogleSignInClient mClient;
+
+    public PlayServicesGoogleSignInGateway(Context context, GoogleSignInClient client) {
+        mContext = context.getApplicationContext();
+        mClient = client;
+    }
+
+    @Override
+    public boolean hasPreviousSignIn() {
+        return GoogleSignIn.getLastSignedInAccount(mContext) != null;
+    }
+
+    @Override
+    public void silentSignIn(@NonNull AuthBackend.Callback<String> callback) {
+        // Completes immediately when Play services still holds a valid token
+        mClient.silentSignIn().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                callback.onError(task.getException());
+                return;
+            }
+            String idToken = task.getResult().getIdToken();
+            if (idToken != null) {
+                callback.onSuccess(idToken);
+            } else {
+                callback.onError(new IllegalStateException("Silent sign-in returned no ID token"));
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public Intent getSignInIntent() {
+        return mClient.getSignInIntent();
+    }
+
+    @NonNull
+    @Override
+    public String getIdToken(Intent data) throws ApiException {
+        Task<GoogleSignInAccount> task = GoogleSignIn.getSignedInAccountFromIntent(data);
+        GoogleSignInAccount account = task.getResult(ApiException.class);
+        String idToken = account.getIdToken();
+        if (idToken == null) {
+            throw new IllegalStateException("Google account returned no ID token");
+        }
+        return idToken;
+    }
+
+    @Override
+    public void signOut(@NonNull AuthBackend.Callback<Void> callback) {
+        mClient.signOut().addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                callback.onSuccess(null);
+            } else {
+                callback.onError(task.getException());
+            }
+        });
+    }
+}
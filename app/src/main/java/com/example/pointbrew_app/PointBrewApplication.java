@@ -0,0 +1,24 @@
+package com.example.pointbrew_app;
+
+import android.app.Application;
+
+/**
+ * Starts the launch trace and, in debug builds, the main-thread I/O guard before anything else
+ * in the process runs. {@link MainActivity} ends both once its first screen is up.
+ */
+public class PointBrewApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        StartupTracer tracer = StartupTracer.get();
+        tracer.start();
+        StartupIoGuard guard = StartupIoGuard.get();
+        guard.beginLaunch(BuildConfig.DEBUG);
+        if (BuildConfig.DEBUG) {
+            guard.installStrictMode();
+        }
+        tracer.beginSection("Application.onCreate");
+        super.onCreate();
+        tracer.endSection();
+    }
+}
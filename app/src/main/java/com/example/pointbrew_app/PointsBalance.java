@@ -0,0 +1,321 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * One user's points balance as shown on screen, updated the moment an earn or redeem is made
+ * instead of after the {@link PointsLedger} round trip.
+ *
+ * The balance shown is the last balance the server confirmed plus every operation still in
+ * flight. When an operation is confirmed it moves from the pending log into the confirmed
+ * balance; when it fails it is dropped, which undoes it on screen. If it was the only operation
+ * in flight, the balance the server returned for it is taken as is. Otherwise answers can arrive
+ * out of order, so the balance is re-read from the server once nothing is in flight any more.
+ *
+ * A redeem larger than the balance shown is refused without going to the server, and the
+ * balance shown never drops below zero, even if an earn that a redeem relied on fails.
+ */
+public class PointsBalance {
+
+    public interface Listener {
+        /**
+         * @param balance what to show; never negative
+         * @param settled whether the server has confirmed everything that went into it
+         */
+        void onBalanceChanged(long balance, boolean settled);
+    }
+
+    private final PointsLedger mLedger;
+    private final String mUid;
+    private final List<Registration> mListeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final PendingLog mPending = new PendingLog();
+    // A repeated key gets back the balance recorded the first time, which may be out of date
+    private final Set<String> mSentKeys = new HashSet<>();
+    private long mConfirmed;
+    private boolean mLoaded;
+    // The confirmed balance was worked out locally and should be checked against the server
+    private boolean mStale;
+    private boolean mRefreshing;
+    private long mNextSeq;
+    private long mLastNotified = -1;
+    private boolean mLastNotifiedSettled;
+
+    public PointsBalance(@NonNull PointsLedger ledger, @NonNull String uid) {
+        mLedger = ledger;
+        mUid = uid;
+    }
+
+    public String getUid() {
+        return mUid;
+    }
+
+    /**
+     * Calls the listener on the executor with the balance now and after every change.
+     */
+    public Subscription addListener(@NonNull Executor executor, @NonNull Listener listener) {
+        Registration registration = new Registration(executor, listener);
+        mListeners.add(registration);
+        long balance;
+        boolean settled;
+        synchronized (this) {
+            balance = displayed();
+            settled = isSettledLocked();
+        }
+        registration.deliver(balance, settled);
+        return () -> mListeners.remove(registration);
+    }
+
+    /**
+     * Reads the balance from the server. While operations are in flight the read is put off
+     * until they have all been answered, since it might or might not include them.
+     */
+    public void refresh() {
+        long seqAtStart;
+        synchronized (this) {
+            if (mPending.size() > 0 || mRefreshing) {
+                mStale = true;
+                return;
+            }
+            mRefreshing = true;
+            seqAtStart = mNextSeq;
+        }
+        mLedger.getBalance(mUid, new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long balance) {
+                boolean again;
+                synchronized (PointsBalance.this) {
+                    mRefreshing = false;
+                    if (mNextSeq == seqAtStart) {
+                        mConfirmed = balance;
+                        mLoaded = true;
+                        mStale = false;
+                    }
+                    // Something was applied meanwhile; if it hasn't settled things itself, read again
+                    again = mStale && mPending.size() == 0;
+                }
+                notifyListeners();
+                if (again) {
+                    refresh();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                synchronized (PointsBalance.this) {
+                    mRefreshing = false;
+                    mStale = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the transaction straight away and sends it to the ledger. The callback gets the
+     * server's answer. A redeem the balance shown can't cover fails at once with
+     * {@link InsufficientPointsException}. Redeems made before the first {@link #refresh()} has
+     * answered can't be checked locally and are left to the server.
+     */
+    public void apply(@NonNull PointsTransaction transaction, @NonNull AuthBackend.Callback<Long> callback) {
+        long seq;
+        InsufficientPointsException refused = null;
+        synchronized (this) {
+            long balance = displayed();
+            if (mLoaded && balance + transaction.getDelta() < 0) {
+                refused = new InsufficientPointsException(balance, transaction.getPoints());
+                seq = -1;
+            } else {
+                seq = mNextSeq++;
+                boolean firstSend = mSentKeys.add(transaction.getIdempotencyKey());
+                mPending.add(seq, transaction.getDelta(), firstSend);
+            }
+        }
+        if (refused != null) {
+            callback.onError(refused);
+            return;
+        }
+        notifyListeners();
+
+        mLedger.apply(mUid, transaction, new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long balanceAfter) {
+                boolean refresh;
+                synchronized (PointsBalance.this) {
+                    int index = mPending.indexOf(seq);
+                    if (mPending.isSolo(index)) {
+                        // Nothing else was in flight, so this is exactly the server's balance
+                        mConfirmed = balanceAfter;
+                        mLoaded = true;
+                        mStale = false;
+                    } else {
+                        mConfirmed += mPending.delta(index);
+                        mStale = true;
+                    }
+                    mPending.remove(index);
+                    refresh = mStale && mPending.size() == 0;
+                }
+                notifyListeners();
+                if (refresh) {
+                    refresh();
+                }
+                callback.onSuccess(balanceAfter);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                boolean refresh;
+                synchronized (PointsBalance.this) {
+                    mPending.remove(mPending.indexOf(seq));
+                    // A rejected redeem means our balance was off; any other failure may have
+                    // been a lost answer to a write that did go through
+                    mStale = true;
+                    refresh = mPending.size() == 0;
+                }
+                notifyListeners();
+                if (refresh) {
+                    refresh();
+                }
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * The balance shown: confirmed plus in flight, never negative.
+     */
+    public synchronized long getBalance() {
+        return displayed();
+    }
+
+    /**
+     * The balance as of the server's last answer, without anything still in flight.
+     */
+    public synchronized long getConfirmedBalance() {
+        return mConfirmed;
+    }
+
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Whether nothing is in flight and the balance shown is the server's.
+     */
+    public synchronized boolean isSettled() {
+        return isSettledLocked();
+    }
+
+    private boolean isSettledLocked() {
+        return mLoaded && !mStale && mPending.size() == 0;
+    }
+
+    private long displayed() {
+        return Math.max(0, mConfirmed + mPending.sum());
+    }
+
+    private void notifyListeners() {
+        long balance;
+        boolean settled;
+        synchronized (this) {
+            balance = displayed();
+            settled = isSettledLocked();
+            if (balance == mLastNotified && settled == mLastNotifiedSettled) {
+                return;
+            }
+            mLastNotified = balance;
+            mLastNotifiedSettled = settled;
+        }
+        for (Registration registration : mListeners) {
+            registration.deliver(balance, settled);
+        }
+    }
+
+    private static final class Registration {
+        final Executor executor;
+        final Listener listener;
+
+        Registration(Executor executor, Listener listener) {
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        void deliver(long balance, boolean settled) {
+            executor.execute(() -> listener.onBalanceChanged(balance, settled));
+        }
+    }
+
+    /**
+     * Operations in flight, oldest first, in parallel primitive arrays rather than a list of
+     * objects: a handful of entries at the counter, but added and removed on every tap.
+     */
+    static final class PendingLog {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private long[] mSeqs = new long[INITIAL_CAPACITY];
+        private long[] mDeltas = new long[INITIAL_CAPACITY];
+        // Whether the entry has been the only one in flight since it was added
+        private boolean[] mSolo = new boolean[INITIAL_CAPACITY];
+        private int mSize;
+        private long mSum;
+
+        void add(long seq, long delta, boolean mayBeSolo) {
+            if (mSize == mSeqs.length) {
+                int capacity = mSize * 2;
+                mSeqs = Arrays.copyOf(mSeqs, capacity);
+                mDeltas = Arrays.copyOf(mDeltas, capacity);
+                mSolo = Arrays.copyOf(mSolo, capacity);
+            }
+            boolean solo = mayBeSolo && mSize == 0;
+            if (mSize == 1) {
+                mSolo[0] = false;
+            }
+            mSeqs[mSize] = seq;
+            mDeltas[mSize] = delta;
+            mSolo[mSize] = solo;
+            mSize++;
+            mSum += delta;
+        }
+
+        int indexOf(long seq) {
+            for (int i = 0; i < mSize; i++) {
+                if (mSeqs[i] == seq) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("No pending operation " + seq);
+        }
+
+        long delta(int index) {
+            return mDeltas[index];
+        }
+
+        boolean isSolo(int index) {
+            return mSolo[index];
+        }
+
+        void remove(int index) {
+            mSum -= mDeltas[index];
+            int tail = mSize - index - 1;
+            System.arraycopy(mSeqs, index + 1, mSeqs, index, tail);
+            System.arraycopy(mDeltas, index + 1, mDeltas, index, tail);
+            System.arraycopy(mSolo, index + 1, mSolo, index, tail);
+            mSize--;
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        long sum() {
+            return mSum;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A user's points: an append-only list of {@link PointsTransaction}s under {@code users/{uid}}
+ * and the balance they add up to, kept on the user document and updated atomically with each
+ * append so reading it never depends on how long the history is.
+ */
+public interface PointsLedger {
+
+    /**
+     * Appends the transaction and calls back with the balance right after it. A transaction
+     * whose idempotency key was already applied is not applied again; the callback gets the
+     * balance recorded for it the first time. A redeem larger than the balance fails with
+     * {@link InsufficientPointsException}.
+     */
+    void apply(@NonNull String uid, @NonNull PointsTransaction transaction, @NonNull AuthBackend.Callback<Long> callback);
+
+    /**
+     * The current balance; 0 for a user who never earned any points. One document read.
+     */
+    void getBalance(@NonNull String uid, @NonNull AuthBackend.Callback<Long> callback);
+}
@@ -0,0 +1,68 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+/**
+ * One earn or redeem against a user's points. The idempotency key names the transaction, so
+ * applying the same one twice, e.g. when a call is retried, only counts it once.
+ */
+public final class PointsTransaction {
+
+    public static final String TYPE_EARN = "earn";
+    public static final String TYPE_REDEEM = "redeem";
+
+    private final String mIdempotencyKey;
+    private final String mType;
+    private final long mPoints;
+    private final String mReason;
+
+    private PointsTransaction(String idempotencyKey, String type, long points, String reason) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty() || idempotencyKey.contains("/")) {
+            // The key is used as a document ID
+            throw new IllegalArgumentException("Invalid idempotency key: " + idempotencyKey);
+        }
+        if (points <= 0) {
+            throw new IllegalArgumentException("points must be positive, was " + points);
+        }
+        mIdempotencyKey = idempotencyKey;
+        mType = type;
+        mPoints = points;
+        mReason = reason;
+    }
+
+    public static PointsTransaction earn(@NonNull String idempotencyKey, long points, String reason) {
+        return new PointsTransaction(idempotencyKey, TYPE_EARN, points, reason);
+    }
+
+    public static PointsTransaction redeem(@NonNull String idempotencyKey, long points, String reason) {
+        return new PointsTransaction(idempotencyKey, TYPE_REDEEM, points, reason);
+    }
+
+    @NonNull
+    public String getIdempotencyKey() {
+        return mIdempotencyKey;
+    }
+
+    @NonNull
+    public String getType() {
+        return mType;
+    }
+
+    /**
+     * Always positive; see {@link #getDelta()} for the signed change.
+     */
+    public long getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * What this does to the balance: positive for an earn, negative for a redeem.
+     */
+    public long getDelta() {
+        return TYPE_EARN.equals(mType) ? mPoints : -mPoints;
+    }
+
+    public String getReason() {
+        return mReason;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Last known {@code users/{uid}} documents, kept in memory and in a small file per user.
+ *
+ * Reads are stale-while-revalidate: {@link #observe} hands back whatever is cached right away
+ * and then fetches the document in the background, telling observers again only if it changed.
+ * Disk reads and writes run on the I/O executor; observers are called on the callback executor.
+ */
+public class ProfileCache {
+    private static final String TAG = "ProfileCache";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_SUFFIX = ".profile";
+
+    public interface Observer {
+        void onProfileChanged(@NonNull UserProfile profile);
+    }
+
+    private final AuthBackend mBackend;
+    private final Supplier<File> mDirectory;
+    private final Executor mIoExecutor;
+    private final Executor mCallbackExecutor;
+
+    private final Map<String, UserProfile> mMemory = new ConcurrentHashMap<>();
+    private final Map<String, List<Observer>> mObservers = new HashMap<>();
+    private final SingleFlight<UserProfile> mRefreshes = new SingleFlight<>();
+    // Bumped by invalidate() so reads and fetches started before it are dropped
+    private volatile int mGeneration;
+
+    /**
+     * @param directory where profile files live, resolved on the I/O executor; null keeps the cache in memory only
+     */
+    public ProfileCache(AuthBackend backend, Supplier<File> directory, Executor ioExecutor,
+                        Executor callbackExecutor) {
+        mBackend = backend;
+        mDirectory = directory;
+        mIoExecutor = ioExecutor;
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * A cache without a directory that runs everything on the calling thread.
+     */
+    public static ProfileCache inMemory(AuthBackend backend) {
+        return new ProfileCache(backend, () -> null, Runnable::run, Runnable::run);
+    }
+
+    /**
+     * The profile held in memory, or null. Never touches the disk or the network.
+     */
+    @Nullable
+    public UserProfile peek(@NonNull String uid) {
+        return mMemory.get(uid);
+    }
+
+    /**
+     * Registers the observer, hands it the last known profile from memory or disk, and starts a
+     * background refresh. The observer keeps getting changes until it is removed.
+     */
+    public void observe(@NonNull String uid, @NonNull Observer observer) {
+        synchronized (mObservers) {
+            mObservers.computeIfAbsent(uid, k -> new ArrayList<>()).add(observer);
+        }
+        UserProfile cached = mMemory.get(uid);
+        if (cached != null) {
+            deliver(observer, cached);
+        } else {
+            int generation = mGeneration;
+            mIoExecutor.execute(() -> {
+                UserProfile stored = read(uid);
+                if (stored == null || generation != mGeneration) return;
+                // A refresh that landed first already told the observer something newer
+                if (mMemory.putIfAbsent(uid, stored) == null) {
+                    deliver(observer, stored);
+                }
+            });
+        }
+        refresh(uid);
+    }
+
+    public void removeObserver(@NonNull String uid, @NonNull Observer observer) {
+        synchronized (mObservers) {
+            List<Observer> observers = mObservers.get(uid);
+            if (observers == null) return;
+            observers.remove(observer);
+            if (observers.isEmpty()) {
+                mObservers.remove(uid);
+            }
+        }
+    }
+
+    /**
+     * Fetches the profile from the backend. Concurrent refreshes for the same uid share one fetch.
+     */
+    public void refresh(@NonNull String uid) {
+        int generation = mGeneration;
+        mRefreshes.execute(uid, new AuthBackend.Callback<UserProfile>() {
+            @Override
+            public void onSuccess(UserProfile profile) {
+                if (profile != null && generation == mGeneration) {
+                    put(profile);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Profile refresh failed; keeping cached copy", e);
+            }
+        }, callback -> mBackend.fetchProfile(uid, callback));
+    }
+
+    /**
+     * Stores a profile this device just learned about, e.g. one it wrote itself.
+     */
+    public void put(@NonNull UserProfile profile) {
+        UserProfile previous = mMemory.put(profile.getUid(), profile);
+        if (profile.equals(previous)) return;
+        int generation = mGeneration;
+        mIoExecutor.execute(() -> {
+            if (generation == mGeneration) {
+                write(profile);
+            }
+        });
+        List<Observer> observers;
+        synchronized (mObservers) {
+            List<Observer> registered = mObservers.get(profile.getUid());
+            if (registered == null) return;
+            observers = new ArrayList<>(registered);
+        }
+        for (Observer observer : observers) {
+            deliver(observer, profile);
+        }
+    }
+
+    /**
+     * Drops every cached profile from memory and disk. Observers stay registered.
+     */
+    public void invalidate() {
+        mGeneration++;
+        mMemory.clear();
+        mIoExecutor.execute(() -> {
+            File directory = mDirectory.get();
+            File[] files = directory != null ? directory.listFiles() : null;
+            if (files == null) return;
+            for (File file : files) {
+                if (file.getName().endsWith(FILE_SUFFIX) && !file.delete()) {
+                    Log.w(TAG, "Could not delete " + file);
+                }
+            }
+        });
+    }
+
+    private void deliver(Observer observer, UserProfile profile) {
+        mCallbackExecutor.execute(() -> observer.onProfileChanged(profile));
+    }
+
+    @Nullable
+    private File fileFor(String uid) {
+        File directory = mDirectory.get();
+        if (directory == null) return null;
+        StartupIoGuard.onDiskIo("profile cache");
+        // Firebase uids are alphanumeric; anything else must not escape the directory
+        return new File(directory, uid.replaceAll("[^A-Za-z0-9_-]", "_") + FILE_SUFFIX);
+    }
+
+    @Nullable
+    private UserProfile read(String uid) {
+        File file = fileFor(uid);
+        if (file == null) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) return null;
+            String storedUid = in.readUTF();
+            if (!storedUid.equals(uid)) return null;
+            String email = readNullableString(in);
+            String displayName = readNullableString(in);
+            long birthDate = in.readLong();
+            String photoUrl = readNullableString(in);
+            boolean googleSignIn = in.readBoolean();
+            return new UserProfile(uid, email, displayName,
+                    birthDate != Long.MIN_VALUE ? new Date(birthDate) : null, photoUrl, googleSignIn);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable cached profile " + file, e);
+            return null;
+        }
+    }
+
+    private void write(UserProfile profile) {
+        File file = fileFor(profile.getUid());
+        if (file == null) return;
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create " + directory);
+            return;
+        }
+        // Write a sibling and rename it over the old file so readers never see half a profile
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(profile.getUid());
+            writeNullableString(out, profile.getEmail());
+            writeNullableString(out, profile.getDisplayName());
+            Date birthDate = profile.getBirthDate();
+            out.writeLong(birthDate != null ? birthDate.getTime() : Long.MIN_VALUE);
+            writeNullableString(out, profile.getPhotoUrl());
+            out.writeBoolean(profile.isGoogleSignIn());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache profile for " + profile.getUid(), e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Loads members' profile photos, the Google account photo stored in {@code users/{uid}}, at the
+ * size they are shown.
+ *
+ * The downloaded image is kept on disk as it came, keyed by uid and photo URL, within a byte
+ * budget that drops the least recently used first. It is decoded straight to the requested size
+ * by subsampling and scaling in the decoder, so a 96dp avatar never costs a full-size bitmap.
+ * Decoded bitmaps are kept in a memory cache bounded by bytes. Loads of the same photo at the
+ * same size share one decode, and loads of the same photo at any size share one download. When
+ * a member's photo changes, the bitmap of the old one is decoded over for a later load.
+ */
+public class ProfileImageLoader {
+    private static final String TAG = "ProfileImageLoader";
+
+    static final String DIRECTORY = "profile_images";
+    private static final long MAX_DISK_BYTES = 10L * 1024 * 1024;
+    // Anything bigger isn't an avatar
+    static final int MAX_IMAGE_BYTES = 5 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 15_000;
+    // A share of the heap: a few dozen list-sized avatars
+    private static final int MEMORY_CACHE_HEAP_FRACTION = 64;
+    private static final int MAX_POOLED = 4;
+    private static final int WORKER_THREADS = 3;
+
+    /**
+     * Where image bytes come from; replaceable in tests.
+     */
+    public interface Source {
+        @NonNull
+        InputStream open(@NonNull String url) throws IOException;
+    }
+
+    /**
+     * Fetches http(s) URLs, and file URLs for local images.
+     */
+    static final class UrlSource implements Source {
+        @NonNull
+        @Override
+        public InputStream open(@NonNull String url) throws IOException {
+            URLConnection connection = new URL(url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (connection instanceof HttpURLConnection) {
+                HttpURLConnection http = (HttpURLConnection) connection;
+                int code = http.getResponseCode();
+                if (code != HttpURLConnection.HTTP_OK) {
+                    http.disconnect();
+                    throw new IOException("HTTP " + code + " for " + url);
+                }
+            }
+            return connection.getInputStream();
+        }
+    }
+
+    private final Source mSource;
+    private final Supplier<File> mDirectory;
+    private final long mMaxDiskBytes;
+    private final Executor mWorker;
+    private final Executor mCallbackExecutor;
+    private final BoundedLruCache<String, Bitmap> mMemory;
+    private final SingleFlight<Bitmap> mDecodes = new SingleFlight<>();
+    private final SingleFlight<File> mDownloads = new SingleFlight<>();
+
+    // Bitmaps of replaced photos, free to decode over; guarded by itself
+    private final ArrayDeque<Bitmap> mPool = new ArrayDeque<>();
+    // The key each uid and size last delivered, guarded by itself
+    private final Map<String, String> mShowing = new HashMap<>();
+
+    private final AtomicInteger mDownloadCount = new AtomicInteger();
+    private final AtomicInteger mDiskHitCount = new AtomicInteger();
+    private final AtomicInteger mDecodeCount = new AtomicInteger();
+    private final AtomicInteger mReuseCount = new AtomicInteger();
+
+    public static ProfileImageLoader create(Context context) {
+        Context appContext = context.getApplicationContext();
+        return new ProfileImageLoader(new UrlSource(), () -> new File(appContext.getCacheDir(), DIRECTORY),
+                MAX_DISK_BYTES,
+                Executors.newFixedThreadPool(WORKER_THREADS, ExecutorScheduler.backgroundThreadFactory("profile-images")),
+                ContextCompat.getMainExecutor(appContext),
+                Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_FRACTION);
+    }
+
+    /**
+     * @param directory where downloaded images live, resolved on a worker
+     */
+    ProfileImageLoader(Source source, Supplier<File> directory, long maxDiskBytes, Executor worker,
+                       Executor callbackExecutor, long maxMemoryBytes) {
+        mSource = source;
+        mDirectory = directory;
+        mMaxDiskBytes = maxDiskBytes;
+        mWorker = worker;
+        mCallbackExecutor = callbackExecutor;
+        mMemory = new BoundedLruCache<>(maxMemoryBytes, Bitmap::getAllocationByteCount, null);
+    }
+
+    /**
+     * The photo if it is in memory at this size, or null. Never touches the disk or network,
+     * so it is safe on the main thread for binding a view in the first frame.
+     */
+    @Nullable
+    public Bitmap peek(@NonNull String uid, @NonNull String photoUrl, int widthPx, int heightPx) {
+        return mMemory.get(key(uid, photoUrl, widthPx, heightPx));
+    }
+
+    /**
+     * Loads {@code photoUrl} to fill a {@code widthPx} by {@code heightPx} view and calls back on
+     * the callback executor. The bitmap covers the view at no more than that size in one
+     * dimension; crop it to fit.
+     *
+     * The bitmap belongs to the loader. It stays valid until a different photo for the same
+     * uid and size has been delivered, after which it may be decoded over; callers must have
+     * swapped it out by the time that callback returns.
+     */
+    public void load(@NonNull String uid, @NonNull String photoUrl, int widthPx, int heightPx,
+                     @NonNull AuthBackend.Callback<Bitmap> callback) {
+        if (widthPx <= 0 || heightPx <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + widthPx + "x" + heightPx);
+        }
+        String key = key(uid, photoUrl, widthPx, heightPx);
+        String view = uid + "@" + widthPx + "x" + heightPx;
+        AuthBackend.Callback<Bitmap> delivery = new AuthBackend.Callback<Bitmap>() {
+            @Override
+            public void onSuccess(Bitmap bitmap) {
+                mCallbackExecutor.execute(() -> {
+                    callback.onSuccess(bitmap);
+                    showing(view, key);
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mCallbackExecutor.execute(() -> callback.onError(e));
+            }
+        };
+
+        Bitmap cached = mMemory.get(key);
+        if (cached != null) {
+            delivery.onSuccess(cached);
+            return;
+        }
+        mDecodes.execute(key, delivery, shared -> mWorker.execute(() ->
+                download(uid, photoUrl, new AuthBackend.Callback<File>() {
+                    @Override
+                    public void onSuccess(File file) {
+                        try {
+                            shared.onSuccess(decodeOnWorker(file, key, widthPx, heightPx));
+                        } catch (IOException | RuntimeException e) {
+                            shared.onError(e);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        shared.onError(e);
+                    }
+                })));
+    }
+
+    /**
+     * Drops every bitmap held in memory, e.g. when the system is short of it. The disk cache stays.
+     */
+    public void clearMemory() {
+        mMemory.clear();
+        synchronized (mPool) {
+            mPool.clear();
+        }
+    }
+
+    int getDownloadCount() {
+        return mDownloadCount.get();
+    }
+
+    int getDiskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    int getDecodeCount() {
+        return mDecodeCount.get();
+    }
+
+    int getReuseCount() {
+        return mReuseCount.get();
+    }
+
+    BoundedLruCache<String, Bitmap> getMemoryCache() {
+        return mMemory;
+    }
+
+    /**
+     * Gets the photo into the disk cache, sharing the download with loads at other sizes.
+     */
+    private void download(String uid, String photoUrl, AuthBackend.Callback<File> callback) {
+        File file = file(uid, photoUrl);
+        mDownloads.execute(file.getName(), callback, shared -> {
+            if (file.isFile()) {
+                mDiskHitCount.incrementAndGet();
+                // Keeps recently shown photos out of the way of trimming
+                file.setLastModified(System.currentTimeMillis());
+                shared.onSuccess(file);
+                return;
+            }
+            try {
+                fetch(photoUrl, file);
+                mDownloadCount.incrementAndGet();
+                trimDisk(file);
+                shared.onSuccess(file);
+            } catch (IOException e) {
+                Log.w(TAG, "Couldn't download " + photoUrl, e);
+                shared.onError(e);
+            }
+        });
+    }
+
+    private void fetch(String photoUrl, File file) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory);
+        }
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try (InputStream in = mSource.open(photoUrl); OutputStream out = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[16 * 1024];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > MAX_IMAGE_BYTES) {
+                    throw new IOException(photoUrl + " is over " + MAX_IMAGE_BYTES + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Couldn't replace " + file);
+        }
+    }
+
+    private Bitmap decodeOnWorker(File file, String key, int widthPx, int heightPx) throws IOException {
+        Bitmap reusable = takePooled();
+        Bitmap bitmap;
+        try {
+            bitmap = decode(file, widthPx, heightPx, reusable);
+        } catch (IOException e) {
+            if (reusable != null) {
+                release(reusable);
+            }
+            // Not an image after all; don't keep serving it
+            file.delete();
+            throw e;
+        }
+        mDecodeCount.incrementAndGet();
+        if (reusable != null) {
+            if (bitmap == reusable) {
+                mReuseCount.incrementAndGet();
+            } else {
+                release(reusable);
+            }
+        }
+        mMemory.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Decodes {@code file} to cover {@code widthPx} by {@code heightPx}: subsampled by a power
+     * of two while that still covers it, then scaled the rest of the way by the decoder.
+     *
+     * @param reusable decoded over if it is big enough, otherwise left alone
+     * @throws IOException if the file isn't an image the platform can decode
+     */
+    static Bitmap decode(File file, int widthPx, int heightPx, @Nullable Bitmap reusable) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not an image: " + file);
+        }
+
+        int sample = sampleSize(options.outWidth, options.outHeight, widthPx, heightPx);
+        int sampledWidth = (options.outWidth + sample - 1) / sample;
+        int sampledHeight = (options.outHeight + sample - 1) / sample;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sample;
+        // Photos have no alpha, so half the memory of ARGB_8888
+        options.inPreferredConfig = "image/jpeg".equals(options.outMimeType)
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+
+        int width = sampledWidth;
+        int height = sampledHeight;
+        // Scale by whichever side has to shrink least so the view is still covered
+        if ((long) widthPx * sampledHeight >= (long) heightPx * sampledWidth) {
+            if (widthPx < sampledWidth) {
+                options.inScaled = true;
+                options.inDensity = sampledWidth;
+                options.inTargetDensity = widthPx;
+                width = widthPx;
+                height = Math.round(sampledHeight * (float) widthPx / sampledWidth);
+            }
+        } else if (heightPx < sampledHeight) {
+            options.inScaled = true;
+            options.inDensity = sampledHeight;
+            options.inTargetDensity = heightPx;
+            width = Math.round(sampledWidth * (float) heightPx / sampledHeight);
+            height = heightPx;
+        }
+
+        int bytesPerPixel = options.inPreferredConfig == Bitmap.Config.RGB_565 ? 2 : 4;
+        if (reusable != null && !reusable.isRecycled() && reusable.isMutable()
+                && reusable.getAllocationByteCount() >= (long) width * height * bytesPerPixel) {
+            options.inMutable = true;
+            options.inBitmap = reusable;
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // The decoder's idea of the size didn't fit after all
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Couldn't decode " + file);
+        }
+        // The densities above only set the scale; views shouldn't scale it again
+        bitmap.setDensity(Bitmap.DENSITY_NONE);
+        return bitmap;
+    }
+
+    /**
+     * The largest power of two the image can be subsampled by and still cover the view.
+     */
+    static int sampleSize(int sourceWidth, int sourceHeight, int widthPx, int heightPx) {
+        int sample = 1;
+        while (sourceWidth / (sample * 2) >= widthPx && sourceHeight / (sample * 2) >= heightPx) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /**
+     * Records that {@code view} now shows {@code key}. If that replaced another photo, its
+     * bitmap is no longer on screen and can be decoded over.
+     */
+    private void showing(String view, String key) {
+        String previous;
+        synchronized (mShowing) {
+            previous = mShowing.put(view, key);
+        }
+        if (previous == null || previous.equals(key)) {
+            return;
+        }
+        Bitmap old = mMemory.remove(previous);
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    private void release(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        synchronized (mPool) {
+            if (mPool.size() == MAX_POOLED) {
+                mPool.pollLast();
+            }
+            mPool.push(bitmap);
+        }
+    }
+
+    /**
+     * The biggest pooled bitmap, or null.
+     */
+    @Nullable
+    private Bitmap takePooled() {
+        synchronized (mPool) {
+            Bitmap biggest = null;
+            for (Bitmap bitmap : mPool) {
+                if (biggest == null || bitmap.getAllocationByteCount() > biggest.getAllocationByteCount()) {
+                    biggest = bitmap;
+                }
+            }
+            if (biggest != null) {
+                for (Iterator<Bitmap> it = mPool.iterator(); it.hasNext(); ) {
+                    if (it.next() == biggest) {
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+            return biggest;
+        }
+    }
+
+    private void trimDisk(File keep) {
+        File[] files = keep.getParentFile().listFiles((dir, name) -> !name.endsWith(".tmp"));
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= mMaxDiskBytes) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= mMaxDiskBytes) break;
+            if (file.equals(keep)) continue;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private File file(String uid, String photoUrl) {
+        File directory = mDirectory.get();
+        StartupIoGuard.onDiskIo("profile image cache");
+        return new File(directory, sha1(uid + " " + photoUrl));
+    }
+
+    private static String key(String uid, String photoUrl, int widthPx, int heightPx) {
+        return uid + " " + photoUrl + "@" + widthPx + "x" + heightPx;
+    }
+
+    private static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single merge write against {@code users/{uid}}.
+ *
+ * Only the fields in {@link #getFieldMask()} are written, so fields created once at sign-up
+ * (createdAt, displayName, birthDate) are left alone when a returning user signs in again.
+ * Timestamp fields are filled in by the server.
+ */
+public final class ProfileUpsert {
+
+    public static final String FIELD_UID = "uid";
+    public static final String FIELD_EMAIL = "email";
+    public static final String FIELD_DISPLAY_NAME = "displayName";
+    public static final String FIELD_BIRTH_DATE = "birthDate";
+    public static final String FIELD_PHOTO_URL = "photoUrl";
+    public static final String FIELD_IS_GOOGLE_SIGN_IN = "isGoogleSignIn";
+    public static final String FIELD_CREATED_AT = "createdAt";
+    public static final String FIELD_LAST_LOGIN_AT = "lastLoginAt";
+
+    private final String mUid;
+    private final Map<String, Object> mFields;
+    private final List<String> mServerTimestampFields;
+
+    private ProfileUpsert(String uid, Map<String, Object> fields, List<String> serverTimestampFields) {
+        mUid = uid;
+        mFields = Collections.unmodifiableMap(fields);
+        mServerTimestampFields = Collections.unmodifiableList(serverTimestampFields);
+    }
+
+    /**
+     * Full profile for an account that was just created.
+     */
+    public static ProfileUpsert forNewUser(@NonNull String uid, String email, String displayName,
+                                           String photoUrl, Date birthDate, boolean isGoogleSignIn) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_UID, uid);
+        fields.put(FIELD_EMAIL, email);
+        fields.put(FIELD_DISPLAY_NAME, displayName);
+        fields.put(FIELD_IS_GOOGLE_SIGN_IN, isGoogleSignIn);
+        if (isGoogleSignIn) {
+            fields.put(FIELD_PHOTO_URL, photoUrl);
+        } else {
+            fields.put(FIELD_BIRTH_DATE, birthDate);
+        }
+
+        List<String> timestamps = new ArrayList<>();
+        timestamps.add(FIELD_CREATED_AT);
+        timestamps.add(FIELD_LAST_LOGIN_AT);
+        return new ProfileUpsert(uid, fields, timestamps);
+    }
+
+    /**
+     * Profile for a member brought over from another system. Only what the import knows is
+     * written, so importing over a member who already signed up here, or importing a row again,
+     * leaves everything else alone. lastLoginAt is never touched, and createdAt only when the
+     * original join date is known.
+     */
+    public static ProfileUpsert forImportedMember(@NonNull String uid, String email, @Nullable String displayName,
+                                                  @Nullable Date birthDate, @Nullable Date createdAt,
+                                                  @Nullable Boolean isGoogleSignIn) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_UID, uid);
+        fields.put(FIELD_EMAIL, email);
+        putIfKnown(fields, FIELD_DISPLAY_NAME, displayName);
+        putIfKnown(fields, FIELD_BIRTH_DATE, birthDate);
+        putIfKnown(fields, FIELD_CREATED_AT, createdAt);
+        putIfKnown(fields, FIELD_IS_GOOGLE_SIGN_IN, isGoogleSignIn);
+        return new ProfileUpsert(uid, fields, new ArrayList<>());
+    }
+
+    private static void putIfKnown(Map<String, Object> fields, String field, @Nullable Object value) {
+        if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    /**
+     * Login bump for an existing account; creates a minimal document if it is missing.
+     */
+    public static ProfileUpsert forReturningUser(@NonNull String uid, String email) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_UID, uid);
+        fields.put(FIELD_EMAIL, email);
+
+        List<String> timestamps = new ArrayList<>();
+        timestamps.add(FIELD_LAST_LOGIN_AT);
+        return new ProfileUpsert(uid, fields, timestamps);
+    }
+
+    /**
+     * Rebuilds an upsert from its parts, for example when reading it back from disk.
+     */
+    static ProfileUpsert of(@NonNull String uid, Map<String, Object> fields, List<String> serverTimestampFields) {
+        return new ProfileUpsert(uid, new HashMap<>(fields), new ArrayList<>(serverTimestampFields));
+    }
+
+    /**
+     * Combines this write with a later one for the same document; the later values win.
+     */
+    public ProfileUpsert mergedWith(@NonNull ProfileUpsert later) {
+        if (!mUid.equals(later.mUid)) {
+            throw new IllegalArgumentException("Cannot merge writes for different users");
+        }
+        Map<String, Object> fields = new HashMap<>(mFields);
+        List<String> timestamps = new ArrayList<>(mServerTimestampFields);
+        for (Map.Entry<String, Object> field : later.mFields.entrySet()) {
+            fields.put(field.getKey(), field.getValue());
+            timestamps.remove(field.getKey());
+        }
+        for (String field : later.mServerTimestampFields) {
+            fields.remove(field);
+            if (!timestamps.contains(field)) {
+                timestamps.add(field);
+            }
+        }
+        return new ProfileUpsert(mUid, fields, timestamps);
+    }
+
+    public String getUid() {
+        return mUid;
+    }
+
+    /**
+     * Client-supplied values, excluding server timestamps.
+     */
+    public Map<String, Object> getFields() {
+        return mFields;
+    }
+
+    public List<String> getServerTimestampFields() {
+        return mServerTimestampFields;
+    }
+
+    /**
+     * Every field this write touches; anything else in the document is preserved.
+     */
+    public List<String> getFieldMask() {
+        List<String> mask = new ArrayList<>(mFields.keySet());
+        mask.addAll(mServerTimestampFields);
+        return mask;
+    }
+}
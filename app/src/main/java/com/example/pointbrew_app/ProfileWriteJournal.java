@@ -0,0 +1,517 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, on-disk queue of pending {@code users/{uid}} writes.
+ *
+ * Every write is appended and synced to disk before it is sent, so a profile update survives
+ * being offline or the process dying. Pending writes for the same uid are coalesced into one
+ * and sent in batches. Before a batch is sent a claim record is synced for it; claimed writes
+ * are never sent again after a restart, which gives at-most-once delivery. A batch that fails
+ * with a transient error is appended again as pending and goes out on the next {@link #flush()},
+ * or after a growing backoff if the journal has a scheduler.
+ * A batch the backend rejects outright is retried one write at a time, so a bad write is dropped
+ * on its own instead of holding up the rest of its batch forever. A batch that never reached the
+ * backend, such as one turned away by an open circuit breaker, is never dropped.
+ *
+ * All work runs on the given executor, which must run tasks one at a time.
+ */
+public class ProfileWriteJournal {
+    private static final String TAG = "ProfileWriteJournal";
+
+    // Firestore rejects batches with more writes than this
+    public static final int MAX_BATCH_SIZE = 500;
+    // Rewrite the file once it holds this many records more than are still pending
+    private static final int COMPACTION_SLACK = 256;
+    // Between re-flushes while the backend keeps failing with the network up
+    static final RetryPolicy REFLUSH_BACKOFF = new RetryPolicy.Builder()
+            .setInitialDelayMillis(5_000)
+            .setMaxDelayMillis(5 * 60_000)
+            .build();
+
+    private static final byte RECORD_PENDING = 1;
+    private static final byte RECORD_CLAIMED = 2;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_BOOLEAN = 2;
+    private static final byte VALUE_DATE = 3;
+    private static final byte VALUE_LONG = 4;
+
+    private static final class Entry {
+        final long seq;
+        final ProfileUpsert upsert;
+        // Sent in a batch of its own, after a batch holding it was rejected
+        final boolean alone;
+
+        Entry(long seq, ProfileUpsert upsert, boolean alone) {
+            this.seq = seq;
+            this.upsert = upsert;
+            this.alone = alone;
+        }
+    }
+
+    private final AuthBackend mBackend;
+    private final Supplier<File> mFile;
+    private final Executor mExecutor;
+    @Nullable
+    private final Scheduler mScheduler;
+    private final int mMaxBatchSize;
+    private final Random mRandom = new Random();
+
+    // Only touched on mExecutor. Keyed by uid, in the order users were first queued.
+    private final LinkedHashMap<String, Entry> mPending = new LinkedHashMap<>();
+    private final Map<String, List<AuthBackend.Callback<Void>>> mWaiters = new HashMap<>();
+    private File mJournalFile;
+    private boolean mLoaded;
+    private boolean mFlushing;
+    private long mNextSeq = 1;
+    private int mRecordCount;
+    private int mFailedFlushes;
+    private Scheduler.Cancellable mReflush;
+
+    /**
+     * A journal that only retries failed writes when {@link #flush()} is called.
+     *
+     * @param file the journal file, resolved on the executor; a null file keeps the queue in memory only
+     */
+    public ProfileWriteJournal(AuthBackend backend, Supplier<File> file, Executor executor) {
+        this(backend, file, executor, null, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param scheduler where the re-flush after a transient failure waits out its backoff
+     */
+    public ProfileWriteJournal(AuthBackend backend, Supplier<File> file, Executor executor,
+                               @NonNull Scheduler scheduler) {
+        this(backend, file, executor, scheduler, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * A journal without a file that runs inline on whichever thread calls it, one task at a time.
+     */
+    public static ProfileWriteJournal inMemory(AuthBackend backend) {
+        Object lock = new Object();
+        return new ProfileWriteJournal(backend, () -> null, task -> {
+            synchronized (lock) {
+                task.run();
+            }
+        });
+    }
+
+    ProfileWriteJournal(AuthBackend backend, Supplier<File> file, Executor executor, @Nullable Scheduler scheduler,
+                        int maxBatchSize) {
+        mBackend = backend;
+        mFile = file;
+        mExecutor = executor;
+        mScheduler = scheduler;
+        mMaxBatchSize = Math.min(maxBatchSize, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Queues a write and tries to send it right away.
+     *
+     * @param callback told when this write is applied, or when the backend rejects it for good;
+     *     not told about failures it is retried after. May be null.
+     */
+    public void enqueue(@NonNull ProfileUpsert upsert, @Nullable AuthBackend.Callback<Void> callback) {
+        mExecutor.execute(() -> {
+            ensureLoaded();
+            long seq = mNextSeq++;
+            append(RECORD_PENDING, seq, upsert);
+            addPending(seq, upsert);
+            if (callback != null) {
+                mWaiters.computeIfAbsent(upsert.getUid(), k -> new ArrayList<>()).add(callback);
+            }
+            flushPending();
+        });
+    }
+
+    /**
+     * Sends whatever is pending, for example when the network comes back.
+     */
+    public void flush() {
+        mExecutor.execute(() -> {
+            ensureLoaded();
+            flushPending();
+        });
+    }
+
+    /**
+     * Number of users with writes waiting to be sent. Call on the journal's executor.
+     */
+    int getPendingCount() {
+        ensureLoaded();
+        return mPending.size();
+    }
+
+    private void addPending(long seq, ProfileUpsert upsert) {
+        Entry existing = mPending.get(upsert.getUid());
+        mPending.put(upsert.getUid(), existing != null
+                ? new Entry(seq, existing.upsert.mergedWith(upsert), existing.alone)
+                : new Entry(seq, upsert, false));
+    }
+
+    private void flushPending() {
+        if (mFlushing || mPending.isEmpty()) return;
+
+        List<Entry> batch = new ArrayList<>();
+        Iterator<Entry> it = mPending.values().iterator();
+        while (it.hasNext() && batch.size() < mMaxBatchSize) {
+            Entry entry = it.next();
+            if (entry.alone && !batch.isEmpty()) continue;
+            batch.add(entry);
+            it.remove();
+            if (entry.alone) break;
+        }
+        Map<String, List<AuthBackend.Callback<Void>>> waiters = new HashMap<>();
+        List<ProfileUpsert> upserts = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            upserts.add(entry.upsert);
+            List<AuthBackend.Callback<Void>> forUser = mWaiters.remove(entry.upsert.getUid());
+            if (forUser != null) waiters.put(entry.upsert.getUid(), forUser);
+        }
+
+        // Claim before sending: after a crash from here on, this batch is not sent again
+        claim(batch);
+        mFlushing = true;
+        mBackend.upsertProfiles(upserts, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                mExecutor.execute(() -> onBatchDone(batch, waiters, null));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mExecutor.execute(() -> onBatchDone(batch, waiters, e));
+            }
+        });
+    }
+
+    private void onBatchDone(List<Entry> batch, Map<String, List<AuthBackend.Callback<Void>>> waiters,
+                             Exception error) {
+        mFlushing = false;
+        if (error == null) {
+            mFailedFlushes = 0;
+            if (mReflush != null) {
+                mReflush.cancel();
+                mReflush = null;
+            }
+            for (List<AuthBackend.Callback<Void>> forUser : waiters.values()) {
+                for (AuthBackend.Callback<Void> waiter : forUser) {
+                    waiter.onSuccess(null);
+                }
+            }
+            compactIfNeeded();
+            flushPending();
+            return;
+        }
+
+        if (!isRejected(error)) {
+            Log.w(TAG, "Could not apply " + batch.size() + " profile writes, keeping them queued", error);
+            for (Entry entry : batch) {
+                requeue(entry, entry.alone, waiters);
+            }
+            // Every failure appends its batch again; don't let that pile up while offline
+            compactIfNeeded();
+            scheduleReflush();
+            return;
+        }
+        if (batch.size() > 1) {
+            // One of them is bad; sending each on its own finds out which without losing the rest
+            Log.w(TAG, "Batch of " + batch.size() + " profile writes rejected, retrying them one by one", error);
+            for (Entry entry : batch) {
+                requeue(entry, true, waiters);
+            }
+            flushPending();
+            return;
+        }
+
+        Log.w(TAG, "Dropping rejected profile write for " + batch.get(0).upsert.getUid(), error);
+        compactIfNeeded();
+        List<AuthBackend.Callback<Void>> rejected = waiters.get(batch.get(0).upsert.getUid());
+        if (rejected != null) {
+            for (AuthBackend.Callback<Void> waiter : rejected) {
+                waiter.onError(error);
+            }
+        }
+        flushPending();
+    }
+
+    /**
+     * Tries again after a backoff. A flaky backend with the network up gives ConnectivityMonitor
+     * nothing to report, so without this the writes would wait for the next launch.
+     */
+    private void scheduleReflush() {
+        if (mScheduler == null || mReflush != null) return;
+        long delay = REFLUSH_BACKOFF.getDelayMillis(++mFailedFlushes, mRandom);
+        mReflush = mScheduler.schedule(() -> mExecutor.execute(() -> {
+            mReflush = null;
+            flushPending();
+        }), delay);
+    }
+
+    /**
+     * True only if the backend itself turned the writes down. A circuit breaker failing requests
+     * fast says nothing about the writes, and it is shared with sign-in, so a burst of sign-in
+     * failures must not cost anyone their profile.
+     */
+    private boolean isRejected(Exception error) {
+        return !(error instanceof CircuitOpenException) && !mBackend.isTransientError(error);
+    }
+
+    private void requeue(Entry entry, boolean alone,
+                         Map<String, List<AuthBackend.Callback<Void>>> waiters) {
+        String uid = entry.upsert.getUid();
+        // Older than anything queued for this user since, so newer values still win
+        Entry newer = mPending.remove(uid);
+        ProfileUpsert upsert = newer != null ? entry.upsert.mergedWith(newer.upsert) : entry.upsert;
+        long seq = mNextSeq++;
+        append(RECORD_PENDING, seq, upsert);
+        mPending.put(uid, new Entry(seq, upsert, alone));
+        // Still queued, so its waiters hear about it once it is applied or given up on
+        List<AuthBackend.Callback<Void>> forUser = waiters.get(uid);
+        if (forUser != null) {
+            List<AuthBackend.Callback<Void>> later = mWaiters.remove(uid);
+            if (later != null) forUser.addAll(later);
+            mWaiters.put(uid, forUser);
+        }
+    }
+
+    // ---- Persistence ----
+
+    private void ensureLoaded() {
+        if (mLoaded) return;
+        mLoaded = true;
+        mJournalFile = mFile.get();
+        if (mJournalFile == null) return;
+        StartupIoGuard.onDiskIo("profile journal read");
+        if (!mJournalFile.exists()) return;
+
+        long goodLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mJournalFile)))) {
+            while (true) {
+                byte[] body = readRecord(in);
+                if (body == null) break;
+                try {
+                    applyRecord(body);
+                } catch (IOException e) {
+                    // Intact but unreadable, e.g. written by a newer version; the records after it still count
+                    Log.w(TAG, "Skipping unreadable profile journal record", e);
+                }
+                goodLength += 4 + body.length + 8;
+                mRecordCount++;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read profile journal", e);
+        }
+
+        if (goodLength < mJournalFile.length()) {
+            // A write was cut short by a crash; drop the torn tail
+            try (RandomAccessFile file = new RandomAccessFile(mJournalFile, "rw")) {
+                file.setLength(goodLength);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not truncate profile journal", e);
+            }
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Returns the next record's body, or null at the end of the file or at a torn or corrupt record.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > 1 << 20) return null;
+            byte[] body = new byte[length];
+            in.readFully(body);
+            long checksum = in.readLong();
+            return checksum == crc(body) ? body : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void applyRecord(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        long seq = in.readLong();
+        String uid = in.readUTF();
+        mNextSeq = Math.max(mNextSeq, seq + 1);
+        if (type == RECORD_PENDING) {
+            addPending(seq, readUpsert(uid, in));
+        } else if (type == RECORD_CLAIMED) {
+            Entry entry = mPending.get(uid);
+            if (entry != null && entry.seq <= seq) {
+                mPending.remove(uid);
+            }
+        }
+    }
+
+    private void append(byte type, long seq, ProfileUpsert upsert) {
+        if (mJournalFile == null) return;
+        StartupIoGuard.onDiskIo("profile journal write");
+        try (FileOutputStream out = new FileOutputStream(mJournalFile, true)) {
+            out.write(encodeRecord(type, seq, upsert.getUid(), upsert));
+            out.getFD().sync();
+            mRecordCount++;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not append to profile journal", e);
+        }
+    }
+
+    private void claim(List<Entry> batch) {
+        if (mJournalFile == null) return;
+        StartupIoGuard.onDiskIo("profile journal write");
+        try (FileOutputStream out = new FileOutputStream(mJournalFile, true)) {
+            for (Entry entry : batch) {
+                out.write(encodeRecord(RECORD_CLAIMED, entry.seq, entry.upsert.getUid(), null));
+            }
+            out.getFD().sync();
+            mRecordCount += batch.size();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not append to profile journal", e);
+        }
+    }
+
+    /**
+     * Rewrites the file with only the pending writes once it is drained or mostly stale.
+     */
+    private void compactIfNeeded() {
+        boolean stale = mRecordCount > mPending.size() + COMPACTION_SLACK;
+        boolean drained = mPending.isEmpty() && !mFlushing && mRecordCount > 0;
+        if (mJournalFile == null || !(stale || drained)) return;
+
+        File temp = new File(mJournalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            for (Entry entry : mPending.values()) {
+                out.write(encodeRecord(RECORD_PENDING, entry.seq, entry.upsert.getUid(), entry.upsert));
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not compact profile journal", e);
+            return;
+        }
+        if (temp.renameTo(mJournalFile)) {
+            mRecordCount = mPending.size();
+        }
+    }
+
+    private static byte[] encodeRecord(byte type, long seq, String uid, ProfileUpsert upsert) throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeByte(type);
+        body.writeLong(seq);
+        body.writeUTF(uid);
+        if (upsert != null) {
+            writeUpsert(body, upsert);
+        }
+        byte[] bodyArray = bodyBytes.toByteArray();
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(bodyArray.length + 12);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(bodyArray.length);
+        record.write(bodyArray);
+        record.writeLong(crc(bodyArray));
+        return recordBytes.toByteArray();
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static void writeUpsert(DataOutputStream out, ProfileUpsert upsert) throws IOException {
+        Map<String, Object> fields = upsert.getFields();
+        out.writeInt(fields.size());
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            out.writeUTF(field.getKey());
+            Object value = field.getValue();
+            if (value == null) {
+                out.writeByte(VALUE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(VALUE_STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(VALUE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Date) {
+                out.writeByte(VALUE_DATE);
+                out.writeLong(((Date) value).getTime());
+            } else if (value instanceof Long || value instanceof Integer) {
+                out.writeByte(VALUE_LONG);
+                out.writeLong(((Number) value).longValue());
+            } else {
+                throw new IOException("Unsupported profile field type: " + value.getClass());
+            }
+        }
+        List<String> timestamps = upsert.getServerTimestampFields();
+        out.writeInt(timestamps.size());
+        for (String field : timestamps) {
+            out.writeUTF(field);
+        }
+    }
+
+    private static ProfileUpsert readUpsert(String uid, DataInputStream in) throws IOException {
+        int fieldCount = in.readInt();
+        Map<String, Object> fields = new HashMap<>();
+        for (int i = 0; i < fieldCount; i++) {
+            String name = in.readUTF();
+            byte valueType = in.readByte();
+            switch (valueType) {
+                case VALUE_NULL:
+                    fields.put(name, null);
+                    break;
+                case VALUE_STRING:
+                    fields.put(name, in.readUTF());
+                    break;
+                case VALUE_BOOLEAN:
+                    fields.put(name, in.readBoolean());
+                    break;
+                case VALUE_DATE:
+                    fields.put(name, new Date(in.readLong()));
+                    break;
+                case VALUE_LONG:
+                    fields.put(name, in.readLong());
+                    break;
+                default:
+                    throw new IOException("Unknown profile field type: " + valueType);
+            }
+        }
+        int timestampCount = in.readInt();
+        List<String> timestamps = new ArrayList<>(timestampCount);
+        for (int i = 0; i < timestampCount; i++) {
+            timestamps.add(in.readUTF());
+        }
+        return ProfileUpsert.of(uid, fields, timestamps);
+    }
+}
@@ -1,41 +1,37 @@
 package com.example.pointbrew_app;
 
 import android.app.DatePickerDialog;
-import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.Toast;
 
-import androidx.activity.result.ActivityResultLauncher;
-import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.google.android.material.textfield.TextInputEditText;
-import com.google.firebase.auth.FirebaseUser;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
 
 public class RegisterFragment extends Fragment {
 
     private static final String TAG = "RegisterFragment";
+    // Google sign-in results for this page come back under this key
+    private static final String PAGE_KEY = "register";
 
     private TextInputEditText etDisplayName, etBirthDate, etEmail, etPassword;
     private Button btnRegister, btnGoogle;
     private Calendar calendar;
-    private SimpleDateFormat dateFormat;
     
     private AuthManager authManager;
-    private ActivityResultLauncher<Intent> googleSignInLauncher;
+    private GoogleSignInCoordinator googleSignIn;
+    private AuthFormValidator validator;
 
     public RegisterFragment() {
         // Required empty public constructor
@@ -49,28 +45,18 @@ public class RegisterFragment extends Fragment {
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
-        // Initialize the AuthManager
-        authManager = new AuthManager(requireContext());
-        
-        // Register the ActivityResultLauncher for Google Sign-In
-        googleSignInLauncher = registerForActivityResult(
-                new ActivityResultContracts.StartActivityForResult(),
-                result -> {
-                    if (result.getResultCode() == requireActivity().RESULT_OK) {
-                        Intent data = result.getData();
-                        handleGoogleSignInResult(data);
-                    } else {
-                        // Google Sign In failed
-                        Log.e(TAG, "Google Sign In failed. Result code: " + result.getResultCode());
-                        Toast.makeText(getContext(), "Google Sign In failed", Toast.LENGTH_SHORT).show();
-                    }
-                });
+        // Get the shared AuthManager
+        authManager = AuthManager.getInstance(requireContext());
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
-        // Inflate the layout for this fragment
+        // Inflate the layout for this fragment, or take the one the activity inflated ahead of time
+        if (getActivity() instanceof LayoutPreinflater.Host) {
+            return ((LayoutPreinflater.Host) getActivity()).getLayoutPreinflater()
+                    .inflate(inflater, R.layout.fragment_register, container);
+        }
         return inflater.inflate(R.layout.fragment_register, container, false);
     }
 
@@ -79,10 +65,22 @@ public class RegisterFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         
         calendar = Calendar.getInstance();
-        dateFormat = new SimpleDateFormat("MM/dd/yyyy", Locale.US);
         
         initViews(view);
+        // Emails are looked up as they are typed, so a taken one shows before the form is sent
+        validator = AuthFormValidator.forRegistration(authManager.getEmailRegistrations(),
+                ContextCompat.getMainExecutor(requireContext()), this::showFieldError);
         setupListeners();
+
+        // One launcher for the whole activity; results for this page come back while its view is up
+        googleSignIn = ((GoogleSignInCoordinator.Host) requireActivity()).getGoogleSignInCoordinator();
+        googleSignIn.register(PAGE_KEY, getViewLifecycleOwner(), googleSignInCallback());
+    }
+
+    @Override
+    public void onDestroyView() {
+        validator.cancel();
+        super.onDestroyView();
     }
 
     private void initViews(View view) {
@@ -96,52 +94,49 @@ public class RegisterFragment extends Fragment {
 
     private void setupListeners() {
         etBirthDate.setOnClickListener(v -> showDatePickerDialog());
+        // Fields are checked as they are typed in, once the typing pauses
+        watch(etDisplayName, AuthFormValidator.Field.DISPLAY_NAME);
+        watch(etBirthDate, AuthFormValidator.Field.BIRTH_DATE);
+        watch(etEmail, AuthFormValidator.Field.EMAIL);
+        watch(etPassword, AuthFormValidator.Field.PASSWORD);
 
         btnRegister.setOnClickListener(v -> {
             String displayName = etDisplayName.getText().toString().trim();
-            String birthDate = etBirthDate.getText().toString().trim();
             String email = etEmail.getText().toString().trim();
             String password = etPassword.getText().toString().trim();
             
-            if (validateInput(displayName, birthDate, email, password)) {
+            if (validateInput()) {
                 // Show loading
                 btnRegister.setEnabled(false);
                 
-                try {
-                    Date birthDateObj = dateFormat.parse(birthDate);
-                    
-                    // Register with email and password
-                    authManager.registerWithEmail(displayName, email, password, birthDateObj, new AuthManager.AuthCallback() {
-                        @Override
-                        public void onSuccess(FirebaseUser user) {
-                            btnRegister.setEnabled(true);
-                            Toast.makeText(getContext(), "Registration successful!", Toast.LENGTH_SHORT).show();
-                            navigateToMainApp();
-                        }
-
-                        @Override
-                        public void onError(Exception e) {
-                            btnRegister.setEnabled(true);
-                            Toast.makeText(getContext(), "Registration failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        }
-                    });
-                } catch (ParseException e) {
-                    btnRegister.setEnabled(true);
-                    Toast.makeText(getContext(), "Invalid date format", Toast.LENGTH_SHORT).show();
-                }
+                // Register with email and password; the birth date was parsed when it was checked
+                authManager.registerWithEmail(displayName, email, password, validator.getBirthDate(), authManager.bind(getViewLifecycleOwner(), new AuthManager.AuthCallback() {
+                    @Override
+                    public void onSuccess(AuthUser user) {
+                        btnRegister.setEnabled(true);
+                        Toast.makeText(getContext(), "Registration successful!", Toast.LENGTH_SHORT).show();
+                        navigateToMainApp();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        btnRegister.setEnabled(true);
+                        Toast.makeText(getContext(), "Registration failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                }));
             }
         });
 
         btnGoogle.setOnClickListener(v -> {
-            // Launch Google Sign-In flow
-            googleSignInLauncher.launch(authManager.getGoogleSignInIntent());
+            // Returning Google users are signed in silently; everyone else gets the account chooser
+            googleSignIn.start(PAGE_KEY);
         });
     }
     
-    private void handleGoogleSignInResult(Intent data) {
-        authManager.handleGoogleSignInResult(data, new AuthManager.AuthCallback() {
+    private AuthManager.AuthCallback googleSignInCallback() {
+        return new AuthManager.AuthCallback() {
             @Override
-            public void onSuccess(FirebaseUser user) {
+            public void onSuccess(AuthUser user) {
                 Toast.makeText(getContext(), "Google Sign-In successful!", Toast.LENGTH_SHORT).show();
                 navigateToMainApp();
             }
@@ -150,7 +145,7 @@ public class RegisterFragment extends Fragment {
             public void onError(Exception e) {
                 Toast.makeText(getContext(), "Google Sign-In failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             }
-        });
+        };
     }
 
     private void showDatePickerDialog() {
@@ -174,38 +169,47 @@ public class RegisterFragment extends Fragment {
     }
 
     private void updateDateInView() {
-        etBirthDate.setText(dateFormat.format(calendar.getTime()));
+        etBirthDate.setText(AuthFormValidator.formatBirthDate(calendar));
     }
 
-    private boolean validateInput(String displayName, String birthDate, String email, String password) {
-        if (displayName.isEmpty()) {
-            etDisplayName.setError("Name is required");
-            etDisplayName.requestFocus();
-            return false;
-        }
+    private void watch(TextInputEditText field, AuthFormValidator.Field rule) {
+        field.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
 
-        if (birthDate.isEmpty()) {
-            etBirthDate.setError("Birth date is required");
-            etBirthDate.requestFocus();
-            return false;
-        }
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
 
-        if (email.isEmpty()) {
-            etEmail.setError("Email is required");
-            etEmail.requestFocus();
-            return false;
-        }
+            @Override
+            public void afterTextChanged(Editable s) {
+                validator.onTextChanged(rule, s);
+            }
+        });
+    }
 
-        if (password.isEmpty()) {
-            etPassword.setError("Password is required");
-            etPassword.requestFocus();
-            return false;
+    private TextInputEditText fieldView(AuthFormValidator.Field field) {
+        switch (field) {
+            case DISPLAY_NAME:
+                return etDisplayName;
+            case BIRTH_DATE:
+                return etBirthDate;
+            case EMAIL:
+                return etEmail;
+            default:
+                return etPassword;
         }
-        
-        // Password length validation
-        if (password.length() < 6) {
-            etPassword.setError("Password must be at least 6 characters");
-            etPassword.requestFocus();
+    }
+
+    private void showFieldError(AuthFormValidator.Field field, String error) {
+        fieldView(field).setError(error);
+    }
+
+    private boolean validateInput() {
+        AuthFormValidator.Field invalid = validator.validateAll();
+        if (invalid != null) {
+            fieldView(invalid).requestFocus();
             return false;
         }
 
@@ -0,0 +1,86 @@
+package com.example.pointbrew_app;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with jitter and a cap on the number of attempts.
+ */
+public final class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new Builder().build();
+
+    private final int mMaxAttempts;
+    private final long mInitialDelayMillis;
+    private final long mMaxDelayMillis;
+    private final double mMultiplier;
+    private final double mJitter;
+
+    private RetryPolicy(Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mInitialDelayMillis = builder.mInitialDelayMillis;
+        mMaxDelayMillis = builder.mMaxDelayMillis;
+        mMultiplier = builder.mMultiplier;
+        mJitter = builder.mJitter;
+    }
+
+    /**
+     * Total attempts allowed, including the first one.
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Delay before retry number {@code retry} (1 for the first retry).
+     *
+     * The delay grows by the multiplier each retry up to the maximum, then a random share of up
+     * to {@code jitter} of it is subtracted so that clients don't retry in lockstep.
+     */
+    public long getDelayMillis(int retry, Random random) {
+        double delay = mInitialDelayMillis * Math.pow(mMultiplier, Math.max(0, retry - 1));
+        delay = Math.min(delay, mMaxDelayMillis);
+        return (long) (delay * (1 - mJitter * random.nextDouble()));
+    }
+
+    public static final class Builder {
+        private int mMaxAttempts = 3;
+        private long mInitialDelayMillis = 500;
+        private long mMaxDelayMillis = 5_000;
+        private double mMultiplier = 2;
+        private double mJitter = 0.5;
+
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1");
+            mMaxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder setInitialDelayMillis(long initialDelayMillis) {
+            mInitialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        public Builder setMaxDelayMillis(long maxDelayMillis) {
+            mMaxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public Builder setMultiplier(double multiplier) {
+            mMultiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Share of each delay, between 0 and 1, that may be randomly taken off.
+         */
+        public Builder setJitter(double jitter) {
+            if (jitter < 0 || jitter > 1) throw new IllegalArgumentException("jitter must be between 0 and 1");
+            mJitter = jitter;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.pointbrew_app;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Decorator that retries transient failures with backoff and fails fast while the
+ * backend is down.
+ *
+ * Only failures the delegate reports as {@link AuthBackend#isTransientError transient} are
+ * retried or counted by the circuit breaker; wrong passwords and the like go straight back
+ * to the caller. Account creation is never retried, since a request that timed out may
+ * still have created the account.
+ */
+public class RetryingAuthBackend extends ForwardingAuthBackend {
+    private static final String TAG = "RetryingAuthBackend";
+
+    private final RetryPolicy mPolicy;
+    private final CircuitBreaker mCircuitBreaker;
+    private final Scheduler mScheduler;
+    private final Random mRandom;
+
+    public RetryingAuthBackend(AuthBackend delegate, RetryPolicy policy, CircuitBreaker circuitBreaker,
+                               Scheduler scheduler, Random random) {
+        super(delegate);
+        mPolicy = policy;
+        mCircuitBreaker = circuitBreaker;
+        mScheduler = scheduler;
+        mRandom = random;
+    }
+
+    @Override
+    public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+        call("signInWithEmail", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().signInWithEmail(email, password, cb));
+    }
+
+    @Override
+    public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+        call("createUserWithEmail", 1, callback,
+                cb -> delegate().createUserWithEmail(email, password, cb));
+    }
+
+    @Override
+    public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+        call("signInWithGoogleIdToken", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().signInWithGoogleIdToken(idToken, cb));
+    }
+
+    @Override
+    public void sendPasswordResetEmail(String email, Callback<Void> callback) {
+        call("sendPasswordResetEmail", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().sendPasswordResetEmail(email, cb));
+    }
+
+    @Override
+    public void isEmailRegistered(String email, Callback<Boolean> callback) {
+        call("isEmailRegistered", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().isEmailRegistered(email, cb));
+    }
+
+    @Override
+    public void upsertProfile(ProfileUpsert upsert, Callback<Void> callback) {
+        call("upsertProfile", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().upsertProfile(upsert, cb));
+    }
+
+    @Override
+    public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+        call("upsertProfiles", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().upsertProfiles(upserts, cb));
+    }
+
+    @Override
+    public void getIdToken(boolean forceRefresh, Callback<IdToken> callback) {
+        call("getIdToken", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().getIdToken(forceRefresh, cb));
+    }
+
+    @Override
+    public void fetchProfile(String uid, Callback<UserProfile> callback) {
+        call("fetchProfile", mPolicy.getMaxAttempts(), callback,
+                cb -> delegate().fetchProfile(uid, cb));
+    }
+
+    /**
+     * Also true for the {@link CircuitOpenException} this backend fails fast with, which the
+     * delegate has never heard of.
+     */
+    @Override
+    public boolean isTransientError(Exception e) {
+        return e instanceof CircuitOpenException || super.isTransientError(e);
+    }
+
+    private <T> void call(String operation, int maxAttempts, Callback<T> callback,
+                          Consumer<Callback<T>> request) {
+        attempt(operation, 1, maxAttempts, callback, request);
+    }
+
+    private <T> void attempt(String operation, int attempt, int maxAttempts, Callback<T> callback,
+                             Consumer<Callback<T>> request) {
+        if (!mCircuitBreaker.allowRequest()) {
+            callback.onError(new CircuitOpenException());
+            return;
+        }
+
+        request.accept(new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                mCircuitBreaker.onSuccess();
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!isTransientError(e)) {
+                    // The backend answered, it just said no
+                    mCircuitBreaker.onSuccess();
+                    callback.onError(e);
+                    return;
+                }
+
+                mCircuitBreaker.onFailure();
+                if (attempt >= maxAttempts) {
+                    callback.onError(e);
+                    return;
+                }
+
+                long delay = mPolicy.getDelayMillis(attempt, mRandom);
+                Log.w(TAG, operation + " failed (attempt " + attempt + "), retrying in " + delay + "ms", e);
+                mScheduler.schedule(() -> attempt(operation, attempt + 1, maxAttempts, callback, request), delay);
+            }
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs tasks after a delay, replaceable in tests.
+ */
+public interface Scheduler {
+
+    interface Cancellable {
+        void cancel();
+    }
+
+    @NonNull
+    Cancellable schedule(@NonNull Runnable task, long delayMillis);
+}
@@ -0,0 +1,117 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.Random;
+
+/**
+ * A counter spread over several shard documents so it can take more writes per second than
+ * Firestore sustains on a single document.
+ *
+ * Each increment goes to a random shard. Reading sums the shards, which costs one document
+ * read per shard, so totals are cached for a while. Increments made through this instance
+ * are added to the cached total straight away; others show up when it expires.
+ */
+public class ShardedCounter {
+
+    private final CounterStore mStore;
+    private final String mPath;
+    private final int mShardCount;
+    private final Random mRandom;
+    private final Clock mClock;
+    private final long mCacheTtlMillis;
+    private final SingleFlight<Long> mReads = new SingleFlight<>();
+
+    // Guarded by this
+    private boolean mCached;
+    private long mCachedTotal;
+    private long mCachedAtMillis;
+    // Bumped by invalidate() so a read started before it isn't cached
+    private int mGeneration;
+
+    public ShardedCounter(@NonNull CounterStore store, @NonNull String path, int shardCount,
+                          @NonNull Random random, @NonNull Clock clock, long cacheTtlMillis) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        mStore = store;
+        mPath = path;
+        mShardCount = shardCount;
+        mRandom = random;
+        mClock = clock;
+        mCacheTtlMillis = cacheTtlMillis;
+    }
+
+    public String getPath() {
+        return mPath;
+    }
+
+    public int getShardCount() {
+        return mShardCount;
+    }
+
+    public void increment(long delta, @NonNull AuthBackend.Callback<Void> callback) {
+        int shard;
+        synchronized (mRandom) {
+            shard = mRandom.nextInt(mShardCount);
+        }
+        mStore.incrementShard(mPath, shard, delta, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                synchronized (ShardedCounter.this) {
+                    if (mCached) {
+                        mCachedTotal += delta;
+                    }
+                }
+                callback.onSuccess(null);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * The total across shards, from the cache while it is fresh. Concurrent reads share one
+     * trip to the store.
+     */
+    public void read(@NonNull AuthBackend.Callback<Long> callback) {
+        int generation;
+        synchronized (this) {
+            if (mCached && mClock.nowMillis() - mCachedAtMillis < mCacheTtlMillis) {
+                long total = mCachedTotal;
+                callback.onSuccess(total);
+                return;
+            }
+            generation = mGeneration;
+        }
+        mReads.execute(mPath, callback, shared -> mStore.readTotal(mPath, new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long total) {
+                synchronized (ShardedCounter.this) {
+                    if (generation == mGeneration) {
+                        mCached = true;
+                        mCachedTotal = total;
+                        mCachedAtMillis = mClock.nowMillis();
+                    }
+                }
+                shared.onSuccess(total);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                shared.onError(e);
+            }
+        }));
+    }
+
+    /**
+     * Forgets the cached total so the next read goes to the store.
+     */
+    public synchronized void invalidate() {
+        mCached = false;
+        mGeneration++;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces concurrent requests with the same key into a single call.
+ *
+ * The first caller for a key starts the call; callers that arrive while it is in flight are
+ * queued and all of them receive the same result. Once the call completes the key is free again.
+ * A waiter whose callback throws doesn't keep the result from the others; the exception is
+ * rethrown to whoever completed the call once every waiter has been told.
+ */
+public class SingleFlight<T> {
+
+    private final Map<String, List<AuthBackend.Callback<T>>> mInFlight = new HashMap<>();
+
+    /**
+     * Runs {@code call} unless a call for {@code key} is already in flight.
+     *
+     * @return true if this invocation started the call, false if it joined an existing one
+     */
+    public boolean execute(@NonNull String key, @NonNull AuthBackend.Callback<T> callback,
+                           @NonNull Consumer<AuthBackend.Callback<T>> call) {
+        synchronized (mInFlight) {
+            List<AuthBackend.Callback<T>> waiting = mInFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                return false;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            mInFlight.put(key, waiting);
+        }
+
+        AtomicBoolean completed = new AtomicBoolean();
+        try {
+            call.accept(new AuthBackend.Callback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    if (completed.compareAndSet(false, true)) {
+                        deliver(complete(key), waiter -> waiter.onSuccess(result));
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    if (completed.compareAndSet(false, true)) {
+                        deliver(complete(key), waiter -> waiter.onError(e));
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Once the call has completed, whatever is thrown came from a waiter and is theirs
+            if (!completed.compareAndSet(false, true)) throw e;
+            deliver(complete(key), waiter -> waiter.onError(e));
+        }
+        return true;
+    }
+
+    public boolean isInFlight(@NonNull String key) {
+        synchronized (mInFlight) {
+            return mInFlight.containsKey(key);
+        }
+    }
+
+    private static <T> void deliver(List<AuthBackend.Callback<T>> waiters,
+                                    Consumer<AuthBackend.Callback<T>> delivery) {
+        RuntimeException thrown = null;
+        for (AuthBackend.Callback<T> waiter : waiters) {
+            try {
+                delivery.accept(waiter);
+            } catch (RuntimeException e) {
+                if (thrown == null) {
+                    thrown = e;
+                } else {
+                    thrown.addSuppressed(e);
+                }
+            }
+        }
+        if (thrown != null) throw thrown;
+    }
+
+    private List<AuthBackend.Callback<T>> complete(String key) {
+        synchronized (mInFlight) {
+            List<AuthBackend.Callback<T>> waiting = mInFlight.remove(key);
+            return waiting != null ? waiting : new ArrayList<>();
+        }
+    }
+}
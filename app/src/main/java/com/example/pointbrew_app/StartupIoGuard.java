@@ -0,0 +1,134 @@
+package com.example.pointbrew_app;
+
+import android.os.Build;
+import android.os.StrictMode;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Catches disk and network I/O on the main thread while the app is launching.
+ *
+ * Our own file code reports through {@link #onDiskIo}; between {@link #beginLaunch} and
+ * {@link #endLaunch} a report from the launching thread is recorded and, in strict mode, throws.
+ * Debug builds also run the launch under a StrictMode policy that detects disk reads, disk
+ * writes and network access anywhere, including in libraries. What it finds is logged and
+ * recorded but doesn't crash, since Firebase and Play services do some I/O of their own.
+ */
+public class StartupIoGuard {
+    private static final String TAG = "StartupIoGuard";
+
+    private static final StartupIoGuard sInstance = new StartupIoGuard();
+
+    private volatile Thread mLaunchThread;
+    private volatile boolean mStrict;
+    private StrictMode.ThreadPolicy mPreviousPolicy;
+    // Guarded by this
+    private final List<String> mViolations = new ArrayList<>();
+
+    public static StartupIoGuard get() {
+        return sInstance;
+    }
+
+    StartupIoGuard() {
+    }
+
+    /**
+     * Reports disk I/O about to happen on the current thread.
+     *
+     * @param what a short description, e.g. "profile journal read"
+     */
+    public static void onDiskIo(@NonNull String what) {
+        sInstance.check("disk", what);
+    }
+
+    /**
+     * Starts guarding the calling thread, which should be the main thread.
+     *
+     * @param strict throw when our code reports I/O on it
+     */
+    public void beginLaunch(boolean strict) {
+        synchronized (this) {
+            mViolations.clear();
+        }
+        mStrict = strict;
+        mLaunchThread = Thread.currentThread();
+    }
+
+    /**
+     * Also watches the launching thread with StrictMode until {@link #endLaunch}.
+     */
+    public void installStrictMode() {
+        if (mLaunchThread != Thread.currentThread()) {
+            throw new IllegalStateException("installStrictMode() must be called on the launching thread");
+        }
+        mPreviousPolicy = StrictMode.getThreadPolicy();
+        StrictMode.ThreadPolicy.Builder policy = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .penaltyLog();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            policy.penaltyListener(Runnable::run,
+                    violation -> record("strictmode", violation.getClass().getSimpleName()));
+        }
+        StrictMode.setThreadPolicy(policy.build());
+    }
+
+    /**
+     * Stops guarding and puts back the thread's earlier StrictMode policy. Call it on the thread
+     * that began the launch.
+     */
+    public void endLaunch() {
+        if (mLaunchThread == null) return;
+        mLaunchThread = null;
+        if (mPreviousPolicy != null) {
+            StrictMode.setThreadPolicy(mPreviousPolicy);
+            mPreviousPolicy = null;
+        }
+        List<String> violations = getViolations();
+        if (!violations.isEmpty()) {
+            Log.w(TAG, violations.size() + " I/O calls on the main thread during launch: " + violations);
+        }
+    }
+
+    public boolean isLaunching() {
+        return mLaunchThread != null;
+    }
+
+    /**
+     * I/O seen on the launching thread since {@link #beginLaunch}, as "kind: what".
+     */
+    public synchronized List<String> getViolations() {
+        return Collections.unmodifiableList(new ArrayList<>(mViolations));
+    }
+
+    /**
+     * @throws IllegalStateException listing what was seen, if anything
+     */
+    public void assertNoViolations() {
+        List<String> violations = getViolations();
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("I/O on the main thread during launch: " + violations);
+        }
+    }
+
+    void check(String kind, String what) {
+        if (Thread.currentThread() != mLaunchThread) return;
+        record(kind, what);
+        if (mStrict) {
+            throw new IllegalStateException(kind + " I/O on the main thread during launch: " + what);
+        }
+    }
+
+    private void record(String kind, String what) {
+        synchronized (this) {
+            mViolations.add(kind + ": " + what);
+        }
+        Log.w(TAG, kind + " I/O on the main thread during launch: " + what);
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.pointbrew_app;
+
+import android.os.Process;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named sections around the phases of a cold start.
+ *
+ * Each section shows up in systrace/Perfetto through {@link Trace}, and is also timed here so
+ * the launch can be checked in tests and exported as a timeline in the Chrome trace event format
+ * (open it in Perfetto or chrome://tracing). Sections nest per thread, like {@link Trace}, and
+ * are only recorded between {@link #start()} and {@link #finish()}.
+ */
+public class StartupTracer {
+    private static final String TAG = "StartupTracer";
+
+    private static final StartupTracer sInstance = new StartupTracer(System::nanoTime);
+
+    /**
+     * One finished section.
+     */
+    public static final class Phase {
+        private final String mName;
+        private final long mStartNanos;
+        private final long mDurationNanos;
+        private final long mThreadId;
+        private final String mThreadName;
+        private final int mDepth;
+
+        Phase(String name, long startNanos, long durationNanos, long threadId, String threadName, int depth) {
+            mName = name;
+            mStartNanos = startNanos;
+            mDurationNanos = durationNanos;
+            mThreadId = threadId;
+            mThreadName = threadName;
+            mDepth = depth;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Since {@link #start()}.
+         */
+        public long getStartNanos() {
+            return mStartNanos;
+        }
+
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        public double getDurationMillis() {
+            return mDurationNanos / 1e6;
+        }
+
+        public String getThreadName() {
+            return mThreadName;
+        }
+
+        /**
+         * How many sections this one is nested in on its thread.
+         */
+        public int getDepth() {
+            return mDepth;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %.2f ms", mName, getDurationMillis());
+        }
+    }
+
+    private static final class OpenSection {
+        final String name;
+        final long startNanos;
+        // Opened while recording, so it is recorded when it ends even if the launch ended first
+        final boolean recorded;
+
+        OpenSection(String name, long startNanos, boolean recorded) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.recorded = recorded;
+        }
+    }
+
+    private final LongSupplier mNanoTime;
+    private final ThreadLocal<ArrayDeque<OpenSection>> mOpen = ThreadLocal.withInitial(ArrayDeque::new);
+
+    // Guarded by this
+    private long mOriginNanos;
+    private boolean mRecording;
+    private final List<Phase> mPhases = new ArrayList<>();
+
+    /**
+     * The tracer for this process's launch.
+     */
+    public static StartupTracer get() {
+        return sInstance;
+    }
+
+    StartupTracer(LongSupplier nanoTime) {
+        mNanoTime = nanoTime;
+    }
+
+    /**
+     * Starts recording, with times measured from now. Anything recorded before is dropped.
+     */
+    public synchronized void start() {
+        mOriginNanos = mNanoTime.getAsLong();
+        mPhases.clear();
+        mRecording = true;
+    }
+
+    /**
+     * Stops recording. Sections still open are recorded when they end; later ones only go to
+     * systrace.
+     *
+     * @return false if the launch had already finished
+     */
+    public synchronized boolean finish() {
+        boolean wasRecording = mRecording;
+        mRecording = false;
+        return wasRecording;
+    }
+
+    public synchronized boolean isRecording() {
+        return mRecording;
+    }
+
+    public void beginSection(@NonNull String name) {
+        Trace.beginSection(name);
+        boolean recorded = isRecording();
+        mOpen.get().push(new OpenSection(name, recorded ? mNanoTime.getAsLong() : 0, recorded));
+    }
+
+    /**
+     * Ends the section most recently begun on this thread.
+     */
+    public void endSection() {
+        ArrayDeque<OpenSection> open = mOpen.get();
+        OpenSection section = open.poll();
+        Trace.endSection();
+        if (section == null) {
+            throw new IllegalStateException("endSection() without beginSection()");
+        }
+        if (!section.recorded) return;
+        long end = mNanoTime.getAsLong();
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            mPhases.add(new Phase(section.name, section.startNanos - mOriginNanos, end - section.startNanos,
+                    thread.getId(), thread.getName(), open.size()));
+        }
+    }
+
+    /**
+     * Finished sections, in the order they ended.
+     */
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<>(mPhases));
+    }
+
+    /**
+     * The first finished section with this name.
+     */
+    @Nullable
+    public synchronized Phase getPhase(@NonNull String name) {
+        for (Phase phase : mPhases) {
+            if (phase.getName().equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The recorded sections as a Chrome trace event file.
+     */
+    public String toJson() {
+        List<Phase> phases = getPhases();
+        int pid = Process.myPid();
+        StringBuilder json = new StringBuilder("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        Map<Long, String> threads = new LinkedHashMap<>();
+        for (Phase phase : phases) {
+            threads.put(phase.mThreadId, phase.mThreadName);
+        }
+        boolean first = true;
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(pid)
+                    .append(",\"tid\":").append(thread.getKey())
+                    .append(",\"args\":{\"name\":");
+            appendString(json, thread.getValue());
+            json.append("}}");
+        }
+        for (Phase phase : phases) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"name\":");
+            appendString(json, phase.mName);
+            json.append(",\"cat\":\"startup\",\"ph\":\"X\",\"pid\":").append(pid)
+                    .append(",\"tid\":").append(phase.mThreadId)
+                    // Trace event times are microseconds
+                    .append(String.format(Locale.US, ",\"ts\":%.3f,\"dur\":%.3f",
+                            phase.mStartNanos / 1e3, phase.mDurationNanos / 1e3))
+                    .append(",\"args\":{\"depth\":").append(phase.mDepth).append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Writes {@link #toJson()} to {@code file}, replacing it whole.
+     */
+    public void writeTo(@NonNull File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer out = new FileWriter(temp)) {
+            out.write(toJson());
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Couldn't replace " + file);
+        }
+    }
+
+    /**
+     * Logs a summary of the launch and writes the timeline on a background thread.
+     *
+     * @param file resolved on that thread
+     */
+    public void writeInBackground(@NonNull Supplier<File> file) {
+        ExecutorScheduler.backgroundThreadFactory("startup-trace").newThread(() -> {
+            Log.i(TAG, "Startup: " + getPhases());
+            File target = file.get();
+            try {
+                writeTo(target);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write startup trace to " + target, e);
+            }
+        }).start();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
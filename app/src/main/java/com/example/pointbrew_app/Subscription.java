@@ -0,0 +1,13 @@
+package com.example.pointbrew_app;
+
+/**
+ * A registered listener or observer; {@link #unsubscribe()} stops further calls to it.
+ */
+public interface Subscription {
+
+    /**
+     * Idempotent. A call already handed to an executor may still arrive, but nothing queued
+     * after this returns will.
+     */
+    void unsubscribe();
+}
@@ -0,0 +1,77 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * The {@code users/{uid}} document as the app reads it.
+ */
+public final class UserProfile {
+
+    private final String mUid;
+    private final String mEmail;
+    private final String mDisplayName;
+    private final Date mBirthDate;
+    private final String mPhotoUrl;
+    private final boolean mGoogleSignIn;
+
+    public UserProfile(@NonNull String uid, @Nullable String email, @Nullable String displayName,
+                       @Nullable Date birthDate, @Nullable String photoUrl, boolean googleSignIn) {
+        mUid = uid;
+        mEmail = email;
+        mDisplayName = displayName;
+        mBirthDate = birthDate != null ? new Date(birthDate.getTime()) : null;
+        mPhotoUrl = photoUrl;
+        mGoogleSignIn = googleSignIn;
+    }
+
+    @NonNull
+    public String getUid() {
+        return mUid;
+    }
+
+    @Nullable
+    public String getEmail() {
+        return mEmail;
+    }
+
+    @Nullable
+    public String getDisplayName() {
+        return mDisplayName;
+    }
+
+    @Nullable
+    public Date getBirthDate() {
+        return mBirthDate != null ? new Date(mBirthDate.getTime()) : null;
+    }
+
+    @Nullable
+    public String getPhotoUrl() {
+        return mPhotoUrl;
+    }
+
+    public boolean isGoogleSignIn() {
+        return mGoogleSignIn;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserProfile)) return false;
+        UserProfile other = (UserProfile) o;
+        return mGoogleSignIn == other.mGoogleSignIn
+                && mUid.equals(other.mUid)
+                && Objects.equals(mEmail, other.mEmail)
+                && Objects.equals(mDisplayName, other.mDisplayName)
+                && Objects.equals(mBirthDate, other.mBirthDate)
+                && Objects.equals(mPhotoUrl, other.mPhotoUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mUid, mEmail, mDisplayName, mBirthDate, mPhotoUrl, mGoogleSignIn);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AuthBootstrapTest {
+
+    private static final AuthUser ANN = new AuthUser("u1", "ann@example.com", "Ann", null);
+
+    private InMemoryAuthBackend store;
+    private HeldWriteBackend backend;
+    private AuthManager authManager;
+
+    /**
+     * Holds profile writes until released.
+     */
+    private static final class HeldWriteBackend extends ForwardingAuthBackend {
+        final List<Runnable> held = new ArrayList<>();
+        boolean hold;
+
+        HeldWriteBackend(InMemoryAuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+            if (hold) {
+                held.add(() -> super.upsertProfiles(upserts, callback));
+            } else {
+                super.upsertProfiles(upserts, callback);
+            }
+        }
+
+        void release() {
+            List<Runnable> writes = new ArrayList<>(held);
+            held.clear();
+            for (Runnable write : writes) {
+                write.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        store = new InMemoryAuthBackend();
+        backend = new HeldWriteBackend(store);
+        authManager = new AuthManager.Builder(backend, () -> null).build();
+    }
+
+    private static AuthBootstrap.Step step(List<String> started, String name, CompletableFuture<?> result) {
+        return user -> {
+            started.add(name);
+            return result;
+        };
+    }
+
+    @Test
+    public void steps_allStartOnceSignedIn() {
+        List<String> started = new ArrayList<>();
+        CompletableFuture<Object> write = new CompletableFuture<>();
+        CompletableFuture<Object> fetch = new CompletableFuture<>();
+        CompletableFuture<Object> loyalty = new CompletableFuture<>();
+        CompletableFuture<AuthUser> signIn = new CompletableFuture<>();
+        CompletableFuture<AuthUser> ready = new AuthBootstrap(step(started, "profile write", write),
+                step(started, "profile fetch", fetch), step(started, "loyalty summary", loyalty)).start(signIn);
+        assertTrue(started.isEmpty());
+
+        signIn.complete(ANN);
+
+        // Every step is running before any of them has finished
+        assertEquals(List.of("profile write", "profile fetch", "loyalty summary"), started);
+        loyalty.complete("summary");
+        write.complete(null);
+        assertFalse(ready.isDone());
+        fetch.complete(null);
+        assertSame(ANN, ready.join());
+    }
+
+    @Test
+    public void newBootstrap_waitsForProfileWrite() {
+        backend.hold = true;
+        CompletableFuture<AuthUser> ready = authManager.newBootstrap()
+                .start(authManager.registerWithEmailAsync("Ann", "ann@example.com", "secret1", null));
+        assertFalse(ready.isDone());
+
+        backend.release();
+
+        AuthUser user = ready.join();
+        assertEquals("ann@example.com", user.getEmail());
+        assertEquals("Ann", store.getProfile(user.getUid()).get(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertEquals("Ann", authManager.getProfileCache().peek(user.getUid()).getDisplayName());
+    }
+
+    @Test
+    public void cancelledBootstrap_leavesProfileWriteToOtherWaiters() {
+        backend.hold = true;
+        AuthUser user = authManager.registerWithEmailAsync("Ann", "ann@example.com", "secret1", null).join();
+        CompletableFuture<AuthUser> ready = authManager.newBootstrap(u -> new CompletableFuture<>())
+                .start(CompletableFuture.completedFuture(user));
+        CompletableFuture<Void> otherWaiter = authManager.awaitProfileWrite(user.getUid());
+
+        ready.cancel(false);
+        assertFalse(otherWaiter.isDone());
+        backend.release();
+
+        assertTrue(otherWaiter.isDone());
+        assertFalse(otherWaiter.isCompletedExceptionally());
+    }
+
+    @Test
+    public void failedSignIn_skipsSteps() throws Exception {
+        boolean[] started = new boolean[1];
+
+        CompletableFuture<AuthUser> ready = new AuthBootstrap(u -> {
+            started[0] = true;
+            return CompletableFuture.completedFuture(null);
+        }).start(authManager.loginWithEmailAsync("nobody@example.com", "secret1"));
+
+        try {
+            ready.get(5, TimeUnit.SECONDS);
+            fail("expected sign-in to fail");
+        } catch (ExecutionException expected) {
+            assertFalse(started[0]);
+        }
+    }
+
+    @Test
+    public void failedStep_failsReadyAndCancelsTheRest() throws Exception {
+        CompletableFuture<Object> slow = new CompletableFuture<>();
+        CompletableFuture<Object> broken = new CompletableFuture<>();
+        broken.completeExceptionally(new IllegalStateException("no stores nearby"));
+
+        CompletableFuture<AuthUser> ready = new AuthBootstrap(u -> slow, u -> broken)
+                .start(CompletableFuture.completedFuture(new AuthUser("u1", "ann@example.com", "Ann", null)));
+
+        assertTrue(ready.isCompletedExceptionally());
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    public void cancel_cancelsRunningSteps() {
+        CompletableFuture<Object> step = new CompletableFuture<>();
+        CompletableFuture<AuthUser> signIn = new CompletableFuture<>();
+        CompletableFuture<AuthUser> ready = new AuthBootstrap(u -> step).start(signIn);
+
+        signIn.complete(new AuthUser("u1", "ann@example.com", "Ann", null));
+        assertFalse(ready.isDone());
+        ready.cancel(false);
+
+        assertTrue(step.isCancelled());
+    }
+
+    @Test
+    public void cancelBeforeSignIn_neverStartsSteps() {
+        boolean[] started = new boolean[1];
+        CompletableFuture<AuthUser> signIn = new CompletableFuture<>();
+        CompletableFuture<AuthUser> ready = new AuthBootstrap(u -> {
+            started[0] = true;
+            return new CompletableFuture<>();
+        }).start(signIn);
+
+        ready.cancel(false);
+        signIn.complete(new AuthUser("u1", "ann@example.com", "Ann", null));
+
+        assertTrue(signIn.isCancelled());
+        assertFalse(started[0]);
+        try {
+            ready.join();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void awaitProfileWrite_withNothingPending_isDone() {
+        assertTrue(authManager.awaitProfileWrite("u1").isDone());
+    }
+}
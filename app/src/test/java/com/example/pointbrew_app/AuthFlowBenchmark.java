@@ -0,0 +1,174 @@
+package com.example.pointbrew_app;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latency of the AuthManager flows over a simulated network.
+ *
+ * Delays and iteration counts can be changed with
+ * {@code -Dauth.benchmark.delays=0,20,80 -Dauth.benchmark.iterations=500}.
+ * "Overhead" is the time between the backend completing and the caller's callback running.
+ */
+public class AuthFlowBenchmark {
+
+    private static final long[] DELAYS_MILLIS = Arrays.stream(
+            System.getProperty("auth.benchmark.delays", "0,5,20").split(","))
+            .mapToLong(d -> Long.parseLong(d.trim())).toArray();
+    private static final int ITERATIONS = Integer.getInteger("auth.benchmark.iterations", 50);
+    private static final int WARMUP_ITERATIONS = 10;
+
+    private interface Flow {
+        void run(AuthManager authManager, int iteration, AuthManager.AuthCallback callback);
+    }
+
+    /**
+     * Records when the backend hands a sign-in result back, before AuthManager sees it.
+     */
+    private static final class TimestampingBackend extends ForwardingAuthBackend {
+        volatile long completedNanos;
+
+        TimestampingBackend(AuthBackend delegate) {
+            super(delegate);
+        }
+
+        private Callback<SignInResult> stamp(Callback<SignInResult> callback) {
+            return new Callback<SignInResult>() {
+                @Override
+                public void onSuccess(SignInResult result) {
+                    completedNanos = System.nanoTime();
+                    callback.onSuccess(result);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    completedNanos = System.nanoTime();
+                    callback.onError(e);
+                }
+            };
+        }
+
+        @Override
+        public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+            super.signInWithEmail(email, password, stamp(callback));
+        }
+
+        @Override
+        public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+            super.createUserWithEmail(email, password, stamp(callback));
+        }
+
+        @Override
+        public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+            super.signInWithGoogleIdToken(idToken, stamp(callback));
+        }
+    }
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void loginWithEmail() throws Exception {
+        benchmark("loginWithEmail",
+                (backend) -> backend.addAccount("bench@example.com", "password", "Bench"),
+                (authManager, i, callback) -> authManager.loginWithEmail("bench@example.com", "password", callback));
+    }
+
+    @Test
+    public void registerWithEmail() throws Exception {
+        benchmark("registerWithEmail", (backend) -> { },
+                (authManager, i, callback) -> authManager.registerWithEmail(
+                        "Bench", "bench" + i + "@example.com", "password", null, callback));
+    }
+
+    @Test
+    public void googleSignIn() throws Exception {
+        benchmark("googleSignIn", (backend) -> { },
+                (authManager, i, callback) -> authManager.firebaseAuthWithGoogle("bench@example.com", callback));
+    }
+
+    private interface Setup {
+        void apply(InMemoryAuthBackend backend);
+    }
+
+    private void benchmark(String name, Setup setup, Flow flow) throws Exception {
+        for (long delay : DELAYS_MILLIS) {
+            InMemoryAuthBackend inMemory = new InMemoryAuthBackend();
+            setup.apply(inMemory);
+            FaultInjectingAuthBackend network = new FaultInjectingAuthBackend(inMemory, scheduler, 42)
+                    .setLatency(delay, 0);
+            TimestampingBackend backend = new TimestampingBackend(network);
+            AuthManager authManager = new AuthManager.Builder(backend, () -> null).build();
+
+            long[] latencies = new long[ITERATIONS];
+            long[] overheads = new long[ITERATIONS];
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                long[] result = runOnce(authManager, backend, flow, i + WARMUP_ITERATIONS);
+                if (i >= 0) {
+                    latencies[i] = result[0];
+                    overheads[i] = result[1];
+                }
+            }
+            Arrays.sort(latencies);
+            Arrays.sort(overheads);
+
+            System.out.printf("%-18s delay=%3dms  p50=%8.3fms p90=%8.3fms p99=%8.3fms  overhead p50=%6.1fus p99=%6.1fus%n",
+                    name, delay,
+                    millis(percentile(latencies, 50)), millis(percentile(latencies, 90)),
+                    millis(percentile(latencies, 99)),
+                    micros(percentile(overheads, 50)), micros(percentile(overheads, 99)));
+            assertTrue(percentile(latencies, 50) >= TimeUnit.MILLISECONDS.toNanos(delay));
+        }
+    }
+
+    private static long[] runOnce(AuthManager authManager, TimestampingBackend backend, Flow flow,
+                                  int iteration) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        long[] endNanos = new long[1];
+        long start = System.nanoTime();
+        flow.run(authManager, iteration, new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                endNanos[0] = System.nanoTime();
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                endNanos[0] = System.nanoTime();
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        return new long[]{endNanos[0] - start, endNanos[0] - backend.completedNanos};
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.pointbrew_app;
+
+import com.example.pointbrew_app.AuthFormValidator.Field;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AuthFormValidatorTest {
+
+    private static final long DEBOUNCE_MILLIS = AuthFormValidator.DEFAULT_DEBOUNCE_MILLIS;
+
+    // 2026-10-18 noon, local time
+    private final FakeClock clock = new FakeClock(new GregorianCalendar(2026, Calendar.OCTOBER, 18, 12, 0)
+            .getTimeInMillis());
+    private final InMemoryAuthBackend accounts = new InMemoryAuthBackend();
+    private final HeldLookupBackend backend = new HeldLookupBackend(accounts);
+    private final List<String> reported = new ArrayList<>();
+    private EmailRegistrationCache emailRegistrations;
+    private AuthFormValidator validator;
+
+    private static final class HeldLookupBackend extends ForwardingAuthBackend {
+        final List<Runnable> held = new ArrayList<>();
+        boolean hold;
+
+        HeldLookupBackend(InMemoryAuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void isEmailRegistered(String email, Callback<Boolean> callback) {
+            if (hold) {
+                held.add(() -> super.isEmailRegistered(email, callback));
+            } else {
+                super.isEmailRegistered(email, callback);
+            }
+        }
+
+        void release() {
+            List<Runnable> lookups = new ArrayList<>(held);
+            held.clear();
+            for (Runnable lookup : lookups) {
+                lookup.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        accounts.addAccount("ann@example.com", "secret", "Ann");
+        emailRegistrations = new EmailRegistrationCache(backend::isEmailRegistered, clock,
+                EmailRegistrationCache.DEFAULT_TTL_MILLIS, EmailRegistrationCache.DEFAULT_CAPACITY);
+        validator = newValidator(EnumSet.allOf(Field.class), AuthFormValidator.MIN_PASSWORD_LENGTH,
+                emailRegistrations);
+    }
+
+    private AuthFormValidator newValidator(EnumSet<Field> fields, int minPasswordLength,
+                                           EmailRegistrationCache emailRegistrations) {
+        return new AuthFormValidator(fields, minPasswordLength, emailRegistrations, clock, clock, Runnable::run,
+                DEBOUNCE_MILLIS, (field, error) -> reported.add(field + ": " + error));
+    }
+
+    private void type(Field field, String text) {
+        for (int i = 1; i <= text.length(); i++) {
+            validator.onTextChanged(field, text.substring(0, i));
+            clock.advance(50);
+        }
+    }
+
+    private int lookups() {
+        return accounts.getCallCount(InMemoryAuthBackend.IS_EMAIL_REGISTERED);
+    }
+
+    @Test
+    public void typing_isCheckedOnceItPauses() {
+        type(Field.PASSWORD, "abc");
+        assertTrue(reported.isEmpty());
+
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(List.of("PASSWORD: Password must be at least 6 characters"), reported);
+        assertEquals(0, clock.pendingCount());
+    }
+
+    @Test
+    public void sameText_isNotCheckedAgain() {
+        validator.onTextChanged(Field.DISPLAY_NAME, "Ann");
+        clock.advance(DEBOUNCE_MILLIS);
+        // Trailing space, trimmed away
+        validator.onTextChanged(Field.DISPLAY_NAME, "Ann ");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(List.of("DISPLAY_NAME: null"), reported);
+    }
+
+    @Test
+    public void email_isCheckedForFormatBeforeLookingItUp() {
+        type(Field.EMAIL, "ann@example");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(List.of("EMAIL: Enter a valid email address"), reported);
+        assertEquals(0, lookups());
+    }
+
+    @Test
+    public void takenEmail_isReportedAsYouType() {
+        type(Field.EMAIL, "ann@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(1, lookups());
+        assertEquals(List.of("EMAIL: null", "EMAIL: " + AuthFormValidator.EMAIL_TAKEN), reported);
+    }
+
+    @Test
+    public void rememberedEmail_isNotLookedUpAgain() {
+        validator.onTextChanged(Field.EMAIL, "ann@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+        validator.onTextChanged(Field.EMAIL, "bob@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+        reported.clear();
+
+        validator.onTextChanged(Field.EMAIL, "ANN@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(2, lookups());
+        assertEquals(List.of("EMAIL: " + AuthFormValidator.EMAIL_TAKEN), reported);
+    }
+
+    @Test
+    public void rememberedEmail_isLookedUpAgainOnceExpired() {
+        validator.onTextChanged(Field.EMAIL, "bob@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+        accounts.addAccount("bob@example.com", "secret", "Bob");
+        clock.advance(EmailRegistrationCache.DEFAULT_TTL_MILLIS);
+
+        validator.onTextChanged(Field.EMAIL, "bob@example.co");
+        validator.onTextChanged(Field.EMAIL, "bob@example.com");
+        // Unchanged since the last check, but that answer may be stale
+        validator.validateAll();
+
+        assertEquals(2, lookups());
+    }
+
+    @Test
+    public void supersededLookup_isIgnored() {
+        backend.hold = true;
+        validator.onTextChanged(Field.EMAIL, "ann@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+        validator.onTextChanged(Field.EMAIL, "ann@example.co");
+        backend.release();
+        clock.advance(DEBOUNCE_MILLIS);
+        backend.release();
+
+        assertFalse(reported.contains("EMAIL: " + AuthFormValidator.EMAIL_TAKEN));
+        // The answer for the old address is still kept for later
+        assertEquals(Boolean.TRUE, emailRegistrations.peek("ann@example.com"));
+    }
+
+    @Test
+    public void cancel_dropsPendingChecksAndLookups() {
+        backend.hold = true;
+        validator.onTextChanged(Field.EMAIL, "ann@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+        validator.onTextChanged(Field.PASSWORD, "secret");
+        reported.clear();
+
+        validator.cancel();
+        backend.release();
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertTrue(reported.isEmpty());
+        assertEquals(0, clock.pendingCount());
+    }
+
+    @Test
+    public void validateAll_checksPendingFieldsInFormOrder() {
+        validator.onTextChanged(Field.PASSWORD, "secret1");
+        validator.onTextChanged(Field.EMAIL, "bob@example.com");
+        validator.onTextChanged(Field.BIRTH_DATE, "02/30/1990");
+
+        assertEquals(Field.DISPLAY_NAME, validator.validateAll());
+        assertEquals(List.of("DISPLAY_NAME: Name is required", "BIRTH_DATE: Enter the date as MM/DD/YYYY",
+                "EMAIL: null", "PASSWORD: null"), reported);
+        assertEquals(0, clock.pendingCount());
+    }
+
+    @Test
+    public void validateAll_doesNotWaitForLookup() {
+        backend.hold = true;
+        validator.onTextChanged(Field.DISPLAY_NAME, "Bob");
+        validator.onTextChanged(Field.BIRTH_DATE, "07/04/1990");
+        validator.onTextChanged(Field.EMAIL, "ann@example.com");
+        validator.onTextChanged(Field.PASSWORD, "secret1");
+
+        assertNull(validator.validateAll());
+        assertEquals("ann@example.com", validator.getText(Field.EMAIL));
+    }
+
+    @Test
+    public void validateAll_reportsRememberedTakenEmail() {
+        type(Field.EMAIL, "ann@example.com");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(Field.EMAIL, newValidatorWith("ann@example.com").validateAll());
+    }
+
+    private AuthFormValidator newValidatorWith(String email) {
+        AuthFormValidator other = newValidator(EnumSet.of(Field.EMAIL), 1, emailRegistrations);
+        other.onTextChanged(Field.EMAIL, email);
+        return other;
+    }
+
+    @Test
+    public void birthDate_isParsedWhenChecked() {
+        validator.onTextChanged(Field.BIRTH_DATE, "02/29/2000");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(new GregorianCalendar(2000, Calendar.FEBRUARY, 29).getTime(), validator.getBirthDate());
+    }
+
+    @Test
+    public void parseBirthDate_rejectsDatesThatDontExist() {
+        assertNotNull(AuthFormValidator.parseBirthDate("12/31/1999"));
+        assertNull(AuthFormValidator.parseBirthDate("02/29/2001"));
+        assertNull(AuthFormValidator.parseBirthDate("13/01/2000"));
+        assertNull(AuthFormValidator.parseBirthDate("04/31/2000"));
+        assertNull(AuthFormValidator.parseBirthDate("4/1/2000"));
+        assertNull(AuthFormValidator.parseBirthDate("2000-04-01"));
+    }
+
+    @Test
+    public void birthDate_inTheFutureIsRejected() {
+        validator.onTextChanged(Field.BIRTH_DATE, "10/19/2026");
+        clock.advance(DEBOUNCE_MILLIS);
+
+        assertEquals(List.of("BIRTH_DATE: Birth date can't be in the future"), reported);
+        assertNull(validator.getBirthDate());
+    }
+
+    @Test
+    public void formatBirthDate_roundTrips() {
+        Calendar calendar = new GregorianCalendar(1990, Calendar.JULY, 4);
+
+        assertEquals("07/04/1990", AuthFormValidator.formatBirthDate(calendar));
+        assertEquals(calendar.getTime(), AuthFormValidator.parseBirthDate("07/04/1990"));
+    }
+
+    @Test
+    public void loginForm_acceptsShortPasswordsAndSkipsLookups() {
+        validator = newValidator(EnumSet.of(Field.EMAIL, Field.PASSWORD), 1, null);
+        validator.onTextChanged(Field.EMAIL, "ann@example.com");
+        validator.onTextChanged(Field.PASSWORD, "abc");
+
+        assertNull(validator.validateAll());
+        assertEquals(0, lookups());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fieldNotOnForm_isRejected() {
+        newValidator(EnumSet.of(Field.EMAIL, Field.PASSWORD), 1, null).onTextChanged(Field.DISPLAY_NAME, "Ann");
+    }
+}
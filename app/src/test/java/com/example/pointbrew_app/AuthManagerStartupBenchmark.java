@@ -0,0 +1,55 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of {@link AuthManager#create} on the launch path, and how many clients it builds.
+ *
+ * The iteration count can be changed with {@code -Dstartup.benchmark.iterations=100000}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AuthManagerStartupBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("startup.benchmark.iterations", 10_000);
+
+    private final AtomicInteger authBuilds = new AtomicInteger();
+    private final AtomicInteger firestoreBuilds = new AtomicInteger();
+
+    private AuthManager create(Context context) {
+        return AuthManager.create(context, new FirebaseAuthBackend(
+                () -> { authBuilds.incrementAndGet(); return null; },
+                () -> { firestoreBuilds.incrementAndGet(); return null; }));
+    }
+
+    @Test
+    public void construction() {
+        Context context = ApplicationProvider.getApplicationContext();
+        // Class loading and the JIT
+        for (int i = 0; i < ITERATIONS; i++) {
+            create(context);
+        }
+
+        int googleClients = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (create(context).isGoogleSignInClientInitialized()) {
+                googleClients++;
+            }
+        }
+        long averageNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("AuthManager.create  avg=%6.2fus  clients built: auth %d, firestore %d, google %d%n",
+                averageNanos / 1_000.0, authBuilds.get(), firestoreBuilds.get(), googleClients);
+        assertEquals(0, authBuilds.get() + firestoreBuilds.get() + googleClients);
+    }
+}
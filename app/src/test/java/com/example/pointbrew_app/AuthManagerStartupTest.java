@@ -0,0 +1,188 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that creating the shared AuthManager builds nothing until it is used or launch is over.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AuthManagerStartupTest {
+
+    private final AtomicInteger authBuilds = new AtomicInteger();
+    private final AtomicInteger firestoreBuilds = new AtomicInteger();
+    private final List<String> built = new ArrayList<>();
+
+    private final FirebaseAuthBackend backend = new FirebaseAuthBackend(
+            () -> { authBuilds.incrementAndGet(); return null; },
+            () -> { firestoreBuilds.incrementAndGet(); return null; });
+
+    private <T> Supplier<T> counting(String name, Supplier<T> factory) {
+        return () -> {
+            built.add(name);
+            return factory.get();
+        };
+    }
+
+    @Test
+    public void create_buildsNoClientsOrBackgroundWork() {
+        Context context = ApplicationProvider.getApplicationContext();
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        AuthManager authManager = AuthManager.create(context, backend);
+
+        assertEquals(0, authBuilds.get());
+        assertEquals(0, firestoreBuilds.get());
+        assertFalse(backend.isFirestoreInitialized());
+        assertFalse(authManager.isGoogleSignInClientInitialized());
+        assertTrue(shadowOf(connectivity).getNetworkCallbacks().isEmpty());
+    }
+
+    @Test
+    public void build_usesNoSupplierUntilNeeded() {
+        InMemoryAuthBackend accounts = new InMemoryAuthBackend();
+        AuthManager authManager = new AuthManager.Builder(accounts, counting("google", FakeGoogleSignInGateway::new))
+                .setProfileJournal(counting("journal", () -> ProfileWriteJournal.inMemory(accounts)))
+                .setProfileCache(counting("cache", () -> ProfileCache.inMemory(accounts)))
+                .setIdTokens(counting("idTokens", () -> new IdTokenManager(accounts::getIdToken, Clock.SYSTEM,
+                        new FakeClock(0))))
+                .setLoginStats(counting("loginStats", LoginStats::disabled))
+                .setWatchdog(counting("watchdog", MainThreadWatchdog::new))
+                .setBackgroundWork(manager -> built.add("background work"))
+                .build();
+
+        assertEquals(List.of(), built);
+
+        authManager.startBackgroundWork();
+        authManager.startBackgroundWork();
+
+        assertEquals(List.of("background work"), built);
+        assertFalse(authManager.isGoogleSignInClientInitialized());
+    }
+
+    /**
+     * Splits calls the way FirebaseAuthBackend does: sign-in state needs the FirebaseAuth client,
+     * profiles need Firestore. Each is "built" on its first call.
+     */
+    private final class TwoClientBackend extends ForwardingAuthBackend {
+        final Lazy<Object> auth = new Lazy<>(() -> { authBuilds.incrementAndGet(); return new Object(); });
+        final Lazy<Object> firestore = new Lazy<>(() -> { firestoreBuilds.incrementAndGet(); return new Object(); });
+
+        TwoClientBackend(AuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public AuthUser getCurrentUser() {
+            auth.get();
+            return super.getCurrentUser();
+        }
+
+        @Override
+        public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+            auth.get();
+            super.signInWithEmail(email, password, callback);
+        }
+
+        @Override
+        public Subscription addAuthStateListener(AuthStateListener listener) {
+            auth.get();
+            return super.addAuthStateListener(listener);
+        }
+
+        @Override
+        public void getIdToken(boolean forceRefresh, Callback<IdToken> callback) {
+            auth.get();
+            super.getIdToken(forceRefresh, callback);
+        }
+
+        @Override
+        public Subscription addProfileListener(String uid, Callback<UserProfile> listener) {
+            firestore.get();
+            return super.addProfileListener(uid, listener);
+        }
+
+        @Override
+        public void upsertProfile(ProfileUpsert upsert, Callback<Void> callback) {
+            firestore.get();
+            super.upsertProfile(upsert, callback);
+        }
+
+        @Override
+        public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+            firestore.get();
+            super.upsertProfiles(upserts, callback);
+        }
+
+        @Override
+        public void fetchProfile(String uid, Callback<UserProfile> callback) {
+            firestore.get();
+            super.fetchProfile(uid, callback);
+        }
+    }
+
+    @Test
+    public void emailStartupPath_buildsNeitherFirestoreNorGoogle() {
+        InMemoryAuthBackend accounts = new InMemoryAuthBackend();
+        accounts.addAccount("ann@example.com", "secret1", "Ann");
+        AuthManager authManager = new AuthManager.Builder(new TwoClientBackend(accounts),
+                counting("google", FakeGoogleSignInGateway::new))
+                .setLoginStats(counting("loginStats", LoginStats::disabled))
+                .build();
+        List<AuthUser> states = new ArrayList<>();
+
+        // What MainActivity does on launch, then an email login
+        assertFalse(authManager.isUserLoggedIn());
+        authManager.getAuthState().observe(Runnable::run, states::add);
+        authManager.loginWithEmail("ann@example.com", "secret1", new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        assertTrue(authManager.isUserLoggedIn());
+        assertEquals("ann@example.com", states.get(states.size() - 1).getEmail());
+        assertEquals(1, authBuilds.get());
+        assertEquals(0, firestoreBuilds.get());
+        assertFalse(authManager.isGoogleSignInClientInitialized());
+        assertFalse(built.contains("google"));
+    }
+
+    @Test
+    public void lazy_buildsOnceUnderConcurrentAccess() throws InterruptedException {
+        AtomicInteger builds = new AtomicInteger();
+        Lazy<Object> lazy = new Lazy<>(() -> { builds.incrementAndGet(); return new Object(); });
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(lazy::get);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, builds.get());
+        assertTrue(lazy.isInitialized());
+    }
+}
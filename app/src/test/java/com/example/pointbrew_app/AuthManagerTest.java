@@ -0,0 +1,124 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AuthManagerTest {
+
+    private InMemoryAuthBackend backend;
+    private AuthManager authManager;
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryAuthBackend();
+        authManager = new AuthManager.Builder(backend, () -> null).build();
+    }
+
+    private static final class RecordingCallback implements AuthManager.AuthCallback {
+        final AtomicReference<AuthUser> user = new AtomicReference<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+
+        @Override
+        public void onSuccess(AuthUser u) {
+            user.set(u);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error.set(e);
+        }
+    }
+
+    @Test
+    public void registerWithEmail_signsInAndWritesFullProfile() {
+        RecordingCallback callback = new RecordingCallback();
+        Date birthDate = new Date(0);
+
+        authManager.registerWithEmail("Ann", "ann@example.com", "secret1", birthDate, callback);
+
+        assertNull(callback.error.get());
+        assertTrue(authManager.isUserLoggedIn());
+        Map<String, Object> profile = backend.getProfile(callback.user.get().getUid());
+        assertEquals("Ann", profile.get("displayName"));
+        assertEquals(birthDate, profile.get("birthDate"));
+        assertNotNull(profile.get("createdAt"));
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.UPSERT_PROFILES));
+    }
+
+    @Test
+    public void loginWithEmail_wrongPassword_reportsError() {
+        backend.addAccount("bob@example.com", "right-password", "Bob");
+        RecordingCallback callback = new RecordingCallback();
+
+        authManager.loginWithEmail("bob@example.com", "wrong-password", callback);
+
+        assertNotNull(callback.error.get());
+        assertNull(callback.user.get());
+        assertFalse(authManager.isUserLoggedIn());
+    }
+
+    @Test
+    public void googleSignIn_returningUser_keepsCreateOnceFields() {
+        authManager.firebaseAuthWithGoogle("gus@example.com", new RecordingCallback());
+        String uid = authManager.getCurrentUser().getUid();
+        Object createdAt = backend.getProfile(uid).get("createdAt");
+
+        authManager.firebaseAuthWithGoogle("gus@example.com", new RecordingCallback());
+
+        Map<String, Object> profile = backend.getProfile(uid);
+        assertSame(createdAt, profile.get("createdAt"));
+        assertEquals(Boolean.TRUE, profile.get("isGoogleSignIn"));
+        assertNotNull(profile.get("lastLoginAt"));
+    }
+
+    @Test
+    public void googleSignIn_afterEmailRegistration_keepsChosenProfile() {
+        authManager.registerWithEmail("Barista Bob", "bob@example.com", "secret1", new Date(0),
+                new RecordingCallback());
+        String uid = authManager.getCurrentUser().getUid();
+
+        authManager.firebaseAuthWithGoogle("bob@example.com", new RecordingCallback());
+
+        Map<String, Object> profile = backend.getProfile(uid);
+        assertEquals("Barista Bob", profile.get("displayName"));
+        assertEquals(Boolean.FALSE, profile.get("isGoogleSignIn"));
+        assertEquals(new Date(0), profile.get("birthDate"));
+        assertNotNull(profile.get("lastLoginAt"));
+    }
+
+    @Test
+    public void googleSignIn_lostFirstWrite_isReplayedByJournal() {
+        AuthBackend failingFirstWrite = new ForwardingAuthBackend(backend) {
+            boolean failed;
+
+            @Override
+            public void upsertProfiles(java.util.List<ProfileUpsert> upserts, Callback<Void> callback) {
+                if (!failed) {
+                    failed = true;
+                    callback.onError(new java.io.IOException("connection reset"));
+                    return;
+                }
+                super.upsertProfiles(upserts, callback);
+            }
+        };
+        authManager = new AuthManager.Builder(failingFirstWrite, () -> null).build();
+        authManager.firebaseAuthWithGoogle("gus@example.com", new RecordingCallback());
+        String uid = authManager.getCurrentUser().getUid();
+        assertNull(backend.getProfile(uid));
+
+        authManager.firebaseAuthWithGoogle("gus@example.com", new RecordingCallback());
+
+        // The queued create went out together with the login bump, once
+        Map<String, Object> profile = backend.getProfile(uid);
+        assertEquals("gus@example.com", profile.get("displayName"));
+        assertEquals(Boolean.TRUE, profile.get("isGoogleSignIn"));
+        assertNotNull(profile.get("createdAt"));
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.UPSERT_PROFILES));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.pointbrew_app;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AuthMetricsTest {
+
+    @Test
+    public void histogram_reportsBucketPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(900));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getPercentileMillis(50));
+        assertEquals(50, histogram.getPercentileMillis(90));
+        assertEquals(1_000, histogram.getPercentileMillis(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(900), histogram.getMaxNanos());
+    }
+
+    @Test
+    public void histogram_overflowBucketReportsUnbounded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(60));
+
+        assertEquals(-1, histogram.getPercentileMillis(50));
+    }
+
+    @Test
+    public void authFlows_recordOutcomesAndPhases() {
+        InMemoryAuthBackend backend = new InMemoryAuthBackend();
+        backend.addAccount("ann@example.com", "secret1", "Ann");
+        AuthMetrics metrics = new AuthMetrics();
+        AuthManager authManager = new AuthManager.Builder(backend, () -> null).setMetrics(metrics).build();
+        AuthManager.AuthCallback ignore = new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        };
+
+        authManager.loginWithEmail("ann@example.com", "secret1", ignore);
+        authManager.loginWithEmail("ann@example.com", "wrong", ignore);
+        authManager.firebaseAuthWithGoogle("gus@example.com", ignore);
+
+        assertEquals(1, metrics.getSuccessCount(AuthMetrics.Operation.LOGIN));
+        assertEquals(1, metrics.getFailureCount(AuthMetrics.Operation.LOGIN));
+        assertEquals(1, metrics.getSuccessCount(AuthMetrics.Operation.GOOGLE_SIGN_IN));
+        assertEquals(1, metrics.getPhase(AuthMetrics.Operation.GOOGLE_SIGN_IN, AuthMetrics.Phase.AUTH_REQUEST).getCount());
+        assertEquals(1, metrics.getPhase(AuthMetrics.Operation.GOOGLE_SIGN_IN, AuthMetrics.Phase.PROFILE_UPSERT).getCount());
+        assertEquals(1, metrics.getSuccessCount(AuthMetrics.Operation.PROFILE_UPSERT));
+        assertTrue(metrics.summary().contains("GOOGLE_SIGN_IN ok=1 failed=0"));
+    }
+
+    @Test
+    public void recording_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        AuthMetrics metrics = new AuthMetrics();
+
+        // Warm up so class loading and JIT compilation don't count
+        record(metrics, 20_000);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long baseline = threads.getThreadAllocatedBytes(threadId) - before;
+        before = threads.getThreadAllocatedBytes(threadId);
+        record(metrics, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - baseline;
+
+        assertTrue("recording allocated " + allocated + " bytes", allocated < 1_024);
+    }
+
+    private static void record(AuthMetrics metrics, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            long start = AuthMetrics.startTimer();
+            metrics.recordPhase(AuthMetrics.Operation.GOOGLE_SIGN_IN, AuthMetrics.Phase.AUTH_REQUEST, start);
+            metrics.recordOutcome(AuthMetrics.Operation.GOOGLE_SIGN_IN, start, (i & 1) == 0);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class AuthStateStreamTest {
+
+    /**
+     * Backend whose auth state listeners are only called when the test says so, the way
+     * Firebase reports the restored session some time after registration.
+     */
+    private static final class ManualAuthStateBackend extends ForwardingAuthBackend {
+        final List<AuthStateListener> listeners = new ArrayList<>();
+
+        ManualAuthStateBackend() {
+            super(new InMemoryAuthBackend());
+        }
+
+        @Override
+        public Subscription addAuthStateListener(AuthStateListener listener) {
+            listeners.add(listener);
+            return () -> listeners.remove(listener);
+        }
+
+        void emit(AuthUser user) {
+            for (AuthStateListener listener : new ArrayList<>(listeners)) {
+                listener.onAuthStateChanged(user);
+            }
+        }
+    }
+
+    private static final AuthUser ANN = new AuthUser("u1", "ann@example.com", "Ann", null);
+    private static final AuthUser BOB = new AuthUser("u2", "bob@example.com", "Bob", null);
+
+    private ManualAuthStateBackend backend;
+    private AuthStateStream stream;
+    private final Queue<Runnable> mainQueue = new ArrayDeque<>();
+    private final Executor mainThread = mainQueue::add;
+
+    @Before
+    public void setUp() {
+        backend = new ManualAuthStateBackend();
+        stream = new AuthStateStream(backend);
+    }
+
+    private void runMainQueue() {
+        Runnable task;
+        while ((task = mainQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static String name(AuthUser user) {
+        return user != null ? user.getDisplayName() : "signed out";
+    }
+
+    @Test
+    public void manyObservers_shareOneBackendListener() {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        assertTrue("nothing registers until someone observes", backend.listeners.isEmpty());
+
+        stream.observe(Runnable::run, user -> first.add(name(user)));
+        stream.observe(Runnable::run, user -> second.add(name(user)));
+        backend.emit(ANN);
+
+        assertEquals(1, backend.listeners.size());
+        assertEquals(List.of("Ann"), first);
+        assertEquals(List.of("Ann"), second);
+    }
+
+    @Test
+    public void nothingIsEmitted_beforeBackendReports() {
+        List<String> seen = new ArrayList<>();
+
+        stream.observe(Runnable::run, user -> seen.add(name(user)));
+
+        assertTrue("an unrestored session must not look signed out", seen.isEmpty());
+        assertFalse(stream.hasValue());
+        backend.emit(null);
+        assertEquals(List.of("signed out"), seen);
+    }
+
+    @Test
+    public void lateObserver_getsLatestState() {
+        stream.observe(Runnable::run, user -> { });
+        backend.emit(ANN);
+        List<String> seen = new ArrayList<>();
+
+        stream.observe(Runnable::run, user -> seen.add(name(user)));
+
+        assertEquals(List.of("Ann"), seen);
+        assertEquals(1, backend.listeners.size());
+    }
+
+    @Test
+    public void sameUserReportedAgain_isDropped() {
+        List<String> seen = new ArrayList<>();
+        stream.observe(Runnable::run, user -> seen.add(name(user)));
+
+        backend.emit(ANN);
+        backend.emit(new AuthUser("u1", "ann@example.com", "Ann", null));
+        backend.emit(null);
+        backend.emit(null);
+
+        assertEquals(List.of("Ann", "signed out"), seen);
+    }
+
+    @Test
+    public void inlineObserver_isNotCalledUnderStreamLock() {
+        List<Boolean> locked = new ArrayList<>();
+        stream.observe(Runnable::run, user -> locked.add(Thread.holdsLock(stream)));
+        backend.emit(ANN);
+        stream.observe(Runnable::run, user -> locked.add(Thread.holdsLock(stream)));
+
+        assertEquals(List.of(false, false), locked);
+    }
+
+    @Test
+    public void busyExecutor_getsOnlyNewestState() {
+        List<String> seen = new ArrayList<>();
+        stream.observe(mainThread, user -> seen.add(name(user)));
+
+        backend.emit(ANN);
+        backend.emit(null);
+        backend.emit(BOB);
+
+        assertEquals("one drain is queued, not one per change", 1, mainQueue.size());
+        runMainQueue();
+        assertEquals(List.of("Bob"), seen);
+    }
+
+    @Test
+    public void changeThatRevertsBeforeDelivery_isNotDeliveredAgain() {
+        List<String> seen = new ArrayList<>();
+        stream.observe(mainThread, user -> seen.add(name(user)));
+        backend.emit(ANN);
+        runMainQueue();
+
+        backend.emit(null);
+        backend.emit(ANN);
+        runMainQueue();
+
+        assertEquals(List.of("Ann"), seen);
+    }
+
+    @Test
+    public void unsubscribe_stopsDelivery() {
+        List<String> kept = new ArrayList<>();
+        List<String> dropped = new ArrayList<>();
+        stream.observe(Runnable::run, user -> kept.add(name(user)));
+        Subscription subscription = stream.observe(Runnable::run, user -> dropped.add(name(user)));
+        backend.emit(ANN);
+
+        subscription.unsubscribe();
+        subscription.unsubscribe();
+        backend.emit(null);
+
+        assertEquals(List.of("Ann"), dropped);
+        assertEquals(List.of("Ann", "signed out"), kept);
+        assertEquals(1, stream.getObserverCount());
+    }
+
+    @Test
+    public void unsubscribe_dropsStateAlreadyQueued() {
+        List<String> seen = new ArrayList<>();
+        Subscription subscription = stream.observe(mainThread, user -> seen.add(name(user)));
+        backend.emit(ANN);
+
+        subscription.unsubscribe();
+        runMainQueue();
+
+        assertTrue(seen.isEmpty());
+    }
+
+    @Test
+    public void inMemoryBackend_reportsSignInAndSignOut() {
+        InMemoryAuthBackend accounts = new InMemoryAuthBackend();
+        accounts.addAccount("ann@example.com", "secret1", "Ann");
+        AuthManager authManager = new AuthManager.Builder(accounts, FakeGoogleSignInGateway::new).build();
+        List<String> seen = new ArrayList<>();
+        AuthManager.AuthCallback ignored = new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+
+        authManager.getAuthState().observe(Runnable::run, user -> seen.add(user != null ? user.getEmail() : null));
+        authManager.loginWithEmail("ann@example.com", "secret1", ignored);
+        authManager.signOut(ignored);
+
+        assertEquals(Arrays.asList(null, "ann@example.com", null), seen);
+        assertEquals(1, accounts.getAuthStateListenerCount());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.pointbrew_app;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BoundedLruCacheTest {
+
+    private final List<String> evicted = new ArrayList<>();
+    private final BoundedLruCache<String, String> cache =
+            new BoundedLruCache<>(10, String::length, (key, value) -> evicted.add(key));
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        cache.put("a", "xxxx");
+        cache.put("b", "xxxx");
+        cache.get("a");
+        cache.put("c", "xxxx");
+
+        assertEquals(List.of("b"), evicted);
+        assertNull(cache.get("b"));
+        assertEquals("xxxx", cache.get("a"));
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    public void replacingValue_adjustsSizeWithoutEvicting() {
+        cache.put("a", "xxxxxx");
+        cache.put("a", "xx");
+        cache.put("b", "xxxxxxxx");
+
+        assertTrue(evicted.isEmpty());
+        assertEquals(10, cache.size());
+        assertEquals(2, cache.count());
+    }
+
+    @Test
+    public void valueLargerThanCache_isNotKept() {
+        cache.put("a", "xx");
+        cache.put("huge", "xxxxxxxxxxxx");
+
+        assertNull(cache.get("huge"));
+        assertEquals("xx", cache.get("a"));
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void remove_isNotAnEviction() {
+        cache.put("a", "xxx");
+        assertEquals("xxx", cache.remove("a"));
+
+        assertEquals(0, cache.size());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        cache.put("a", "x");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.put("big", "xxxxxxxxxx");
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(2.0 / 3, cache.hitRate(), 1e-9);
+        assertEquals(1, cache.evictionCount());
+    }
+}
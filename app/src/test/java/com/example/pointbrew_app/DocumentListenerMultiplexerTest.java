@@ -0,0 +1,203 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DocumentListenerMultiplexerTest {
+
+    private static final long GRACE_MILLIS = 10_000;
+
+    /**
+     * Records what one screen watching a profile was shown.
+     */
+    private static final class Screen implements AuthBackend.Callback<UserProfile> {
+        final List<String> names = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+
+        @Override
+        public void onSuccess(UserProfile profile) {
+            names.add(profile != null ? profile.getDisplayName() : null);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    }
+
+    private InMemoryAuthBackend backend;
+    private FakeClock clock;
+    private ProfileCache cache;
+    private DocumentListenerMultiplexer<UserProfile> listeners;
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryAuthBackend();
+        clock = new FakeClock();
+        cache = ProfileCache.inMemory(backend);
+        listeners = new DocumentListenerMultiplexer<>(backend::addProfileListener, cache::peek, clock, GRACE_MILLIS);
+        save("Ann");
+    }
+
+    private void save(String displayName) {
+        ProfileUpsert upsert = ProfileUpsert.of("u1",
+                Collections.singletonMap(ProfileUpsert.FIELD_DISPLAY_NAME, displayName), Collections.emptyList());
+        backend.upsertProfile(upsert, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+    }
+
+    @Test
+    public void tenSubscribers_costOneBackendListener() {
+        List<Screen> screens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Screen screen = new Screen();
+            screens.add(screen);
+            listeners.subscribe("u1", screen);
+        }
+
+        save("Annie");
+
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.ADD_PROFILE_LISTENER));
+        assertEquals(1, backend.getProfileListenerCount("u1"));
+        assertEquals(1, listeners.getAttachCount());
+        for (Screen screen : screens) {
+            assertEquals(List.of("Ann", "Annie"), screen.names);
+        }
+    }
+
+    @Test
+    public void lateSubscriber_getsLatestSnapshotWithoutARead() {
+        listeners.subscribe("u1", new Screen());
+        save("Annie");
+        Screen late = new Screen();
+
+        listeners.subscribe("u1", late);
+
+        assertEquals(List.of("Annie"), late.names);
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.ADD_PROFILE_LISTENER));
+    }
+
+    @Test
+    public void cachedProfile_isDeliveredFirstAndNotRepeated() {
+        UserProfile cached = new UserProfile("u1", null, "Ann", null, null, false);
+        cache.put(cached);
+        List<String> sources = new ArrayList<>();
+        AuthBackend recording = new ForwardingAuthBackend(backend) {
+            @Override
+            public Subscription addProfileListener(String uid, Callback<UserProfile> listener) {
+                sources.add("listener attached");
+                return super.addProfileListener(uid, listener);
+            }
+        };
+        listeners = new DocumentListenerMultiplexer<>(recording::addProfileListener, uid -> {
+            sources.add("cache read");
+            return cache.peek(uid);
+        }, clock, GRACE_MILLIS);
+        Screen screen = new Screen();
+
+        listeners.subscribe("u1", screen);
+
+        assertEquals(List.of("cache read", "listener attached"), sources);
+        // The listener's first snapshot matches the cached copy, so it isn't shown twice
+        assertEquals(List.of("Ann"), screen.names);
+    }
+
+    @Test
+    public void lastUnsubscribe_detachesOnlyAfterGracePeriod() {
+        Subscription subscription = listeners.subscribe("u1", new Screen());
+
+        subscription.unsubscribe();
+        clock.advance(GRACE_MILLIS - 1);
+        assertEquals(1, backend.getProfileListenerCount("u1"));
+
+        clock.advance(1);
+        assertEquals(0, backend.getProfileListenerCount("u1"));
+        assertFalse(listeners.isAttached("u1"));
+    }
+
+    @Test
+    public void resubscribeWithinGracePeriod_reusesListener() {
+        Subscription rotatedAway = listeners.subscribe("u1", new Screen());
+        rotatedAway.unsubscribe();
+        clock.advance(GRACE_MILLIS / 2);
+
+        Screen recreated = new Screen();
+        listeners.subscribe("u1", recreated);
+        clock.advance(GRACE_MILLIS);
+
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.ADD_PROFILE_LISTENER));
+        assertEquals(1, backend.getProfileListenerCount("u1"));
+        assertEquals(List.of("Ann"), recreated.names);
+    }
+
+    @Test
+    public void resubscribeAfterDetach_attachesAgain() {
+        listeners.subscribe("u1", new Screen()).unsubscribe();
+        clock.advance(GRACE_MILLIS);
+
+        listeners.subscribe("u1", new Screen());
+
+        assertEquals(2, listeners.getAttachCount());
+        assertEquals(1, backend.getProfileListenerCount("u1"));
+    }
+
+    @Test
+    public void unchangedSnapshot_isNotPassedOn() {
+        Screen screen = new Screen();
+        listeners.subscribe("u1", screen);
+
+        save("Ann");
+
+        assertEquals(List.of("Ann"), screen.names);
+    }
+
+    @Test
+    public void listenerFailure_reachesEverySubscriberAndNextSubscribeReattaches() {
+        List<AuthBackend.Callback<UserProfile>> upstream = new ArrayList<>();
+        listeners = new DocumentListenerMultiplexer<>((path, listener) -> {
+            upstream.add(listener);
+            return () -> upstream.remove(listener);
+        }, uid -> null, clock, GRACE_MILLIS);
+        Screen first = new Screen();
+        Screen second = new Screen();
+        listeners.subscribe("u1", first);
+        listeners.subscribe("u1", second);
+
+        upstream.get(0).onError(new IllegalStateException("permission denied"));
+
+        assertEquals(1, first.errors.size());
+        assertEquals(1, second.errors.size());
+        assertFalse(listeners.isAttached("u1"));
+        listeners.subscribe("u1", new Screen());
+        assertEquals(2, listeners.getAttachCount());
+    }
+
+    @Test
+    public void authManager_sharesListenerAndFillsProfileCache() {
+        AuthManager authManager = new AuthManager.Builder(backend, FakeGoogleSignInGateway::new).build();
+        Screen header = new Screen();
+        Screen rewards = new Screen();
+
+        authManager.observeProfile("u1", header);
+        authManager.observeProfile("u1", rewards);
+        save("Annie");
+
+        assertEquals(1, backend.getProfileListenerCount("u1"));
+        assertEquals(List.of("Ann", "Annie"), rewards.names);
+        assertEquals("Annie", authManager.getProfileCache().peek("u1").getDisplayName());
+    }
+}
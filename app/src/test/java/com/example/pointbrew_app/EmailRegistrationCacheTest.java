@@ -0,0 +1,177 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EmailRegistrationCacheTest {
+
+    private static final long TTL_MILLIS = 60_000;
+
+    private final FakeClock clock = new FakeClock(1_000_000);
+    private final InMemoryAuthBackend accounts = new InMemoryAuthBackend();
+    private final HeldLookupBackend backend = new HeldLookupBackend(accounts);
+    private final List<Boolean> answers = new ArrayList<>();
+    private final List<Exception> errors = new ArrayList<>();
+    private EmailRegistrationCache cache;
+
+    /**
+     * Holds lookups until released, and can fail them.
+     */
+    private static final class HeldLookupBackend extends ForwardingAuthBackend {
+        final List<Runnable> held = new ArrayList<>();
+        boolean hold;
+        boolean fail;
+
+        HeldLookupBackend(InMemoryAuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void isEmailRegistered(String email, Callback<Boolean> callback) {
+            Runnable lookup = fail
+                    ? () -> callback.onError(new IOException("Unable to resolve host"))
+                    : () -> super.isEmailRegistered(email, callback);
+            if (hold) {
+                held.add(lookup);
+            } else {
+                lookup.run();
+            }
+        }
+
+        void release() {
+            List<Runnable> lookups = new ArrayList<>(held);
+            held.clear();
+            for (Runnable lookup : lookups) {
+                lookup.run();
+            }
+        }
+    }
+
+    private final AuthBackend.Callback<Boolean> record = new AuthBackend.Callback<Boolean>() {
+        @Override
+        public void onSuccess(Boolean registered) {
+            answers.add(registered);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        accounts.addAccount("ann@example.com", "secret", "Ann");
+        cache = new EmailRegistrationCache(backend::isEmailRegistered, clock, TTL_MILLIS, 2);
+    }
+
+    private int lookups() {
+        return accounts.getCallCount(InMemoryAuthBackend.IS_EMAIL_REGISTERED);
+    }
+
+    @Test
+    public void answer_isRememberedUntilItExpires() {
+        cache.check("ann@example.com", record);
+        cache.check("ann@example.com", record);
+        assertEquals(1, lookups());
+        assertEquals(1, cache.getHitCount());
+
+        clock.advance(TTL_MILLIS);
+        assertNull(cache.peek("ann@example.com"));
+        cache.check("ann@example.com", record);
+
+        assertEquals(2, lookups());
+        assertEquals(List.of(true, true, true), answers);
+    }
+
+    @Test
+    public void emails_matchIgnoringCaseAndSpaces() {
+        cache.check("ann@example.com", record);
+
+        assertEquals(Boolean.TRUE, cache.peek(" Ann@Example.com "));
+    }
+
+    @Test
+    public void concurrentChecks_shareOneLookup() {
+        backend.hold = true;
+        cache.check("bob@example.com", record);
+        cache.check("bob@example.com", record);
+        backend.release();
+
+        assertEquals(1, lookups());
+        assertEquals(1, cache.getRequestCount());
+        assertEquals(List.of(false, false), answers);
+    }
+
+    @Test
+    public void cancelledCheck_isNotAnsweredButIsRemembered() {
+        backend.hold = true;
+        Scheduler.Cancellable check = cache.check("ann@example.com", record);
+        check.cancel();
+        backend.release();
+
+        assertTrue(answers.isEmpty());
+        assertEquals(Boolean.TRUE, cache.peek("ann@example.com"));
+    }
+
+    @Test
+    public void failure_isNotRemembered() {
+        backend.fail = true;
+        cache.check("ann@example.com", record);
+
+        assertEquals(1, errors.size());
+        assertNull(cache.peek("ann@example.com"));
+    }
+
+    @Test
+    public void leastRecentlyUsed_isDroppedAtCapacity() {
+        cache.remember("a@example.com", false);
+        cache.remember("b@example.com", false);
+        cache.peek("a@example.com");
+        cache.remember("c@example.com", true);
+
+        assertEquals(Boolean.FALSE, cache.peek("a@example.com"));
+        assertNull(cache.peek("b@example.com"));
+        assertEquals(Boolean.TRUE, cache.peek("c@example.com"));
+    }
+
+    @Test
+    public void disabledFirebaseLookup_isAnsweredUnknownAndNotRemembered() {
+        AtomicInteger authBuilds = new AtomicInteger();
+        FirebaseAuthBackend firebase = new FirebaseAuthBackend(
+                () -> { authBuilds.incrementAndGet(); return null; }, () -> null, false);
+        cache = new EmailRegistrationCache(firebase::isEmailRegistered, clock, TTL_MILLIS, 2);
+
+        cache.check("ann@example.com", record);
+
+        assertEquals(Collections.singletonList(null), answers);
+        assertNull(cache.peek("ann@example.com"));
+        assertEquals(0, authBuilds.get());
+    }
+
+    @Test
+    public void registration_isRememberedByAuthManager() {
+        AuthManager authManager = new AuthManager.Builder(accounts, () -> null).build();
+
+        authManager.registerWithEmail("Bob", "bob@example.com", "secret", null, new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        assertEquals(Boolean.TRUE, authManager.getEmailRegistrations().peek("bob@example.com"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manually advanced {@link Clock} and {@link Scheduler}; scheduled tasks run inside {@link #advance}.
+ */
+public class FakeClock implements Clock, Scheduler {
+
+    private static final class Entry {
+        final Runnable task;
+        final long dueMillis;
+        final long sequence;
+        boolean cancelled;
+
+        Entry(Runnable task, long dueMillis, long sequence) {
+            this.task = task;
+            this.dueMillis = dueMillis;
+            this.sequence = sequence;
+        }
+    }
+
+    private final List<Entry> mPending = new ArrayList<>();
+    private long mNowMillis;
+    private long mNextSequence;
+
+    public FakeClock() {
+        this(0);
+    }
+
+    public FakeClock(long startMillis) {
+        mNowMillis = startMillis;
+    }
+
+    @Override
+    public synchronized long nowMillis() {
+        return mNowMillis;
+    }
+
+    @NonNull
+    @Override
+    public synchronized Cancellable schedule(@NonNull Runnable task, long delayMillis) {
+        Entry entry = new Entry(task, mNowMillis + Math.max(0, delayMillis), mNextSequence++);
+        mPending.add(entry);
+        return () -> {
+            synchronized (FakeClock.this) {
+                entry.cancelled = true;
+                mPending.remove(entry);
+            }
+        };
+    }
+
+    /**
+     * Moves time forward, running every task that falls due in order.
+     */
+    public void advance(long millis) {
+        long target;
+        synchronized (this) {
+            target = mNowMillis + millis;
+        }
+        while (true) {
+            Entry next;
+            synchronized (this) {
+                next = null;
+                for (Entry entry : mPending) {
+                    if (entry.dueMillis <= target && (next == null || entry.dueMillis < next.dueMillis
+                            || (entry.dueMillis == next.dueMillis && entry.sequence < next.sequence))) {
+                        next = entry;
+                    }
+                }
+                if (next == null) {
+                    mNowMillis = target;
+                    return;
+                }
+                mPending.remove(next);
+                mNowMillis = next.dueMillis;
+            }
+            next.task.run();
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return mPending.size();
+    }
+}
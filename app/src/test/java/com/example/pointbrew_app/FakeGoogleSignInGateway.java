@@ -0,0 +1,81 @@
+package com.example.pointbrew_app;
+
+import android.content.Intent;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Google Sign-In without Play services. Silent sign-ins answer right away unless {@link #hold}
+ * is set, in which case they wait for {@link #releaseSilentSignIns()}.
+ */
+public class FakeGoogleSignInGateway implements GoogleSignInGateway {
+
+    boolean previousSignIn;
+    // What a silent sign-in returns; null makes it fail
+    String silentIdToken;
+    // What the account chooser returns; null makes it fail
+    String chooserIdToken;
+    boolean hold;
+
+    int silentSignInCount;
+    int signInIntentCount;
+    int signOutCount;
+    private final List<AuthBackend.Callback<String>> mHeld = new ArrayList<>();
+
+    @Override
+    public boolean hasPreviousSignIn() {
+        return previousSignIn;
+    }
+
+    @Override
+    public void silentSignIn(@NonNull AuthBackend.Callback<String> callback) {
+        silentSignInCount++;
+        if (hold) {
+            mHeld.add(callback);
+        } else {
+            answer(callback);
+        }
+    }
+
+    void releaseSilentSignIns() {
+        List<AuthBackend.Callback<String>> held = new ArrayList<>(mHeld);
+        mHeld.clear();
+        for (AuthBackend.Callback<String> callback : held) {
+            answer(callback);
+        }
+    }
+
+    private void answer(AuthBackend.Callback<String> callback) {
+        if (silentIdToken != null) {
+            callback.onSuccess(silentIdToken);
+        } else {
+            callback.onError(new IllegalStateException("SIGN_IN_REQUIRED"));
+        }
+    }
+
+    @NonNull
+    @Override
+    public Intent getSignInIntent() {
+        signInIntentCount++;
+        return new Intent();
+    }
+
+    @NonNull
+    @Override
+    public String getIdToken(Intent data) throws Exception {
+        if (chooserIdToken == null) {
+            throw new IllegalStateException("Account chooser cancelled");
+        }
+        return chooserIdToken;
+    }
+
+    @Override
+    public void signOut(@NonNull AuthBackend.Callback<Void> callback) {
+        signOutCount++;
+        previousSignIn = false;
+        callback.onSuccess(null);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.pointbrew_app;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator that delays every network call and fails a share of them, to simulate a slow
+ * or flaky connection in tests and benchmarks.
+ *
+ * Callbacks are delivered on the given scheduler's threads.
+ */
+public class FaultInjectingAuthBackend extends ForwardingAuthBackend {
+
+    private final ScheduledExecutorService mScheduler;
+    private final Random mRandom;
+    private volatile long mLatencyMillis;
+    private volatile long mJitterMillis;
+    private volatile double mFailureRate;
+
+    public FaultInjectingAuthBackend(AuthBackend delegate, ScheduledExecutorService scheduler, long seed) {
+        super(delegate);
+        mScheduler = scheduler;
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Each call takes {@code latencyMillis} plus a uniform random extra of up to {@code jitterMillis}.
+     */
+    public FaultInjectingAuthBackend setLatency(long latencyMillis, long jitterMillis) {
+        mLatencyMillis = latencyMillis;
+        mJitterMillis = jitterMillis;
+        return this;
+    }
+
+    /**
+     * Share of calls, between 0 and 1, that fail with an {@link IOException} after the delay.
+     */
+    public FaultInjectingAuthBackend setFailureRate(double failureRate) {
+        mFailureRate = failureRate;
+        return this;
+    }
+
+    private <T> void inject(Callback<T> callback, Runnable call) {
+        long delay;
+        boolean fail;
+        synchronized (mRandom) {
+            delay = mLatencyMillis + (mJitterMillis > 0 ? (long) (mRandom.nextDouble() * mJitterMillis) : 0);
+            fail = mRandom.nextDouble() < mFailureRate;
+        }
+        mScheduler.schedule(() -> {
+            if (fail) {
+                callback.onError(new IOException("Injected network failure"));
+            } else {
+                call.run();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+        inject(callback, () -> super.signInWithEmail(email, password, callback));
+    }
+
+    @Override
+    public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+        inject(callback, () -> super.createUserWithEmail(email, password, callback));
+    }
+
+    @Override
+    public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+        inject(callback, () -> super.signInWithGoogleIdToken(idToken, callback));
+    }
+
+    @Override
+    public void sendPasswordResetEmail(String email, Callback<Void> callback) {
+        inject(callback, () -> super.sendPasswordResetEmail(email, callback));
+    }
+
+    @Override
+    public void isEmailRegistered(String email, Callback<Boolean> callback) {
+        inject(callback, () -> super.isEmailRegistered(email, callback));
+    }
+
+    @Override
+    public void getIdToken(boolean forceRefresh, Callback<IdToken> callback) {
+        inject(callback, () -> super.getIdToken(forceRefresh, callback));
+    }
+
+    @Override
+    public void upsertProfile(ProfileUpsert upsert, Callback<Void> callback) {
+        inject(callback, () -> super.upsertProfile(upsert, callback));
+    }
+
+    @Override
+    public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+        inject(callback, () -> super.upsertProfiles(upserts, callback));
+    }
+
+    @Override
+    public void fetchProfile(String uid, Callback<UserProfile> callback) {
+        inject(callback, () -> super.fetchProfile(uid, callback));
+    }
+
+    @Override
+    public boolean isTransientError(Exception e) {
+        return e instanceof IOException || super.isTransientError(e);
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.pointbrew_app;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+
+import androidx.activity.result.ActivityResultRegistry;
+import androidx.activity.result.contract.ActivityResultContract;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.ActivityOptionsCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.savedstate.SavedStateRegistry;
+import androidx.savedstate.SavedStateRegistryController;
+import androidx.savedstate.SavedStateRegistryOwner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class GoogleSignInCoordinatorTest {
+
+    private static final String TOKEN = "ann@gmail.com";
+
+    /**
+     * Records launches instead of opening the account chooser; the test finishes them.
+     */
+    private static final class FakeResultRegistry extends ActivityResultRegistry {
+        final List<Integer> launched = new ArrayList<>();
+
+        @Override
+        public <I, O> void onLaunch(int requestCode, @NonNull ActivityResultContract<I, O> contract, I input,
+                                    @Nullable ActivityOptionsCompat options) {
+            launched.add(requestCode);
+        }
+
+        void finish(int requestCode, int resultCode) {
+            dispatchResult(requestCode, resultCode, new Intent());
+        }
+    }
+
+    /**
+     * Stands in for MainActivity: a lifecycle, saved state and an activity result registry,
+     * all of which can be saved and restored as on process death.
+     */
+    private static final class FakeActivity implements SavedStateRegistryOwner {
+        final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this);
+        final SavedStateRegistryController savedState = SavedStateRegistryController.create(this);
+        final FakeResultRegistry results = new FakeResultRegistry();
+        final GoogleSignInCoordinator coordinator;
+
+        FakeActivity(AuthManager authManager, @Nullable Bundle saved) {
+            savedState.performRestore(saved != null ? saved.getBundle("savedState") : null);
+            if (saved != null) {
+                results.onRestoreInstanceState(saved.getBundle("results"));
+            }
+            lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+            coordinator = new GoogleSignInCoordinator(authManager, results, this);
+        }
+
+        Bundle saveAndDestroy() {
+            Bundle state = new Bundle();
+            savedState.performSave(state);
+            Bundle registry = new Bundle();
+            results.onSaveInstanceState(registry);
+            lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+            Bundle saved = new Bundle();
+            saved.putBundle("savedState", state);
+            saved.putBundle("results", registry);
+            return saved;
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+
+        @NonNull
+        @Override
+        public SavedStateRegistry getSavedStateRegistry() {
+            return savedState.getSavedStateRegistry();
+        }
+    }
+
+    /**
+     * A fragment's view: a lifecycle and what it showed.
+     */
+    private static final class FakePage implements LifecycleOwner {
+        final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this);
+        final List<String> shown = new ArrayList<>();
+
+        FakePage() {
+            lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        }
+
+        AuthManager.AuthCallback callback() {
+            return new AuthManager.AuthCallback() {
+                @Override
+                public void onSuccess(AuthUser user) {
+                    shown.add(user.getEmail());
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    shown.add("error: " + e.getMessage());
+                }
+            };
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+    }
+
+    private InMemoryAuthBackend backend;
+    private FakeGoogleSignInGateway google;
+    private AuthManager authManager;
+    private FakeActivity activity;
+    private FakePage loginPage;
+    private FakePage registerPage;
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryAuthBackend();
+        google = new FakeGoogleSignInGateway();
+        google.chooserIdToken = TOKEN;
+        authManager = new AuthManager.Builder(backend, () -> google).build();
+        activity = new FakeActivity(authManager, null);
+        loginPage = new FakePage();
+        registerPage = new FakePage();
+        activity.coordinator.register("login", loginPage, loginPage.callback());
+        activity.coordinator.register("register", registerPage, registerPage.callback());
+        activity.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+    }
+
+    private int lastLaunch() {
+        return activity.results.launched.get(activity.results.launched.size() - 1);
+    }
+
+    @Test
+    public void chooserResult_goesToPageThatStartedIt() {
+        activity.coordinator.start("register");
+        activity.results.finish(lastLaunch(), Activity.RESULT_OK);
+
+        assertEquals(List.of(TOKEN), registerPage.shown);
+        assertTrue(loginPage.shown.isEmpty());
+        assertFalse(activity.coordinator.isInProgress());
+    }
+
+    @Test
+    public void bothPages_shareOneLauncher() {
+        activity.coordinator.start("login");
+        activity.results.finish(lastLaunch(), Activity.RESULT_OK);
+        activity.coordinator.start("register");
+        activity.results.finish(lastLaunch(), Activity.RESULT_OK);
+
+        assertEquals(2, activity.results.launched.size());
+        assertEquals(activity.results.launched.get(0), activity.results.launched.get(1));
+        assertEquals(List.of(TOKEN), loginPage.shown);
+        assertEquals(List.of(TOKEN), registerPage.shown);
+    }
+
+    @Test
+    public void secondStartWhileInProgress_isIgnored() {
+        activity.coordinator.start("login");
+        activity.coordinator.start("register");
+
+        assertEquals(1, activity.results.launched.size());
+        assertEquals(1, google.signInIntentCount);
+        activity.results.finish(lastLaunch(), Activity.RESULT_OK);
+        assertEquals(List.of(TOKEN), loginPage.shown);
+        assertTrue(registerPage.shown.isEmpty());
+    }
+
+    @Test
+    public void cancelledChooser_reportsErrorAndAllowsRetry() {
+        activity.coordinator.start("login");
+        activity.results.finish(lastLaunch(), Activity.RESULT_CANCELED);
+
+        assertEquals(1, loginPage.shown.size());
+        assertTrue(loginPage.shown.get(0).startsWith("error: "));
+        assertFalse(activity.coordinator.isInProgress());
+        activity.coordinator.start("login");
+        assertEquals(2, activity.results.launched.size());
+    }
+
+    @Test
+    public void silentSignIn_neverLaunchesChooser() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+
+        activity.coordinator.start("login");
+
+        assertTrue(activity.results.launched.isEmpty());
+        assertEquals(List.of(TOKEN), loginPage.shown);
+        assertFalse(activity.coordinator.isInProgress());
+    }
+
+    @Test
+    public void resultAfterProcessDeath_reachesRecreatedPage() {
+        activity.coordinator.start("register");
+        int requestCode = lastLaunch();
+        activity.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_STOP);
+        Bundle saved = activity.saveAndDestroy();
+        registerPage.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        // A new process: fresh activity, the chooser's result arrives before the pages are back
+        FakeActivity recreated = new FakeActivity(newProcess(), saved);
+        assertEquals("register", recreated.coordinator.getPendingPage());
+        recreated.results.finish(requestCode, Activity.RESULT_OK);
+        recreated.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        FakePage newRegisterPage = new FakePage();
+        recreated.coordinator.register("register", newRegisterPage, newRegisterPage.callback());
+
+        assertEquals(List.of(TOKEN), newRegisterPage.shown);
+        assertTrue(registerPage.shown.isEmpty());
+        assertFalse(recreated.coordinator.isInProgress());
+    }
+
+    private AuthManager newProcess() {
+        return new AuthManager.Builder(backend, () -> google).build();
+    }
+
+    /**
+     * Destroys the activity and its pages, and creates it again from its saved state.
+     */
+    private FakeActivity recreate(AuthManager authManager) {
+        activity.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_STOP);
+        Bundle saved = activity.saveAndDestroy();
+        loginPage.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        registerPage.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        return new FakeActivity(authManager, saved);
+    }
+
+    @Test
+    public void silentSignInOutlivingActivity_reachesRecreatedPage() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+        google.hold = true;
+        activity.coordinator.start("login");
+
+        FakeActivity recreated = recreate(authManager);
+        recreated.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        FakePage newLoginPage = new FakePage();
+        recreated.coordinator.register("login", newLoginPage, newLoginPage.callback());
+        assertTrue(recreated.coordinator.isInProgress());
+        google.releaseSilentSignIns();
+
+        assertEquals(List.of(TOKEN), newLoginPage.shown);
+        assertTrue(loginPage.shown.isEmpty());
+        assertFalse(recreated.coordinator.isInProgress());
+    }
+
+    @Test
+    public void chooserAfterRecreation_opensFromRecreatedActivity() {
+        google.previousSignIn = true;
+        google.hold = true;
+        activity.coordinator.start("register");
+
+        FakeActivity recreated = recreate(authManager);
+        recreated.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        FakePage newRegisterPage = new FakePage();
+        recreated.coordinator.register("register", newRegisterPage, newRegisterPage.callback());
+        // No token, so the silent sign-in fails over to the chooser
+        google.releaseSilentSignIns();
+
+        assertTrue(activity.results.launched.isEmpty());
+        assertEquals(1, recreated.results.launched.size());
+        recreated.results.finish(recreated.results.launched.get(0), Activity.RESULT_OK);
+        assertEquals(List.of(TOKEN), newRegisterPage.shown);
+    }
+
+    @Test
+    public void processDeathDuringSilentSignIn_doesNotBlockNextStart() {
+        google.previousSignIn = true;
+        google.hold = true;
+        activity.coordinator.start("login");
+
+        FakeActivity recreated = recreate(newProcess());
+        recreated.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+
+        assertFalse(recreated.coordinator.isInProgress());
+        google.previousSignIn = false;
+        recreated.coordinator.start("login");
+        assertEquals(1, recreated.results.launched.size());
+    }
+
+    @Test
+    public void restoredChooserWithNoResult_isDroppedOnResume() {
+        activity.coordinator.start("register");
+
+        FakeActivity recreated = recreate(newProcess());
+        assertTrue(recreated.coordinator.isInProgress());
+        recreated.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+
+        assertFalse(recreated.coordinator.isInProgress());
+        recreated.coordinator.start("register");
+        assertEquals(1, recreated.results.launched.size());
+    }
+
+    @Test
+    public void destroyedPage_isNotCalled() {
+        activity.coordinator.start("login");
+        loginPage.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        activity.results.finish(lastLaunch(), Activity.RESULT_OK);
+
+        assertTrue(loginPage.shown.isEmpty());
+        FakePage rotated = new FakePage();
+        activity.coordinator.register("login", rotated, rotated.callback());
+        assertEquals(List.of(TOKEN), rotated.shown);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.pointbrew_app;
+
+import android.content.Intent;
+
+import com.example.pointbrew_app.AuthMetrics.Operation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GoogleSilentSignInTest {
+
+    private static final String TOKEN = "ann@gmail.com";
+
+    private InMemoryAuthBackend backend;
+    private FakeGoogleSignInGateway google;
+    private AuthMetrics metrics;
+    private AuthManager authManager;
+    private final List<Intent> choosersLaunched = new ArrayList<>();
+    private final List<AuthUser> signedIn = new ArrayList<>();
+    private final List<Exception> errors = new ArrayList<>();
+
+    private final AuthManager.AuthCallback callback = new AuthManager.AuthCallback() {
+        @Override
+        public void onSuccess(AuthUser user) {
+            signedIn.add(user);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryAuthBackend();
+        google = new FakeGoogleSignInGateway();
+        metrics = new AuthMetrics();
+        authManager = new AuthManager.Builder(backend, () -> google).setMetrics(metrics).build();
+    }
+
+    private void tap() {
+        authManager.signInWithGoogle(callback, choosersLaunched::add);
+    }
+
+    @Test
+    public void returningUser_prewarmedTapSkipsChooser() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+
+        authManager.prewarmGoogleSignIn();
+        tap();
+
+        assertTrue(choosersLaunched.isEmpty());
+        assertEquals(1, google.silentSignInCount);
+        assertEquals(TOKEN, signedIn.get(0).getEmail());
+        assertEquals(1, metrics.getSuccessCount(Operation.GOOGLE_SILENT_SIGN_IN));
+        assertEquals(0, metrics.getSuccessCount(Operation.GOOGLE_SIGN_IN));
+    }
+
+    @Test
+    public void newUser_prewarmDoesNothingAndTapOpensChooser() {
+        google.chooserIdToken = TOKEN;
+
+        authManager.prewarmGoogleSignIn();
+        tap();
+
+        assertEquals(0, google.silentSignInCount);
+        assertEquals(1, choosersLaunched.size());
+        assertTrue(signedIn.isEmpty());
+
+        authManager.handleGoogleSignInResult(choosersLaunched.get(0), callback);
+        assertEquals(TOKEN, signedIn.get(0).getEmail());
+        assertEquals(1, metrics.getSuccessCount(Operation.GOOGLE_SIGN_IN));
+    }
+
+    @Test
+    public void prewarm_checksOffTheCallingThreadWithoutBuildingClient() {
+        List<Runnable> background = new ArrayList<>();
+        authManager = new AuthManager.Builder(backend, () -> google)
+                .setPreviousGoogleSignIn(() -> false)
+                .setBackgroundExecutor(background::add)
+                .build();
+
+        authManager.prewarmGoogleSignIn();
+        assertFalse(authManager.isGoogleSignInClientInitialized());
+        background.remove(0).run();
+
+        assertFalse(authManager.isGoogleSignInClientInitialized());
+        assertEquals(0, google.silentSignInCount);
+    }
+
+    @Test
+    public void prewarm_buildsClientOnlyForReturningUser() {
+        List<Runnable> background = new ArrayList<>();
+        google.silentIdToken = TOKEN;
+        authManager = new AuthManager.Builder(backend, () -> google)
+                .setPreviousGoogleSignIn(() -> true)
+                .setBackgroundExecutor(background::add)
+                .build();
+
+        authManager.prewarmGoogleSignIn();
+        background.remove(0).run();
+
+        assertTrue(authManager.isGoogleSignInClientInitialized());
+        assertEquals(1, google.silentSignInCount);
+    }
+
+    @Test
+    public void failedSilentSignIn_fallsBackToChooser() {
+        google.previousSignIn = true;
+
+        authManager.prewarmGoogleSignIn();
+        tap();
+
+        assertEquals(1, choosersLaunched.size());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void tapDuringPrewarm_joinsIt() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+        google.hold = true;
+
+        authManager.prewarmGoogleSignIn();
+        tap();
+        google.releaseSilentSignIns();
+
+        assertEquals(1, google.silentSignInCount);
+        assertEquals(1, signedIn.size());
+        assertTrue(choosersLaunched.isEmpty());
+    }
+
+    @Test
+    public void prewarmedToken_isUsedOnlyOnce() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+
+        authManager.prewarmGoogleSignIn();
+        tap();
+        tap();
+
+        assertEquals(2, google.silentSignInCount);
+        assertEquals(2, signedIn.size());
+    }
+
+    @Test
+    public void rejectedToken_fallsBackToChooser() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+        authManager = new AuthManager.Builder(new ForwardingAuthBackend(backend) {
+            @Override
+            public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+                callback.onError(new IllegalArgumentException("Token revoked"));
+            }
+        }, () -> google).setMetrics(metrics).build();
+
+        authManager.prewarmGoogleSignIn();
+        tap();
+
+        assertEquals(1, choosersLaunched.size());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void signOut_dropsPrewarmedToken() {
+        google.previousSignIn = true;
+        google.silentIdToken = TOKEN;
+        authManager.prewarmGoogleSignIn();
+
+        authManager.signOut(callback);
+        tap();
+
+        assertEquals(1, google.signOutCount);
+        assertEquals(1, choosersLaunched.size());
+    }
+
+    /**
+     * Tap-to-signed-in time on a simulated network, where the account chooser's own token
+     * exchange is the round trip the fast path saves.
+     */
+    @Test
+    public void timing_fastPathAndFallback() throws Exception {
+        long networkMillis = 40;
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        try {
+            AuthBackend network = new FaultInjectingAuthBackend(backend, scheduler, 42).setLatency(networkMillis, 0);
+            google.silentIdToken = TOKEN;
+            google.chooserIdToken = TOKEN;
+            authManager = new AuthManager.Builder(network, () -> google).setMetrics(metrics).build();
+
+            long fallbackMillis = timeTap(scheduler, networkMillis);
+            authManager.signOut(callback);
+            google.previousSignIn = true;
+            authManager.prewarmGoogleSignIn();
+            long fastMillis = timeTap(scheduler, networkMillis);
+
+            assertEquals(1, metrics.getSuccessCount(Operation.GOOGLE_SILENT_SIGN_IN));
+            assertEquals(1, metrics.getSuccessCount(Operation.GOOGLE_SIGN_IN));
+            assertTrue(fastMillis < fallbackMillis);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private long timeTap(ScheduledExecutorService scheduler, long exchangeMillis) throws Exception {
+        CompletableFuture<AuthUser> done = new CompletableFuture<>();
+        AuthManager.AuthCallback completing = new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                done.complete(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                done.completeExceptionally(e);
+            }
+        };
+        long start = System.nanoTime();
+        authManager.signInWithGoogle(completing, intent -> scheduler.schedule(
+                () -> authManager.handleGoogleSignInResult(intent, completing), exchangeMillis, TimeUnit.MILLISECONDS));
+        done.get(5, TimeUnit.SECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IdTokenManagerTest {
+
+    private static final long LIFETIME_MILLIS = 60 * 60_000;
+
+    /**
+     * Mints numbered tokens that expire an hour after they are minted. Requests wait for
+     * {@link #answer()} when {@code hold} is set.
+     */
+    private static final class FakeTokenSource implements IdTokenSource {
+        final FakeClock clock;
+        final List<AuthBackend.Callback<IdToken>> held = new ArrayList<>();
+        final List<Boolean> forced = new ArrayList<>();
+        boolean hold;
+        boolean fail;
+        long lifetimeMillis = LIFETIME_MILLIS;
+        int minted;
+
+        FakeTokenSource(FakeClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void getIdToken(boolean forceRefresh, AuthBackend.Callback<IdToken> callback) {
+            forced.add(forceRefresh);
+            held.add(callback);
+            if (!hold) {
+                answer();
+            }
+        }
+
+        void answer() {
+            List<AuthBackend.Callback<IdToken>> callbacks = new ArrayList<>(held);
+            held.clear();
+            for (AuthBackend.Callback<IdToken> callback : callbacks) {
+                if (fail) {
+                    callback.onError(new IllegalStateException("token service down"));
+                } else {
+                    callback.onSuccess(new IdToken("token-" + ++minted, clock.nowMillis() + lifetimeMillis));
+                }
+            }
+        }
+    }
+
+    private FakeClock clock;
+    private FakeTokenSource source;
+    private IdTokenManager tokens;
+    private final List<String> received = new ArrayList<>();
+    private final List<Exception> errors = new ArrayList<>();
+
+    private final AuthBackend.Callback<String> callback = new AuthBackend.Callback<String>() {
+        @Override
+        public void onSuccess(String token) {
+            received.add(token);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(1_000_000);
+        source = new FakeTokenSource(clock);
+        tokens = new IdTokenManager(source, clock, clock);
+    }
+
+    @Test
+    public void firstRequest_missesThenLaterOnesHit() {
+        tokens.getToken(callback);
+        tokens.getToken(callback);
+
+        assertEquals(1, source.forced.size());
+        assertEquals("token-1", received.get(0));
+        assertEquals("token-1", received.get(1));
+        assertEquals(1, tokens.getMissCount());
+        assertEquals(1, tokens.getHitCount());
+        assertEquals(1, tokens.getRefreshLatency().getCount());
+    }
+
+    @Test
+    public void concurrentMisses_shareOneRefresh() {
+        source.hold = true;
+
+        for (int i = 0; i < 20; i++) {
+            tokens.getToken(callback);
+        }
+        source.answer();
+
+        assertEquals(1, source.forced.size());
+        assertEquals(20, received.size());
+        assertEquals(20, tokens.getMissCount());
+    }
+
+    @Test
+    public void tokenIsRenewedInBackgroundBeforeExpiry() {
+        tokens.prefetch();
+        assertEquals(1, clock.pendingCount());
+
+        clock.advance(LIFETIME_MILLIS - IdTokenManager.REFRESH_AHEAD_MILLIS);
+
+        assertEquals(2, source.forced.size());
+        assertTrue("background refresh must not get the expiring token back", source.forced.get(1));
+        clock.advance(IdTokenManager.REFRESH_AHEAD_MILLIS);
+        tokens.getToken(callback);
+        assertEquals("token-2", received.get(0));
+        assertEquals(1, tokens.getHitCount());
+        assertEquals(0, tokens.getMissCount());
+    }
+
+    @Test
+    public void tokenCloseToExpiry_isNotHandedOut() {
+        source.lifetimeMillis = IdTokenManager.MIN_REMAINING_MILLIS / 2;
+        tokens.prefetch();
+
+        tokens.getToken(callback);
+
+        assertEquals(1, tokens.getMissCount());
+        assertEquals("token-2", received.get(0));
+    }
+
+    @Test
+    public void failedBackgroundRefresh_isRetriedWhileTokenLasts() {
+        tokens.prefetch();
+        source.fail = true;
+
+        clock.advance(LIFETIME_MILLIS - IdTokenManager.REFRESH_AHEAD_MILLIS);
+        assertEquals(1, tokens.getRefreshFailureCount());
+        // The held token is still good, so requests keep hitting
+        tokens.getToken(callback);
+        assertEquals("token-1", received.get(0));
+
+        source.fail = false;
+        clock.advance(IdTokenManager.RETRY_DELAY_MILLIS);
+        assertEquals(3, source.forced.size());
+        tokens.getToken(callback);
+        assertEquals("token-2", received.get(1));
+    }
+
+    @Test
+    public void failedRefresh_reachesWaitingCallers() {
+        source.fail = true;
+
+        tokens.getToken(callback);
+
+        assertEquals(1, errors.size());
+        assertEquals(0, clock.pendingCount());
+    }
+
+    @Test
+    public void clear_dropsTokenAndStopsRenewing() {
+        tokens.prefetch();
+
+        tokens.clear();
+
+        assertEquals(0, clock.pendingCount());
+        tokens.getToken(callback);
+        assertEquals(1, tokens.getMissCount());
+        assertEquals("token-2", received.get(0));
+    }
+
+    @Test
+    public void refreshStartedBeforeClear_isNotKept() {
+        source.hold = true;
+        tokens.prefetch();
+
+        tokens.clear();
+        source.answer();
+
+        assertEquals(0, clock.pendingCount());
+        source.hold = false;
+        tokens.getToken(callback);
+        assertEquals("token-2", received.get(0));
+    }
+
+    @Test
+    public void signIn_prefetchesAndSignOut_clears() {
+        InMemoryAuthBackend backend = new InMemoryAuthBackend();
+        backend.addAccount("ann@example.com", "secret1", "Ann");
+        IdTokenManager managed = new IdTokenManager(backend::getIdToken, clock, clock);
+        AuthManager authManager = new AuthManager.Builder(backend, FakeGoogleSignInGateway::new)
+                .setIdTokens(() -> managed)
+                .build();
+
+        authManager.loginWithEmail("ann@example.com", "secret1", new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        managed.getToken(callback);
+
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.GET_ID_TOKEN));
+        assertEquals(1, managed.getHitCount());
+
+        authManager.signOut(new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        assertEquals(0, clock.pendingCount());
+    }
+}
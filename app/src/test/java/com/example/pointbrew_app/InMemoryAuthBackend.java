@@ -0,0 +1,266 @@
+package com.example.pointbrew_app;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AuthBackend} that keeps accounts and {@code users/{uid}} documents in memory.
+ *
+ * Callbacks run synchronously on the calling thread. Used by tests and benchmarks.
+ */
+public class InMemoryAuthBackend implements AuthBackend {
+
+    public static final String SIGN_IN_WITH_EMAIL = "signInWithEmail";
+    public static final String CREATE_USER_WITH_EMAIL = "createUserWithEmail";
+    public static final String SIGN_IN_WITH_GOOGLE = "signInWithGoogleIdToken";
+    public static final String SEND_PASSWORD_RESET = "sendPasswordResetEmail";
+    public static final String IS_EMAIL_REGISTERED = "isEmailRegistered";
+    public static final String UPSERT_PROFILE = "upsertProfile";
+    public static final String UPSERT_PROFILES = "upsertProfiles";
+    public static final String FETCH_PROFILE = "fetchProfile";
+    public static final String GET_ID_TOKEN = "getIdToken";
+    public static final String ADD_PROFILE_LISTENER = "addProfileListener";
+    static final long ID_TOKEN_LIFETIME_MILLIS = 60 * 60_000;
+
+    private static final class Account {
+        final AuthUser user;
+        final String password;
+
+        Account(AuthUser user, String password) {
+            this.user = user;
+            this.password = password;
+        }
+    }
+
+    private final Map<String, Account> mAccountsByEmail = new HashMap<>();
+    private final Map<String, Map<String, Object>> mProfiles = new HashMap<>();
+    private final Map<String, AtomicInteger> mCallCounts = new ConcurrentHashMap<>();
+    private int mNextUid = 1;
+    private volatile AuthUser mCurrentUser;
+    private final List<AuthStateListener> mAuthStateListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, List<Callback<UserProfile>>> mProfileListeners = new ConcurrentHashMap<>();
+
+    /**
+     * Registers an account directly, as if it had signed up earlier.
+     */
+    public synchronized AuthUser addAccount(String email, String password, String displayName) {
+        AuthUser user = new AuthUser("uid-" + mNextUid++, email, displayName, null);
+        mAccountsByEmail.put(email, new Account(user, password));
+        return user;
+    }
+
+    /**
+     * Snapshot of {@code users/{uid}}, or null if it was never written.
+     */
+    public synchronized Map<String, Object> getProfile(String uid) {
+        Map<String, Object> profile = mProfiles.get(uid);
+        return profile != null ? Collections.unmodifiableMap(new HashMap<>(profile)) : null;
+    }
+
+    public int getAuthStateListenerCount() {
+        return mAuthStateListeners.size();
+    }
+
+    /**
+     * Profile listeners currently attached to {@code users/{uid}}.
+     */
+    public int getProfileListenerCount(String uid) {
+        List<Callback<UserProfile>> listeners = mProfileListeners.get(uid);
+        return listeners != null ? listeners.size() : 0;
+    }
+
+    public int getCallCount(String operation) {
+        AtomicInteger count = mCallCounts.get(operation);
+        return count != null ? count.get() : 0;
+    }
+
+    private int countCall(String operation) {
+        return mCallCounts.computeIfAbsent(operation, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public AuthUser getCurrentUser() {
+        return mCurrentUser;
+    }
+
+    @Override
+    public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+        countCall(SIGN_IN_WITH_EMAIL);
+        Account account;
+        synchronized (this) {
+            account = mAccountsByEmail.get(email);
+        }
+        if (account == null || account.password == null || !account.password.equals(password)) {
+            callback.onError(new IllegalArgumentException("The email or password is incorrect"));
+            return;
+        }
+        setCurrentUser(account.user);
+        callback.onSuccess(new SignInResult(account.user, false));
+    }
+
+    @Override
+    public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+        countCall(CREATE_USER_WITH_EMAIL);
+        AuthUser user;
+        synchronized (this) {
+            if (mAccountsByEmail.containsKey(email)) {
+                user = null;
+            } else {
+                user = addAccount(email, password, null);
+            }
+        }
+        if (user == null) {
+            callback.onError(new IllegalStateException("The email address is already in use"));
+            return;
+        }
+        setCurrentUser(user);
+        callback.onSuccess(new SignInResult(user, true));
+    }
+
+    @Override
+    public void signInWithGoogleIdToken(String idToken, Callback<SignInResult> callback) {
+        countCall(SIGN_IN_WITH_GOOGLE);
+        // Treat the token as the Google account's email
+        String email = idToken;
+        boolean newUser;
+        AuthUser user;
+        synchronized (this) {
+            Account account = mAccountsByEmail.get(email);
+            newUser = account == null;
+            user = newUser ? addAccount(email, null, email) : account.user;
+        }
+        setCurrentUser(user);
+        callback.onSuccess(new SignInResult(user, newUser));
+    }
+
+    @Override
+    public void sendPasswordResetEmail(String email, Callback<Void> callback) {
+        countCall(SEND_PASSWORD_RESET);
+        callback.onSuccess(null);
+    }
+
+    @Override
+    public void isEmailRegistered(String email, Callback<Boolean> callback) {
+        countCall(IS_EMAIL_REGISTERED);
+        boolean registered;
+        synchronized (this) {
+            registered = mAccountsByEmail.containsKey(email);
+        }
+        callback.onSuccess(registered);
+    }
+
+    @Override
+    public void signOut() {
+        setCurrentUser(null);
+    }
+
+    @Override
+    public Subscription addAuthStateListener(AuthStateListener listener) {
+        mAuthStateListeners.add(listener);
+        listener.onAuthStateChanged(mCurrentUser);
+        return () -> mAuthStateListeners.remove(listener);
+    }
+
+    private void setCurrentUser(AuthUser user) {
+        mCurrentUser = user;
+        for (AuthStateListener listener : mAuthStateListeners) {
+            listener.onAuthStateChanged(user);
+        }
+    }
+
+    @Override
+    public void getIdToken(boolean forceRefresh, Callback<IdToken> callback) {
+        int call = countCall(GET_ID_TOKEN);
+        AuthUser user = mCurrentUser;
+        if (user == null) {
+            callback.onError(new IllegalStateException("No signed-in user"));
+            return;
+        }
+        callback.onSuccess(new IdToken("token-" + user.getUid() + "-" + call,
+                System.currentTimeMillis() + ID_TOKEN_LIFETIME_MILLIS));
+    }
+
+    @Override
+    public void upsertProfile(ProfileUpsert upsert, Callback<Void> callback) {
+        countCall(UPSERT_PROFILE);
+        apply(upsert);
+        notifyProfileListeners(upsert.getUid());
+        callback.onSuccess(null);
+    }
+
+    @Override
+    public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+        countCall(UPSERT_PROFILES);
+        synchronized (this) {
+            for (ProfileUpsert upsert : upserts) {
+                apply(upsert);
+            }
+        }
+        for (ProfileUpsert upsert : upserts) {
+            notifyProfileListeners(upsert.getUid());
+        }
+        callback.onSuccess(null);
+    }
+
+    @Override
+    public void fetchProfile(String uid, Callback<UserProfile> callback) {
+        countCall(FETCH_PROFILE);
+        callback.onSuccess(readUserProfile(uid));
+    }
+
+    @Override
+    public Subscription addProfileListener(String uid, Callback<UserProfile> listener) {
+        countCall(ADD_PROFILE_LISTENER);
+        List<Callback<UserProfile>> listeners =
+                mProfileListeners.computeIfAbsent(uid, k -> new CopyOnWriteArrayList<>());
+        listeners.add(listener);
+        listener.onSuccess(readUserProfile(uid));
+        return () -> listeners.remove(listener);
+    }
+
+    private void notifyProfileListeners(String uid) {
+        List<Callback<UserProfile>> listeners = mProfileListeners.get(uid);
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+        UserProfile profile = readUserProfile(uid);
+        for (Callback<UserProfile> listener : listeners) {
+            listener.onSuccess(profile);
+        }
+    }
+
+    private UserProfile readUserProfile(String uid) {
+        Map<String, Object> profile = getProfile(uid);
+        if (profile == null) {
+            return null;
+        }
+        return new UserProfile(uid,
+                (String) profile.get(ProfileUpsert.FIELD_EMAIL),
+                (String) profile.get(ProfileUpsert.FIELD_DISPLAY_NAME),
+                (Date) profile.get(ProfileUpsert.FIELD_BIRTH_DATE),
+                (String) profile.get(ProfileUpsert.FIELD_PHOTO_URL),
+                Boolean.TRUE.equals(profile.get(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN)));
+    }
+
+    private synchronized void apply(ProfileUpsert upsert) {
+        // Same semantics as a Firestore merge limited to the field mask
+        Map<String, Object> profile = mProfiles.computeIfAbsent(upsert.getUid(), k -> new HashMap<>());
+        profile.putAll(upsert.getFields());
+        Date now = new Date();
+        for (String field : upsert.getServerTimestampFields()) {
+            profile.put(field, now);
+        }
+    }
+
+    @Override
+    public boolean isTransientError(Exception e) {
+        return e instanceof IOException;
+    }
+}
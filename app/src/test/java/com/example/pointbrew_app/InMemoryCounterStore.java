@@ -0,0 +1,53 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CounterStore} that keeps shards in memory. Callbacks run synchronously on the calling
+ * thread.
+ */
+public class InMemoryCounterStore implements CounterStore {
+
+    private final Map<String, Map<Integer, AtomicLong>> mShards = new ConcurrentHashMap<>();
+    private final AtomicInteger mReadCount = new AtomicInteger();
+
+    @Override
+    public void incrementShard(@NonNull String counterPath, int shard, long delta,
+                               @NonNull AuthBackend.Callback<Void> callback) {
+        mShards.computeIfAbsent(counterPath, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(shard, k -> new AtomicLong())
+                .addAndGet(delta);
+        callback.onSuccess(null);
+    }
+
+    @Override
+    public void readTotal(@NonNull String counterPath, @NonNull AuthBackend.Callback<Long> callback) {
+        mReadCount.incrementAndGet();
+        long total = 0;
+        Map<Integer, AtomicLong> shards = mShards.get(counterPath);
+        if (shards != null) {
+            for (AtomicLong shard : shards.values()) {
+                total += shard.get();
+            }
+        }
+        callback.onSuccess(total);
+    }
+
+    /**
+     * The value of one shard, or 0 if it was never written.
+     */
+    public long getShard(String counterPath, int shard) {
+        Map<Integer, AtomicLong> shards = mShards.get(counterPath);
+        AtomicLong value = shards != null ? shards.get(shard) : null;
+        return value != null ? value.get() : 0;
+    }
+
+    public int getReadCount() {
+        return mReadCount.get();
+    }
+}
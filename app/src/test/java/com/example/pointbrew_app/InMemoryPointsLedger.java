@@ -0,0 +1,82 @@
+package com.example.pointbrew_app;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PointsLedger} kept in memory with the same rules as {@link FirestorePointsLedger}.
+ * Callbacks run synchronously on the calling thread. Used by tests.
+ */
+public class InMemoryPointsLedger implements PointsLedger {
+
+    private static final class Entry {
+        final long delta;
+        final long balanceAfter;
+
+        Entry(long delta, long balanceAfter) {
+            this.delta = delta;
+            this.balanceAfter = balanceAfter;
+        }
+    }
+
+    // Guarded by this
+    private final Map<String, Long> mBalances = new HashMap<>();
+    private final Map<String, Map<String, Entry>> mEntries = new HashMap<>();
+    private int mBalanceReads;
+
+    @Override
+    public void apply(@NonNull String uid, @NonNull PointsTransaction transaction,
+                      @NonNull AuthBackend.Callback<Long> callback) {
+        long after;
+        synchronized (this) {
+            Map<String, Entry> entries = mEntries.computeIfAbsent(uid, k -> new LinkedHashMap<>());
+            Entry existing = entries.get(transaction.getIdempotencyKey());
+            if (existing != null) {
+                after = existing.balanceAfter;
+            } else {
+                long balance = mBalances.getOrDefault(uid, 0L);
+                after = balance + transaction.getDelta();
+                if (after < 0) {
+                    callback.onError(new InsufficientPointsException(balance, transaction.getPoints()));
+                    return;
+                }
+                entries.put(transaction.getIdempotencyKey(), new Entry(transaction.getDelta(), after));
+                mBalances.put(uid, after);
+            }
+        }
+        callback.onSuccess(after);
+    }
+
+    @Override
+    public void getBalance(@NonNull String uid, @NonNull AuthBackend.Callback<Long> callback) {
+        long balance;
+        synchronized (this) {
+            mBalanceReads++;
+            balance = mBalances.getOrDefault(uid, 0L);
+        }
+        callback.onSuccess(balance);
+    }
+
+    /**
+     * The signed deltas of {@code uid}'s transactions, oldest first.
+     */
+    public synchronized List<Long> getDeltas(String uid) {
+        List<Long> deltas = new ArrayList<>();
+        Map<String, Entry> entries = mEntries.get(uid);
+        if (entries != null) {
+            for (Entry entry : entries.values()) {
+                deltas.add(entry.delta);
+            }
+        }
+        return deltas;
+    }
+
+    public synchronized int getBalanceReadCount() {
+        return mBalanceReads;
+    }
+}
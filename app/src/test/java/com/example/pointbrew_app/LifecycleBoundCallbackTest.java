@@ -0,0 +1,194 @@
+package com.example.pointbrew_app;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class LifecycleBoundCallbackTest {
+
+    /**
+     * Stands in for an Activity or fragment: owns a lifecycle and is what a leak would retain.
+     */
+    private static final class FakeScreen implements LifecycleOwner {
+        final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this);
+        final List<String> shown = new ArrayList<>();
+        // Something heavy, like a view hierarchy
+        final byte[] views = new byte[1 << 20];
+
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+    }
+
+    /**
+     * In-memory backend whose email sign-ins stay on the wire until released.
+     */
+    private static final class HeldSignInBackend extends ForwardingAuthBackend {
+        final List<Runnable> held = new ArrayList<>();
+
+        HeldSignInBackend(InMemoryAuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+            held.add(() -> super.signInWithEmail(email, password, callback));
+        }
+
+        void release() {
+            for (Runnable signIn : held) {
+                signIn.run();
+            }
+            held.clear();
+        }
+    }
+
+    private final Queue<Runnable> mainQueue = new ArrayDeque<>();
+    private final Executor mainThread = mainQueue::add;
+    private FakeScreen screen;
+
+    @Before
+    public void setUp() {
+        screen = new FakeScreen();
+    }
+
+    private AuthBackend.Callback<String> showing(FakeScreen target) {
+        return new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                target.shown.add(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                target.shown.add("error: " + e.getMessage());
+            }
+        };
+    }
+
+    private void runMainQueue() {
+        Runnable task;
+        while ((task = mainQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void startedOwner_getsResultOnExecutor() {
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        AuthBackend.Callback<String> callback = LifecycleBoundCallback.bind(screen, mainThread, showing(screen));
+
+        callback.onSuccess("done");
+
+        assertTrue("nothing runs until the executor does", screen.shown.isEmpty());
+        runMainQueue();
+        assertEquals(1, screen.shown.size());
+        assertEquals("done", screen.shown.get(0));
+    }
+
+    @Test
+    public void stoppedOwner_getsResultWhenStartedAgain() {
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        AuthBackend.Callback<String> callback = LifecycleBoundCallback.bind(screen, mainThread, showing(screen));
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_STOP);
+
+        callback.onError(new Exception("offline"));
+        runMainQueue();
+        assertTrue(screen.shown.isEmpty());
+
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_START);
+        assertEquals(1, screen.shown.size());
+        assertEquals("error: offline", screen.shown.get(0));
+    }
+
+    @Test
+    public void destroyedOwner_dropsResult() {
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        LifecycleBoundCallback<String> callback = LifecycleBoundCallback.bind(screen, mainThread, showing(screen));
+
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        callback.onSuccess("late");
+        runMainQueue();
+
+        assertTrue(callback.isReleased());
+        assertTrue(screen.shown.isEmpty());
+    }
+
+    @Test
+    public void alreadyDestroyedOwner_isNeverCalled() {
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        LifecycleBoundCallback<String> callback = LifecycleBoundCallback.bind(screen, mainThread, showing(screen));
+        callback.onSuccess("late");
+        runMainQueue();
+
+        assertTrue(callback.isReleased());
+        assertTrue(screen.shown.isEmpty());
+    }
+
+    @Test
+    public void configChangeMidRequest_doesNotRetainOldScreen() throws Exception {
+        InMemoryAuthBackend accounts = new InMemoryAuthBackend();
+        accounts.addAccount("ann@example.com", "secret1", "Ann");
+        HeldSignInBackend backend = new HeldSignInBackend(accounts);
+        AuthManager authManager = new AuthManager.Builder(backend, () -> null)
+                .setCallbackExecutor(mainThread)
+                .build();
+
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        authManager.loginWithEmail("ann@example.com", "secret1", bindLogin(authManager, screen));
+
+        // Rotation: the old screen is destroyed while the sign-in is still on the wire
+        screen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        WeakReference<FakeScreen> oldScreen = new WeakReference<>(screen);
+        screen = null;
+        assertTrue("old screen is still reachable from the pending request", collected(oldScreen));
+
+        // The recreated screen joins the request that is still in flight
+        FakeScreen newScreen = new FakeScreen();
+        newScreen.lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        authManager.loginWithEmail("ann@example.com", "secret1", bindLogin(authManager, newScreen));
+        assertEquals(1, backend.held.size());
+
+        backend.release();
+        runMainQueue();
+        assertEquals(1, newScreen.shown.size());
+        assertEquals("ann@example.com", newScreen.shown.get(0));
+    }
+
+    private static AuthManager.AuthCallback bindLogin(AuthManager authManager, FakeScreen target) {
+        return authManager.bind(target, new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                target.shown.add(user.getEmail());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                target.shown.add("error: " + e.getMessage());
+            }
+        });
+    }
+
+    private static boolean collected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return reference.get() == null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.pointbrew_app;
+
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The costs {@link LoyaltyCardRenderer} is built around: encoding a code from scratch versus
+ * reading it back from the disk tier and scaling it to pixels, and how often the memory cache
+ * saves even that.
+ *
+ * Iterations and the card size can be changed with
+ * {@code -Dloyalty.benchmark.iterations=2000 -Dloyalty.benchmark.size=900}.
+ */
+public class LoyaltyCardBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("loyalty.benchmark.iterations", 500);
+    private static final int WARMUP_ITERATIONS = 100;
+    private static final int SIZE_PX = Integer.getInteger("loyalty.benchmark.size", 720);
+    // RGB_565
+    private static final int BYTES_PER_PIXEL = 2;
+
+    private final LoyaltyCodeEncoder encoder = new LoyaltyCodeEncoder();
+
+    @Test
+    public void encodeTime() throws Exception {
+        Random random = new Random(42);
+        long[] encode = new long[ITERATIONS];
+        long[] fromDisk = new long[ITERATIONS];
+        long[] pixels = new long[ITERATIONS];
+        int[] buffer = new int[SIZE_PX * SIZE_PX];
+
+        for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+            String payload = LoyaltyCodeEncoder.payload(uid(random), Long.toString(random.nextInt(1_000_000)));
+
+            long start = System.nanoTime();
+            BitMatrix modules = encoder.encode(payload);
+            long encoded = System.nanoTime();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            LoyaltyCodeEncoder.write(payload, modules, new DataOutputStream(bytes));
+            long readStart = System.nanoTime();
+            BitMatrix read = LoyaltyCodeEncoder.read(payload,
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            long readEnd = System.nanoTime();
+
+            LoyaltyCodeEncoder.toPixels(read, SIZE_PX, buffer);
+            long drawn = System.nanoTime();
+
+            if (i >= 0) {
+                encode[i] = encoded - start;
+                fromDisk[i] = readEnd - readStart;
+                pixels[i] = drawn - readEnd;
+            }
+        }
+        Arrays.sort(encode);
+        Arrays.sort(fromDisk);
+        Arrays.sort(pixels);
+
+        System.out.printf("loyalty code %dpx  encode p50=%7.3fms p99=%7.3fms  "
+                        + "disk decode p50=%7.3fms p99=%7.3fms  to pixels p50=%7.3fms p99=%7.3fms%n", SIZE_PX,
+                millis(percentile(encode, 50)), millis(percentile(encode, 99)),
+                millis(percentile(fromDisk, 50)), millis(percentile(fromDisk, 99)),
+                millis(percentile(pixels, 50)), millis(percentile(pixels, 99)));
+        assertTrue(percentile(fromDisk, 50) < percentile(encode, 50));
+    }
+
+    /**
+     * Replays a day of card views on one phone: mostly the signed-in member, sometimes another
+     * account on the same phone, at full size and as a small preview, with the nonce rotating
+     * every few views.
+     */
+    @Test
+    public void cacheHitRate() {
+        long cardBytes = (long) SIZE_PX * SIZE_PX * BYTES_PER_PIXEL;
+        double previous = -1;
+        for (int cards : new int[]{1, 2, 4, 8}) {
+            BoundedLruCache<String, Long> cache = new BoundedLruCache<>(cards * cardBytes, bytes -> bytes, null);
+            Random random = new Random(7);
+            String[] members = {uid(random), uid(random), uid(random)};
+            for (int view = 0; view < 10_000; view++) {
+                double pick = random.nextDouble();
+                String uid = pick < 0.85 ? members[0] : pick < 0.97 ? members[1] : members[2];
+                String nonce = Integer.toString(view / 6);
+                int size = random.nextInt(4) == 0 ? SIZE_PX / 4 : SIZE_PX;
+                String key = LoyaltyCodeEncoder.payload(uid, nonce) + "@" + size;
+                if (cache.get(key) == null) {
+                    cache.put(key, (long) size * size * BYTES_PER_PIXEL);
+                }
+            }
+            System.out.printf("loyalty card cache %d cards (%5.1f MB)  hit rate %5.1f%%  evictions %d%n",
+                    cards, cards * cardBytes / 1e6, cache.hitRate() * 100, cache.evictionCount());
+            assertTrue(cache.hitRate() >= previous);
+            previous = cache.hitRate();
+        }
+        assertTrue("hit rate " + previous, previous > 0.5);
+    }
+
+    private static String uid(Random random) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        StringBuilder uid = new StringBuilder();
+        for (int i = 0; i < 28; i++) {
+            uid.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return uid.toString();
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
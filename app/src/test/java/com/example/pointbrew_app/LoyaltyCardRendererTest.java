@@ -0,0 +1,131 @@
+package com.example.pointbrew_app;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class LoyaltyCardRendererTest {
+
+    private static final String UID = "kX3vQ9TnUeZb7yWc2LpR8sHfD1m4";
+    private static final int SIZE = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private final List<Bitmap> rendered = new ArrayList<>();
+
+    private final AuthBackend.Callback<Bitmap> record = new AuthBackend.Callback<Bitmap>() {
+        @Override
+        public void onSuccess(Bitmap bitmap) {
+            rendered.add(bitmap);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            fail(e.getMessage());
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("codes");
+        // The renderer here does its disk I/O inline, which the app's launch guard would reject
+        StartupIoGuard.get().endLaunch();
+    }
+
+    private LoyaltyCardRenderer newRenderer() {
+        return new LoyaltyCardRenderer(() -> directory, Runnable::run, Runnable::run, 8L * 1024 * 1024);
+    }
+
+    @Test
+    public void render_drawsCodeAtRequestedSize() {
+        LoyaltyCardRenderer renderer = newRenderer();
+
+        renderer.render(UID, null, SIZE, record);
+
+        Bitmap bitmap = rendered.get(0);
+        assertEquals(SIZE, bitmap.getWidth());
+        assertEquals(SIZE, bitmap.getHeight());
+        // The quiet zone is white and the top-left finder pattern starts dark
+        assertEquals(LoyaltyCodeEncoder.WHITE, bitmap.getPixel(0, 0));
+        assertSame(bitmap, renderer.peek(UID, null, SIZE));
+    }
+
+    @Test
+    public void secondRender_comesFromMemory() {
+        LoyaltyCardRenderer renderer = newRenderer();
+
+        renderer.render(UID, null, SIZE, record);
+        renderer.render(UID, null, SIZE, record);
+
+        assertSame(rendered.get(0), rendered.get(1));
+        assertEquals(1, renderer.getEncodeCount());
+    }
+
+    @Test
+    public void newProcess_readsCodeFromDisk() {
+        newRenderer().render(UID, null, SIZE, record);
+
+        LoyaltyCardRenderer restarted = newRenderer();
+        restarted.render(UID, null, SIZE, record);
+
+        assertEquals(0, restarted.getEncodeCount());
+        assertEquals(1, restarted.getDiskHitCount());
+        int[] first = new int[SIZE * SIZE];
+        int[] second = new int[SIZE * SIZE];
+        rendered.get(0).getPixels(first, 0, SIZE, 0, 0, SIZE, SIZE);
+        rendered.get(1).getPixels(second, 0, SIZE, 0, 0, SIZE, SIZE);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void rotatedNonce_reusesPreviousBitmap() {
+        LoyaltyCardRenderer renderer = newRenderer();
+
+        renderer.render(UID, "1", SIZE, record);
+        renderer.render(UID, "2", SIZE, record);
+        renderer.render(UID, "3", SIZE, record);
+
+        assertEquals(3, renderer.getEncodeCount());
+        // "2" had no superseded bitmap yet; "3" drew over the one "1" left behind
+        assertEquals(1, renderer.getReuseCount());
+        assertSame(rendered.get(0), rendered.get(2));
+        assertNull(renderer.peek(UID, "1", SIZE));
+    }
+
+    @Test
+    public void otherSizes_areNotReused() {
+        LoyaltyCardRenderer renderer = newRenderer();
+
+        renderer.render(UID, "1", SIZE, record);
+        renderer.render(UID, "2", SIZE, record);
+        renderer.render(UID, "2", SIZE / 2, record);
+
+        assertEquals(0, renderer.getReuseCount());
+        assertEquals(SIZE / 2, rendered.get(2).getWidth());
+    }
+
+    @Test
+    public void diskTier_isTrimmed() {
+        LoyaltyCardRenderer renderer = newRenderer();
+
+        for (int i = 0; i < LoyaltyCardRenderer.MAX_DISK_FILES + 5; i++) {
+            renderer.render(UID, Integer.toString(i), SIZE, record);
+        }
+
+        assertEquals(LoyaltyCardRenderer.MAX_DISK_FILES, directory.listFiles().length);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.pointbrew_app;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.Assert.*;
+
+public class LoyaltyCodeEncoderTest {
+
+    private static final String UID = "kX3vQ9TnUeZb7yWc2LpR8sHfD1m4";
+
+    private final LoyaltyCodeEncoder encoder = new LoyaltyCodeEncoder();
+
+    @Test
+    public void payload_appendsNonce() {
+        assertEquals(UID, LoyaltyCodeEncoder.payload(UID, null));
+        assertEquals(UID + ":1729", LoyaltyCodeEncoder.payload(UID, "1729"));
+    }
+
+    @Test
+    public void renderedPixels_scanBackToPayload() throws Exception {
+        String payload = LoyaltyCodeEncoder.payload(UID, "1729");
+        int size = 300;
+        int[] pixels = new int[size * size];
+
+        LoyaltyCodeEncoder.toPixels(encoder.encode(payload), size, pixels);
+
+        BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(size, size, pixels)));
+        assertEquals(payload, new QRCodeReader().decode(image).getText());
+    }
+
+    @Test
+    public void toPixels_scalesModulesByWholePixels() throws Exception {
+        BitMatrix modules = encoder.encode(UID);
+        int size = modules.getWidth() * 4 + 3;
+        int[] pixels = new int[size * size];
+
+        LoyaltyCodeEncoder.toPixels(modules, size, pixels);
+
+        // Offset by one pixel to centre; each module is a 4x4 block
+        for (int y = 0; y < modules.getHeight(); y++) {
+            for (int x = 0; x < modules.getWidth(); x++) {
+                int expected = modules.get(x, y) ? LoyaltyCodeEncoder.BLACK : LoyaltyCodeEncoder.WHITE;
+                assertEquals(expected, pixels[(1 + y * 4 + 3) * size + 1 + x * 4 + 3]);
+            }
+        }
+        assertEquals(LoyaltyCodeEncoder.WHITE, pixels[size * size - 1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toPixels_rejectsSizeSmallerThanCode() throws Exception {
+        LoyaltyCodeEncoder.toPixels(encoder.encode(UID), 10, new int[100]);
+    }
+
+    @Test
+    public void diskFormat_roundTrips() throws Exception {
+        BitMatrix modules = encoder.encode(UID);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LoyaltyCodeEncoder.write(UID, modules, new DataOutputStream(bytes));
+
+        assertEquals(modules, LoyaltyCodeEncoder.read(UID,
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        assertNull(LoyaltyCodeEncoder.read(UID + ":other",
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        // One bit per module plus a short header
+        assertTrue(bytes.size() < modules.getWidth() * modules.getHeight() / 8 + 64);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.pointbrew_app;
+
+import android.util.Printer;
+
+import com.example.pointbrew_app.AuthMetrics.Operation;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class MainThreadWatchdogTest {
+
+    private static final long THRESHOLD_MILLIS = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FakeClock clock = new FakeClock(1_000_000);
+    private final ControllableLooper looper = new ControllableLooper();
+    private File dumpFile;
+    private MainThreadWatchdog watchdog;
+
+    /**
+     * Dispatches queued messages on the test thread the way a real looper does, printing the
+     * same lines to its message logging around each one. Time only moves when a message says so.
+     */
+    private final class ControllableLooper implements Executor {
+        private final ArrayDeque<Runnable> mQueue = new ArrayDeque<>();
+        private Printer mLogging;
+        private int mWhat;
+
+        void setMessageLogging(Printer printer) {
+            mLogging = printer;
+        }
+
+        @Override
+        public void execute(Runnable message) {
+            mQueue.add(message);
+        }
+
+        void dispatch(String handler, Runnable message) {
+            int what = mWhat++;
+            mLogging.println(">>>>> Dispatching to Handler (" + handler + ") {1a2b3c} " + message + ": " + what);
+            message.run();
+            mLogging.println("<<<<< Finished to Handler (" + handler + ") {1a2b3c} " + message);
+        }
+
+        void busy(long millis) {
+            clock.advance(millis);
+        }
+
+        void runQueued() {
+            Runnable message;
+            while ((message = mQueue.poll()) != null) {
+                dispatch("android.os.Handler", message);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        dumpFile = new File(folder.getRoot(), "main_thread_stalls.txt");
+        watchdog = newWatchdog(4);
+    }
+
+    private MainThreadWatchdog newWatchdog(int capacity) {
+        MainThreadWatchdog watchdog = new MainThreadWatchdog(() -> clock.nowMillis() * 1_000_000, clock,
+                THRESHOLD_MILLIS, capacity, () -> dumpFile, clock);
+        watchdog.install(looper::setMessageLogging);
+        return watchdog;
+    }
+
+    @Test
+    public void fastMessages_areNotStalls() {
+        looper.dispatch("Choreographer", () -> looper.busy(16));
+        looper.dispatch("Choreographer", () -> looper.busy(THRESHOLD_MILLIS));
+
+        assertEquals(0, watchdog.getStallCount());
+        assertTrue(watchdog.getStalls().isEmpty());
+    }
+
+    @Test
+    public void slowMessage_isRecordedWithTarget() {
+        long start = clock.nowMillis();
+        looper.dispatch("android.view.ViewRootImpl$ViewRootHandler", () -> looper.busy(250));
+
+        List<MainThreadWatchdog.Stall> stalls = watchdog.getStalls();
+        assertEquals(1, stalls.size());
+        MainThreadWatchdog.Stall stall = stalls.get(0);
+        assertEquals(250, stall.getDurationMillis());
+        assertEquals(start, stall.getStartedAtMillis());
+        assertTrue(stall.getTarget(), stall.getTarget().startsWith("Handler (android.view.ViewRootImpl$ViewRootHandler)"));
+        assertTrue(stall.getOperations().isEmpty());
+    }
+
+    @Test
+    public void ringBuffer_keepsNewestStalls() {
+        for (int i = 1; i <= 6; i++) {
+            long millis = 100 + i;
+            looper.dispatch("h", () -> looper.busy(millis));
+        }
+
+        assertEquals(6, watchdog.getStallCount());
+        List<MainThreadWatchdog.Stall> stalls = watchdog.getStalls();
+        assertEquals(4, stalls.size());
+        assertEquals(103, stalls.get(0).getDurationMillis());
+        assertEquals(106, stalls.get(3).getDurationMillis());
+    }
+
+    @Test
+    public void stall_isBlamedOnOperationsInFlight() {
+        MainThreadWatchdog.Span login = watchdog.begin(Operation.LOGIN);
+        looper.dispatch("h", () -> looper.busy(200));
+        // Began and ended inside the slow message
+        looper.dispatch("h", () -> {
+            watchdog.begin(Operation.PASSWORD_RESET).end();
+            looper.busy(200);
+        });
+        login.end();
+        looper.dispatch("h", () -> looper.busy(200));
+
+        List<MainThreadWatchdog.Stall> stalls = watchdog.getStalls();
+        assertEquals(EnumSet.of(Operation.LOGIN), stalls.get(0).getOperations());
+        assertEquals(EnumSet.of(Operation.LOGIN, Operation.PASSWORD_RESET), stalls.get(1).getOperations());
+        assertTrue(stalls.get(2).getOperations().isEmpty());
+    }
+
+    @Test
+    public void spanThatNeverEnds_stopsBeingBlamed() {
+        // Its callback was dropped, so nobody ends it
+        watchdog.begin(Operation.GOOGLE_SIGN_IN);
+        looper.dispatch("h", () -> looper.busy(200));
+        clock.advance(MainThreadWatchdog.MAX_SPAN_AGE_MILLIS);
+        looper.dispatch("h", () -> looper.busy(200));
+
+        List<MainThreadWatchdog.Stall> stalls = watchdog.getStalls();
+        assertEquals(EnumSet.of(Operation.GOOGLE_SIGN_IN), stalls.get(0).getOperations());
+        assertTrue(stalls.get(1).getOperations().isEmpty());
+    }
+
+    @Test
+    public void slowLoginHandler_isBlamedOnLogin() {
+        InMemoryAuthBackend backend = new InMemoryAuthBackend();
+        backend.addAccount("ann@example.com", "secret", "Ann");
+        AuthManager authManager = new AuthManager.Builder(backend, () -> null)
+                .setCallbackExecutor(looper)
+                .setIdTokens(() -> new IdTokenManager(backend::getIdToken, clock, clock))
+                .setWatchdog(() -> watchdog)
+                .build();
+
+        // The tap; the result is posted back like a lifecycle-bound callback does
+        looper.dispatch("android.view.View$PerformClick", () ->
+                authManager.loginWithEmail("ann@example.com", "secret", new AuthManager.AuthCallback() {
+                    @Override
+                    public void onSuccess(AuthUser user) {
+                        looper.execute(() -> looper.busy(400));
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        fail(e.getMessage());
+                    }
+                }));
+        looper.runQueued();
+        looper.dispatch("h", () -> looper.busy(150));
+
+        List<MainThreadWatchdog.Stall> stalls = watchdog.getStalls();
+        assertEquals(2, stalls.size());
+        assertEquals(400, stalls.get(0).getDurationMillis());
+        assertEquals(EnumSet.of(Operation.LOGIN), stalls.get(0).getOperations());
+        assertTrue(stalls.get(1).getOperations().isEmpty());
+    }
+
+    @Test
+    public void dump_isWrittenOnceAfterBurst() throws Exception {
+        looper.dispatch("h", () -> looper.busy(300));
+        looper.dispatch("h", () -> looper.busy(300));
+        assertEquals(1, clock.pendingCount());
+
+        clock.advance(5_000);
+
+        String dump = new String(Files.readAllBytes(dumpFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(dump, dump.contains("2 main thread stalls over 100 ms, last 2:"));
+        assertTrue(dump, dump.contains("300 ms no auth operation during Handler (h)"));
+        assertEquals(0, clock.pendingCount());
+    }
+}
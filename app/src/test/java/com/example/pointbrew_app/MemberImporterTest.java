@@ -0,0 +1,290 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MemberImporterTest {
+
+    private static final String HEADER = "uid,email,displayName,birthDate,createdAt,isGoogleSignIn\n";
+    // 2026-10-18
+    private static final long NOW = 1792281600000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InMemoryAuthBackend backend;
+    private File checkpoint;
+
+    /**
+     * Holds every batch until the test lets it through, in any order.
+     */
+    private static final class HeldBatches extends ForwardingAuthBackend {
+        final List<AuthBackend.Callback<Void>> held = new ArrayList<>();
+        int outstanding;
+        int maxOutstanding;
+
+        HeldBatches(AuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+            synchronized (this) {
+                held.add(new Callback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
+                        HeldBatches.super.upsertProfiles(upserts, callback);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        callback.onError(e);
+                    }
+                });
+                outstanding++;
+                maxOutstanding = Math.max(maxOutstanding, outstanding);
+                notifyAll();
+            }
+        }
+
+        synchronized void awaitHeld(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (held.size() < count) {
+                long left = deadline - System.currentTimeMillis();
+                assertTrue("only " + held.size() + " batches sent", left > 0);
+                wait(left);
+            }
+        }
+
+        void release(int index) {
+            AuthBackend.Callback<Void> callback;
+            synchronized (this) {
+                callback = held.set(index, null);
+                outstanding--;
+            }
+            callback.onSuccess(null);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new InMemoryAuthBackend();
+        checkpoint = new File(folder.getRoot(), "import.checkpoint");
+    }
+
+    private MemberImporter importer(AuthBackend backend, int batchSize, int maxInFlight) {
+        return new MemberImporter(backend, checkpoint, batchSize, maxInFlight, new FakeClock(NOW));
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= rows; i++) {
+            csv.append("m").append(i).append(",m").append(i).append("@example.com,Member ").append(i)
+                    .append(",1990-01-0").append(1 + i % 9).append(",,false\n");
+        }
+        return csv.toString();
+    }
+
+    @Test
+    public void csv_writesSignUpSchema() throws Exception {
+        String csv = HEADER
+                + "u1,ann@example.com,\"Ann, the regular\",1990-05-17,2019-03-02,false\n"
+                + "u2,bob@example.com,Bob,,,\n";
+
+        MemberImporter.Report report = importer(backend, 500, 2).run(new CsvMemberReader(new StringReader(csv)));
+
+        assertEquals(2, report.getImported());
+        Map<String, Object> ann = backend.getProfile("u1");
+        assertEquals("u1", ann.get(ProfileUpsert.FIELD_UID));
+        assertEquals("ann@example.com", ann.get(ProfileUpsert.FIELD_EMAIL));
+        assertEquals("Ann, the regular", ann.get(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertEquals(new Date(642902400000L), ann.get(ProfileUpsert.FIELD_BIRTH_DATE));
+        assertEquals(new Date(1551484800000L), ann.get(ProfileUpsert.FIELD_CREATED_AT));
+        assertEquals(Boolean.FALSE, ann.get(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN));
+        assertFalse(ann.containsKey(ProfileUpsert.FIELD_LAST_LOGIN_AT));
+        // Empty columns are left out rather than written as nulls, and no join date is made up
+        Map<String, Object> bob = backend.getProfile("u2");
+        assertEquals("Bob", bob.get(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertFalse(bob.containsKey(ProfileUpsert.FIELD_BIRTH_DATE));
+        assertFalse(bob.containsKey(ProfileUpsert.FIELD_CREATED_AT));
+        assertFalse(bob.containsKey(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN));
+    }
+
+    @Test
+    public void memberWhoSignedUpInApp_keepsWhatTheRowLeavesOut() throws Exception {
+        backend.upsertProfile(ProfileUpsert.forNewUser("u1", "ann@example.com", "Ann", "https://p", null, true),
+                new AuthBackend.Callback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        fail(e.getMessage());
+                    }
+                });
+        Map<String, Object> signedUp = backend.getProfile("u1");
+        Object createdAt = signedUp.get(ProfileUpsert.FIELD_CREATED_AT);
+        String csv = HEADER + "u1,ann@example.com,,1990-05-17,,\n";
+
+        importer(backend, 500, 1).run(new CsvMemberReader(new StringReader(csv)));
+        // Run again from scratch, as after losing the checkpoint
+        assertTrue(checkpoint.delete());
+        importer(backend, 500, 1).run(new CsvMemberReader(new StringReader(csv)));
+
+        Map<String, Object> profile = backend.getProfile("u1");
+        assertEquals("Ann", profile.get(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertEquals(new Date(642902400000L), profile.get(ProfileUpsert.FIELD_BIRTH_DATE));
+        assertSame(createdAt, profile.get(ProfileUpsert.FIELD_CREATED_AT));
+        assertEquals(Boolean.TRUE, profile.get(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN));
+    }
+
+    @Test
+    public void jsonLines_areImported() throws Exception {
+        String json = "{\"uid\":\"u1\",\"email\":\"ann@example.com\",\"displayName\":\"Ann\",\"isGoogleSignIn\":true}\n"
+                + "\n"
+                + "{\"uid\":\"u2\",\"email\":\"bob@example.com\",\"birthDate\":null}\n";
+
+        MemberImporter.Report report = importer(backend, 500, 2).run(new JsonLinesMemberReader(new StringReader(json)));
+
+        assertEquals(2, report.getImported());
+        assertEquals(Boolean.TRUE, backend.getProfile("u1").get(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN));
+        assertEquals("bob@example.com", backend.getProfile("u2").get(ProfileUpsert.FIELD_EMAIL));
+    }
+
+    @Test
+    public void invalidRows_areSkippedAndReported() throws Exception {
+        String csv = HEADER
+                + "u1,ann@example.com,Ann,,,\n"
+                + ",nobody@example.com,No uid,,,\n"
+                + "u3,not-an-email,Bad,,,\n"
+                + "u4,dan@example.com,Dan,1990-13-40,,\n"
+                + "u5,eve@example.com,Eve,2030-01-01,,\n"
+                + "u6,too,few\n"
+                + "a/b,slash@example.com,Slash,,,\n"
+                + "u8,gus@example.com,Gus,,,maybe\n"
+                + "u9,hal@example.com,Hal,,,true\n";
+
+        MemberImporter.Report report = importer(backend, 500, 2).run(new CsvMemberReader(new StringReader(csv)));
+
+        assertEquals(9, report.getRowsRead());
+        assertEquals(2, report.getImported());
+        assertEquals(7, report.getInvalid());
+        assertEquals("row 2: missing uid", report.getProblems().get(0));
+        assertTrue(report.getProblems().get(5), report.getProblems().get(5).startsWith("row 7: "));
+        assertNotNull(backend.getProfile("u9"));
+        assertEquals(9, importer(backend, 500, 2).readCheckpoint());
+    }
+
+    @Test
+    public void rows_areGroupedIntoBatches() throws Exception {
+        MemberImporter.Report report = importer(backend, 500, 2).run(new CsvMemberReader(new StringReader(csv(1200))));
+
+        assertEquals(1200, report.getImported());
+        assertEquals(3, report.getBatches());
+        assertEquals(3, backend.getCallCount(InMemoryAuthBackend.UPSERT_PROFILES));
+        assertNotNull(backend.getProfile("m1200"));
+    }
+
+    @Test
+    public void inFlightBatches_areBounded() throws Exception {
+        HeldBatches held = new HeldBatches(backend);
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            Future<MemberImporter.Report> run = thread.submit(
+                    () -> importer(held, 10, 3).run(new CsvMemberReader(new StringReader(csv(100)))));
+            held.awaitHeld(3);
+            for (int released = 0; released < 10; released++) {
+                held.awaitHeld(released + 1);
+                held.release(released);
+            }
+            MemberImporter.Report report = run.get(5, TimeUnit.SECONDS);
+
+            assertEquals(100, report.getImported());
+            assertEquals(3, held.maxOutstanding);
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void checkpoint_onlyCoversRowsWithNothingUnfinishedBefore() throws Exception {
+        HeldBatches held = new HeldBatches(backend);
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            Future<MemberImporter.Report> run = thread.submit(
+                    () -> importer(held, 10, 3).run(new CsvMemberReader(new StringReader(csv(30)))));
+            held.awaitHeld(3);
+
+            held.release(2);
+            assertEquals(0, importer(backend, 10, 3).readCheckpoint());
+            held.release(0);
+            assertEquals(10, importer(backend, 10, 3).readCheckpoint());
+            held.release(1);
+            run.get(5, TimeUnit.SECONDS);
+            assertEquals(30, importer(backend, 10, 3).readCheckpoint());
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptedImport_resumesFromCheckpoint() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        AuthBackend failsThirdBatch = new ForwardingAuthBackend(backend) {
+            @Override
+            public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+                if (batches.incrementAndGet() == 3) {
+                    callback.onError(new IOException("connection reset"));
+                } else {
+                    super.upsertProfiles(upserts, callback);
+                }
+            }
+        };
+
+        try {
+            importer(failsThirdBatch, 100, 1).run(new CsvMemberReader(new StringReader(csv(450))));
+            fail("import should have stopped");
+        } catch (IOException e) {
+            assertEquals(200, importer(backend, 100, 1).readCheckpoint());
+        }
+        assertNotNull(backend.getProfile("m200"));
+        assertNull(backend.getProfile("m201"));
+
+        MemberImporter.Report resumed = importer(backend, 100, 1).run(new CsvMemberReader(new StringReader(csv(450))));
+
+        assertEquals(450, resumed.getRowsRead());
+        assertEquals(200, resumed.getRowsSkipped());
+        assertEquals(250, resumed.getImported());
+        assertNotNull(backend.getProfile("m450"));
+        // Two batches the first time, three to finish
+        assertEquals(5, backend.getCallCount(InMemoryAuthBackend.UPSERT_PROFILES));
+    }
+
+    @Test
+    public void csvReader_handlesQuotesAndLineBreaks() throws Exception {
+        CsvMemberReader reader = new CsvMemberReader(new StringReader(
+                "uid,displayName\r\nu1,\"Say \"\"hi\"\"\"\r\nu2,\"two\nlines\"\n"));
+
+        assertEquals("Say \"hi\"", reader.readRow().get("displayName"));
+        assertEquals("two\nlines", reader.readRow().get("displayName"));
+        assertNull(reader.readRow());
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class PointsBalanceTest {
+
+    private static final String UID = "u1";
+
+    /**
+     * A ledger on the far side of a slow, unreliable network. Each call becomes a request that
+     * reaches the server and a response that comes back; {@link #step} delivers one of them,
+     * chosen at random, so calls overtake each other. Requests can be dropped before reaching
+     * the server, and responses can be lost after the server has applied them.
+     */
+    private static final class FakeNetworkLedger implements PointsLedger {
+        final InMemoryPointsLedger server = new InMemoryPointsLedger();
+        final List<Runnable> inFlight = new ArrayList<>();
+        final Random random;
+        double dropRequests;
+        double loseResponses;
+        int applyCalls;
+
+        FakeNetworkLedger(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public void apply(String uid, PointsTransaction transaction, AuthBackend.Callback<Long> callback) {
+            applyCalls++;
+            send(callback, reply -> server.apply(uid, transaction, reply));
+        }
+
+        @Override
+        public void getBalance(String uid, AuthBackend.Callback<Long> callback) {
+            send(callback, reply -> server.getBalance(uid, reply));
+        }
+
+        private void send(AuthBackend.Callback<Long> callback, Consumer<AuthBackend.Callback<Long>> call) {
+            inFlight.add(() -> {
+                if (random.nextDouble() < dropRequests) {
+                    inFlight.add(() -> callback.onError(new IOException("request dropped")));
+                    return;
+                }
+                boolean lost = random.nextDouble() < loseResponses;
+                call.accept(new AuthBackend.Callback<Long>() {
+                    @Override
+                    public void onSuccess(Long result) {
+                        inFlight.add(() -> {
+                            if (lost) {
+                                callback.onError(new IOException("response lost"));
+                            } else {
+                                callback.onSuccess(result);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        inFlight.add(() -> callback.onError(e));
+                    }
+                });
+            });
+        }
+
+        boolean step() {
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            inFlight.remove(random.nextInt(inFlight.size())).run();
+            return true;
+        }
+
+        void drain() {
+            while (step()) {
+            }
+        }
+
+        long serverBalance() {
+            long[] balance = new long[1];
+            server.getBalance(UID, new AuthBackend.Callback<Long>() {
+                @Override
+                public void onSuccess(Long result) {
+                    balance[0] = result;
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    fail(e.getMessage());
+                }
+            });
+            return balance[0];
+        }
+    }
+
+    private FakeNetworkLedger ledger;
+    private PointsBalance balance;
+    private final List<Long> shown = new ArrayList<>();
+    private final List<Long> confirmed = new ArrayList<>();
+    private final List<Exception> errors = new ArrayList<>();
+
+    private final AuthBackend.Callback<Long> record = new AuthBackend.Callback<Long>() {
+        @Override
+        public void onSuccess(Long result) {
+            confirmed.add(result);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        ledger = new FakeNetworkLedger(new Random(1));
+        balance = new PointsBalance(ledger, UID);
+        balance.addListener(Runnable::run, (value, settled) -> shown.add(value));
+    }
+
+    private void seed(long points) {
+        ledger.server.apply(UID, PointsTransaction.earn("seed", points, null), record);
+        confirmed.clear();
+        balance.refresh();
+        ledger.drain();
+    }
+
+    @Test
+    public void earn_showsBeforeServerAnswers() {
+        seed(100);
+
+        balance.apply(PointsTransaction.earn("order-1", 20, "latte"), record);
+
+        assertEquals(120, balance.getBalance());
+        assertEquals(100, balance.getConfirmedBalance());
+        assertFalse(balance.isSettled());
+        ledger.drain();
+        assertEquals(List.of(120L), confirmed);
+        assertEquals(120, balance.getConfirmedBalance());
+        assertTrue(balance.isSettled());
+        // 120 twice: shown at once, then again when the server confirmed it
+        assertEquals(List.of(0L, 100L, 120L, 120L), shown);
+    }
+
+    @Test
+    public void failedEarn_isRolledBack() {
+        seed(100);
+        ledger.dropRequests = 1;
+
+        balance.apply(PointsTransaction.earn("order-1", 20, "latte"), record);
+        assertEquals(120, balance.getBalance());
+        ledger.step();
+        ledger.dropRequests = 0;
+        ledger.drain();
+
+        assertEquals(1, errors.size());
+        assertEquals(100, balance.getBalance());
+        assertTrue(balance.isSettled());
+    }
+
+    @Test
+    public void redeemBeyondShownBalance_isRefusedLocally() {
+        seed(30);
+
+        balance.apply(PointsTransaction.redeem("reward-1", 50, "free drink"), record);
+
+        assertTrue(errors.get(0) instanceof InsufficientPointsException);
+        assertEquals(0, ledger.applyCalls);
+        assertEquals(30, balance.getBalance());
+    }
+
+    @Test
+    public void redeem_canSpendPendingEarn() {
+        seed(10);
+
+        balance.apply(PointsTransaction.earn("order-1", 40, null), record);
+        balance.apply(PointsTransaction.redeem("reward-1", 45, null), record);
+
+        assertEquals(5, balance.getBalance());
+        assertEquals(2, ledger.applyCalls);
+    }
+
+    @Test
+    public void failedEarnUnderRedeem_neverShowsNegative() {
+        seed(10);
+        balance.apply(PointsTransaction.earn("order-1", 40, null), record);
+        balance.apply(PointsTransaction.redeem("reward-1", 45, null), record);
+
+        // The earn is lost on the way; the redeem then reaches the server, which refuses it
+        ledger.dropRequests = 1;
+        ledger.inFlight.remove(0).run();
+        ledger.dropRequests = 0;
+        ledger.inFlight.remove(1).run();
+        assertEquals(0, balance.getBalance());
+        ledger.drain();
+
+        assertEquals(10, balance.getBalance());
+        assertTrue(balance.isSettled());
+        for (long value : shown) {
+            assertTrue("showed " + value, value >= 0);
+        }
+    }
+
+    @Test
+    public void lostResponse_isReconciledFromServer() {
+        seed(100);
+        ledger.loseResponses = 1;
+
+        balance.apply(PointsTransaction.earn("order-1", 20, null), record);
+        ledger.step();
+        ledger.step();
+        ledger.loseResponses = 0;
+        // The earn went through, but all we heard was an error: undone, then read back
+        assertEquals(1, errors.size());
+        ledger.drain();
+
+        assertEquals(120, balance.getBalance());
+        assertTrue(balance.isSettled());
+    }
+
+    @Test
+    public void retryAfterLostResponse_isNotCountedTwice() {
+        seed(100);
+        ledger.loseResponses = 1;
+        balance.apply(PointsTransaction.earn("order-1", 20, null), record);
+        ledger.step();
+        ledger.loseResponses = 0;
+
+        balance.apply(PointsTransaction.earn("order-1", 20, null), record);
+        ledger.drain();
+
+        assertEquals(120, ledger.serverBalance());
+        assertEquals(120, balance.getBalance());
+        assertTrue(balance.isSettled());
+    }
+
+    @Test
+    public void pendingLog_growsAndCompacts() {
+        PointsBalance.PendingLog log = new PointsBalance.PendingLog();
+        for (int i = 0; i < 20; i++) {
+            log.add(i, i, true);
+        }
+        log.remove(log.indexOf(0));
+        log.remove(log.indexOf(19));
+        log.remove(log.indexOf(7));
+
+        assertEquals(17, log.size());
+        assertEquals(190 - 19 - 7, log.sum());
+        assertEquals(8, log.delta(log.indexOf(8)));
+        assertFalse(log.isSolo(0));
+    }
+
+    @Test
+    public void randomTraffic_convergesOnServerBalance() {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            FakeNetworkLedger ledger = new FakeNetworkLedger(random);
+            ledger.dropRequests = 0.15;
+            ledger.loseResponses = 0.15;
+            PointsBalance balance = new PointsBalance(ledger, UID);
+            List<Long> shown = new ArrayList<>();
+            balance.addListener(Runnable::run, (value, settled) -> shown.add(value));
+            List<PointsTransaction> failed = new ArrayList<>();
+            balance.refresh();
+
+            for (int op = 0; op < 60; op++) {
+                int action = random.nextInt(10);
+                PointsTransaction transaction = null;
+                if (action < 4) {
+                    transaction = PointsTransaction.earn(seed + "-" + op, 1 + random.nextInt(20), null);
+                } else if (action < 6) {
+                    transaction = PointsTransaction.redeem(seed + "-" + op, 1 + random.nextInt(30), null);
+                } else if (action < 7 && !failed.isEmpty()) {
+                    // Retry an earlier failure with its original key
+                    transaction = failed.remove(random.nextInt(failed.size()));
+                } else {
+                    for (int i = random.nextInt(4); i > 0; i--) {
+                        ledger.step();
+                    }
+                }
+                if (transaction != null) {
+                    balance.apply(transaction, retryOnError(failed, transaction));
+                }
+            }
+
+            ledger.dropRequests = 0;
+            ledger.loseResponses = 0;
+            ledger.drain();
+            if (!balance.isSettled()) {
+                balance.refresh();
+                ledger.drain();
+            }
+
+            String context = "seed " + seed;
+            assertTrue(context, balance.isSettled());
+            assertEquals(context, 0, balance.getPendingCount());
+            assertEquals(context, ledger.serverBalance(), balance.getBalance());
+            long sum = 0;
+            for (long delta : ledger.server.getDeltas(UID)) {
+                sum += delta;
+            }
+            assertEquals(context, sum, balance.getBalance());
+            for (long value : shown) {
+                assertTrue(context + " showed " + value, value >= 0);
+            }
+        }
+    }
+
+    private static AuthBackend.Callback<Long> retryOnError(List<PointsTransaction> failed, PointsTransaction transaction) {
+        return new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!(e instanceof InsufficientPointsException)) {
+                    failed.add(transaction);
+                }
+            }
+        };
+    }
+}
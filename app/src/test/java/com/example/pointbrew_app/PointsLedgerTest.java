@@ -0,0 +1,169 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PointsLedgerTest {
+
+    private static final String UID = "u1";
+
+    private InMemoryPointsLedger ledger;
+    private final List<Long> balances = new ArrayList<>();
+    private final List<Exception> errors = new ArrayList<>();
+
+    private final AuthBackend.Callback<Long> record = new AuthBackend.Callback<Long>() {
+        @Override
+        public void onSuccess(Long balance) {
+            balances.add(balance);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        ledger = new InMemoryPointsLedger();
+    }
+
+    @Test
+    public void earnAndRedeem_updateBalance() {
+        ledger.apply(UID, PointsTransaction.earn("order-1", 50, "latte"), record);
+        ledger.apply(UID, PointsTransaction.redeem("reward-1", 20, "free cookie"), record);
+        ledger.getBalance(UID, record);
+
+        assertEquals(List.of(50L, 30L, 30L), balances);
+        assertEquals(List.of(50L, -20L), ledger.getDeltas(UID));
+    }
+
+    @Test
+    public void retriedTransaction_isCountedOnce() {
+        ledger.apply(UID, PointsTransaction.earn("order-1", 50, "latte"), record);
+        ledger.apply(UID, PointsTransaction.earn("order-2", 10, "muffin"), record);
+        ledger.apply(UID, PointsTransaction.earn("order-1", 50, "latte"), record);
+        ledger.getBalance(UID, record);
+
+        // The retry reports the balance from when it was first applied
+        assertEquals(List.of(50L, 60L, 50L, 60L), balances);
+        assertEquals(2, ledger.getDeltas(UID).size());
+    }
+
+    @Test
+    public void redeemBeyondBalance_isRejected() {
+        ledger.apply(UID, PointsTransaction.earn("order-1", 10, "espresso"), record);
+        ledger.apply(UID, PointsTransaction.redeem("reward-1", 25, "free drink"), record);
+        ledger.getBalance(UID, record);
+
+        assertEquals(List.of(10L, 10L), balances);
+        assertEquals(1, errors.size());
+        InsufficientPointsException e = (InsufficientPointsException) errors.get(0);
+        assertEquals(10, e.getBalance());
+        assertEquals(25, e.getRequested());
+    }
+
+    @Test
+    public void rejectedRedeem_canBeRetriedOnceThereAreEnoughPoints() {
+        ledger.apply(UID, PointsTransaction.redeem("reward-1", 25, "free drink"), record);
+        ledger.apply(UID, PointsTransaction.earn("order-1", 30, "beans"), record);
+        ledger.apply(UID, PointsTransaction.redeem("reward-1", 25, "free drink"), record);
+
+        assertEquals(List.of(30L, 5L), balances);
+    }
+
+    @Test
+    public void usersHaveSeparateBalances() {
+        ledger.apply("u1", PointsTransaction.earn("order-1", 10, null), record);
+        ledger.apply("u2", PointsTransaction.earn("order-1", 7, null), record);
+        ledger.getBalance("u1", record);
+        ledger.getBalance("u2", record);
+        ledger.getBalance("u3", record);
+
+        assertEquals(List.of(10L, 7L, 10L, 7L, 0L), balances);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyWithSlash_isRejected() {
+        PointsTransaction.earn("orders/1", 10, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositivePoints_areRejected() {
+        PointsTransaction.redeem("reward-1", 0, null);
+    }
+
+    @Test
+    public void concurrentEarnsAndRedeems_neverGoNegativeOrDoubleCount() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads * perThread * 2);
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger negative = new AtomicInteger();
+        AuthBackend.Callback<Long> check = new AuthBackend.Callback<Long>() {
+            @Override
+            public void onSuccess(Long balance) {
+                if (balance < 0) {
+                    negative.incrementAndGet();
+                }
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                rejected.incrementAndGet();
+                done.countDown();
+            }
+        };
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                pool.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        String key = thread + "-" + i;
+                        ledger.apply(UID, PointsTransaction.earn("earn-" + key, 3, null), check);
+                        ledger.apply(UID, PointsTransaction.redeem("redeem-" + key, 5, null), check);
+                        // Every other call is retried, as after a timeout
+                        if (i % 2 == 0) {
+                            ledger.apply(UID, PointsTransaction.earn("earn-" + key, 3, null), IGNORE);
+                        }
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long sum = 0;
+        for (long delta : ledger.getDeltas(UID)) {
+            sum += delta;
+        }
+        ledger.getBalance(UID, record);
+        assertEquals(0, negative.get());
+        assertEquals(Long.valueOf(sum), balances.get(0));
+        int redeemed = threads * perThread - rejected.get();
+        assertEquals(threads * perThread * 3L - redeemed * 5L, sum);
+    }
+
+    private static final AuthBackend.Callback<Long> IGNORE = new AuthBackend.Callback<Long>() {
+        @Override
+        public void onSuccess(Long result) {
+        }
+
+        @Override
+        public void onError(Exception e) {
+        }
+    };
+}
@@ -0,0 +1,118 @@
+package com.example.pointbrew_app;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time to first profile frame on a cold start: from {@link ProfileCache#observe} to the first
+ * profile an observer can draw, with and without a profile left on disk by an earlier run.
+ *
+ * The simulated Firestore read latency and iteration count can be changed with
+ * {@code -Dprofile.benchmark.delay=80 -Dprofile.benchmark.iterations=100}.
+ */
+public class ProfileCacheBenchmark {
+
+    private static final long DELAY_MILLIS = Long.getLong("profile.benchmark.delay", 20);
+    private static final int ITERATIONS = Integer.getInteger("profile.benchmark.iterations", 30);
+    private static final int WARMUP_ITERATIONS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        io.shutdownNow();
+    }
+
+    @Test
+    public void firstFrame() throws Exception {
+        InMemoryAuthBackend store = new InMemoryAuthBackend();
+        store.upsertProfile(ProfileUpsert.forNewUser("u1", "bench@example.com", "Bench", null, null, false),
+                new AuthBackend.Callback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        fail(e.getMessage());
+                    }
+                });
+        AuthBackend network = new FaultInjectingAuthBackend(store, scheduler, 42).setLatency(DELAY_MILLIS, 0);
+
+        File empty = folder.newFolder("empty");
+        File warm = folder.newFolder("warm");
+        // An earlier run leaves the profile on disk
+        firstFrameNanos(network, warm);
+
+        long[] uncached = measure(network, empty, true);
+        long[] cached = measure(network, warm, false);
+
+        System.out.printf("profile first frame delay=%3dms  no cache p50=%8.3fms p99=%8.3fms  "
+                        + "cache p50=%8.3fms p99=%8.3fms%n", DELAY_MILLIS,
+                millis(percentile(uncached, 50)), millis(percentile(uncached, 99)),
+                millis(percentile(cached, 50)), millis(percentile(cached, 99)));
+        assertTrue(percentile(uncached, 50) >= TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS));
+        assertTrue(percentile(cached, 50) < percentile(uncached, 50));
+    }
+
+    private long[] measure(AuthBackend network, File directory, boolean clearBetweenRuns) throws Exception {
+        long[] samples = new long[ITERATIONS];
+        for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+            if (clearBetweenRuns) {
+                for (File file : directory.listFiles()) {
+                    assertTrue(file.delete());
+                }
+            }
+            long nanos = firstFrameNanos(network, directory);
+            if (i >= 0) {
+                samples[i] = nanos;
+            }
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private long firstFrameNanos(AuthBackend network, File directory) throws InterruptedException {
+        // A fresh cache has nothing in memory, like a new process
+        ProfileCache cache = new ProfileCache(network, () -> directory, io, Runnable::run);
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        long[] endNanos = new long[1];
+        long start = System.nanoTime();
+        cache.observe("u1", profile -> {
+            if (firstFrame.getCount() > 0) {
+                endNanos[0] = System.nanoTime();
+                firstFrame.countDown();
+            }
+        });
+        assertTrue(firstFrame.await(10, TimeUnit.SECONDS));
+        // Let the background refresh land so it doesn't overlap the next run
+        Thread.sleep(DELAY_MILLIS + 5);
+        return endNanos[0] - start;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the cache on the test thread; a "restart" is a fresh cache over the same directory.
+ */
+public class ProfileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * In-memory backend whose profile fetches can be held and answered later.
+     */
+    private static final class HeldFetchBackend extends ForwardingAuthBackend {
+        final List<Runnable> held = new ArrayList<>();
+        boolean hold;
+
+        HeldFetchBackend(InMemoryAuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void fetchProfile(String uid, Callback<UserProfile> callback) {
+            if (hold) {
+                held.add(() -> super.fetchProfile(uid, callback));
+            } else {
+                super.fetchProfile(uid, callback);
+            }
+        }
+
+        void release() {
+            List<Runnable> fetches = new ArrayList<>(held);
+            held.clear();
+            for (Runnable fetch : fetches) {
+                fetch.run();
+            }
+        }
+    }
+
+    private File directory;
+    private InMemoryAuthBackend store;
+    private HeldFetchBackend backend;
+    private final List<UserProfile> seen = new ArrayList<>();
+    private final ProfileCache.Observer observer = seen::add;
+
+    @Before
+    public void setUp() {
+        directory = new File(folder.getRoot(), "profiles");
+        store = new InMemoryAuthBackend();
+        backend = new HeldFetchBackend(store);
+        save(ProfileUpsert.forNewUser("u1", "ann@example.com", "Ann", null, new Date(631152000000L), false));
+    }
+
+    private void save(ProfileUpsert upsert) {
+        store.upsertProfile(upsert, new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+    }
+
+    private ProfileCache newCache() {
+        return new ProfileCache(backend, () -> directory, Runnable::run, Runnable::run);
+    }
+
+    @Test
+    public void coldCache_deliversFetchedProfile() {
+        ProfileCache cache = newCache();
+
+        cache.observe("u1", observer);
+
+        assertEquals(1, seen.size());
+        assertEquals("Ann", seen.get(0).getDisplayName());
+        assertEquals(new Date(631152000000L), seen.get(0).getBirthDate());
+        assertEquals(seen.get(0), cache.peek("u1"));
+    }
+
+    @Test
+    public void afterRestart_diskCopyIsDeliveredBeforeFetchCompletes() {
+        newCache().observe("u1", profile -> { });
+        backend.hold = true;
+        save(ProfileUpsert.of("u1", Collections.singletonMap(ProfileUpsert.FIELD_DISPLAY_NAME, "Annie"),
+                Collections.emptyList()));
+
+        ProfileCache restarted = newCache();
+        restarted.observe("u1", observer);
+
+        assertEquals(1, seen.size());
+        assertEquals("Ann", seen.get(0).getDisplayName());
+
+        backend.release();
+
+        assertEquals(2, seen.size());
+        assertEquals("Annie", seen.get(1).getDisplayName());
+        assertEquals("Annie", restarted.peek("u1").getDisplayName());
+    }
+
+    @Test
+    public void unchangedRefresh_doesNotNotifyAgain() {
+        ProfileCache cache = newCache();
+        cache.observe("u1", observer);
+
+        cache.refresh("u1");
+        cache.refresh("u1");
+
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    public void concurrentRefreshes_shareOneFetch() {
+        ProfileCache cache = newCache();
+        backend.hold = true;
+
+        cache.observe("u1", observer);
+        cache.refresh("u1");
+        cache.refresh("u1");
+
+        assertEquals(1, backend.held.size());
+        backend.release();
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    public void removedObserver_isNotNotified() {
+        ProfileCache cache = newCache();
+        cache.observe("u1", observer);
+        cache.removeObserver("u1", observer);
+
+        cache.put(new UserProfile("u1", "ann@example.com", "Annie", null, null, false));
+
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    public void invalidate_clearsMemoryAndDisk() {
+        ProfileCache cache = newCache();
+        cache.observe("u1", profile -> { });
+
+        cache.invalidate();
+
+        assertNull(cache.peek("u1"));
+        backend.hold = true;
+        newCache().observe("u1", observer);
+        assertTrue("nothing should be served from disk", seen.isEmpty());
+    }
+
+    @Test
+    public void fetchStartedBeforeInvalidate_isDropped() {
+        ProfileCache cache = newCache();
+        backend.hold = true;
+        cache.observe("u1", observer);
+
+        cache.invalidate();
+        backend.release();
+
+        assertNull(cache.peek("u1"));
+        assertTrue(seen.isEmpty());
+        assertFalse(new File(directory, "u1.profile").exists());
+    }
+
+    @Test
+    public void corruptFile_isIgnored() throws Exception {
+        assertTrue(directory.mkdirs());
+        Files.write(new File(directory, "u1.profile").toPath(), new byte[]{0, 0, 0, 1, 7});
+        backend.hold = true;
+
+        newCache().observe("u1", observer);
+
+        assertTrue(seen.isEmpty());
+        backend.release();
+        assertEquals("Ann", seen.get(0).getDisplayName());
+    }
+
+    @Test
+    public void registration_seedsCacheWithoutFetch() {
+        InMemoryAuthBackend authBackend = new InMemoryAuthBackend();
+        ProfileCache cache = ProfileCache.inMemory(authBackend);
+        AuthManager authManager = new AuthManager.Builder(authBackend, () -> null)
+                .setProfileCache(() -> cache)
+                .build();
+        List<AuthUser> users = new ArrayList<>();
+
+        authManager.registerWithEmail("Bea", "bea@example.com", "secret1", null, new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                users.add(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+
+        assertEquals("Bea", cache.peek(users.get(0).getUid()).getDisplayName());
+        assertEquals(0, authBackend.getCallCount(InMemoryAuthBackend.FETCH_PROFILE));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.pointbrew_app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * What {@link ProfileImageLoader} saves over decoding a photo at full size: decode time and the
+ * bytes each decoded bitmap holds, for a phone-camera sized profile photo shown as an avatar.
+ * Times are JVM times through Robolectric's native graphics, so compare them with each other.
+ *
+ * Iterations and sizes can be changed with {@code -Dimage.benchmark.iterations=50
+ * -Dimage.benchmark.source=3000 -Dimage.benchmark.avatar=144}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ProfileImageBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("image.benchmark.iterations", 20);
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int SOURCE_PX = Integer.getInteger("image.benchmark.source", 2000);
+    private static final int AVATAR_PX = Integer.getInteger("image.benchmark.avatar", 192);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodeTimeAndFootprint() throws Exception {
+        File photo = ProfileImageLoaderTest.writeJpeg(folder.newFile("photo.jpg"), SOURCE_PX, SOURCE_PX * 3 / 4, 0);
+        long[] full = new long[ITERATIONS];
+        long[] downsampled = new long[ITERATIONS];
+        long[] reused = new long[ITERATIONS];
+        long fullBytes = 0;
+        long downsampledBytes = 0;
+        Bitmap reusable = null;
+
+        for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            Bitmap fullBitmap = BitmapFactory.decodeFile(photo.getPath());
+            long fullEnd = System.nanoTime();
+            Bitmap avatar = ProfileImageLoader.decode(photo, AVATAR_PX, AVATAR_PX, null);
+            long downsampledEnd = System.nanoTime();
+            Bitmap again = ProfileImageLoader.decode(photo, AVATAR_PX, AVATAR_PX, reusable);
+            long reusedEnd = System.nanoTime();
+
+            fullBytes = fullBitmap.getAllocationByteCount();
+            downsampledBytes = avatar.getAllocationByteCount();
+            fullBitmap.recycle();
+            reusable = again;
+            if (i >= 0) {
+                full[i] = fullEnd - start;
+                downsampled[i] = downsampledEnd - fullEnd;
+                reused[i] = reusedEnd - downsampledEnd;
+            }
+        }
+        Arrays.sort(full);
+        Arrays.sort(downsampled);
+        Arrays.sort(reused);
+
+        System.out.printf("profile photo %dpx -> %dpx  full decode p50=%7.2fms p99=%7.2fms %7.2f MB  "
+                        + "downsampled p50=%7.2fms p99=%7.2fms %7.3f MB  into reused bitmap p50=%7.2fms%n",
+                SOURCE_PX, AVATAR_PX,
+                millis(percentile(full, 50)), millis(percentile(full, 99)), fullBytes / 1e6,
+                millis(percentile(downsampled, 50)), millis(percentile(downsampled, 99)), downsampledBytes / 1e6,
+                millis(percentile(reused, 50)));
+        assertTrue(downsampledBytes * 20 < fullBytes);
+        assertTrue(percentile(downsampled, 50) < percentile(full, 50));
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.pointbrew_app;
+
+import android.graphics.Bitmap;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the loader against real JPEGs, from file URLs and from a local HTTP server standing in
+ * for Google's photo host. Needs Robolectric's native graphics to decode.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ProfileImageLoaderTest {
+
+    private static final String UID = "kX3vQ9TnUeZb7yWc2LpR8sHfD1m4";
+    private static final int AVATAR = 96;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private final List<Bitmap> loaded = Collections.synchronizedList(new ArrayList<>());
+    private final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+
+    private final AuthBackend.Callback<Bitmap> record = new AuthBackend.Callback<Bitmap>() {
+        @Override
+        public void onSuccess(Bitmap bitmap) {
+            loaded.add(bitmap);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("images");
+        // Loads here run inline on the test thread
+        StartupIoGuard.get().endLaunch();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private ProfileImageLoader newLoader() {
+        return new ProfileImageLoader(new ProfileImageLoader.UrlSource(), () -> directory, 10L * 1024 * 1024,
+                Runnable::run, Runnable::run, 8L * 1024 * 1024);
+    }
+
+    /**
+     * A JPEG of a colour gradient, so it compresses like a photo rather than a flat fill.
+     */
+    static File writeJpeg(File file, int width, int height, int seed) throws IOException {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + seed * 40) & 0xff;
+                int g = (y * 255 / height) & 0xff;
+                int b = ((x ^ y) + seed) & 0xff;
+                pixels[y * width + x] = 0xff000000 | r << 16 | g << 8 | b;
+            }
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        try (OutputStream out = new FileOutputStream(file)) {
+            assertTrue(bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out));
+        }
+        return file;
+    }
+
+    private String photoUrl(String name, int seed) throws IOException {
+        return writeJpeg(folder.newFile(name), 1200, 900, seed).toURI().toString();
+    }
+
+    @Test
+    public void load_decodesAtViewSize() throws Exception {
+        String photo = photoUrl("photo.jpg", 0);
+
+        newLoader().load(UID, photo, AVATAR, AVATAR, record);
+
+        Bitmap bitmap = loaded.get(0);
+        // 4:3 covering a square: the short side matches the view
+        assertEquals(AVATAR, bitmap.getHeight());
+        assertEquals(128, bitmap.getWidth(), 1);
+        assertEquals(Bitmap.Config.RGB_565, bitmap.getConfig());
+        assertTrue(bitmap.getAllocationByteCount() <= 129 * AVATAR * 2);
+    }
+
+    @Test
+    public void sampleSize_staysAtOrAboveViewSize() {
+        assertEquals(1, ProfileImageLoader.sampleSize(96, 96, 96, 96));
+        assertEquals(1, ProfileImageLoader.sampleSize(191, 191, 96, 96));
+        assertEquals(2, ProfileImageLoader.sampleSize(192, 192, 96, 96));
+        assertEquals(8, ProfileImageLoader.sampleSize(1200, 900, 96, 96));
+        // The short side decides
+        assertEquals(2, ProfileImageLoader.sampleSize(4000, 200, 96, 96));
+    }
+
+    @Test
+    public void secondLoad_comesFromMemory() throws Exception {
+        String photo = photoUrl("photo.jpg", 0);
+        ProfileImageLoader loader = newLoader();
+
+        loader.load(UID, photo, AVATAR, AVATAR, record);
+        loader.load(UID, photo, AVATAR, AVATAR, record);
+
+        assertSame(loaded.get(0), loaded.get(1));
+        assertSame(loaded.get(0), loader.peek(UID, photo, AVATAR, AVATAR));
+        assertEquals(1, loader.getDownloadCount());
+        assertEquals(1, loader.getDecodeCount());
+    }
+
+    @Test
+    public void otherSizes_shareTheDownload() throws Exception {
+        String photo = photoUrl("photo.jpg", 0);
+        ProfileImageLoader loader = newLoader();
+
+        loader.load(UID, photo, AVATAR, AVATAR, record);
+        loader.load(UID, photo, AVATAR * 3, AVATAR * 3, record);
+
+        assertEquals(1, loader.getDownloadCount());
+        assertEquals(1, loader.getDiskHitCount());
+        assertEquals(AVATAR * 3, loaded.get(1).getHeight());
+    }
+
+    @Test
+    public void newProcess_readsFromDisk() throws Exception {
+        String photo = photoUrl("photo.jpg", 0);
+        newLoader().load(UID, photo, AVATAR, AVATAR, record);
+
+        ProfileImageLoader restarted = newLoader();
+        restarted.load(UID, photo, AVATAR, AVATAR, record);
+
+        assertEquals(0, restarted.getDownloadCount());
+        assertEquals(1, restarted.getDiskHitCount());
+        assertEquals(AVATAR, loaded.get(1).getHeight());
+    }
+
+    @Test
+    public void changedPhoto_reusesPreviousBitmap() throws Exception {
+        ProfileImageLoader loader = newLoader();
+
+        loader.load(UID, photoUrl("a.jpg", 1), AVATAR, AVATAR, record);
+        loader.load(UID, photoUrl("b.jpg", 2), AVATAR, AVATAR, record);
+        loader.load(UID, photoUrl("c.jpg", 3), AVATAR, AVATAR, record);
+
+        assertEquals(3, loader.getDecodeCount());
+        // "b" had nothing to reuse yet; "c" was decoded over the bitmap "a" left behind
+        assertEquals(1, loader.getReuseCount());
+        assertSame(loaded.get(0), loaded.get(2));
+    }
+
+    @Test
+    public void concurrentLoads_shareOneRequest() throws Exception {
+        byte[] jpeg = Files.readAllBytes(writeJpeg(folder.newFile("served.jpg"), 1200, 900, 0).toPath());
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/photo.jpg", exchange -> {
+            requests.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+            exchange.sendResponseHeaders(200, jpeg.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(jpeg);
+            }
+        });
+        server.start();
+        String photo = "http://127.0.0.1:" + server.getAddress().getPort() + "/photo.jpg";
+        ExecutorService workers = Executors.newFixedThreadPool(3);
+        CountDownLatch done = new CountDownLatch(5);
+        ProfileImageLoader loader = new ProfileImageLoader(new ProfileImageLoader.UrlSource(), () -> directory,
+                10L * 1024 * 1024, workers, task -> { task.run(); done.countDown(); }, 8L * 1024 * 1024);
+        try {
+            for (int i = 0; i < 4; i++) {
+                loader.load(UID, photo, AVATAR, AVATAR, record);
+            }
+            loader.load(UID, photo, AVATAR * 2, AVATAR * 2, record);
+            release.countDown();
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            workers.shutdownNow();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(1, requests.get());
+        assertEquals(1, loader.getDownloadCount());
+        assertEquals(2, loader.getDecodeCount());
+    }
+
+    @Test
+    public void httpError_isReported() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+
+        newLoader().load(UID, "http://127.0.0.1:" + server.getAddress().getPort() + "/gone.jpg", AVATAR, AVATAR,
+                record);
+
+        assertTrue(loaded.isEmpty());
+        assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().startsWith("HTTP 404"));
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void notAnImage_isReportedAndNotKept() throws Exception {
+        File text = folder.newFile("photo.jpg");
+        Files.write(text.toPath(), "<html>Sign in</html>".getBytes());
+
+        newLoader().load(UID, text.toURI().toString(), AVATAR, AVATAR, record);
+
+        assertEquals(1, errors.size());
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void diskCache_isTrimmedToBudget() throws Exception {
+        String photo = photoUrl("photo.jpg", 0);
+        long photoBytes = new File(new java.net.URI(photo)).length();
+        ProfileImageLoader loader = new ProfileImageLoader(new ProfileImageLoader.UrlSource(), () -> directory,
+                photoBytes * 3, Runnable::run, Runnable::run, 8L * 1024 * 1024);
+
+        for (int i = 0; i < 5; i++) {
+            loader.load("member" + i, photo, AVATAR, AVATAR, record);
+        }
+
+        assertEquals(5, loaded.size());
+        assertEquals(3, directory.list().length);
+    }
+}
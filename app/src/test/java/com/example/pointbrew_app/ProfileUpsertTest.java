@@ -0,0 +1,48 @@
+package com.example.pointbrew_app;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProfileUpsertTest {
+
+    @Test
+    public void newEmailUser_writesFullProfileWithServerTimestamps() {
+        Date birthDate = new Date(0);
+        ProfileUpsert upsert = ProfileUpsert.forNewUser("uid-1", "a@example.com", "Ann", null, birthDate, false);
+
+        assertEquals("Ann", upsert.getFields().get(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertEquals(birthDate, upsert.getFields().get(ProfileUpsert.FIELD_BIRTH_DATE));
+        assertEquals(Boolean.FALSE, upsert.getFields().get(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN));
+        assertFalse(upsert.getFields().containsKey(ProfileUpsert.FIELD_PHOTO_URL));
+        assertTrue(upsert.getServerTimestampFields().contains(ProfileUpsert.FIELD_CREATED_AT));
+        assertTrue(upsert.getServerTimestampFields().contains(ProfileUpsert.FIELD_LAST_LOGIN_AT));
+        // Timestamps come from the server, never from the device clock
+        assertFalse(upsert.getFields().containsKey(ProfileUpsert.FIELD_CREATED_AT));
+    }
+
+    @Test
+    public void returningUser_maskExcludesCreateOnceFields() {
+        List<String> mask = ProfileUpsert.forReturningUser("uid-1", "a@example.com").getFieldMask();
+
+        assertTrue(mask.contains(ProfileUpsert.FIELD_LAST_LOGIN_AT));
+        assertTrue(mask.contains(ProfileUpsert.FIELD_EMAIL));
+        assertFalse(mask.contains(ProfileUpsert.FIELD_CREATED_AT));
+        assertFalse(mask.contains(ProfileUpsert.FIELD_DISPLAY_NAME));
+        assertFalse(mask.contains(ProfileUpsert.FIELD_BIRTH_DATE));
+        assertFalse(mask.contains(ProfileUpsert.FIELD_IS_GOOGLE_SIGN_IN));
+    }
+
+    @Test
+    public void fieldMask_coversEveryWrittenField() {
+        ProfileUpsert upsert = ProfileUpsert.forNewUser("uid-2", "g@example.com", "Gus", "https://p", null, true);
+        List<String> mask = upsert.getFieldMask();
+
+        assertTrue(mask.containsAll(upsert.getFields().keySet()));
+        assertTrue(mask.containsAll(upsert.getServerTimestampFields()));
+        assertEquals(upsert.getFields().size() + upsert.getServerTimestampFields().size(), mask.size());
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the journal on the test thread; a "restart" is a fresh journal over the same file.
+ */
+public class ProfileWriteJournalTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * In-memory backend that can be taken offline, or made to swallow requests as if the
+     * process died while they were on the wire.
+     */
+    private static final class ControllableBackend extends ForwardingAuthBackend {
+        final List<List<ProfileUpsert>> batches = new ArrayList<>();
+        boolean offline;
+        boolean hang;
+        // Batches holding this uid's write are rejected, as security rules would
+        String rejectedUid;
+
+        ControllableBackend(InMemoryAuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void upsertProfiles(List<ProfileUpsert> upserts, Callback<Void> callback) {
+            if (hang) return;
+            if (offline) {
+                callback.onError(new IOException("offline"));
+                return;
+            }
+            for (ProfileUpsert upsert : upserts) {
+                if (upsert.getUid().equals(rejectedUid)) {
+                    callback.onError(new IllegalStateException("PERMISSION_DENIED"));
+                    return;
+                }
+            }
+            batches.add(new ArrayList<>(upserts));
+            super.upsertProfiles(upserts, callback);
+        }
+    }
+
+    private File file;
+    private InMemoryAuthBackend store;
+    private ControllableBackend backend;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "profile_journal.bin");
+        store = new InMemoryAuthBackend();
+        backend = new ControllableBackend(store);
+    }
+
+    private ProfileWriteJournal newJournal() {
+        return new ProfileWriteJournal(backend, () -> file, DIRECT);
+    }
+
+    @Test
+    public void online_writesAreAppliedImmediately() {
+        ProfileWriteJournal journal = newJournal();
+
+        journal.enqueue(ProfileUpsert.forNewUser("u1", "a@example.com", "Ann", null, null, false), null);
+
+        assertEquals("Ann", store.getProfile("u1").get("displayName"));
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    public void offlineWrites_surviveRestartAndAreReplayed() {
+        backend.offline = true;
+        newJournal().enqueue(ProfileUpsert.forNewUser("u1", "a@example.com", "Ann", null, null, false), null);
+        assertNull(store.getProfile("u1"));
+
+        // Process dies; connectivity is back on the next launch
+        backend.offline = false;
+        ProfileWriteJournal restarted = newJournal();
+        assertEquals(1, restarted.getPendingCount());
+        restarted.flush();
+
+        assertEquals("Ann", store.getProfile("u1").get("displayName"));
+        assertEquals(0, restarted.getPendingCount());
+        assertEquals(0, newJournal().getPendingCount());
+    }
+
+    @Test
+    public void repeatedWritesForOneUser_areCoalesced() {
+        backend.offline = true;
+        ProfileWriteJournal journal = newJournal();
+        journal.enqueue(ProfileUpsert.forNewUser("u1", "old@example.com", "Ann", null, null, false), null);
+        journal.enqueue(ProfileUpsert.forReturningUser("u1", "new@example.com"), null);
+        journal.enqueue(ProfileUpsert.forReturningUser("u1", "newest@example.com"), null);
+        assertEquals(1, journal.getPendingCount());
+
+        backend.offline = false;
+        ProfileWriteJournal restarted = newJournal();
+        restarted.flush();
+
+        assertEquals(1, backend.batches.size());
+        assertEquals(1, backend.batches.get(0).size());
+        Map<String, Object> profile = store.getProfile("u1");
+        assertEquals("Ann", profile.get("displayName"));
+        assertEquals("newest@example.com", profile.get("email"));
+        assertNotNull(profile.get("createdAt"));
+    }
+
+    @Test
+    public void claimedWrites_areNotSentAgainAfterCrash() {
+        backend.hang = true;
+        newJournal().enqueue(ProfileUpsert.forReturningUser("u1", "a@example.com"), null);
+
+        // Process dies while the batch is on the wire
+        backend.hang = false;
+        ProfileWriteJournal restarted = newJournal();
+        restarted.flush();
+
+        assertEquals(0, restarted.getPendingCount());
+        assertTrue(backend.batches.isEmpty());
+    }
+
+    @Test
+    public void tornRecord_isDiscardedOnRestart() throws IOException {
+        backend.offline = true;
+        newJournal().enqueue(ProfileUpsert.forReturningUser("u1", "a@example.com"), null);
+        long intactLength = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            // Half a record, as if the process died mid-write
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+        }
+
+        backend.offline = false;
+        ProfileWriteJournal restarted = newJournal();
+        assertEquals(1, restarted.getPendingCount());
+        assertEquals(intactLength, file.length());
+        restarted.flush();
+
+        assertEquals("a@example.com", store.getProfile("u1").get("email"));
+    }
+
+    @Test
+    public void pendingWrites_areSentInBoundedBatches() {
+        backend.offline = true;
+        ProfileWriteJournal journal = new ProfileWriteJournal(backend, () -> file, DIRECT, null, 4);
+        for (int i = 0; i < 10; i++) {
+            journal.enqueue(ProfileUpsert.forReturningUser("u" + i, i + "@example.com"), null);
+        }
+
+        backend.offline = false;
+        journal.flush();
+
+        assertEquals(3, backend.batches.size());
+        assertEquals(4, backend.batches.get(0).size());
+        assertEquals(2, backend.batches.get(2).size());
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(store.getProfile("u" + i));
+        }
+    }
+
+    private static AuthBackend.Callback<Void> recordInto(List<String> events, String uid) {
+        return new AuthBackend.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                events.add(uid + " ok");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                events.add(uid + " failed");
+            }
+        };
+    }
+
+    @Test
+    public void callbacks_hearOnceTheWriteIsApplied() {
+        List<String> events = new ArrayList<>();
+        backend.offline = true;
+        ProfileWriteJournal journal = newJournal();
+        journal.enqueue(ProfileUpsert.forReturningUser("u1", "a@example.com"), recordInto(events, "u1"));
+        // Still queued, so not a failure yet
+        assertTrue(events.isEmpty());
+
+        backend.offline = false;
+        journal.enqueue(ProfileUpsert.forReturningUser("u2", "b@example.com"), recordInto(events, "u2"));
+
+        // The retried write went out together with the next one
+        assertEquals(List.of("u1 ok", "u2 ok"), events);
+        assertNotNull(store.getProfile("u1"));
+    }
+
+    @Test
+    public void rejectedWrite_isDroppedWithoutHoldingUpItsBatch() {
+        backend.offline = true;
+        ProfileWriteJournal journal = newJournal();
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            journal.enqueue(ProfileUpsert.forReturningUser("u" + i, i + "@example.com"), recordInto(events, "u" + i));
+        }
+
+        backend.offline = false;
+        backend.rejectedUid = "u1";
+        journal.flush();
+
+        assertEquals(List.of("u0 ok", "u1 failed", "u2 ok"), events);
+        assertNotNull(store.getProfile("u0"));
+        assertNull(store.getProfile("u1"));
+        assertNotNull(store.getProfile("u2"));
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(0, newJournal().getPendingCount());
+    }
+
+    @Test
+    public void openCircuit_dropsNothing() {
+        FakeClock clock = new FakeClock();
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000, clock);
+        RetryingAuthBackend retrying = new RetryingAuthBackend(backend,
+                new RetryPolicy.Builder().setMaxAttempts(1).build(), breaker, clock, new Random());
+        ProfileWriteJournal journal = new ProfileWriteJournal(retrying, () -> file, DIRECT);
+        // Sign-in failures elsewhere open the breaker the journal shares
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            journal.enqueue(ProfileUpsert.forReturningUser("u" + i, i + "@example.com"), recordInto(events, "u" + i));
+        }
+        journal.flush();
+
+        assertTrue(events.isEmpty());
+        assertEquals(3, journal.getPendingCount());
+        assertEquals(3, newJournal().getPendingCount());
+
+        clock.advance(60_000);
+        journal.flush();
+
+        // Sent together, not split up as if the backend had rejected the batch
+        assertEquals(1, backend.batches.size());
+        assertEquals(3, events.size());
+        assertFalse(events.stream().anyMatch(event -> event.endsWith("failed")));
+    }
+
+    @Test
+    public void offlineWrites_areKeptHoweverOftenTheyFail() {
+        backend.offline = true;
+        ProfileWriteJournal journal = newJournal();
+        List<String> events = new ArrayList<>();
+        journal.enqueue(ProfileUpsert.forReturningUser("u1", "a@example.com"), recordInto(events, "u1"));
+        long lengthAfterFirstFailure = file.length();
+        for (int i = 0; i < 1_000; i++) {
+            journal.flush();
+        }
+
+        assertTrue(events.isEmpty());
+        assertEquals(1, journal.getPendingCount());
+        // Each failure appends the write again, but compaction keeps the file from growing with them
+        assertTrue(file.length() < lengthAfterFirstFailure * 100);
+
+        backend.offline = false;
+        journal.flush();
+        assertEquals(List.of("u1 ok"), events);
+    }
+
+    @Test
+    public void transientFailure_isRetriedWithoutAnotherFlush() {
+        FakeClock clock = new FakeClock();
+        backend.offline = true;
+        ProfileWriteJournal journal = new ProfileWriteJournal(backend, () -> file, DIRECT, clock);
+        List<String> events = new ArrayList<>();
+        journal.enqueue(ProfileUpsert.forReturningUser("u1", "a@example.com"), recordInto(events, "u1"));
+        assertEquals(1, clock.pendingCount());
+
+        // Still failing on the first re-flush; the next one waits longer
+        clock.advance(5_000);
+        assertEquals(1, journal.getPendingCount());
+        assertEquals(1, clock.pendingCount());
+
+        // Online all along, only the backend was failing, so no connectivity change flushes it
+        backend.offline = false;
+        clock.advance(5 * 60_000);
+
+        assertEquals(List.of("u1 ok"), events);
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(0, clock.pendingCount());
+    }
+
+    @Test
+    public void unreadableRecord_isSkippedNotTruncated() throws IOException {
+        backend.offline = true;
+        newJournal().enqueue(ProfileUpsert.forReturningUser("u1", "a@example.com"), null);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(recordWithUnknownFieldType("u9"));
+        }
+        newJournal().enqueue(ProfileUpsert.forReturningUser("u2", "b@example.com"), null);
+
+        backend.offline = false;
+        ProfileWriteJournal restarted = newJournal();
+        assertEquals(2, restarted.getPendingCount());
+        restarted.flush();
+
+        assertNotNull(store.getProfile("u1"));
+        assertNotNull(store.getProfile("u2"));
+        assertNull(store.getProfile("u9"));
+    }
+
+    /**
+     * A well-formed pending record whose only field has a value type this version can't read.
+     */
+    private static byte[] recordWithUnknownFieldType(String uid) throws IOException {
+        java.io.ByteArrayOutputStream bodyBytes = new java.io.ByteArrayOutputStream();
+        java.io.DataOutputStream body = new java.io.DataOutputStream(bodyBytes);
+        body.writeByte(1);
+        body.writeLong(1_000);
+        body.writeUTF(uid);
+        body.writeInt(1);
+        body.writeUTF("email");
+        body.writeByte(99);
+        byte[] bodyArray = bodyBytes.toByteArray();
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(bodyArray, 0, bodyArray.length);
+
+        java.io.ByteArrayOutputStream record = new java.io.ByteArrayOutputStream();
+        java.io.DataOutputStream out = new java.io.DataOutputStream(record);
+        out.writeInt(bodyArray.length);
+        out.write(bodyArray);
+        out.writeLong(crc.getValue());
+        return record.toByteArray();
+    }
+}
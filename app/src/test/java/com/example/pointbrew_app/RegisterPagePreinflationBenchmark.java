@@ -0,0 +1,71 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Main-thread cost of switching to the register page, inflated inline versus handed out by a
+ * {@link LayoutPreinflater}. Times are JVM times, so compare them with each other rather than
+ * with a device frame budget.
+ *
+ * The iteration count can be changed with {@code -Dpreinflation.benchmark.iterations=1000}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RegisterPagePreinflationBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("preinflation.benchmark.iterations", 200);
+
+    @Test
+    public void switchToRegister() {
+        Context context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.Theme_PointBrew_App);
+        LayoutInflater inflater = LayoutInflater.from(context);
+        FrameLayout pageContainer = new FrameLayout(context);
+        // The login page is already showing, so the widget classes both pages use are loaded
+        inflater.inflate(R.layout.fragment_login, pageContainer, false);
+
+        long start = System.nanoTime();
+        inflater.inflate(R.layout.fragment_register, pageContainer, false);
+        long firstInlineNanos = System.nanoTime() - start;
+
+        List<Runnable> idleTasks = new ArrayList<>();
+        LayoutPreinflater preinflater = new LayoutPreinflater(
+                (layoutId, parent, callback) -> callback.accept(inflater.inflate(layoutId, parent, false)),
+                idleTasks::add);
+        long inlineNanos = 0;
+        long preinflatedNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            start = System.nanoTime();
+            inflater.inflate(R.layout.fragment_register, pageContainer, false);
+            inlineNanos += System.nanoTime() - start;
+
+            preinflater.preinflate(R.layout.fragment_register, pageContainer);
+            for (Runnable task : idleTasks) {
+                task.run();
+            }
+            idleTasks.clear();
+            start = System.nanoTime();
+            View page = preinflater.inflate(inflater, R.layout.fragment_register, pageContainer);
+            preinflatedNanos += System.nanoTime() - start;
+            assertNotNull(page.findViewById(R.id.et_email));
+        }
+
+        System.out.printf("register page  first inline=%8.1fus  inline avg=%8.1fus  pre-inflated avg=%6.2fus%n",
+                firstInlineNanos / 1_000.0, inlineNanos / 1_000.0 / ITERATIONS,
+                preinflatedNanos / 1_000.0 / ITERATIONS);
+        assertEquals(ITERATIONS, preinflater.getHitCount());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Inflates the real auth layouts under Robolectric. The background inflate and the idle wait
+ * are run by the test, so nothing depends on timing; {@link RegisterPagePreinflationBenchmark}
+ * reports how much the first switch saves.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RegisterPagePreinflationTest {
+
+    private Context context;
+    private LayoutInflater inflater;
+    private FrameLayout pageContainer;
+
+    @Before
+    public void setUp() {
+        context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.Theme_PointBrew_App);
+        inflater = LayoutInflater.from(context);
+        pageContainer = new FrameLayout(context);
+        // The login page is already showing, so the widget classes both pages use are loaded
+        inflater.inflate(R.layout.fragment_login, pageContainer, false);
+    }
+
+    /**
+     * Inflates the real layout as soon as the idle task runs, standing in for the background
+     * thread of {@link LayoutPreinflater#create}.
+     */
+    private LayoutPreinflater inlinePreinflater(List<Runnable> idleTasks) {
+        return new LayoutPreinflater(
+                (layoutId, parent, callback) -> callback.accept(inflater.inflate(layoutId, parent, false)),
+                idleTasks::add);
+    }
+
+    private static void idle(List<Runnable> idleTasks) {
+        for (Runnable task : idleTasks) {
+            task.run();
+        }
+        idleTasks.clear();
+    }
+
+    @Test
+    public void firstSwitchToRegister_usesPreinflatedView() {
+        List<Runnable> idleTasks = new ArrayList<>();
+        LayoutPreinflater preinflater = inlinePreinflater(idleTasks);
+        preinflater.preinflate(R.layout.fragment_register, pageContainer);
+        assertFalse(preinflater.isReady(R.layout.fragment_register));
+
+        idle(idleTasks);
+        assertTrue(preinflater.isReady(R.layout.fragment_register));
+        View page = preinflater.inflate(inflater, R.layout.fragment_register, pageContainer);
+
+        assertNotNull(page.findViewById(R.id.et_email));
+        assertNull("the page must not be attached before the fragment adds it", page.getParent());
+        assertEquals(1, preinflater.getHitCount());
+        assertEquals(0, preinflater.getMissCount());
+    }
+
+    @Test
+    public void preinflatedView_isHandedOutOnce() {
+        List<Runnable> idleTasks = new ArrayList<>();
+        LayoutPreinflater preinflater = inlinePreinflater(idleTasks);
+        preinflater.preinflate(R.layout.fragment_register, pageContainer);
+        idle(idleTasks);
+
+        View first = preinflater.inflate(inflater, R.layout.fragment_register, pageContainer);
+        View second = preinflater.inflate(inflater, R.layout.fragment_register, pageContainer);
+
+        assertNotSame(first, second);
+        assertEquals(1, preinflater.getHitCount());
+        assertEquals(1, preinflater.getMissCount());
+    }
+
+    @Test
+    public void nothingIsInflated_untilMainThreadIsIdle() {
+        List<Runnable> idleTasks = new ArrayList<>();
+        List<Consumer<View>> inflations = new ArrayList<>();
+        LayoutPreinflater preinflater = new LayoutPreinflater(
+                (layoutId, parent, callback) -> inflations.add(callback), idleTasks::add);
+
+        preinflater.preinflate(R.layout.fragment_register, pageContainer);
+        preinflater.preinflate(R.layout.fragment_register, pageContainer);
+
+        assertEquals(1, idleTasks.size());
+        assertTrue(inflations.isEmpty());
+        idleTasks.get(0).run();
+        assertEquals(1, inflations.size());
+    }
+
+    @Test
+    public void viewFinishingAfterTheSwitch_isDropped() {
+        List<Runnable> idleTasks = new ArrayList<>();
+        List<Consumer<View>> inflations = new ArrayList<>();
+        LayoutPreinflater preinflater = new LayoutPreinflater(
+                (layoutId, parent, callback) -> inflations.add(callback), idleTasks::add);
+        preinflater.preinflate(R.layout.fragment_register, pageContainer);
+        idleTasks.get(0).run();
+
+        // The user swiped before the background inflate finished
+        View inline = preinflater.inflate(inflater, R.layout.fragment_register, pageContainer);
+        inflations.get(0).accept(new View(context));
+
+        assertNotNull(inline.findViewById(R.id.et_email));
+        assertFalse(preinflater.isReady(R.layout.fragment_register));
+        assertEquals(1, preinflater.getMissCount());
+    }
+
+    @Test
+    public void clear_dropsReadyAndPendingViews() {
+        List<Runnable> idleTasks = new ArrayList<>();
+        List<Consumer<View>> inflations = new ArrayList<>();
+        LayoutPreinflater preinflater = new LayoutPreinflater(
+                (layoutId, parent, callback) -> inflations.add(callback), idleTasks::add);
+        preinflater.preinflate(R.layout.fragment_register, pageContainer);
+        preinflater.preinflate(R.layout.fragment_login, pageContainer);
+        idleTasks.get(0).run();
+        inflations.get(0).accept(new View(context));
+
+        preinflater.clear();
+        idleTasks.get(1).run();
+
+        assertFalse(preinflater.isReady(R.layout.fragment_register));
+        assertEquals("a cleared request must not start inflating", 1, inflations.size());
+    }
+}
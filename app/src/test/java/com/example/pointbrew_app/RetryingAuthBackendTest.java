@@ -0,0 +1,200 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RetryingAuthBackendTest {
+
+    /**
+     * Fails the next {@code failures} calls with the given error before letting calls through.
+     */
+    private static final class FlakyBackend extends ForwardingAuthBackend {
+        final AtomicInteger calls = new AtomicInteger();
+        int failures;
+        Exception error = new IOException("connection reset");
+
+        FlakyBackend(AuthBackend delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void signInWithEmail(String email, String password, Callback<SignInResult> callback) {
+            calls.incrementAndGet();
+            if (failures > 0) {
+                failures--;
+                callback.onError(error);
+            } else {
+                super.signInWithEmail(email, password, callback);
+            }
+        }
+
+        @Override
+        public void createUserWithEmail(String email, String password, Callback<SignInResult> callback) {
+            calls.incrementAndGet();
+            callback.onError(error);
+        }
+    }
+
+    private static final class Result<T> implements AuthBackend.Callback<T> {
+        final AtomicReference<T> value = new AtomicReference<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final AtomicInteger completions = new AtomicInteger();
+
+        @Override
+        public void onSuccess(T result) {
+            value.set(result);
+            completions.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error.set(e);
+            completions.incrementAndGet();
+        }
+    }
+
+    private FakeClock clock;
+    private FlakyBackend flaky;
+    private CircuitBreaker breaker;
+    private RetryingAuthBackend backend;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        InMemoryAuthBackend inMemory = new InMemoryAuthBackend();
+        inMemory.addAccount("ann@example.com", "secret1", "Ann");
+        flaky = new FlakyBackend(inMemory);
+        breaker = new CircuitBreaker(3, 10_000, clock);
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setMaxAttempts(4)
+                .setInitialDelayMillis(100)
+                .setMaxDelayMillis(1_000)
+                .setJitter(0)
+                .build();
+        backend = new RetryingAuthBackend(flaky, policy, breaker, clock, new Random(7));
+    }
+
+    @Test
+    public void transientFailure_isRetriedWithBackoff() {
+        flaky.failures = 2;
+        Result<AuthBackend.SignInResult> result = new Result<>();
+
+        backend.signInWithEmail("ann@example.com", "secret1", result);
+        assertEquals(1, flaky.calls.get());
+        clock.advance(99);
+        assertEquals(1, flaky.calls.get());
+        clock.advance(1);
+        assertEquals(2, flaky.calls.get());
+        // Second retry waits twice as long
+        clock.advance(199);
+        assertEquals(2, flaky.calls.get());
+        clock.advance(1);
+
+        assertEquals(3, flaky.calls.get());
+        assertNotNull(result.value.get());
+        assertEquals(1, result.completions.get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void nonTransientFailure_isNotRetried() {
+        flaky.failures = 1;
+        flaky.error = new IllegalArgumentException("wrong password");
+        Result<AuthBackend.SignInResult> result = new Result<>();
+
+        backend.signInWithEmail("ann@example.com", "secret1", result);
+        clock.advance(10_000);
+
+        assertEquals(1, flaky.calls.get());
+        assertSame(flaky.error, result.error.get());
+    }
+
+    @Test
+    public void attemptsBudget_isRespected() {
+        RetryPolicy policy = new RetryPolicy.Builder().setMaxAttempts(2).setJitter(0).build();
+        backend = new RetryingAuthBackend(flaky, policy, new CircuitBreaker(100, 10_000, clock), clock, new Random());
+        flaky.failures = 5;
+        Result<AuthBackend.SignInResult> result = new Result<>();
+
+        backend.signInWithEmail("ann@example.com", "secret1", result);
+        clock.advance(60_000);
+
+        assertEquals(2, flaky.calls.get());
+        assertTrue(result.error.get() instanceof IOException);
+        assertEquals(1, result.completions.get());
+    }
+
+    @Test
+    public void accountCreation_isNeverRetried() {
+        Result<AuthBackend.SignInResult> result = new Result<>();
+
+        backend.createUserWithEmail("new@example.com", "secret1", result);
+        clock.advance(60_000);
+
+        assertEquals(1, flaky.calls.get());
+        assertNotNull(result.error.get());
+    }
+
+    @Test
+    public void circuitBreaker_failsFastWhileOpenThenRecovers() {
+        flaky.failures = 100;
+        Result<AuthBackend.SignInResult> first = new Result<>();
+        backend.signInWithEmail("ann@example.com", "secret1", first);
+        clock.advance(2_000);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        int callsWhenOpened = flaky.calls.get();
+
+        Result<AuthBackend.SignInResult> rejected = new Result<>();
+        backend.signInWithEmail("ann@example.com", "secret1", rejected);
+        assertTrue(rejected.error.get() instanceof CircuitOpenException);
+        assertEquals(callsWhenOpened, flaky.calls.get());
+
+        // After the open period a single trial request goes through
+        flaky.failures = 0;
+        clock.advance(10_000);
+        Result<AuthBackend.SignInResult> trial = new Result<>();
+        backend.signInWithEmail("ann@example.com", "secret1", trial);
+        assertNotNull(trial.value.get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void openCircuit_isReportedAsTransient() {
+        flaky.failures = 100;
+        backend.signInWithEmail("ann@example.com", "secret1", new Result<>());
+        clock.advance(2_000);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Result<AuthBackend.SignInResult> rejected = new Result<>();
+        backend.signInWithEmail("ann@example.com", "secret1", rejected);
+
+        assertTrue(rejected.error.get() instanceof CircuitOpenException);
+        assertTrue(backend.isTransientError(rejected.error.get()));
+        assertFalse(backend.isTransientError(new IllegalArgumentException("wrong password")));
+    }
+
+    @Test
+    public void delays_growExponentiallyWithJitterBelowCap() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setInitialDelayMillis(100)
+                .setMaxDelayMillis(1_000)
+                .setMultiplier(2)
+                .setJitter(0.5)
+                .build();
+        Random random = new Random(3);
+
+        for (int retry = 1; retry <= 8; retry++) {
+            long ceiling = Math.min(1_000, 100L << (retry - 1));
+            long delay = policy.getDelayMillis(retry, random);
+            assertTrue(delay <= ceiling);
+            assertTrue(delay >= ceiling / 2);
+        }
+    }
+}
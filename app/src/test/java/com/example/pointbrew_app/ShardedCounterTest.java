@@ -0,0 +1,199 @@
+package com.example.pointbrew_app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ShardedCounterTest {
+
+    private static final String PATH = "stats/logins-2026-10-18";
+    private static final long TTL_MILLIS = 60_000;
+
+    private InMemoryCounterStore store;
+    private FakeClock clock;
+    private ShardedCounter counter;
+    private final List<Long> totals = new ArrayList<>();
+
+    private final AuthBackend.Callback<Long> recordTotal = new AuthBackend.Callback<Long>() {
+        @Override
+        public void onSuccess(Long total) {
+            totals.add(total);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            fail(e.getMessage());
+        }
+    };
+
+    private static final AuthBackend.Callback<Void> IGNORE = new AuthBackend.Callback<Void>() {
+        @Override
+        public void onSuccess(Void result) {
+        }
+
+        @Override
+        public void onError(Exception e) {
+            fail(e.getMessage());
+        }
+    };
+
+    @Before
+    public void setUp() {
+        store = new InMemoryCounterStore();
+        clock = new FakeClock(1_000_000);
+        counter = new ShardedCounter(store, PATH, 10, new Random(42), clock, TTL_MILLIS);
+    }
+
+    @Test
+    public void increments_areSpreadOverShards() {
+        for (int i = 0; i < 1000; i++) {
+            counter.increment(1, IGNORE);
+        }
+
+        long sum = 0;
+        for (int shard = 0; shard < 10; shard++) {
+            long value = store.getShard(PATH, shard);
+            assertTrue("shard " + shard + " got " + value, value > 50 && value < 150);
+            sum += value;
+        }
+        assertEquals(1000, sum);
+    }
+
+    @Test
+    public void read_sumsShardsAndCachesTotal() {
+        counter.increment(3, IGNORE);
+        counter.increment(4, IGNORE);
+
+        counter.read(recordTotal);
+        counter.read(recordTotal);
+
+        assertEquals(List.of(7L, 7L), totals);
+        assertEquals(1, store.getReadCount());
+    }
+
+    @Test
+    public void ownIncrements_showInCachedTotal() {
+        counter.read(recordTotal);
+
+        counter.increment(5, IGNORE);
+        counter.read(recordTotal);
+
+        assertEquals(List.of(0L, 5L), totals);
+        assertEquals(1, store.getReadCount());
+    }
+
+    @Test
+    public void expiredCache_readsShardsAgain() {
+        counter.read(recordTotal);
+        // Another device counts a login
+        new ShardedCounter(store, PATH, 10, new Random(7), clock, TTL_MILLIS).increment(1, IGNORE);
+
+        clock.advance(TTL_MILLIS);
+        counter.read(recordTotal);
+
+        assertEquals(List.of(0L, 1L), totals);
+        assertEquals(2, store.getReadCount());
+    }
+
+    @Test
+    public void invalidate_forcesRead() {
+        counter.read(recordTotal);
+
+        counter.invalidate();
+        counter.read(recordTotal);
+
+        assertEquals(2, store.getReadCount());
+    }
+
+    @Test
+    public void concurrentIncrements_areAllCounted() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads * perThread);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        counter.increment(1, new AuthBackend.Callback<Void>() {
+                            @Override
+                            public void onSuccess(Void result) {
+                                done.countDown();
+                            }
+
+                            @Override
+                            public void onError(Exception e) {
+                                failures.incrementAndGet();
+                                done.countDown();
+                            }
+                        });
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        counter.read(recordTotal);
+        assertEquals(0, failures.get());
+        assertEquals(Long.valueOf(threads * perThread), totals.get(0));
+    }
+
+    @Test
+    public void loginStats_countsUserAndDay() {
+        LoginStats stats = new LoginStats(store, clock, new Random(42));
+
+        stats.recordLogin("u1");
+        stats.recordLogin("u1");
+        stats.recordLogin("u2");
+        stats.getLoginCount("u1", recordTotal);
+        stats.getLoginsToday(recordTotal);
+
+        assertEquals(List.of(2L, 3L), totals);
+        assertEquals(2, store.getShard(LoginStats.userLoginsPath("u1"), 0));
+    }
+
+    @Test
+    public void dailyCounter_rollsOverAtUtcMidnight() {
+        assertEquals("stats/logins-2026-10-18", LoginStats.dailyLoginsPath(1792281600000L + 86_399_999L));
+        assertEquals("stats/logins-2026-10-19", LoginStats.dailyLoginsPath(1792281600000L + 86_400_000L));
+    }
+
+    @Test
+    public void signIn_isCounted() {
+        InMemoryAuthBackend backend = new InMemoryAuthBackend();
+        backend.addAccount("ann@example.com", "secret1", "Ann");
+        LoginStats stats = new LoginStats(store, clock, new Random(42));
+        AuthManager authManager = new AuthManager.Builder(backend, FakeGoogleSignInGateway::new)
+                .setIdTokens(() -> new IdTokenManager(backend::getIdToken, clock, clock))
+                .setLoginStats(() -> stats)
+                .build();
+
+        authManager.loginWithEmail("ann@example.com", "secret1", new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        stats.getLoginCount(authManager.getCurrentUser().getUid(), recordTotal);
+        stats.getLoginsToday(recordTotal);
+
+        assertEquals(List.of(1L, 1L), totals);
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.pointbrew_app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 10;
+
+    private ScheduledExecutorService scheduler;
+    private InMemoryAuthBackend backend;
+    private AuthManager authManager;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+        backend = new InMemoryAuthBackend();
+        // Long enough that every caller arrives while the first request is still in flight
+        AuthBackend network = new FaultInjectingAuthBackend(backend, scheduler, 1).setLatency(200, 0);
+        authManager = new AuthManager.Builder(network, () -> null).build();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private interface Call {
+        void run(AuthManager.AuthCallback callback);
+    }
+
+    /**
+     * Fires the call from {@link #CALLERS} threads at once and returns the users they received.
+     */
+    private Set<AuthUser> callConcurrently(Call call) throws InterruptedException {
+        Set<AuthUser> users = Collections.synchronizedSet(new HashSet<>());
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                call.run(new AuthManager.AuthCallback() {
+                    @Override
+                    public void onSuccess(AuthUser user) {
+                        users.add(user);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        errors.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        return users;
+    }
+
+    @Test
+    public void concurrentLogins_shareOneBackendCall() throws InterruptedException {
+        backend.addAccount("ann@example.com", "secret1", "Ann");
+
+        Set<AuthUser> users = callConcurrently(
+                callback -> authManager.loginWithEmail("ann@example.com", "secret1", callback));
+
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.SIGN_IN_WITH_EMAIL));
+        assertEquals(1, users.size());
+    }
+
+    @Test
+    public void concurrentRegistrations_createOneAccountAndOneProfile() throws Exception {
+        Set<AuthUser> users = callConcurrently(
+                callback -> authManager.registerWithEmail("Ann", "ann@example.com", "secret1", null, callback));
+
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.CREATE_USER_WITH_EMAIL));
+        assertEquals(1, users.size());
+        authManager.awaitProfileWrite(users.iterator().next().getUid()).get(5, TimeUnit.SECONDS);
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.UPSERT_PROFILES));
+    }
+
+    @Test
+    public void concurrentGoogleSignIns_shareOneBackendCall() throws InterruptedException {
+        callConcurrently(callback -> authManager.firebaseAuthWithGoogle("gus@example.com", callback));
+
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.SIGN_IN_WITH_GOOGLE));
+    }
+
+    @Test
+    public void concurrentPasswordResets_sendOneEmail() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            authManager.sendPasswordResetEmail("ann@example.com", new AuthBackend.Callback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    fail(e.getMessage());
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, backend.getCallCount(InMemoryAuthBackend.SEND_PASSWORD_RESET));
+    }
+
+    @Test
+    public void differentPasswords_areNotCoalesced() throws InterruptedException {
+        backend.addAccount("ann@example.com", "secret1", "Ann");
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicInteger failures = new AtomicInteger();
+        AuthManager.AuthCallback callback = new AuthManager.AuthCallback() {
+            @Override
+            public void onSuccess(AuthUser user) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                failures.incrementAndGet();
+                done.countDown();
+            }
+        };
+
+        authManager.loginWithEmail("ann@example.com", "secret1", callback);
+        authManager.loginWithEmail("ann@example.com", "wrong", callback);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, backend.getCallCount(InMemoryAuthBackend.SIGN_IN_WITH_EMAIL));
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    public void completedFlight_releasesKey() {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        AuthBackend.Callback<String> ignore = new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        };
+
+        assertTrue(flight.execute("k", ignore, cb -> { calls.incrementAndGet(); cb.onSuccess("a"); }));
+        assertFalse(flight.isInFlight("k"));
+        assertTrue(flight.execute("k", ignore, cb -> { calls.incrementAndGet(); cb.onSuccess("b"); }));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void throwingWaiter_doesNotKeepResultFromOthers() {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicReference<AuthBackend.Callback<String>> pending = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        AtomicReference<Exception> secondError = new AtomicReference<>();
+        flight.execute("k", new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                throw new IllegalStateException("view already destroyed");
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        }, pending::set);
+        flight.execute("k", new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                second.set(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                secondError.set(e);
+            }
+        }, cb -> fail("joined the flight, so it must not start a call"));
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> pending.get().onSuccess("a"));
+
+        assertEquals("view already destroyed", thrown.getMessage());
+        assertEquals("a", second.get());
+        assertNull(secondError.get());
+        assertFalse(flight.isInFlight("k"));
+    }
+
+    @Test
+    public void throwingWaiter_inSynchronousCall_isNotReportedAsCallFailure() {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger errors = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> flight.execute("k", new AuthBackend.Callback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                throw new IllegalStateException("view already destroyed");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                errors.incrementAndGet();
+            }
+        }, cb -> cb.onSuccess("a")));
+
+        assertEquals(0, errors.get());
+        assertFalse(flight.isInFlight("k"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.pointbrew_app;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Cold-starts {@link MainActivity} under Robolectric, signed out, with the app's own
+ * {@link PointBrewApplication} tracing the launch and guarding it against main-thread I/O.
+ *
+ * Times are JVM times with an in-memory backend, so the budgets are loose: they catch a phase
+ * that starts blocking on disk, the network or a lock, not a few milliseconds on a device.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StartupTraceTest {
+
+    private static final Map<String, Long> BUDGET_MILLIS = new LinkedHashMap<>();
+
+    static {
+        BUDGET_MILLIS.put("Application.onCreate", 100L);
+        BUDGET_MILLIS.put("AuthManager.create", 500L);
+        BUDGET_MILLIS.put("EdgeToEdge.enable", 500L);
+        BUDGET_MILLIS.put("setContentView", 3_000L);
+        BUDGET_MILLIS.put("AuthManager.getInstance", 50L);
+        BUDGET_MILLIS.put("MainActivity.onCreate", 5_000L);
+        BUDGET_MILLIS.put("MainActivity.showAuthScreen", 3_000L);
+    }
+
+    private final StartupTracer tracer = StartupTracer.get();
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        AuthManager.clearInstance();
+        // Built here rather than by the activity so no Firebase client is needed
+        AuthManager.getInstance(context, new InMemoryAuthBackend());
+    }
+
+    @After
+    public void tearDown() {
+        AuthManager.clearInstance();
+    }
+
+    private void launch() {
+        Robolectric.buildActivity(MainActivity.class).setup();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @Test
+    public void coldStart_phasesStayWithinBudget() {
+        launch();
+
+        assertFalse("launch never finished", tracer.isRecording());
+        for (Map.Entry<String, Long> budget : BUDGET_MILLIS.entrySet()) {
+            StartupTracer.Phase phase = tracer.getPhase(budget.getKey());
+            assertNotNull("no section " + budget.getKey(), phase);
+            assertTrue(phase + " is over its " + budget.getValue() + " ms budget",
+                    phase.getDurationMillis() <= budget.getValue());
+        }
+    }
+
+    @Test
+    public void coldStart_doesNoIoOnMainThread() {
+        launch();
+
+        assertFalse(StartupIoGuard.get().isLaunching());
+        StartupIoGuard.get().assertNoViolations();
+    }
+
+    @Test
+    public void coldStart_sectionsAreNested() {
+        launch();
+
+        StartupTracer.Phase onCreate = tracer.getPhase("MainActivity.onCreate");
+        StartupTracer.Phase setContentView = tracer.getPhase("setContentView");
+        assertEquals(0, onCreate.getDepth());
+        assertEquals(1, setContentView.getDepth());
+        assertTrue(setContentView.getStartNanos() >= onCreate.getStartNanos());
+        assertTrue(setContentView.getStartNanos() + setContentView.getDurationNanos()
+                <= onCreate.getStartNanos() + onCreate.getDurationNanos());
+        assertTrue(tracer.toJson().contains("\"name\":\"MainActivity.showAuthScreen\""));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.pointbrew_app;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class StartupTracerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong nanos = new AtomicLong(5_000_000);
+    private final StartupTracer tracer = new StartupTracer(nanos::get);
+
+    @After
+    public void tearDown() {
+        StartupIoGuard.get().endLaunch();
+    }
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void sections_areTimedAndNested() {
+        tracer.start();
+        advanceMillis(2);
+        tracer.beginSection("MainActivity.onCreate");
+        tracer.beginSection("setContentView");
+        advanceMillis(30);
+        tracer.endSection();
+        advanceMillis(5);
+        tracer.endSection();
+
+        List<StartupTracer.Phase> phases = tracer.getPhases();
+        assertEquals("setContentView", phases.get(0).getName());
+        assertEquals(1, phases.get(0).getDepth());
+        assertEquals(30.0, phases.get(0).getDurationMillis(), 0.001);
+        StartupTracer.Phase onCreate = tracer.getPhase("MainActivity.onCreate");
+        assertEquals(0, onCreate.getDepth());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), onCreate.getStartNanos());
+        assertEquals(35.0, onCreate.getDurationMillis(), 0.001);
+    }
+
+    @Test
+    public void onlySectionsBegunWhileRecording_areKept() {
+        tracer.beginSection("before start");
+        tracer.endSection();
+        tracer.start();
+        tracer.beginSection("open at finish");
+        assertTrue(tracer.finish());
+        tracer.beginSection("after finish");
+        tracer.endSection();
+        advanceMillis(1);
+        tracer.endSection();
+
+        assertFalse(tracer.finish());
+        assertEquals(1, tracer.getPhases().size());
+        assertEquals(1.0, tracer.getPhase("open at finish").getDurationMillis(), 0.001);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endWithoutBegin_throws() {
+        tracer.endSection();
+    }
+
+    @Test
+    public void timeline_isChromeTraceEvents() throws Exception {
+        tracer.start();
+        tracer.beginSection("AuthManager.create");
+        advanceMillis(12);
+        tracer.endSection();
+        tracer.beginSection("quote \" and \\ in a name");
+        tracer.endSection();
+        File file = new File(folder.getRoot(), "startup_trace.json");
+
+        tracer.writeTo(file);
+
+        JSONArray events = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+                .getJSONArray("traceEvents");
+        JSONObject threadName = events.getJSONObject(0);
+        assertEquals("M", threadName.getString("ph"));
+        assertEquals(Thread.currentThread().getName(), threadName.getJSONObject("args").getString("name"));
+        JSONObject create = events.getJSONObject(1);
+        assertEquals("AuthManager.create", create.getString("name"));
+        assertEquals("X", create.getString("ph"));
+        assertEquals(0.0, create.getDouble("ts"), 0.001);
+        assertEquals(12_000.0, create.getDouble("dur"), 0.001);
+        assertEquals(threadName.getLong("tid"), create.getLong("tid"));
+        assertEquals("quote \" and \\ in a name", events.getJSONObject(2).getString("name"));
+    }
+
+    @Test
+    public void guard_rejectsDiskIoOnLaunchThread() {
+        StartupIoGuard guard = StartupIoGuard.get();
+        guard.beginLaunch(true);
+        ProfileWriteJournal journal = new ProfileWriteJournal(new InMemoryAuthBackend(),
+                () -> new File(folder.getRoot(), "journal.bin"), Runnable::run);
+
+        try {
+            journal.flush();
+            fail("journal read the disk on the launch thread");
+        } catch (IllegalStateException expected) {
+            assertEquals(1, guard.getViolations().size());
+            assertEquals("disk: profile journal read", guard.getViolations().get(0));
+        }
+        try {
+            guard.assertNoViolations();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void guard_allowsDiskIoOffLaunchThreadAndAfterLaunch() throws Exception {
+        StartupIoGuard guard = StartupIoGuard.get();
+        guard.beginLaunch(true);
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        try {
+            new ProfileWriteJournal(new InMemoryAuthBackend(), () -> new File(folder.getRoot(), "journal.bin"), io)
+                    .flush();
+            io.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            guard.assertNoViolations();
+        } finally {
+            io.shutdownNow();
+        }
+
+        guard.endLaunch();
+        new ProfileWriteJournal(new InMemoryAuthBackend(), () -> new File(folder.getRoot(), "other.bin"),
+                Runnable::run).flush();
+        assertFalse(guard.isLaunching());
+        guard.assertNoViolations();
+    }
+}